@@ -18,12 +18,15 @@ package org.springmodules.lucene.index.core;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.springmodules.lucene.index.DocumentHandlerException;
@@ -385,6 +388,61 @@ public class DefaultLuceneIndexTemplate implements LuceneIndexTemplate {
 		addDocuments(updatedDocuments, analyzer);
 	}
 
+	public void updateDocuments(Map documentModifiers) {
+		updateDocuments(documentModifiers, null);
+	}
+
+	public void updateDocuments(Map documentModifiers, Analyzer analyzer) {
+		if( documentModifiers.isEmpty() ) {
+			return;
+		}
+
+		List updatedDocuments = new ArrayList(documentModifiers.size());
+		LuceneIndexReader reader = IndexReaderFactoryUtils.getIndexReader(indexFactory);
+		try {
+			//Resolution of all the documents before any deletion
+			for(Iterator i=documentModifiers.entrySet().iterator(); i.hasNext();) {
+				Map.Entry entry = (Map.Entry)i.next();
+				Term identifierTerm = (Term)entry.getKey();
+				DocumentModifier documentModifier = (DocumentModifier)entry.getValue();
+				Document document = reader.document(getUniqueDocument(reader, identifierTerm));
+				updatedDocuments.add(documentModifier.updateDocument(document));
+			}
+
+			for(Iterator i=documentModifiers.keySet().iterator(); i.hasNext();) {
+				reader.deleteDocuments((Term)i.next());
+			}
+		} catch(LuceneIndexAccessException ex) {
+			throw ex;
+		} catch(Exception ex) {
+			throw new LuceneIndexAccessException("Error during updating documents.", ex);
+		} finally {
+			IndexReaderFactoryUtils.releaseIndexReader(indexFactory, reader);
+		}
+
+		addDocuments(updatedDocuments, analyzer);
+	}
+
+	/**
+	 * Return the internal identifier of the only document matching
+	 * the specified term.
+	 */
+	private int getUniqueDocument(LuceneIndexReader reader, Term identifierTerm) throws IOException {
+		TermDocs termDocs = reader.termDocs(identifierTerm);
+		try {
+			if( !termDocs.next() ) {
+				throw new LuceneIndexAccessException("The identifier " + identifierTerm + " returns no document.");
+			}
+			int document = termDocs.doc();
+			if( termDocs.next() ) {
+				throw new LuceneIndexAccessException("The identifier " + identifierTerm + " returns more than one document.");
+			}
+			return document;
+		} finally {
+			termDocs.close();
+		}
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with index insertions
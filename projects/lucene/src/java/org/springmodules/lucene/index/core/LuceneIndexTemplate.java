@@ -17,6 +17,7 @@
 package org.springmodules.lucene.index.core;
 
 import java.util.List;
+import java.util.Map;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
@@ -282,6 +283,32 @@ public interface LuceneIndexTemplate {
 	 */
 	void updateDocuments(Term identifierTerm, DocumentsModifier documentsModifier, Analyzer analyzer);
 
+	/**
+	 * Update several documents, each one being identified by a term
+	 * and modified by the callback method defined in the DocumentModifier
+	 * interface.
+	 * Unlike successive calls of the updateDocument method, all the
+	 * documents are resolved and deleted using a single IndexReader
+	 * and the modified documents are then added using a single IndexWriter.
+	 * No document is deleted if one of the terms doesn't identify exactly
+	 * one document. As the modified documents are kept in memory until
+	 * they are added, very large updates should be split in several calls.
+	 * @param documentModifiers the map of DocumentModifier implementations
+	 * keyed by the terms identifying the documents to modify
+	 */
+	void updateDocuments(Map documentModifiers);
+
+	/**
+	 * Update several documents, each one being identified by a term
+	 * and modified by the callback method defined in the DocumentModifier
+	 * interface, with a specified analyzer.
+	 * @param documentModifiers the map of DocumentModifier implementations
+	 * keyed by the terms identifying the documents to modify
+	 * @param analyzer the Lucene analyzer to use to index
+	 * @see #updateDocuments(Map)
+	 */
+	void updateDocuments(Map documentModifiers, Analyzer analyzer);
+
 	/**
 	 * Add an index created outside the template to the index. In this case,
 	 * the application needs to manage exceptions.
@@ -306,7 +333,9 @@ public interface LuceneIndexTemplate {
 
 	/**
 	 * Index optimize method. We recommend to use this method as the end
-	 * of an indexing.
+	 * of an indexing, or to let an IndexMaintenanceScheduler optimize
+	 * the index in background when it is necessary.
+	 * @see org.springmodules.lucene.index.support.IndexMaintenanceScheduler
 	 */
 	void optimize();
 
@@ -0,0 +1,728 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.index.core.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springmodules.lucene.index.LuceneIndexingException;
+import org.springmodules.lucene.index.core.ReaderCallback;
+import org.springmodules.lucene.index.core.WriterCallback;
+import org.springmodules.lucene.index.factory.IndexFactory;
+import org.springmodules.lucene.index.factory.IndexReaderFactoryUtils;
+import org.springmodules.lucene.index.factory.IndexWriterFactoryUtils;
+import org.springmodules.lucene.index.factory.LuceneIndexReader;
+import org.springmodules.lucene.index.factory.LuceneIndexWriter;
+
+import edu.emory.mathcs.backport.java.util.concurrent.BlockingQueue;
+import edu.emory.mathcs.backport.java.util.concurrent.CancellationException;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
+import edu.emory.mathcs.backport.java.util.concurrent.LinkedBlockingQueue;
+import edu.emory.mathcs.backport.java.util.concurrent.TimeUnit;
+import edu.emory.mathcs.backport.java.util.concurrent.TimeoutException;
+
+/**
+ * <p>Asynchronous indexing pipeline where every modification of an index
+ * is applied by a single dedicated thread. It allows several threads of
+ * an application, for example the request threads of a web application,
+ * to update the same index without waiting for the Lucene write lock.
+ *
+ * <p>The operations are submitted as WriterCallback or ReaderCallback
+ * instances (the latter for deletions, since Lucene deletes documents with
+ * an IndexReader) and a Future is returned for each of them. The Future
+ * gives the value returned by the callback or the exception thrown, wrapped
+ * in an ExecutionException.
+ *
+ * <p>The writer thread takes the pending operations in batches (whose size
+ * is specified by the maxBatchSize property) and applies them in the order
+ * of their submission. The consecutive operations of the same kind share the
+ * same IndexWriter or IndexReader, which is closed once they are all applied.
+ * The Future of an operation is only completed after this closing, so that
+ * a successful result means that the modification is committed in the index.
+ *
+ * <p>The pending operations are kept in a bounded queue, whose capacity is
+ * specified by the queueCapacity property. When the queue is full, the
+ * submitting threads wait for the writer thread, or until the timeout
+ * specified by the submitTimeout property is reached. In this case, a
+ * LuceneIndexingException is thrown.
+ *
+ * <p>When the writer thread stops, because the queue is destroyed or
+ * the thread is interrupted, the operations still pending are not applied:
+ * their Future fails with a LuceneIndexingException.
+ *
+ * <p>This class replaces the LuceneChannel and ConcurrentLuceneIndexTemplate
+ * classes of the sandbox.
+ *
+ * @author Thierry Templier
+ * @see org.springmodules.lucene.index.core.WriterCallback
+ * @see org.springmodules.lucene.index.core.ReaderCallback
+ * @see edu.emory.mathcs.backport.java.util.concurrent.Future
+ */
+public class IndexOperationQueue implements InitializingBean, DisposableBean {
+
+	public final static int DEFAULT_QUEUE_CAPACITY = 1000;
+	public final static int DEFAULT_MAX_BATCH_SIZE = 100;
+	public final static String DEFAULT_THREAD_NAME = "IndexOperationQueue";
+
+	private static final Log logger = LogFactory.getLog(IndexOperationQueue.class);
+
+	private IndexFactory indexFactory;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private long submitTimeout;
+	private String threadName = DEFAULT_THREAD_NAME;
+
+	private BlockingQueue operations;
+	private Thread writerThread;
+	private volatile boolean running;
+
+	/**
+	 * Monitor guarding the running flag and the count of the submissions
+	 * in progress, so that no operation can be queued after the stop
+	 * request of the writer thread.
+	 */
+	private final Object lifecycleMonitor = new Object();
+	private int activeSubmissions;
+
+	/**
+	 * Construct a new IndexOperationQueue for bean usage.
+	 * Note: The IndexFactory has to be set before using the instance.
+	 *
+	 * @see #setIndexFactory(IndexFactory)
+	 */
+	public IndexOperationQueue() {
+	}
+
+	/**
+	 * Construct a new IndexOperationQueue, given an IndexFactory, and
+	 * start its writer thread.
+	 *
+	 * @param indexFactory IndexFactory used to get the IndexWriter
+	 * and IndexReader instances
+	 */
+	public IndexOperationQueue(IndexFactory indexFactory) {
+		setIndexFactory(indexFactory);
+		afterPropertiesSet();
+	}
+
+	/**
+	 * Set the IndexFactory used to get the IndexWriter and IndexReader instances.
+	 */
+	public void setIndexFactory(IndexFactory indexFactory) {
+		this.indexFactory = indexFactory;
+	}
+
+	/**
+	 * Return the IndexFactory used to get the IndexWriter and IndexReader instances.
+	 */
+	public IndexFactory getIndexFactory() {
+		return indexFactory;
+	}
+
+	/**
+	 * Set the maximum number of pending operations. Default is 1000.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Return the maximum number of pending operations.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Set the maximum number of operations taken at a time by the
+	 * writer thread. Default is 100.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Return the maximum number of operations taken at a time by
+	 * the writer thread.
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for a place in the
+	 * queue when submitting an operation. Default is 0, which means
+	 * waiting until a place is available.
+	 */
+	public void setSubmitTimeout(long submitTimeout) {
+		this.submitTimeout = submitTimeout;
+	}
+
+	/**
+	 * Return the maximum time in milliseconds to wait for a place in
+	 * the queue when submitting an operation.
+	 */
+	public long getSubmitTimeout() {
+		return submitTimeout;
+	}
+
+	/**
+	 * Set the name of the writer thread.
+	 */
+	public void setThreadName(String threadName) {
+		this.threadName = threadName;
+	}
+
+	/**
+	 * Return the name of the writer thread.
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * Return the number of operations waiting for the writer thread.
+	 */
+	public int getPendingOperationCount() {
+		return operations!=null ? operations.size() : 0;
+	}
+
+	/**
+	 * Check the configuration and start the writer thread.
+	 */
+	public void afterPropertiesSet() {
+		if( indexFactory==null ) {
+			throw new IllegalArgumentException("indexFactory is required");
+		}
+		if( queueCapacity<1 || maxBatchSize<1 ) {
+			throw new IllegalArgumentException("queueCapacity and maxBatchSize must be positive");
+		}
+
+		this.operations = new LinkedBlockingQueue(queueCapacity);
+		this.running = true;
+		this.writerThread = new Thread(new Runnable() {
+			public void run() {
+				processOperations();
+			}
+		}, threadName);
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+		if( logger.isInfoEnabled() ) {
+			logger.info("Index writer thread " + threadName + " started");
+		}
+	}
+
+	/**
+	 * Stop the writer thread once all the submitted operations are applied.
+	 * The operations submitted after the call of this method are rejected.
+	 */
+	public void destroy() throws InterruptedException {
+		synchronized( lifecycleMonitor ) {
+			if( !running ) {
+				return;
+			}
+			running = false;
+			while( activeSubmissions>0 ) {
+				lifecycleMonitor.wait();
+			}
+		}
+		operations.put(new PendingOperation(null, null));
+		writerThread.join();
+		if( logger.isInfoEnabled() ) {
+			logger.info("Index writer thread " + threadName + " stopped");
+		}
+	}
+
+	/**
+	 * Submit an operation based on an IndexWriter.
+	 *
+	 * @param callback the operation to apply
+	 * @return the Future of the value returned by the callback
+	 * @throws LuceneIndexingException if the operation can not
+	 * be added to the queue
+	 */
+	public Future submit(WriterCallback callback) {
+		if( callback==null ) {
+			throw new IllegalArgumentException("callback is required");
+		}
+		return submitOperation(new PendingOperation(callback, null));
+	}
+
+	/**
+	 * Submit an operation based on an IndexReader.
+	 *
+	 * @param callback the operation to apply
+	 * @return the Future of the value returned by the callback
+	 * @throws LuceneIndexingException if the operation can not
+	 * be added to the queue
+	 */
+	public Future submit(ReaderCallback callback) {
+		if( callback==null ) {
+			throw new IllegalArgumentException("callback is required");
+		}
+		return submitOperation(new PendingOperation(null, callback));
+	}
+
+	/**
+	 * Submit the addition of a document.
+	 *
+	 * @param document the document to add
+	 * @return the Future of the operation
+	 * @see #submit(WriterCallback)
+	 */
+	public Future addDocument(Document document) {
+		return addDocument(document, null);
+	}
+
+	/**
+	 * Submit the addition of a document using the specified analyzer.
+	 *
+	 * @param document the document to add
+	 * @param analyzer the analyzer to use (can be null to use the
+	 * analyzer of the IndexWriter)
+	 * @return the Future of the operation
+	 * @see #submit(WriterCallback)
+	 */
+	public Future addDocument(final Document document, final Analyzer analyzer) {
+		return submit(new WriterCallback() {
+			public Object doWithWriter(LuceneIndexWriter writer) throws Exception {
+				if( analyzer!=null ) {
+					writer.addDocument(document, analyzer);
+				} else {
+					writer.addDocument(document);
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Submit the deletion of the documents containing a term.
+	 *
+	 * @param term the term identifying the documents to delete
+	 * @return the Future of the number of deleted documents
+	 * @see #submit(ReaderCallback)
+	 */
+	public Future deleteDocuments(final Term term) {
+		return submit(new ReaderCallback() {
+			public Object doWithReader(LuceneIndexReader reader) throws Exception {
+				return new Integer(reader.deleteDocuments(term));
+			}
+		});
+	}
+
+	/**
+	 * Submit the replacement of the documents containing a term by a
+	 * new document. Both the deletion and the addition are submitted
+	 * at once, so that no other operation can be applied between them.
+	 *
+	 * <p>The new document is only added if the deletion succeeds. The
+	 * returned Future fails with the error of the deletion or of the
+	 * addition, and cancelling it cancels both operations.
+	 *
+	 * @param term the term identifying the documents to replace
+	 * @param document the new document
+	 * @return the Future of the replacement
+	 */
+	public Future updateDocument(final Term term, final Document document) {
+		PendingOperation deletion = new PendingOperation(null, new ReaderCallback() {
+			public Object doWithReader(LuceneIndexReader reader) throws Exception {
+				return new Integer(reader.deleteDocuments(term));
+			}
+		});
+		PendingOperation addition = new PendingOperation(new WriterCallback() {
+			public Object doWithWriter(LuceneIndexWriter writer) throws Exception {
+				writer.addDocument(document);
+				return null;
+			}
+		}, null);
+		deletion.next = addition;
+		addition.previous = deletion;
+		submitOperation(deletion);
+		return addition;
+	}
+
+	/**
+	 * Add an operation to the queue, waiting for a place if necessary.
+	 */
+	private Future submitOperation(PendingOperation operation) {
+		synchronized( lifecycleMonitor ) {
+			if( !running ) {
+				throw new LuceneIndexingException("The index operation queue is stopped");
+			}
+			activeSubmissions++;
+		}
+
+		try {
+			if( submitTimeout>0 ) {
+				if( !operations.offer(operation, submitTimeout, TimeUnit.MILLISECONDS) ) {
+					throw new LuceneIndexingException("The index operation queue is full");
+				}
+			} else {
+				operations.put(operation);
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new LuceneIndexingException("Interrupted while submitting the index operation");
+		} finally {
+			synchronized( lifecycleMonitor ) {
+				activeSubmissions--;
+				lifecycleMonitor.notifyAll();
+			}
+		}
+		return operation;
+	}
+
+	/**
+	 * Main loop of the writer thread.
+	 */
+	private void processOperations() {
+		List batch = new ArrayList();
+		List unrolledBatch = new ArrayList();
+		boolean stopped = false;
+		try {
+			while( !stopped ) {
+				try {
+					batch.add(operations.take());
+					operations.drainTo(batch, maxBatchSize - 1);
+				} catch(InterruptedException ex) {
+					logger.warn("Index writer thread " + threadName + " interrupted");
+					break;
+				}
+
+				stopped = unrollOperations(batch, unrolledBatch);
+				batch.clear();
+				applyOperations(unrolledBatch);
+				unrolledBatch.clear();
+			}
+		} finally {
+			abortOperations(unrolledBatch);
+			abortPendingOperations();
+		}
+	}
+
+	/**
+	 * Add the operations of a batch, and the operations chained to them,
+	 * to the specified list. Return true if the batch contains a stop request.
+	 */
+	private boolean unrollOperations(List batch, List unrolledBatch) {
+		boolean stopRequest = false;
+		for(Iterator i = batch.iterator(); i.hasNext(); ) {
+			PendingOperation operation = (PendingOperation)i.next();
+			if( operation.isStopRequest() ) {
+				stopRequest = true;
+			}
+			for(PendingOperation current = operation; current!=null; current = current.next) {
+				if( !current.isStopRequest() ) {
+					unrolledBatch.add(current);
+				}
+			}
+		}
+		return stopRequest;
+	}
+
+	/**
+	 * Reject the submissions and fail the operations left in the queue
+	 * once the writer thread exits. The queue is drained until no
+	 * submission is in progress anymore.
+	 */
+	private void abortPendingOperations() {
+		boolean interrupted = false;
+		synchronized( lifecycleMonitor ) {
+			running = false;
+		}
+		List batch = new ArrayList();
+		List unrolledBatch = new ArrayList();
+		while( true ) {
+			operations.drainTo(batch);
+			unrollOperations(batch, unrolledBatch);
+			abortOperations(unrolledBatch);
+			batch.clear();
+			unrolledBatch.clear();
+
+			synchronized( lifecycleMonitor ) {
+				if( activeSubmissions==0 ) {
+					if( operations.isEmpty() ) {
+						break;
+					}
+				} else {
+					try {
+						lifecycleMonitor.wait();
+					} catch(InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+			}
+		}
+		if( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Fail the operations which are not completed yet.
+	 */
+	private void abortOperations(List operations) {
+		if( operations.isEmpty() ) {
+			return;
+		}
+		LuceneIndexingException error = new LuceneIndexingException(
+				"The index writer thread " + threadName + " is stopped");
+		for(Iterator i = operations.iterator(); i.hasNext(); ) {
+			((PendingOperation)i.next()).abort(error);
+		}
+	}
+
+	/**
+	 * Apply a batch of operations, grouping the consecutive operations
+	 * of the same kind.
+	 */
+	private void applyOperations(List batch) {
+		int start = 0;
+		while( start<batch.size() ) {
+			boolean writerOperations = ((PendingOperation)batch.get(start)).isWriterOperation();
+			int end = start + 1;
+			while( end<batch.size() && ((PendingOperation)batch.get(end)).isWriterOperation()==writerOperations ) {
+				end++;
+			}
+			if( writerOperations ) {
+				applyWriterOperations(batch.subList(start, end));
+			} else {
+				applyReaderOperations(batch.subList(start, end));
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * Apply a group of operations with a single IndexWriter. The results
+	 * are published after the closing of the writer.
+	 */
+	private void applyWriterOperations(List group) {
+		LuceneIndexWriter writer = null;
+		try {
+			writer = IndexWriterFactoryUtils.getIndexWriter(indexFactory);
+			for(Iterator i = group.iterator(); i.hasNext(); ) {
+				PendingOperation operation = (PendingOperation)i.next();
+				if( operation.start() ) {
+					try {
+						operation.result = operation.writerCallback.doWithWriter(writer);
+					} catch(Throwable ex) {
+						operation.error = ex;
+					}
+				}
+			}
+		} catch(RuntimeException ex) {
+			failOperations(group, ex);
+			return;
+		} finally {
+			if( writer!=null ) {
+				try {
+					IndexWriterFactoryUtils.releaseIndexWriter(indexFactory, writer);
+				} catch(RuntimeException ex) {
+					failOperations(group, ex);
+				}
+			}
+		}
+		completeOperations(group);
+	}
+
+	/**
+	 * Apply a group of operations with a single IndexReader. The results
+	 * are published after the closing of the reader.
+	 */
+	private void applyReaderOperations(List group) {
+		LuceneIndexReader reader = null;
+		try {
+			reader = IndexReaderFactoryUtils.getIndexReader(indexFactory);
+			for(Iterator i = group.iterator(); i.hasNext(); ) {
+				PendingOperation operation = (PendingOperation)i.next();
+				if( operation.start() ) {
+					try {
+						operation.result = operation.readerCallback.doWithReader(reader);
+					} catch(Throwable ex) {
+						operation.error = ex;
+					}
+				}
+			}
+		} catch(RuntimeException ex) {
+			failOperations(group, ex);
+			return;
+		} finally {
+			if( reader!=null ) {
+				try {
+					IndexReaderFactoryUtils.releaseIndexReader(indexFactory, reader);
+				} catch(RuntimeException ex) {
+					failOperations(group, ex);
+				}
+			}
+		}
+		completeOperations(group);
+	}
+
+	private void completeOperations(List group) {
+		for(Iterator i = group.iterator(); i.hasNext(); ) {
+			((PendingOperation)i.next()).complete();
+		}
+	}
+
+	private void failOperations(List group, Throwable error) {
+		logger.error("Error during applying index operations", error);
+		for(Iterator i = group.iterator(); i.hasNext(); ) {
+			PendingOperation operation = (PendingOperation)i.next();
+			operation.error = error;
+			operation.complete();
+		}
+	}
+
+	/**
+	 * Operation waiting for the writer thread and its Future. An operation
+	 * without callback is used to stop the writer thread. An operation
+	 * chained to a previous one is only applied if the previous one
+	 * succeeds.
+	 */
+	private static class PendingOperation implements Future {
+		private final WriterCallback writerCallback;
+		private final ReaderCallback readerCallback;
+		private PendingOperation next;
+		private PendingOperation previous;
+		private Object result;
+		private Throwable error;
+		private boolean started;
+		private boolean done;
+		private boolean cancelled;
+
+		public PendingOperation(WriterCallback writerCallback, ReaderCallback readerCallback) {
+			this.writerCallback = writerCallback;
+			this.readerCallback = readerCallback;
+		}
+
+		public boolean isStopRequest() {
+			return writerCallback==null && readerCallback==null;
+		}
+
+		public boolean isWriterOperation() {
+			return writerCallback!=null;
+		}
+
+		/**
+		 * Mark the operation as applied by the writer thread, unless
+		 * it is cancelled or the previous operation failed. In the latter
+		 * case, the operation fails with the error of the previous one.
+		 */
+		public synchronized boolean start() {
+			if( cancelled || done ) {
+				return false;
+			}
+			if( previous!=null ) {
+				Throwable previousError = previous.getError();
+				if( previousError!=null ) {
+					error = previousError;
+					return false;
+				}
+			}
+			started = true;
+			return true;
+		}
+
+		private synchronized Throwable getError() {
+			return error;
+		}
+
+		/**
+		 * Fail the operation, unless it is already completed.
+		 */
+		public synchronized void abort(Throwable error) {
+			if( !done ) {
+				this.error = error;
+				done = true;
+				notifyAll();
+			}
+		}
+
+		public synchronized void complete() {
+			if( !done ) {
+				done = true;
+				notifyAll();
+			}
+		}
+
+		/**
+		 * Only operations not yet applied can be cancelled. Cancelling an
+		 * operation chained to a previous one cancels the previous one too.
+		 */
+		public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+			if( started || done ) {
+				return false;
+			}
+			if( previous!=null && !previous.cancel(mayInterruptIfRunning) ) {
+				return false;
+			}
+			cancelled = true;
+			done = true;
+			notifyAll();
+			return true;
+		}
+
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		public synchronized boolean isDone() {
+			return done;
+		}
+
+		public synchronized Object get() throws InterruptedException, ExecutionException {
+			while( !done ) {
+				wait();
+			}
+			return getResult();
+		}
+
+		public synchronized Object get(long timeout, TimeUnit unit)
+					throws InterruptedException, ExecutionException, TimeoutException {
+			long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+			while( !done ) {
+				long remaining = deadline - System.currentTimeMillis();
+				if( remaining<=0 ) {
+					throw new TimeoutException();
+				}
+				wait(remaining);
+			}
+			return getResult();
+		}
+
+		private Object getResult() throws ExecutionException {
+			if( cancelled ) {
+				throw new CancellationException();
+			}
+			if( error!=null ) {
+				throw new ExecutionException(error);
+			}
+			return result;
+		}
+	}
+}
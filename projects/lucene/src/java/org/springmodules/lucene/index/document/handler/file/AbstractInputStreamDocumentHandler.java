@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.apache.lucene.document.Document;
 import org.springmodules.lucene.index.document.handler.AbstractDocumentHandler;
+import org.springmodules.lucene.util.BoundedInputStream;
 
 /**
  * Default abstract class of the DocumentHandler interface dedicated to create
@@ -32,19 +33,86 @@ import org.springmodules.lucene.index.document.handler.AbstractDocumentHandler;
  * To use this abstract, you need to implement a sub class which defines the
  * doGetDocumentWithInputStream method.
  * 
+ * <p>The number of bytes read from the InputStream and the time spent to
+ * read it can be limited with the maxDocumentSize and maxExtractionTime
+ * properties, in order to bound the resources used to index documents of
+ * any size. When a limit is reached, the end of the stream is signaled to
+ * the sub class, so that the document only contains the beginning of the
+ * data. Binary formats can fail to be parsed in this case.
+ * 
  * @author Thierry Templier
- *
+ * @see org.springmodules.lucene.util.BoundedInputStream
  */
 public abstract class AbstractInputStreamDocumentHandler extends AbstractDocumentHandler {
 
 	public final static String FILENAME="filename";
 
+	private long maxDocumentSize = -1;
+	private long maxExtractionTime = 0;
+
+	/**
+	 * Set the maximum number of bytes read from the InputStream.
+	 * Default is -1, which means no limit.
+	 */
+	public void setMaxDocumentSize(long maxDocumentSize) {
+		this.maxDocumentSize = maxDocumentSize;
+	}
+
+	/**
+	 * Return the maximum number of bytes read from the InputStream.
+	 */
+	public long getMaxDocumentSize() {
+		return maxDocumentSize;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds spent to read the InputStream,
+	 * starting at its first read. Default is 0, which means no limit.
+	 */
+	public void setMaxExtractionTime(long maxExtractionTime) {
+		this.maxExtractionTime = maxExtractionTime;
+	}
+
+	/**
+	 * Return the maximum time in milliseconds spent to read the InputStream.
+	 */
+	public long getMaxExtractionTime() {
+		return maxExtractionTime;
+	}
+
 	public final boolean supports(Class clazz) {
 		return (InputStream.class).isAssignableFrom(clazz);
 	}
 
-	protected final Document doGetDocument(Map description, Object object) throws Exception {
-		return doGetDocumentWithInputStream(description, (InputStream)object);
+	protected final Document doGetDocument(final Map description, Object object) throws Exception {
+		InputStream inputStream = (InputStream)object;
+		if( maxDocumentSize<0 && maxExtractionTime<=0 ) {
+			return doGetDocumentWithInputStream(description, inputStream);
+		}
+
+		return doGetDocumentWithInputStream(description, new BoundedInputStream(
+				inputStream, maxDocumentSize, maxExtractionTime) {
+			protected void onTruncation(long position) {
+				documentTruncated(description, position);
+			}
+		});
+	}
+
+	/**
+	 * Called when the InputStream of a document is truncated because a limit
+	 * is reached. Since a sub class can read the stream after the creation of
+	 * the document (for example through a Reader field), this method can be
+	 * called when the document is added to the index. The default
+	 * implementation logs a warning.
+	 *
+	 * @param description the description of the document
+	 * @param position the number of bytes read
+	 */
+	protected void documentTruncated(Map description, long position) {
+		if( logger.isWarnEnabled() ) {
+			logger.warn("The document " + (description.get(FILENAME)!=null ? description.get(FILENAME) + " " : "")
+					+ "has been truncated after " + position + " bytes");
+		}
 	}
 
 	protected abstract Document doGetDocumentWithInputStream(Map description, InputStream inputStream) throws IOException;
@@ -25,15 +25,49 @@ import org.apache.lucene.document.Field;
 import org.springmodules.lucene.index.document.handler.file.AbstractInputStreamDocumentHandler;
 
 /**
+ * Base class of the document handlers which extract the text of a
+ * document to index it in the "contents" field.
+ * 
+ * <p>The length of the indexed text can be limited with the maxTextLength
+ * property. The sub classes can use this limit to stop the extraction
+ * as soon as it is reached.
+ * 
  * @author Thierry Templier
  */
 public abstract class AbstractTypeFileDocumentHandler extends AbstractInputStreamDocumentHandler {
 
+	private int maxTextLength = -1;
+
+	/**
+	 * Set the maximum number of characters indexed for a document.
+	 * Default is -1, which means no limit.
+	 */
+	public void setMaxTextLength(int maxTextLength) {
+		this.maxTextLength = maxTextLength;
+	}
+
+	/**
+	 * Return the maximum number of characters indexed for a document.
+	 */
+	public int getMaxTextLength() {
+		return maxTextLength;
+	}
+
+	/**
+	 * Check if a text has reached the maximum length.
+	 */
+	protected boolean isMaxTextLengthReached(int length) {
+		return maxTextLength>=0 && length>=maxTextLength;
+	}
+
 	protected abstract String extractText(InputStream inputStream) throws IOException;
 
 	public final Document doGetDocumentWithInputStream(Map description, InputStream inputStream) throws IOException {
 		Document document = new Document();
 		String text = extractText(inputStream);
+		if( text!=null && isMaxTextLengthReached(text.length()) ) {
+			text = text.substring(0, maxTextLength);
+		}
 		if( text!=null && text.length()>0 ) {
 			//The text is analyzed and indexed but not stored
 			document.add(new Field("contents", text, Field.Store.NO, Field.Index.TOKENIZED));
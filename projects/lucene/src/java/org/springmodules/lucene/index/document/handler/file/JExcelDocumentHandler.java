@@ -33,7 +33,7 @@ public class JExcelDocumentHandler extends AbstractTypeFileDocumentHandler {
 		StringBuffer text=new StringBuffer();
 		try {
 			Workbook workbook=Workbook.getWorkbook(inputStream);
-			for(int cpt = 0; cpt<workbook.getNumberOfSheets(); cpt++) {
+			for(int cpt = 0; cpt<workbook.getNumberOfSheets() && !isMaxTextLengthReached(text.length()); cpt++) {
 				Sheet sheet = workbook.getSheet(cpt);
 				extractTextFromSheet(sheet,text);
 			}
@@ -49,7 +49,7 @@ public class JExcelDocumentHandler extends AbstractTypeFileDocumentHandler {
 	}
 
 	protected void extractTextFromSheet(Sheet sheet, StringBuffer text) throws IOException {
-		for(int cptRow = 0; cptRow<sheet.getRows(); cptRow++) {
+		for(int cptRow = 0; cptRow<sheet.getRows() && !isMaxTextLengthReached(text.length()); cptRow++) {
 			for(int cptColumn = 0; cptColumn<sheet.getColumns(); cptColumn++) {
 				Cell cell = sheet.getCell(cptColumn,cptRow);
 				String cellText = cell.getContents();
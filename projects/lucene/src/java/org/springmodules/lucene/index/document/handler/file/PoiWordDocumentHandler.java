@@ -30,10 +30,34 @@ public class PoiWordDocumentHandler extends AbstractTypeFileDocumentHandler {
 
 	protected String extractText(InputStream inputStream) throws IOException {
 		WordDocument wordDocument = new WordDocument(inputStream);
-		StringWriter textWriter = new StringWriter();
+		StringWriter textWriter = new BoundedStringWriter();
 		wordDocument.writeAllText(new PrintWriter(textWriter));
 		textWriter.close();
 		return textWriter.toString();
 	}
 
+	/**
+	 * StringWriter which ignores the characters written after
+	 * the maximum length of the text.
+	 */
+	private class BoundedStringWriter extends StringWriter {
+		public void write(int c) {
+			if( !isMaxTextLengthReached(getBuffer().length()) ) {
+				super.write(c);
+			}
+		}
+
+		public void write(char[] cbuf, int off, int len) {
+			if( !isMaxTextLengthReached(getBuffer().length()) ) {
+				super.write(cbuf, off, len);
+			}
+		}
+
+		public void write(String str, int off, int len) {
+			if( !isMaxTextLengthReached(getBuffer().length()) ) {
+				super.write(str, off, len);
+			}
+		}
+	}
+
 }
@@ -34,6 +34,10 @@ import org.springmodules.lucene.index.document.handler.DocumentHandler;
  * contained in the description parameter of the getDocument
  * method.
  * 
+ * <p>The text is not loaded in memory: the InputStream is read through
+ * a Reader when the document is added to the index. The limits of size
+ * and time of the handler are applied during this reading.
+ * 
  * <p>It can be associated with the "txt" file extension and can
  * be used to configure the ExtensionDocumentHandlerManager with
  * the ExtensionDocumentHandlerManagerFactoryBean factory bean.
@@ -17,8 +17,11 @@
 package org.springmodules.lucene.index.document.handler.object;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.lucene.document.Document;
@@ -26,6 +29,12 @@ import org.apache.lucene.document.Field;
 import org.springframework.aop.support.AopUtils;
 
 /**
+ * Base class of the document handlers which use attributes on the
+ * accessors of a class to determine the fields to index.
+ * 
+ * <p>The attributes of a class are only looked up the first time one
+ * of its instances is indexed. The field containing the name of the
+ * class is shared by all the documents of a class.
  * 
  * @author Thierry Templier
  */
@@ -38,9 +47,9 @@ public abstract class AbstractAttributeObjectDocumentHandler extends AbstractObj
 
 	public static final Object TEXT = "text";
 
-	protected Map cache = new HashMap();
+	protected Map cache = Collections.synchronizedMap(new HashMap());
 
-	protected Map indexableClasses = new HashMap();
+	protected Map indexableClasses = Collections.synchronizedMap(new HashMap());
 
 	/**
 	 * Determine a cache key for the given method and target class.
@@ -131,39 +140,43 @@ public abstract class AbstractAttributeObjectDocumentHandler extends AbstractObj
 		}
 	}
 
-	private Field createField(String fieldName, IndexAttribute indexAtt, Object value) {
+	private FieldAccessor createFieldAccessor(Method method, String fieldName, IndexAttribute indexAtt) {
 		if( KEYWORD.equals(indexAtt.getType()) ) {
-			return new Field(fieldName, String.valueOf(value), Field.Store.YES, Field.Index.UN_TOKENIZED);
+			return new FieldAccessor(method, fieldName, Field.Store.YES, Field.Index.UN_TOKENIZED);
 		} else if( TEXT.equals(indexAtt.getType()) ) {
-			return new Field(fieldName, String.valueOf(value), Field.Store.YES, Field.Index.TOKENIZED);
+			return new FieldAccessor(method, fieldName, Field.Store.YES, Field.Index.TOKENIZED);
 		} else {
-			return new Field(fieldName, String.valueOf(value), Field.Store.YES, Field.Index.TOKENIZED);
+			return new FieldAccessor(method, fieldName, Field.Store.YES, Field.Index.TOKENIZED);
 		}
 	}
 
-	protected Document doGetDocument(Map description, Object object) throws Exception {
-		Class clazz=object.getClass();
+	protected FieldAccessor[] createFieldAccessors(Class clazz) {
 		Method[] methods=clazz.getDeclaredMethods();
 
-		Document document = new Document();
-		document.add(new Field("class", clazz.getName(), Field.Store.YES, Field.Index.UN_TOKENIZED));
+		List accessors = new ArrayList();
+		accessors.add(new FieldAccessor(new Field("class", clazz.getName(), Field.Store.YES, Field.Index.UN_TOKENIZED)));
 		for(int cpt=0;cpt<methods.length;cpt++) {
-			String name=methods[cpt].getName();
-			IndexAttribute indexAtt=computeIndexAttribute(methods[cpt], clazz);
+			if( !isAccessor(methods[cpt]) ) {
+				continue;
+			}
+			IndexAttribute indexAtt=getIndexAttribute(methods[cpt], clazz);
 			if( indexAtt==null || indexAtt.isExcluded() ) {
 				continue;
 			}
-			if( name.startsWith(PREFIX_ACCESSOR) ) {
-				String fieldName=null;
-				if( !("".equals(indexAtt.getName())) ) {
-					fieldName=indexAtt.getName();
-				} else {
-					fieldName=constructFieldName(name);
-				}
-				Object value=methods[cpt].invoke(object,new Object[] {});
-				document.add(createField(fieldName, indexAtt, value));
+			String fieldName=null;
+			if( !("".equals(indexAtt.getName())) ) {
+				fieldName=indexAtt.getName();
+			} else {
+				fieldName=constructFieldName(methods[cpt].getName());
 			}
+			accessors.add(createFieldAccessor(methods[cpt], fieldName, indexAtt));
 		}
+		return (FieldAccessor[])accessors.toArray(new FieldAccessor[accessors.size()]);
+	}
+
+	protected Document doGetDocument(Map description, Object object) throws Exception {
+		Document document = new Document();
+		addFields(document, object, getFieldAccessors(object.getClass()));
 		return document;
 	}
 
@@ -16,19 +16,136 @@
 
 package org.springmodules.lucene.index.document.handler.object;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.springmodules.lucene.index.document.handler.AbstractDocumentHandler;
 
 /**
+ * Base class of the document handlers which build a document from the
+ * values returned by the accessors of an object.
+ * 
+ * <p>The accessors to use for a class and the corresponding fields are
+ * determined once by the createFieldAccessors method and cached, so that
+ * the class is only introspected the first time one of its instances is
+ * indexed.
  * 
  * @author Thierry Templier
+ * @see #createFieldAccessors(Class)
  */
 public abstract class AbstractObjectDocumentHandler extends AbstractDocumentHandler {
 
 	public final static String PREFIX_ACCESSOR="get";
+
+	private final Map fieldAccessors = new HashMap();
 	
 	protected String constructFieldName(String accessorName) {
 		String name = accessorName.substring(PREFIX_ACCESSOR.length());
 		return (name.substring(0,1).toLowerCase() + name.substring(1));
 	}
-	
+
+	/**
+	 * Check if a method is an accessor, i.e. a public method without
+	 * parameter whose name starts with the get prefix.
+	 */
+	protected boolean isAccessor(Method method) {
+		return method.getName().startsWith(PREFIX_ACCESSOR)
+			&& method.getName().length()>PREFIX_ACCESSOR.length()
+			&& method.getParameterTypes().length==0
+			&& method.getReturnType()!=void.class
+			&& Modifier.isPublic(method.getModifiers());
+	}
+
+	/**
+	 * Return the field accessors for a class, creating them the first time.
+	 * 
+	 * @param clazz the class of the indexed object
+	 * @return the field accessors of the class
+	 * @see #createFieldAccessors(Class)
+	 */
+	protected final FieldAccessor[] getFieldAccessors(Class clazz) {
+		synchronized( this.fieldAccessors ) {
+			FieldAccessor[] accessors = (FieldAccessor[])this.fieldAccessors.get(clazz);
+			if( accessors==null ) {
+				accessors = createFieldAccessors(clazz);
+				this.fieldAccessors.put(clazz, accessors);
+			}
+			return accessors;
+		}
+	}
+
+	/**
+	 * Determine the accessors of a class to use to build a document and
+	 * the fields to create from their values.
+	 * 
+	 * @param clazz the class of the indexed object
+	 * @return the field accessors of the class
+	 */
+	protected abstract FieldAccessor[] createFieldAccessors(Class clazz);
+
+	/**
+	 * Add to a document the fields built from the values of the
+	 * accessors of an object.
+	 * 
+	 * @param document the document to fill
+	 * @param object the indexed object
+	 * @param accessors the field accessors of the class of the object
+	 * @throws Exception if an accessor fails
+	 */
+	protected void addFields(Document document, Object object, FieldAccessor[] accessors) throws Exception {
+		for(int cpt=0; cpt<accessors.length; cpt++) {
+			document.add(accessors[cpt].createField(object));
+		}
+	}
+
+	/**
+	 * Association between an accessor of a class and the field
+	 * created from its value. A field whose value does not depend on
+	 * the indexed object can be shared by all the documents, since the
+	 * Lucene fields are not modified during the indexing.
+	 */
+	protected static class FieldAccessor {
+		private final Method method;
+		private final String fieldName;
+		private final Field.Store store;
+		private final Field.Index index;
+		private final Field constantField;
+
+		public FieldAccessor(Method method, String fieldName, Field.Store store, Field.Index index) {
+			this.method = method;
+			this.fieldName = fieldName;
+			this.store = store;
+			this.index = index;
+			this.constantField = null;
+			try {
+				//Avoid the access checks on every invocation
+				this.method.setAccessible(true);
+			} catch(SecurityException ex) {
+			}
+		}
+
+		public FieldAccessor(Field constantField) {
+			this.method = null;
+			this.fieldName = constantField.name();
+			this.store = null;
+			this.index = null;
+			this.constantField = constantField;
+		}
+
+		public String getFieldName() {
+			return fieldName;
+		}
+
+		public Field createField(Object object) throws Exception {
+			if( constantField!=null ) {
+				return constantField;
+			}
+			Object value = method.invoke(object, null);
+			return new Field(fieldName, String.valueOf(value), store, index);
+		}
+	}
 }
@@ -17,6 +17,8 @@
 package org.springmodules.lucene.index.document.handler.object;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.lucene.document.Document;
@@ -26,23 +28,28 @@ import org.apache.lucene.document.Field;
  * Implementation of the DocumentHandler interface based on the reflection in
  * order to determine the fields to index.
  * 
+ * <p>The accessors of a class are only looked up the first time one of its
+ * instances is indexed.
+ * 
  * @author Thierry Templier
  */
 public class ReflectiveDocumentHandler extends AbstractObjectDocumentHandler {
 
-	protected Document doGetDocument(Map description, Object object) throws Exception {
-		Class clazz=object.getClass();
+	protected FieldAccessor[] createFieldAccessors(Class clazz) {
 		Method[] methods=clazz.getDeclaredMethods();
-
-		Document document = new Document();
+		List accessors = new ArrayList();
 		for(int cpt=0;cpt<methods.length;cpt++) {
-			String name = methods[cpt].getName();
-			if( name.startsWith(PREFIX_ACCESSOR) ) {
-				String fieldName = constructFieldName(name);
-				Object value = methods[cpt].invoke(object,new Object[] {});
-				document.add(new Field(fieldName, String.valueOf(value), Field.Store.YES, Field.Index.TOKENIZED));
+			if( isAccessor(methods[cpt]) ) {
+				String fieldName = constructFieldName(methods[cpt].getName());
+				accessors.add(new FieldAccessor(methods[cpt], fieldName, Field.Store.YES, Field.Index.TOKENIZED));
 			}
 		}
+		return (FieldAccessor[])accessors.toArray(new FieldAccessor[accessors.size()]);
+	}
+
+	protected Document doGetDocument(Map description, Object object) throws Exception {
+		Document document = new Document();
+		addFields(document, object, getFieldAccessors(object.getClass()));
 		return document;
 	}
 
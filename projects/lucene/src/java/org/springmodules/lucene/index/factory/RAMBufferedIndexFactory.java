@@ -0,0 +1,327 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.index.factory;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springmodules.lucene.index.LuceneIndexAccessException;
+
+/**
+ * <p>Index factory which buffers the added documents in a RAMDirectory in order
+ * to make them searchable as soon as the IndexWriter is closed, without
+ * modifying the main index on every addition.
+ *
+ * <p>The IndexWriter instances returned by this factory work on the RAM buffer.
+ * Only one writer can be opened at a time on the buffer: the getIndexWriter
+ * method waits for the closing of the current writer. The IndexReader instances
+ * are based on a MultiReader on both the main index (specified with the
+ * directory property) and the RAM buffer. So searchers created from these
+ * readers (with a SimpleSearcherFactory for example) see the recent additions,
+ * and deletions apply on both indexes.
+ *
+ * <p>The buffer is merged into the main index with the addIndexes method of
+ * IndexWriter when the flush method is called. During the merge, a new buffer
+ * receives the additions and the flushed one is still searched until the
+ * main index contains its documents. As Lucene optimizes the index when adding
+ * indexes, the flush method should be called periodically, for example with the
+ * Spring MethodInvokingTimerTaskFactoryBean, rather than after every addition.
+ * The buffer is flushed a last time when the factory is destroyed.
+ *
+ * <p>Deletions must not be done while a flush is in progress, since the
+ * documents deleted in the flushed buffer could be merged in the main index.
+ *
+ * @author Thierry Templier
+ * @see org.apache.lucene.store.RAMDirectory
+ * @see org.apache.lucene.index.MultiReader
+ * @see org.apache.lucene.index.IndexWriter#addIndexes(Directory[])
+ * @see org.springmodules.lucene.search.factory.SimpleSearcherFactory
+ */
+public class RAMBufferedIndexFactory extends AbstractIndexFactory
+									implements IndexFactory, InitializingBean, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(RAMBufferedIndexFactory.class);
+
+	private final Object bufferMonitor = new Object();
+	private final Object flushMonitor = new Object();
+
+	private Buffer buffer;
+	private Buffer flushingBuffer;
+	private long versionBeforeFlush;
+
+	/**
+	 * Construct a new RAMBufferedIndexFactory for bean usage.
+	 * Note: The Directory and the Analyzer have to be set before using the instance.
+	 *
+	 * @see #setDirectory
+	 * @see #setAnalyzer
+	 */
+	public RAMBufferedIndexFactory() {
+	}
+
+	/**
+	 * Construct a new RAMBufferedIndexFactory, given the Directory of the main
+	 * index and an Analyzer.
+	 *
+	 * @param directory Lucene directory which represents the main index
+	 * @param analyzer Lucene analyzer to construct the IndexWriter instances
+	 */
+	public RAMBufferedIndexFactory(Directory directory, Analyzer analyzer) {
+		setDirectory(directory);
+		setAnalyzer(analyzer);
+		afterPropertiesSet();
+	}
+
+	/**
+	 * Check the configuration of the factory, create the main index if
+	 * it does not exist and initialize the RAM buffer.
+	 */
+	public void afterPropertiesSet() {
+		if( getDirectory()==null ) {
+			throw new IllegalArgumentException("directory is required");
+		}
+		if( getAnalyzer()==null ) {
+			throw new IllegalArgumentException("analyzer is required");
+		}
+
+		try {
+			if( !IndexReader.indexExists(getDirectory()) ) {
+				new IndexWriter(getDirectory(), getAnalyzer(), true).close();
+			}
+			synchronized( bufferMonitor ) {
+				this.buffer = createBuffer();
+			}
+		} catch(IOException ex) {
+			throw new LuceneIndexAccessException("Error during initializing the RAM buffer", ex);
+		}
+	}
+
+	/**
+	 * Merge the RAM buffer in the main index before the destruction
+	 * of the factory.
+	 */
+	public void destroy() {
+		if( this.buffer!=null ) {
+			flush();
+		}
+	}
+
+	/**
+	 * Create a new empty RAM buffer.
+	 */
+	private Buffer createBuffer() throws IOException {
+		RAMDirectory directory = new RAMDirectory();
+		new IndexWriter(directory, getAnalyzer(), true).close();
+		return new Buffer(directory);
+	}
+
+	/**
+	 * Construct a new IndexWriter instance on the RAM buffer. If a writer is
+	 * already opened on the buffer, this method waits for its closing.
+	 *
+	 * @return a new writer instance on the RAM buffer
+	 * @see org.springmodules.lucene.index.factory.IndexFactory#getIndexWriter()
+	 */
+	public LuceneIndexWriter getIndexWriter() {
+		Buffer currentBuffer = null;
+		synchronized( bufferMonitor ) {
+			currentBuffer = this.buffer;
+			try {
+				while( currentBuffer.writerOpened ) {
+					bufferMonitor.wait();
+				}
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new LuceneIndexAccessException("Interrupted while waiting for the RAM buffer");
+			}
+			currentBuffer.writerOpened = true;
+		}
+
+		try {
+			IndexWriter writer = new IndexWriter(currentBuffer.directory, getAnalyzer(), false);
+			setIndexWriterParameters(writer);
+			return new BufferLuceneIndexWriter(writer, currentBuffer);
+		} catch(IOException ex) {
+			releaseBuffer(currentBuffer);
+			throw new LuceneIndexAccessException("Error during creating the writer", ex);
+		}
+	}
+
+	/**
+	 * Notify that the writer opened on a buffer is closed.
+	 */
+	private void releaseBuffer(Buffer releasedBuffer) {
+		synchronized( bufferMonitor ) {
+			releasedBuffer.writerOpened = false;
+			bufferMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Construct a new IndexReader instance on both the main index and
+	 * the RAM buffers which are not yet merged into it.
+	 *
+	 * @return a new reader instance on the main index and the RAM buffers
+	 * @see org.springmodules.lucene.index.factory.IndexFactory#getIndexReader()
+	 */
+	public LuceneIndexReader getIndexReader() {
+		Buffer currentBuffer = null;
+		Buffer currentFlushingBuffer = null;
+		long currentVersionBeforeFlush = 0;
+		synchronized( bufferMonitor ) {
+			currentBuffer = this.buffer;
+			currentFlushingBuffer = this.flushingBuffer;
+			currentVersionBeforeFlush = this.versionBeforeFlush;
+		}
+
+		IndexReader mainReader = null;
+		try {
+			mainReader = IndexReader.open(getDirectory());
+			//The flushed buffer is ignored if the merge is already committed
+			if( currentFlushingBuffer!=null && mainReader.getVersion()==currentVersionBeforeFlush ) {
+				return new SimpleLuceneIndexReader(new MultiReader(new IndexReader[] {
+						mainReader,
+						IndexReader.open(currentFlushingBuffer.directory),
+						IndexReader.open(currentBuffer.directory) }));
+			} else {
+				return new SimpleLuceneIndexReader(new MultiReader(new IndexReader[] {
+						mainReader, IndexReader.open(currentBuffer.directory) }));
+			}
+		} catch(IOException ex) {
+			closeIndexReader(mainReader);
+			throw new LuceneIndexAccessException("Error during opening the reader", ex);
+		}
+	}
+
+	private void closeIndexReader(IndexReader reader) {
+		try {
+			if( reader!=null ) {
+				reader.close();
+			}
+		} catch(IOException ex) {
+			logger.warn("Unable to close the reader", ex);
+		}
+	}
+
+	/**
+	 * Merge the current RAM buffer into the main index. The additions
+	 * done during the merge are stored in a new buffer.
+	 *
+	 * <p>This method waits for the closing of the writer opened on the
+	 * buffer before merging it. Only one flush can be executed at a time.
+	 *
+	 * @see IndexWriter#addIndexes(Directory[])
+	 */
+	public void flush() {
+		synchronized( flushMonitor ) {
+			Buffer bufferToFlush = null;
+			try {
+				synchronized( bufferMonitor ) {
+					bufferToFlush = this.buffer;
+					this.versionBeforeFlush = IndexReader.getCurrentVersion(getDirectory());
+					this.flushingBuffer = bufferToFlush;
+					this.buffer = createBuffer();
+					while( bufferToFlush.writerOpened ) {
+						bufferMonitor.wait();
+					}
+				}
+
+				if( logger.isDebugEnabled() ) {
+					logger.debug("Merging the RAM buffer into the main index");
+				}
+				if( isEmpty(bufferToFlush) ) {
+					return;
+				}
+
+				IndexWriter writer = new IndexWriter(getDirectory(), getAnalyzer(), false);
+				try {
+					setIndexWriterParameters(writer);
+					writer.addIndexes(new Directory[] { bufferToFlush.directory });
+				} finally {
+					writer.close();
+				}
+			} catch(IOException ex) {
+				throw new LuceneIndexAccessException("Error during merging the RAM buffer", ex);
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new LuceneIndexAccessException("Interrupted while waiting for the RAM buffer");
+			} finally {
+				synchronized( bufferMonitor ) {
+					this.flushingBuffer = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check if a RAM buffer contains documents.
+	 */
+	private boolean isEmpty(Buffer checkedBuffer) throws IOException {
+		IndexReader reader = IndexReader.open(checkedBuffer.directory);
+		try {
+			return reader.maxDoc()==0;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * RAM buffer of the factory and the state of its writer.
+	 */
+	private static class Buffer {
+		private final RAMDirectory directory;
+		private boolean writerOpened;
+
+		public Buffer(RAMDirectory directory) {
+			this.directory = directory;
+		}
+	}
+
+	/**
+	 * LuceneIndexWriter which releases the RAM buffer when closed.
+	 */
+	private class BufferLuceneIndexWriter extends SimpleLuceneIndexWriter {
+		private final Buffer writerBuffer;
+		private boolean closed;
+
+		public BufferLuceneIndexWriter(IndexWriter indexWriter, Buffer writerBuffer) {
+			super(indexWriter);
+			this.writerBuffer = writerBuffer;
+		}
+
+		public void close() throws IOException {
+			if( closed ) {
+				return;
+			}
+			closed = true;
+			try {
+				super.close();
+			} finally {
+				releaseBuffer(writerBuffer);
+			}
+		}
+	}
+}
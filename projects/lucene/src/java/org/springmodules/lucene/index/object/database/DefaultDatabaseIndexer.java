@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -30,9 +31,10 @@ import javax.sql.DataSource;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.SqlParameter;
-import org.springframework.jdbc.object.MappingSqlQuery;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springmodules.lucene.index.LuceneIndexAccessException;
 import org.springmodules.lucene.index.LuceneIndexingException;
 import org.springmodules.lucene.index.document.handler.DocumentHandler;
@@ -43,6 +45,8 @@ import org.springmodules.lucene.index.factory.IndexWriterFactoryUtils;
 import org.springmodules.lucene.index.factory.LuceneIndexWriter;
 import org.springmodules.lucene.index.object.AbstractIndexer;
 
+import edu.emory.mathcs.backport.java.util.concurrent.CountDownLatch;
+
 /**
  * <b>This is the central class in the lucene database indexing package.</b>
  * It simplifies the use of lucene to index a database specifying the requests
@@ -61,6 +65,17 @@ import org.springmodules.lucene.index.object.AbstractIndexer;
  * this avoids some locking problems on the index. You can too apply
  * different strategies for managing index resources.
  *
+ * <p>The rows of a request are streamed: every document is added to the
+ * IndexWriter as soon as it is created by the handler, so the memory used
+ * does not depend on the size of the result set. The fetch size of the
+ * JDBC statements can be specified with the fetchSize property.
+ *
+ * <p>If a TaskExecutor is specified, the registred requests are executed
+ * concurrently and their documents are added to the same IndexWriter. A
+ * large table can then be indexed in parallel by registering several requests
+ * on different key ranges with the same handler. In this case, the listeners
+ * are notified from the threads of the executor.
+ *
  * <p>Can be used within a service implementation via direct instantiation
  * with a IndexFactory reference, or get prepared in an application context
  * and given to services as bean reference. Note: The IndexFactory should
@@ -78,6 +93,8 @@ import org.springmodules.lucene.index.object.AbstractIndexer;
 public class DefaultDatabaseIndexer extends AbstractIndexer implements DatabaseIndexer {
 	private Map requestDocumentHandlers;
 	private List listeners;
+	private int fetchSize = 0;
+	private TaskExecutor taskExecutor;
 
 	/**
 	 * Construct a new DatabaseIndexer, given an IndexFactory to obtain IndexWriter.
@@ -91,6 +108,39 @@ public class DefaultDatabaseIndexer extends AbstractIndexer implements DatabaseI
 		registerDefautHandlers();
 	}
 
+	/**
+	 * Set the fetch size for the JDBC statements used to execute
+	 * the requests. Default is 0, indicating to use the JDBC driver's default.
+	 * 
+	 * @see java.sql.Statement#setFetchSize
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * Return the fetch size specified for the JDBC statements.
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * Set the TaskExecutor used to execute the registred requests
+	 * concurrently. Default is none, indicating that the requests
+	 * are executed sequentially by the calling thread.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor used to execute the registred requests.
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
 	/**
 	 * This method specifies the default handlers to automatically
 	 * register when the indexer is instantiated.
@@ -241,38 +291,28 @@ public class DefaultDatabaseIndexer extends AbstractIndexer implements DatabaseI
 	/**
 	 * This method executes the sql request on a specified datasource with or
 	 * with sql parameters. It is based on the Spring JDBC framework and uses
-	 * a sub class of MappingSqlQuery.
-	 * 
-	 * <p>It is based on the IndexingMappingQuery class which delegates its mapRow
-	 * method to the getDocument of a SqlDocumentHandler implementation. The 
+	 * a RowCallbackHandler in order to add the document of every row to the
+	 * index without holding the whole result set in memory.
 	 * 
+	 * @param writer the IndexWriter instance to use
 	 * @param dataSource the datasource to use
 	 * @param request the request to execute
 	 * @param handler the handler to use to index the rows
-	 * @return the list of Lucene documents add to the index
-	 * @see IndexingMappingQuery
+	 * @see IndexingRowCallbackHandler
 	 */
-	private List indexResultSql(DataSource dataSource,SqlRequest request,SqlDocumentHandler handler) {
-		IndexingMappingQuery query=new IndexingMappingQuery(dataSource,request,handler);
-		if( request.getParams()!=null ) {
-			return query.execute(request.getParams());
+	private void indexResultSql(LuceneIndexWriter writer, DataSource dataSource,
+									SqlRequest request, SqlDocumentHandler handler) {
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		template.setFetchSize(fetchSize);
+		IndexingRowCallbackHandler callbackHandler = new IndexingRowCallbackHandler(writer, request, handler);
+		Object[] params = request.getParams();
+		int[] types = request.getTypes();
+		if( params!=null && types!=null ) {
+			template.query(request.getSql(), params, types, callbackHandler);
+		} else if( params!=null ) {
+			template.query(request.getSql(), params, callbackHandler);
 		} else {
-			return query.execute();
-		}
-	}
-
-	/**
-	 * This method adds a list of Lucene documents to an index using an
-	 * corresponding IndexWriter instance.
-	 * @param writer the IndexWriter instance to use
-	 * @param documents the list of documents to add
-	 */
-	private void addDocumentsInIndex(LuceneIndexWriter writer, List documents) throws IOException{
-		for(Iterator i=documents.iterator(); i.hasNext();) {
-		Document document = (Document)i.next();
-			if( document!=null ) {
-				writer.addDocument(document);
-			}
+			template.query(request.getSql(), callbackHandler);
 		}
 	}
 
@@ -301,20 +341,97 @@ public class DefaultDatabaseIndexer extends AbstractIndexer implements DatabaseI
 									SqlRequest request, SqlDocumentHandler handler) {
 		try {
 			fireListenersOnBeforeRequest(request);
-			List documents = indexResultSql(dataSource, request, handler);
-			if( documents!=null ) {
-				addDocumentsInIndex(writer, documents);
-			}
+			indexResultSql(writer, dataSource, request, handler);
 			fireListenersOnAfterRequest(request);
 		} catch(DataAccessException ex) {
 			logger.error("Error during indexing the request", ex);
 			fireListenersOnErrorRequest(request, ex);
-		} catch(IOException ex) {
+		} catch(LuceneIndexAccessException ex) {
 			logger.error("Error during indexing the request", ex);
 			fireListenersOnErrorRequest(request, ex);
 		}
 	}
 
+	/**
+	 * This method executes every registred requests using the configured
+	 * TaskExecutor and waits for the end of their executions.
+	 * 
+	 * <p>If the indexing of a request fails with an unexpected error, this
+	 * error is thrown once all the requests are executed. If the TaskExecutor
+	 * rejects a request, the requests already submitted are waited for
+	 * before the rejection is thrown, so the shared writer is never released
+	 * while it is still used. If the calling thread is interrupted, the
+	 * requests are waited for too, the interruption flag is restored and an
+	 * exception is thrown.
+	 * 
+	 * @param writer the IndexWriter instance shared by the requests
+	 * @param dataSource the datasource to use
+	 * @see #doHandleRequest(LuceneIndexWriter, DataSource, SqlRequest, SqlDocumentHandler)
+	 */
+	private void doHandleRequestsConcurrently(final LuceneIndexWriter writer,
+									final DataSource dataSource) {
+		Set requests = requestDocumentHandlers.keySet();
+		final CountDownLatch latch = new CountDownLatch(requests.size());
+		final List errors = Collections.synchronizedList(new ArrayList());
+		int submitted = 0;
+		try {
+			for(Iterator i=requests.iterator(); i.hasNext();) {
+				final SqlRequest request = (SqlRequest)i.next();
+				final SqlDocumentHandler handler = (SqlDocumentHandler)requestDocumentHandlers.get(request);
+				taskExecutor.execute(new Runnable() {
+					public void run() {
+						try {
+							doHandleRequest(writer, dataSource, request, handler);
+						} catch(Throwable t) {
+							errors.add(t);
+						} finally {
+							latch.countDown();
+						}
+					}
+				});
+				submitted++;
+			}
+		} finally {
+			//Release the latch for the requests that were never submitted
+			for(int cpt=submitted; cpt<requests.size(); cpt++) {
+				latch.countDown();
+			}
+			awaitRequests(latch);
+		}
+
+		if( !errors.isEmpty() ) {
+			Throwable error = (Throwable)errors.get(0);
+			if( error instanceof RuntimeException ) {
+				throw (RuntimeException)error;
+			} else if( error instanceof Error ) {
+				throw (Error)error;
+			}
+			throw new LuceneIndexingException("Error during indexing the request", (Exception)error);
+		}
+	}
+
+	/**
+	 * Wait for the end of the executions of the requests, even if the
+	 * calling thread is interrupted meanwhile. In this case, the interruption
+	 * flag is restored once the requests are executed and an exception is
+	 * thrown, so the index is neither optimized nor reported as complete.
+	 */
+	private void awaitRequests(CountDownLatch latch) {
+		boolean interrupted = false;
+		while( true ) {
+			try {
+				latch.await();
+				break;
+			} catch(InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if( interrupted ) {
+			Thread.currentThread().interrupt();
+			throw new LuceneIndexingException("Interrupted while waiting for the indexing requests");
+		}
+	}
+
 	/**
 	 * This method is the entry point to index a database using the specified
 	 * datasource. It uses the registred requests and their corresponding handlers.
@@ -342,16 +459,21 @@ public class DefaultDatabaseIndexer extends AbstractIndexer implements DatabaseI
 	 * @param dataSource the datasource to use
 	 * @param optimizeIndex if the index must be optimized after
 	 * the request indexing
-	 * @see #doHandleRequest(DataSource, SqlRequest, SqlDocumentHandler, boolean)
+	 * @see #doHandleRequest(LuceneIndexWriter, DataSource, SqlRequest, SqlDocumentHandler)
+	 * @see #doHandleRequestsConcurrently(LuceneIndexWriter, DataSource)
 	 */
 	public void index(DataSource dataSource, boolean optimizeIndex) {
 		LuceneIndexWriter writer = IndexWriterFactoryUtils.getIndexWriter(getIndexFactory());
 		try {
-			Set requests = requestDocumentHandlers.keySet();
-			for(Iterator i=requests.iterator(); i.hasNext();) {
-				SqlRequest request = (SqlRequest)i.next();
-				SqlDocumentHandler handler = (SqlDocumentHandler)requestDocumentHandlers.get(request);
-				doHandleRequest(writer, dataSource, request, handler);
+			if( taskExecutor!=null ) {
+				doHandleRequestsConcurrently(writer, dataSource);
+			} else {
+				Set requests = requestDocumentHandlers.keySet();
+				for(Iterator i=requests.iterator(); i.hasNext();) {
+					SqlRequest request = (SqlRequest)i.next();
+					SqlDocumentHandler handler = (SqlDocumentHandler)requestDocumentHandlers.get(request);
+					doHandleRequest(writer, dataSource, request, handler);
+				}
 			}
 			//Optimize the index
 			if( optimizeIndex ) {
@@ -361,44 +483,49 @@ public class DefaultDatabaseIndexer extends AbstractIndexer implements DatabaseI
 			ex.printStackTrace();
 			logger.error("Error during indexing the datasource", ex);
 			throw new LuceneIndexAccessException("Error during indexing the datasource", ex);
-		} catch(Throwable t) {
-			t.printStackTrace();
+		} catch(Error err) {
+			logger.error("Error during indexing the datasource", err);
+			throw err;
 		} finally {
 			IndexWriterFactoryUtils.releaseIndexWriter(getIndexFactory(), writer);
 		}
 	}
 
 	/**
-	 * This is the sub class MappingSqlQuery used to delegate the mapRow callback
-	 * to the getDocument of the specified SqlDocumentHandler for each result row
-	 * of the request.
+	 * This is the RowCallbackHandler used to delegate the processing of
+	 * each result row of the request to the getDocument of the specified
+	 * SqlDocumentHandler and to add immediately the created document
+	 * to the index.
 	 */
-	private static class IndexingMappingQuery extends MappingSqlQuery {
+	private static class IndexingRowCallbackHandler implements RowCallbackHandler {
 
+		private LuceneIndexWriter writer;
 		private SqlRequest request;
 		private DocumentHandler handler;
 
-		public IndexingMappingQuery(DataSource ds, SqlRequest request, DocumentHandler handler) {
-			super(ds, request.getSql());
+		public IndexingRowCallbackHandler(LuceneIndexWriter writer, SqlRequest request, DocumentHandler handler) {
+			this.writer = writer;
 			this.request = request;
 			this.handler = handler;
-			int[] types = request.getTypes();
-			if( types!=null ) {
-				for(int cpt=0; cpt<types.length; cpt++) {
-					super.declareParameter(new SqlParameter(types[cpt]));
-				}
-			}
-			compile();
 		}
 
-		public Object mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		public void processRow(ResultSet rs) throws SQLException {
+			Document document = null;
 			try {
-				return handler.getDocument(request.getDescription(), rs);
+				document = handler.getDocument(request.getDescription(), rs);
 			} catch (SQLException ex) {
 				throw ex;
 			} catch (Exception ex) {
 				throw new LuceneIndexingException("Error during the indexing of the ResultSet.", ex);
 			}
-		} 
+
+			if( document!=null ) {
+				try {
+					writer.addDocument(document);
+				} catch(IOException ex) {
+					throw new LuceneIndexAccessException("Error during adding a document in the index.", ex);
+				}
+			}
+		}
 	}
 }
@@ -23,11 +23,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.index.IndexWriter;
 import org.springmodules.lucene.index.LuceneIndexAccessException;
 import org.springmodules.lucene.index.LuceneIndexingException;
@@ -35,7 +38,9 @@ import org.springmodules.lucene.index.document.handler.DocumentHandler;
 import org.springmodules.lucene.index.document.handler.DocumentHandlerManager;
 import org.springmodules.lucene.index.document.handler.file.AbstractInputStreamDocumentHandler;
 import org.springmodules.lucene.index.factory.IndexFactory;
+import org.springmodules.lucene.index.factory.IndexReaderFactoryUtils;
 import org.springmodules.lucene.index.factory.IndexWriterFactoryUtils;
+import org.springmodules.lucene.index.factory.LuceneIndexReader;
 import org.springmodules.lucene.index.factory.LuceneIndexWriter;
 import org.springmodules.lucene.index.object.AbstractDocumentManagerIndexer;
 import org.springmodules.lucene.util.IOUtils;
@@ -65,6 +70,12 @@ import org.springmodules.lucene.util.IOUtils;
  * this avoids some locking problems on the index. You can too apply
  * different strategies for managing index resources.
  *
+ * <p>Every document added by the indexer contains the path, the size and
+ * the last modification date of the corresponding file. These informations
+ * are used by the updateIndex methods in order to only index again the
+ * files modified since the last indexing and to remove the documents of
+ * the deleted files.
+ *
  * <p>Can be used within a service implementation via direct instantiation
  * with a IndexFactory reference, or get prepared in an application context
  * and given to services as bean reference. Note: The IndexFactory should
@@ -85,6 +96,10 @@ import org.springmodules.lucene.util.IOUtils;
  */
 public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer implements DirectoryIndexer {
 
+	public final static String FILE_PATH_FIELD = "indexer.file.path";
+	public final static String FILE_SIZE_FIELD = "indexer.file.size";
+	public final static String FILE_LAST_MODIFIED_FIELD = "indexer.file.lastModified";
+
 	private List listeners;
 
 	/**
@@ -252,11 +267,13 @@ public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer impl
 	 * 
 	 * @param writer the IndexWriter used to index files
 	 * @param dirToParse the based directory to index
+	 * @param upToDateFiles the paths of the files already up to date in the
+	 * index (can be null if all the files must be indexed)
 	 * @throws IOException if thrown by a Lucene method, to be auto-converted
 	 * to a LuceneManipulateIndexException
 	 * @see DocumentIndexingListener
 	 */
-	private void indexDirectory(LuceneIndexWriter writer, File dirToParse) throws IOException {
+	private void indexDirectory(LuceneIndexWriter writer, File dirToParse, Set upToDateFiles) throws IOException {
 		fireListenersOnBeforeDirectory(dirToParse);
 		File[] files = dirToParse.listFiles();
 		if( files==null ) {
@@ -274,8 +291,8 @@ public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer impl
 		for(int cpt=0; cpt<files.length; cpt++) {
 			File currentFile = files[cpt];
 			if (currentFile.isDirectory()) {
-				indexDirectory(writer, currentFile);
-			} else {
+				indexDirectory(writer, currentFile, upToDateFiles);
+			} else if( upToDateFiles==null || !upToDateFiles.contains(currentFile.getAbsolutePath()) ) {
 				indexFile(writer, currentFile);
 			}
 		}
@@ -328,6 +345,7 @@ public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer impl
 				inputStream = new FileInputStream(file);
 				Document document = doCallHandler(file, inputStream, handler);
 				if( document!=null ) {
+					addFileInformations(document, file);
 					writer.addDocument(document);
 				}
 				fireListenersOnAfterFile(file);
@@ -344,6 +362,113 @@ public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer impl
 		}
 	}
 
+	/**
+	 * This method adds to the document the informations about the file
+	 * used to detect its modifications during an incremental indexing.
+	 * 
+	 * <p>These fields are stored but not tokenized. Only the path
+	 * is indexed in order to be able to delete the document.
+	 * 
+	 * @param document the document to add to the index
+	 * @param file the corresponding file
+	 */
+	private void addFileInformations(Document document, File file) {
+		document.add(new Field(FILE_PATH_FIELD, file.getAbsolutePath(),
+				Field.Store.YES, Field.Index.UN_TOKENIZED));
+		document.add(new Field(FILE_SIZE_FIELD, String.valueOf(file.length()),
+				Field.Store.YES, Field.Index.NO));
+		document.add(new Field(FILE_LAST_MODIFIED_FIELD, String.valueOf(file.lastModified()),
+				Field.Store.YES, Field.Index.NO));
+	}
+
+	/**
+	 * This method checks if the file corresponding to a document of the
+	 * index has been modified since its indexing.
+	 * 
+	 * @param document the document of the index
+	 * @param file the current file
+	 * @return true if the file has been modified, otherwise false
+	 */
+	private boolean isFileModified(Document document, File file) {
+		String size = document.get(FILE_SIZE_FIELD);
+		String lastModified = document.get(FILE_LAST_MODIFIED_FIELD);
+		return !String.valueOf(file.length()).equals(size)
+				|| !String.valueOf(file.lastModified()).equals(lastModified);
+	}
+
+	/**
+	 * This method collects recursively the files contained in a directory.
+	 * 
+	 * @param dirToParse the directory to parse
+	 * @param files the map used to hold the files using their absolute paths
+	 * as keys
+	 */
+	private void collectFiles(File dirToParse, Map files) {
+		if( !dirToParse.isDirectory() ) {
+			files.put(dirToParse.getAbsolutePath(), dirToParse);
+			return;
+		}
+
+		File[] children = dirToParse.listFiles();
+		if( children==null ) {
+			return;
+		}
+
+		for(int cpt=0; cpt<children.length; cpt++) {
+			collectFiles(children[cpt], files);
+		}
+	}
+
+	/**
+	 * This method removes from the index the documents corresponding to
+	 * the files which have been deleted or modified since their indexing.
+	 * The documents which are not added by the indexer are left unchanged.
+	 * 
+	 * <p>This method gets an IndexReader instance from the IndexReaderFactoryUtils
+	 * class and release it at the end if necessary. 
+	 * 
+	 * @param dirToParse the base directory to index recursively
+	 * @return the paths of the files already up to date in the index
+	 * @throws IOException if thrown by a Lucene method
+	 * @see IndexReaderFactoryUtils#getIndexReader(IndexFactory)
+	 * @see IndexReaderFactoryUtils#releaseIndexReader(IndexFactory, LuceneIndexReader)
+	 */
+	private Set deleteObsoleteDocuments(File dirToParse) throws IOException {
+		Map files = new HashMap();
+		collectFiles(dirToParse, files);
+		String basePath = dirToParse.getAbsolutePath();
+
+		Set upToDateFiles = new HashSet();
+		LuceneIndexReader reader = IndexReaderFactoryUtils.getIndexReader(getIndexFactory());
+		try {
+			int maxDoc = reader.maxDoc();
+			for(int cpt=0; cpt<maxDoc; cpt++) {
+				if( reader.isDeleted(cpt) ) {
+					continue;
+				}
+
+				Document document = reader.document(cpt);
+				String path = document.get(FILE_PATH_FIELD);
+				if( path==null || !(path.equals(basePath) || path.startsWith(basePath + File.separator)) ) {
+					continue;
+				}
+
+				File file = (File)files.get(path);
+				if( file==null || upToDateFiles.contains(path) || isFileModified(document, file) ) {
+					if( logger.isDebugEnabled() ) {
+						logger.debug("Removing the document of the file " + path);
+					}
+					reader.deleteDocument(cpt);
+				} else {
+					upToDateFiles.add(path);
+				}
+			}
+		} finally {
+			IndexReaderFactoryUtils.releaseIndexReader(getIndexFactory(), reader);
+		}
+		return upToDateFiles;
+	}
+
 	/**
 	 * This method is used to intercept the exception if the
 	 * handler corresponding to the file is not found.
@@ -402,7 +527,7 @@ public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer impl
 	 * @param dirToParse the base directory to index recursively
 	 * @param optimizeIndex if the index must be optimized after
 	 * the request indexing
-	 * @see #indexDirectory(IndexWriter, File)
+	 * @see #indexDirectory(IndexWriter, File, Set)
 	 * @see #indexFile(IndexWriter, File)
 	 * @see IndexWriterFactoryUtils#getIndexWriter(IndexFactory)
 	 * @see IndexWriterFactoryUtils#releaseIndexWriter(IndexFactory, IndexWriter)
@@ -417,7 +542,7 @@ public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer impl
 			File file = new File(dirToParse);
 			//Indexing the directory
 			if( file.isDirectory() ) {
-				indexDirectory(writer, new File(dirToParse));
+				indexDirectory(writer, new File(dirToParse), null);
 			} else {
 				indexFile(writer, file);
 			}
@@ -435,4 +560,74 @@ public class DefaultDirectoryIndexer extends AbstractDocumentManagerIndexer impl
 		}
 	}
 
+	/**
+	 * This method is the entry point to update the index of a directory
+	 * incrementally. Only the files added or modified since the last
+	 * indexing are indexed again.
+	 * 
+	 * <p>In this case, the index will not be optimized.
+	 *  
+	 * @param dirToParse the base directory to index recursively
+	 * @see #updateIndex(String, boolean)
+	 */
+	public void updateIndex(String dirToParse) {
+		updateIndex(dirToParse, false);
+	}
+
+	/**
+	 * This method is the entry point to update the index of a directory
+	 * incrementally. It works in two steps:
+	 * 
+	 * <p>At first, the documents previously added by the indexer are
+	 * compared with the files of the directory using their path, size and last
+	 * modification date. The documents of the removed and modified files are
+	 * deleted using an IndexReader.
+	 * 
+	 * <p>Then the directory is parsed as with the index method except that the
+	 * files which are still up to date in the index are skipped, so the
+	 * document handlers are only called for new and modified files.
+	 * 
+	 * <p>In this case, the index will be optimized at the end 
+	 * if the value of the optimizeIndex parameter is true.
+	 *  
+	 * @param dirToParse the base directory to index recursively
+	 * @param optimizeIndex if the index must be optimized after
+	 * the request indexing
+	 * @see #deleteObsoleteDocuments(File)
+	 * @see #indexDirectory(IndexWriter, File, Set)
+	 */
+	public void updateIndex(String dirToParse, boolean optimizeIndex) {
+		if( !checkBaseDirectory(dirToParse) ) {
+			throw new LuceneIndexingException("The base directory doesn't exist!");
+		}
+
+		File file = new File(dirToParse);
+		Set upToDateFiles = null;
+		try {
+			upToDateFiles = deleteObsoleteDocuments(file);
+		} catch(IOException ex) {
+			logger.error("Error during removing the obsolete documents of the directory : "+dirToParse, ex);
+			throw new LuceneIndexAccessException("Error during removing the obsolete documents of the directory : "+dirToParse, ex);
+		}
+
+		LuceneIndexWriter writer = IndexWriterFactoryUtils.getIndexWriter(getIndexFactory());
+		try {
+			//Indexing the new and modified files of the directory
+			if( file.isDirectory() ) {
+				indexDirectory(writer, file, upToDateFiles);
+			} else if( !upToDateFiles.contains(file.getAbsolutePath()) ) {
+				indexFile(writer, file);
+			}
+			//Optimize the index
+			if( optimizeIndex ) {
+				writer.optimize();
+			}
+		} catch(IOException ex) {
+			logger.error("Error during updating the index of the directory : "+dirToParse, ex);
+			throw new LuceneIndexAccessException("Error during updating the index of the directory : "+dirToParse, ex);
+		} finally {
+			IndexWriterFactoryUtils.releaseIndexWriter(getIndexFactory(), writer);
+		}
+	}
+
 }
@@ -86,4 +86,35 @@ public interface DirectoryIndexer {
 	 * the request indexing
 	 */
 	void index(String dirToParse, boolean optimizeIndex);
+
+	/**
+	 * This method is the entry point to update the index of a directory
+	 * incrementally. Only the files added or modified since the last indexing
+	 * are parsed again and the documents of the removed files are deleted
+	 * from the index.
+	 * 
+	 * <p>In this case, the index will not be optimized.
+	 *  
+	 * @param dirToParse the directory to index recursively
+	 */
+	void updateIndex(String dirToParse);
+
+	/**
+	 * This method is the entry point to update the index of a directory
+	 * incrementally. Only the files added or modified since the last indexing
+	 * are parsed again and the documents of the removed files are deleted
+	 * from the index.
+	 * 
+	 * <p>The comparison is based on the path, the size and the last modification
+	 * date of the files, informations stored in every documents added by the
+	 * indexer.
+	 * 
+	 * <p>In this case, the index will be optimized after the request
+	 * if the value of the optimizeIndex parameter is true.
+	 *  
+	 * @param dirToParse the directory to index recursively
+	 * @param optimizeIndex if the index must be optimized after
+	 * the request indexing
+	 */
+	void updateIndex(String dirToParse, boolean optimizeIndex);
 }
\ No newline at end of file
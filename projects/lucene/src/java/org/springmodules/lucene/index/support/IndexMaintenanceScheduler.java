@@ -0,0 +1,299 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.index.support;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.store.Directory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springmodules.lucene.index.LuceneIndexAccessException;
+import org.springmodules.lucene.index.factory.IndexFactory;
+import org.springmodules.lucene.index.factory.IndexReaderFactoryUtils;
+import org.springmodules.lucene.index.factory.IndexWriterFactoryUtils;
+import org.springmodules.lucene.index.factory.LuceneIndexReader;
+import org.springmodules.lucene.index.factory.LuceneIndexWriter;
+
+/**
+ * <p>Background component which optimizes an index when its state
+ * requires it, instead of optimizing it synchronously after every
+ * indexing.
+ *
+ * <p>The index is checked periodically (every checkInterval milliseconds)
+ * and optimized when the number of its segments exceeds the maxSegments
+ * property or when the ratio of deleted documents exceeds the
+ * maxDeletedRatio property. The optimization can be restricted to a window
+ * of hours, specified by the windowStartHour and windowEndHour properties,
+ * for example between 1 and 5 in the night. The window can span midnight.
+ *
+ * <p>The IndexWriter used to optimize the index is obtained from the
+ * configured IndexFactory, so the locking policy of this factory (for
+ * example a LockIndexFactory) is respected.
+ *
+ * <p>If the checkInterval property is set to 0, no timer is started and
+ * the maintain method must be called by an external scheduler.
+ *
+ * <p>The number of segments is computed from the files of the directory
+ * of the index. It is not available for factories whose readers are not
+ * based on a single directory, like the RAMBufferedIndexFactory. In this
+ * case, only the ratio of deleted documents is checked.
+ *
+ * @author Thierry Templier
+ * @see org.springmodules.lucene.index.factory.concurrent.LockIndexFactory
+ * @see org.apache.lucene.index.IndexWriter#optimize()
+ */
+public class IndexMaintenanceScheduler implements InitializingBean, DisposableBean {
+
+	public final static long DEFAULT_CHECK_INTERVAL = 60000;
+	public final static int DEFAULT_MAX_SEGMENTS = 10;
+	public final static float DEFAULT_MAX_DELETED_RATIO = 0.1f;
+
+	private static final Log logger = LogFactory.getLog(IndexMaintenanceScheduler.class);
+
+	private IndexFactory indexFactory;
+	private long checkInterval = DEFAULT_CHECK_INTERVAL;
+	private int maxSegments = DEFAULT_MAX_SEGMENTS;
+	private float maxDeletedRatio = DEFAULT_MAX_DELETED_RATIO;
+	private int windowStartHour = 0;
+	private int windowEndHour = 24;
+
+	private Timer timer;
+
+	/**
+	 * Set the IndexFactory of the index to maintain.
+	 */
+	public void setIndexFactory(IndexFactory indexFactory) {
+		this.indexFactory = indexFactory;
+	}
+
+	/**
+	 * Return the IndexFactory of the index to maintain.
+	 */
+	public IndexFactory getIndexFactory() {
+		return indexFactory;
+	}
+
+	/**
+	 * Set the delay in milliseconds between two checks of the index.
+	 * Default is 60000. A value of 0 disables the internal timer.
+	 */
+	public void setCheckInterval(long checkInterval) {
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Return the delay in milliseconds between two checks of the index.
+	 */
+	public long getCheckInterval() {
+		return checkInterval;
+	}
+
+	/**
+	 * Set the number of segments above which the index is optimized.
+	 * Default is 10.
+	 */
+	public void setMaxSegments(int maxSegments) {
+		this.maxSegments = maxSegments;
+	}
+
+	/**
+	 * Return the number of segments above which the index is optimized.
+	 */
+	public int getMaxSegments() {
+		return maxSegments;
+	}
+
+	/**
+	 * Set the ratio of deleted documents above which the index is
+	 * optimized. Default is 0.1.
+	 */
+	public void setMaxDeletedRatio(float maxDeletedRatio) {
+		this.maxDeletedRatio = maxDeletedRatio;
+	}
+
+	/**
+	 * Return the ratio of deleted documents above which the index
+	 * is optimized.
+	 */
+	public float getMaxDeletedRatio() {
+		return maxDeletedRatio;
+	}
+
+	/**
+	 * Set the hour (from 0 to 23) from which the index can be optimized.
+	 * Default is 0.
+	 */
+	public void setWindowStartHour(int windowStartHour) {
+		this.windowStartHour = windowStartHour;
+	}
+
+	/**
+	 * Return the hour from which the index can be optimized.
+	 */
+	public int getWindowStartHour() {
+		return windowStartHour;
+	}
+
+	/**
+	 * Set the hour (from 1 to 24) until which the index can be optimized.
+	 * Default is 24.
+	 */
+	public void setWindowEndHour(int windowEndHour) {
+		this.windowEndHour = windowEndHour;
+	}
+
+	/**
+	 * Return the hour until which the index can be optimized.
+	 */
+	public int getWindowEndHour() {
+		return windowEndHour;
+	}
+
+	/**
+	 * Check the configuration and start the timer if necessary.
+	 */
+	public void afterPropertiesSet() {
+		if( indexFactory==null ) {
+			throw new IllegalArgumentException("indexFactory is required");
+		}
+		if( windowStartHour<0 || windowStartHour>23 || windowEndHour<1 || windowEndHour>24 ) {
+			throw new IllegalArgumentException("The hours of the maintenance window are not valid");
+		}
+
+		if( checkInterval>0 ) {
+			this.timer = new Timer(true);
+			this.timer.schedule(new TimerTask() {
+				public void run() {
+					try {
+						maintain();
+					} catch(RuntimeException ex) {
+						logger.error("Error during the maintenance of the index", ex);
+					}
+				}
+			}, checkInterval, checkInterval);
+		}
+	}
+
+	/**
+	 * Stop the timer.
+	 */
+	public void destroy() {
+		if( timer!=null ) {
+			timer.cancel();
+		}
+	}
+
+	/**
+	 * Check the state of the index and optimize it if necessary and if
+	 * the current time is in the maintenance window.
+	 *
+	 * @return true if the index has been optimized
+	 */
+	public boolean maintain() {
+		if( !isInMaintenanceWindow(Calendar.getInstance().get(Calendar.HOUR_OF_DAY)) ) {
+			return false;
+		}
+		if( !isMaintenanceRequired() ) {
+			return false;
+		}
+
+		if( logger.isInfoEnabled() ) {
+			logger.info("Optimizing the index");
+		}
+		LuceneIndexWriter writer = IndexWriterFactoryUtils.getIndexWriter(indexFactory);
+		try {
+			writer.optimize();
+		} catch(IOException ex) {
+			throw new LuceneIndexAccessException("Error during optimizing the index", ex);
+		} finally {
+			IndexWriterFactoryUtils.releaseIndexWriter(indexFactory, writer);
+		}
+		return true;
+	}
+
+	/**
+	 * Check if an hour is in the maintenance window.
+	 */
+	protected boolean isInMaintenanceWindow(int hour) {
+		if( windowStartHour<windowEndHour ) {
+			return hour>=windowStartHour && hour<windowEndHour;
+		} else {
+			return hour>=windowStartHour || hour<windowEndHour;
+		}
+	}
+
+	/**
+	 * Check if the number of segments or the ratio of deleted
+	 * documents of the index exceeds the configured limits.
+	 *
+	 * @return true if the index needs to be optimized
+	 */
+	public boolean isMaintenanceRequired() {
+		LuceneIndexReader reader = IndexReaderFactoryUtils.getIndexReader(indexFactory);
+		try {
+			int maxDoc = reader.maxDoc();
+			if( maxDoc>0 ) {
+				float deletedRatio = (float)(maxDoc - reader.numDocs()) / maxDoc;
+				if( deletedRatio>maxDeletedRatio ) {
+					if( logger.isDebugEnabled() ) {
+						logger.debug("Ratio of deleted documents: " + deletedRatio);
+					}
+					return true;
+				}
+			}
+
+			Directory directory = reader.directory();
+			if( directory!=null ) {
+				int segmentCount = getSegmentCount(directory);
+				if( segmentCount>maxSegments ) {
+					if( logger.isDebugEnabled() ) {
+						logger.debug("Number of segments: " + segmentCount);
+					}
+					return true;
+				}
+			}
+			return false;
+		} catch(IOException ex) {
+			throw new LuceneIndexAccessException("Error during checking the index", ex);
+		} finally {
+			IndexReaderFactoryUtils.releaseIndexReader(indexFactory, reader);
+		}
+	}
+
+	/**
+	 * Count the segments of an index from the names of its files. Every
+	 * segment has either a compound file or a file for its field infos.
+	 */
+	private int getSegmentCount(Directory directory) throws IOException {
+		String[] files = directory.list();
+		Set segments = new HashSet();
+		for(int cpt=0; cpt<files.length; cpt++) {
+			String file = files[cpt];
+			if( file.startsWith("_") && (file.endsWith(".cfs") || file.endsWith(".fnm")) ) {
+				segments.add(file.substring(0, file.lastIndexOf('.')));
+			}
+		}
+		return segments.size();
+	}
+}
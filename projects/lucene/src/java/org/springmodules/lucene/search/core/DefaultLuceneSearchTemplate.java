@@ -63,6 +63,7 @@ public class DefaultLuceneSearchTemplate implements LuceneSearchTemplate {
 
 	private SearcherFactory searcherFactory;
 	private Analyzer analyzer;
+	private QueryResultCache queryResultCache;
 
 	/**
 	 * Construct a new LuceneSearchTemplate for bean usage.
@@ -125,6 +126,22 @@ public class DefaultLuceneSearchTemplate implements LuceneSearchTemplate {
 		return analyzer;
 	}
 
+	/**
+	 * Set the cache used to hold the results of the searches. Default is none,
+	 * indicating that every search is executed on the index.
+	 * @see QueryResultCache
+	 */
+	public void setQueryResultCache(QueryResultCache queryResultCache) {
+		this.queryResultCache = queryResultCache;
+	}
+
+	/**
+	 * Return the cache used to hold the results of the searches.
+	 */
+	public QueryResultCache getQueryResultCache() {
+		return queryResultCache;
+	}
+
 	/**
 	 * Invoke the given QueryCreator, constructing Lucene query.
 	 * @param queryCreator the QueryCreator to invoke
@@ -239,7 +256,8 @@ public class DefaultLuceneSearchTemplate implements LuceneSearchTemplate {
 	 * In this case, the exceptions during the query creation are managed
 	 * by the template.
 	 * This method uses sort and/or filter parameters as Searcher search
-	 * method parameters if they are not null. 
+	 * method parameters if they are not null. If a QueryResultCache is
+	 * specified, the hits are got from it.
 	 * @param query the query used
 	 * @param extractor the extractor of hit informations
 	 * @param filter the query filter
@@ -251,7 +269,9 @@ public class DefaultLuceneSearchTemplate implements LuceneSearchTemplate {
 		LuceneSearcher searcher = SearcherFactoryUtils.getSearcher(getSearcherFactory());
 		try {
 			LuceneHits hits = null;
-			if( filter!=null && sort!=null ) {
+			if( queryResultCache!=null ) {
+				hits = queryResultCache.getHits(searcher, query, filter, sort);
+			} else if( filter!=null && sort!=null ) {
 				hits = searcher.search(query, filter, sort);
 			} else if( filter!=null ) { 
 				hits = searcher.search(query, filter);
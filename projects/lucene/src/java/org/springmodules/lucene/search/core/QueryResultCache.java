@@ -0,0 +1,464 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.search.core;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.springframework.util.ObjectUtils;
+import org.springmodules.lucene.search.factory.LuceneHits;
+import org.springmodules.lucene.search.factory.LuceneSearcher;
+
+/**
+ * Cache of the results of searches to be used with the DefaultLuceneSearchTemplate
+ * class. It holds the identifiers and the scores of the first hits of a search
+ * (specified by the maxCachedHits property) for a query, a filter and a sort.
+ * The documents are always loaded with the searcher used by the template.
+ *
+ * <p>The cached results are associated with the version of the index. When the
+ * version of the IndexReader used by the searcher changes, the whole cache is
+ * cleared. The results are only cached for searchers based on a single index,
+ * i.e. searchers whose getIndexReader method returns a reader on a directory.
+ * So an instance of this class must not be shared by templates working on
+ * different indexes.
+ *
+ * <p>The number of cached searches is limited by the maxEntries property. The
+ * least recently used searches are removed first.
+ *
+ * <p>The hits returned by the cache are the same whether the search was cached
+ * or not: they are read from the cache up to maxCachedHits, and their iterator
+ * returns CachedHit instances.
+ *
+ * <p>This class provides too a cache of filters. The filters used with the
+ * template are wrapped in a CachingWrapperFilter, which keeps their bits for
+ * every IndexReader. This is only useful when the searcher factory reuses its
+ * readers, like the SingleSearcherFactory. The number of wrapped filters is
+ * limited by the maxCachedFilters property, the least recently used filters
+ * are removed first.
+ *
+ * <p>The Query classes of Lucene implement the equals method. For the filters,
+ * the same instance must be used in order to find the cached results, unless
+ * the Filter class implements the equals method.
+ *
+ * @author Thierry Templier
+ * @see DefaultLuceneSearchTemplate#setQueryResultCache(QueryResultCache)
+ * @see org.apache.lucene.search.CachingWrapperFilter
+ */
+public class QueryResultCache {
+
+	public final static int DEFAULT_MAX_ENTRIES = 1000;
+	public final static int DEFAULT_MAX_CACHED_HITS = 100;
+	public final static int DEFAULT_MAX_CACHED_FILTERS = 100;
+
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+	private int maxCachedHits = DEFAULT_MAX_CACHED_HITS;
+	private boolean cacheFilters = true;
+	private int maxCachedFilters = DEFAULT_MAX_CACHED_FILTERS;
+
+	private final Map entries;
+	private final Map cachingFilters;
+	private long indexVersion = -1;
+
+	/**
+	 * Construct a new QueryResultCache.
+	 */
+	public QueryResultCache() {
+		this.entries = new LinkedHashMap(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry eldest) {
+				return size() > maxEntries;
+			}
+		};
+		//The CachingWrapperFilter values reference their keys, so a
+		//WeakHashMap would never release them
+		this.cachingFilters = new LinkedHashMap(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry eldest) {
+				return size() > maxCachedFilters;
+			}
+		};
+	}
+
+	/**
+	 * Set the maximum number of searches to cache.
+	 * Default is 1000.
+	 */
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Return the maximum number of searches to cache.
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Set the number of hits cached for every search. The hits after
+	 * this number are got by executing the search again.
+	 * Default is 100.
+	 */
+	public void setMaxCachedHits(int maxCachedHits) {
+		this.maxCachedHits = maxCachedHits;
+	}
+
+	/**
+	 * Return the number of hits cached for every search.
+	 */
+	public int getMaxCachedHits() {
+		return maxCachedHits;
+	}
+
+	/**
+	 * Set if the filters must be wrapped in a CachingWrapperFilter.
+	 * Default is true.
+	 */
+	public void setCacheFilters(boolean cacheFilters) {
+		this.cacheFilters = cacheFilters;
+	}
+
+	/**
+	 * Return if the filters are wrapped in a CachingWrapperFilter.
+	 */
+	public boolean isCacheFilters() {
+		return cacheFilters;
+	}
+
+	/**
+	 * Set the maximum number of filters wrapped in a CachingWrapperFilter.
+	 * Default is 100.
+	 */
+	public void setMaxCachedFilters(int maxCachedFilters) {
+		this.maxCachedFilters = maxCachedFilters;
+	}
+
+	/**
+	 * Return the maximum number of filters wrapped in a CachingWrapperFilter.
+	 */
+	public int getMaxCachedFilters() {
+		return maxCachedFilters;
+	}
+
+	/**
+	 * Return the number of filters wrapped in a CachingWrapperFilter.
+	 */
+	public int getCachedFilterCount() {
+		synchronized( cachingFilters ) {
+			return cachingFilters.size();
+		}
+	}
+
+	/**
+	 * Return the number of cached searches.
+	 */
+	public int size() {
+		synchronized( entries ) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Remove all the cached searches.
+	 */
+	public void clear() {
+		synchronized( entries ) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Return the filter to use for a search. If the filters are cached, the
+	 * returned filter is the CachingWrapperFilter associated with the specified
+	 * filter.
+	 *
+	 * @param filter the filter of the search
+	 * @return the filter to use
+	 */
+	public Filter getCachingFilter(Filter filter) {
+		if( filter==null || !cacheFilters || filter instanceof CachingWrapperFilter ) {
+			return filter;
+		}
+
+		synchronized( cachingFilters ) {
+			Filter cachingFilter = (Filter)cachingFilters.get(filter);
+			if( cachingFilter==null ) {
+				cachingFilter = new CachingWrapperFilter(filter);
+				cachingFilters.put(filter, cachingFilter);
+			}
+			return cachingFilter;
+		}
+	}
+
+	/**
+	 * Return the hits of a search. If the result of the search is in the
+	 * cache for the current version of the index, it is returned without
+	 * executing the search. Otherwise the first hits of the search are
+	 * collected (specified by the maxCachedHits property) and cached.
+	 *
+	 * @param searcher the searcher to use
+	 * @param query the query of the search
+	 * @param filter the query filter (can be null)
+	 * @param sort the query sorter (can be null)
+	 * @return the hits of the search
+	 * @throws IOException if thrown by Lucene methods
+	 */
+	public LuceneHits getHits(LuceneSearcher searcher, Query query,
+								Filter filter, Sort sort) throws IOException {
+		IndexReader reader = searcher.getIndexReader();
+		if( reader==null || reader.directory()==null ) {
+			return search(searcher, query, filter, sort);
+		}
+
+		CacheKey key = new CacheKey(query, filter, sort);
+		long version = reader.getVersion();
+		CacheEntry entry = null;
+		synchronized( entries ) {
+			if( version!=indexVersion ) {
+				entries.clear();
+				indexVersion = version;
+			}
+			entry = (CacheEntry)entries.get(key);
+		}
+
+		if( entry!=null ) {
+			return new CachedLuceneHits(searcher, key, entry);
+		}
+
+		entry = createEntry(searcher, query, filter, sort);
+		synchronized( entries ) {
+			if( version==indexVersion ) {
+				entries.put(key, entry);
+			}
+		}
+		return new CachedLuceneHits(searcher, key, entry);
+	}
+
+	/**
+	 * Create the cache entry of a search. The first hits are collected with
+	 * a single search, instead of being read from a Hits instance which only
+	 * prefetches its first documents and would execute the search again.
+	 * The scores are normalized like the ones of the Hits class.
+	 */
+	private CacheEntry createEntry(LuceneSearcher searcher, Query query,
+								Filter filter, Sort sort) throws IOException {
+		Filter searchFilter = getCachingFilter(filter);
+		int n = Math.max(maxCachedHits, 1);
+		TopDocs topDocs = (sort!=null ? searcher.search(query, searchFilter, n, sort)
+								: searcher.search(query, searchFilter, n));
+		ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+		int cachedLength = Math.min(scoreDocs.length, maxCachedHits);
+		float scoreNorm = 1.0f;
+		if( topDocs.totalHits>0 && topDocs.getMaxScore()>1.0f ) {
+			scoreNorm = 1.0f / topDocs.getMaxScore();
+		}
+		int[] ids = new int[cachedLength];
+		float[] scores = new float[cachedLength];
+		for(int cpt=0; cpt<cachedLength; cpt++) {
+			ids[cpt] = scoreDocs[cpt].doc;
+			scores[cpt] = scoreDocs[cpt].score * scoreNorm;
+		}
+		return new CacheEntry(topDocs.totalHits, ids, scores);
+	}
+
+	/**
+	 * Execute a search using sort and/or filter parameters as Searcher
+	 * search method parameters if they are not null.
+	 */
+	private LuceneHits search(LuceneSearcher searcher, Query query,
+								Filter filter, Sort sort) throws IOException {
+		Filter searchFilter = getCachingFilter(filter);
+		if( searchFilter!=null && sort!=null ) {
+			return searcher.search(query, searchFilter, sort);
+		} else if( searchFilter!=null ) {
+			return searcher.search(query, searchFilter);
+		} else if( sort!=null ) {
+			return searcher.search(query, sort);
+		} else {
+			return searcher.search(query);
+		}
+	}
+
+	/**
+	 * Key of a cached search. The sort is compared using its
+	 * string representation.
+	 */
+	private static class CacheKey {
+		private final Query query;
+		private final Filter filter;
+		private final Sort sort;
+		private final String sortDescription;
+
+		public CacheKey(Query query, Filter filter, Sort sort) {
+			this.query = query;
+			this.filter = filter;
+			this.sort = sort;
+			this.sortDescription = (sort!=null ? sort.toString() : null);
+		}
+
+		public boolean equals(Object obj) {
+			if( this==obj ) {
+				return true;
+			}
+			if( !(obj instanceof CacheKey) ) {
+				return false;
+			}
+			CacheKey key = (CacheKey)obj;
+			return ObjectUtils.nullSafeEquals(query, key.query)
+				&& ObjectUtils.nullSafeEquals(filter, key.filter)
+				&& ObjectUtils.nullSafeEquals(sortDescription, key.sortDescription);
+		}
+
+		public int hashCode() {
+			return ObjectUtils.nullSafeHashCode(query) * 29
+				+ ObjectUtils.nullSafeHashCode(filter) * 17
+				+ ObjectUtils.nullSafeHashCode(sortDescription);
+		}
+	}
+
+	/**
+	 * Cached result of a search.
+	 */
+	private static class CacheEntry {
+		private final int length;
+		private final int[] ids;
+		private final float[] scores;
+
+		public CacheEntry(int length, int[] ids, float[] scores) {
+			this.length = length;
+			this.ids = ids;
+			this.scores = scores;
+		}
+	}
+
+	/**
+	 * LuceneHits implementation based on a cached result. The documents
+	 * are loaded with the current searcher. The search is executed again
+	 * if hits after the cached ones are required. Its iterator returns
+	 * CachedHit instances, whether the result was already cached or not.
+	 */
+	private class CachedLuceneHits implements LuceneHits {
+		private final LuceneSearcher searcher;
+		private final CacheKey key;
+		private final CacheEntry entry;
+		private LuceneHits hits;
+
+		public CachedLuceneHits(LuceneSearcher searcher, CacheKey key, CacheEntry entry) {
+			this.searcher = searcher;
+			this.key = key;
+			this.entry = entry;
+		}
+
+		private LuceneHits getHits() throws IOException {
+			if( hits==null ) {
+				hits = search(searcher, key.query, key.filter, key.sort);
+			}
+			return hits;
+		}
+
+		public int length() {
+			return entry.length;
+		}
+
+		public Document doc(int n) throws IOException {
+			if( n<entry.ids.length ) {
+				return searcher.doc(entry.ids[n]);
+			}
+			return getHits().doc(n);
+		}
+
+		public float score(int n) throws IOException {
+			if( n<entry.scores.length ) {
+				return entry.scores[n];
+			}
+			return getHits().score(n);
+		}
+
+		public int id(int n) throws IOException {
+			if( n<entry.ids.length ) {
+				return entry.ids[n];
+			}
+			return getHits().id(n);
+		}
+
+		public Iterator iterator() {
+			return new Iterator() {
+				private int n = 0;
+
+				public boolean hasNext() {
+					return n<entry.length;
+				}
+
+				public Object next() {
+					if( n>=entry.length ) {
+						throw new NoSuchElementException();
+					}
+					return new CachedHit(CachedLuceneHits.this, n++);
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Hit returned by the iterator of cached hits, the equivalent of the
+	 * Hit class of Lucene. The hits in the cache are read from the cache
+	 * and the document is loaded on demand.
+	 */
+	public static class CachedHit {
+		private final LuceneHits hits;
+		private final int n;
+
+		CachedHit(LuceneHits hits, int n) {
+			this.hits = hits;
+			this.n = n;
+		}
+
+		/**
+		 * Return the id of the document of this hit.
+		 */
+		public int getId() throws IOException {
+			return hits.id(n);
+		}
+
+		/**
+		 * Return the score of this hit.
+		 */
+		public float getScore() throws IOException {
+			return hits.score(n);
+		}
+
+		/**
+		 * Return the document of this hit.
+		 */
+		public Document getDocument() throws IOException {
+			return hits.doc(n);
+		}
+	}
+}
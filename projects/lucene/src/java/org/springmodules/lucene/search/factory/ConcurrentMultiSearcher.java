@@ -0,0 +1,390 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.search.factory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.MultiSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Searchable;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.Weight;
+import org.springframework.core.task.TaskExecutor;
+import org.springmodules.lucene.search.LuceneSearchException;
+
+import edu.emory.mathcs.backport.java.util.concurrent.CountDownLatch;
+import edu.emory.mathcs.backport.java.util.concurrent.TimeUnit;
+
+/**
+ * <p>MultiSearcher implementation which executes the searches on every
+ * sub-searcher concurrently using a TaskExecutor, instead of creating
+ * a new thread for every sub-searcher like the ParallelMultiSearcher
+ * class of Lucene.
+ *
+ * <p>A timeout can be specified for the searches. The results of the
+ * sub-searchers which do not answer before the timeout are ignored and
+ * the merged result only contains the hits of the other ones. In this
+ * case, the total number of hits is the one of the answering
+ * sub-searchers. The allowPartialResults property can be set to false
+ * in order to throw a LuceneSearchException instead.
+ *
+ * <p>The timeout applies on every call of a search method based on
+ * a Weight. As the Lucene Hits class executes the search again when
+ * hits after the first ones are required, the results of different
+ * calls can be based on different sub-searchers.
+ *
+ * <p>The searches based on a HitCollector are executed sequentially
+ * by the MultiSearcher class. The Weight of a query is created by the
+ * MultiSearcher class too: it asks every sub-searcher, one after the
+ * other, for the document frequencies of the terms of the query, before
+ * the concurrent search and outside of the timeout. A sub-searcher which
+ * is slow to answer these requests delays every search. The
+ * MultiSearcher class does not allow to execute them concurrently
+ * without duplicating the internal classes of Lucene.
+ *
+ * @author Thierry Templier
+ * @see org.apache.lucene.search.MultiSearcher
+ * @see org.apache.lucene.search.ParallelMultiSearcher
+ * @see org.springframework.core.task.TaskExecutor
+ */
+public class ConcurrentMultiSearcher extends MultiSearcher {
+
+	private static final Log logger = LogFactory.getLog(ConcurrentMultiSearcher.class);
+
+	private final Searchable[] searchables;
+	private final int[] starts;
+	private final TaskExecutor taskExecutor;
+	private long timeout;
+	private boolean allowPartialResults = true;
+
+	/**
+	 * Construct a new ConcurrentMultiSearcher, given the sub-searchers
+	 * and the TaskExecutor to execute the searches.
+	 *
+	 * @param searchables the sub-searchers
+	 * @param taskExecutor the TaskExecutor to execute the searches
+	 * @throws IOException if thrown by Lucene methods
+	 */
+	public ConcurrentMultiSearcher(Searchable[] searchables,
+									TaskExecutor taskExecutor) throws IOException {
+		super(searchables);
+		this.searchables = searchables;
+		this.taskExecutor = taskExecutor;
+		this.starts = new int[searchables.length];
+		int maxDoc = 0;
+		for(int cpt=0; cpt<searchables.length; cpt++) {
+			starts[cpt] = maxDoc;
+			maxDoc += searchables[cpt].maxDoc();
+		}
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for the results of the
+	 * sub-searchers. Default is 0, which means no timeout.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Return the maximum time in milliseconds to wait for the results
+	 * of the sub-searchers.
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Set if the results of the sub-searchers which answer before the
+	 * timeout are returned when other ones do not answer. Otherwise a
+	 * LuceneSearchException is thrown. Default is true.
+	 */
+	public void setAllowPartialResults(boolean allowPartialResults) {
+		this.allowPartialResults = allowPartialResults;
+	}
+
+	/**
+	 * Return if partial results are returned when sub-searchers
+	 * do not answer before the timeout.
+	 */
+	public boolean isAllowPartialResults() {
+		return allowPartialResults;
+	}
+
+	/**
+	 * Execute the search concurrently on every sub-searcher and merge
+	 * the best hits according to their scores.
+	 *
+	 * @see org.apache.lucene.search.MultiSearcher#search(Weight, Filter, int)
+	 */
+	public TopDocs search(final Weight weight, final Filter filter,
+							final int nDocs) throws IOException {
+		TopDocs[] results = executeSearches(new ShardSearch() {
+			public TopDocs search(Searchable searchable) throws IOException {
+				return searchable.search(weight, filter, nDocs);
+			}
+		});
+		TopDocs mergedResult = mergeResults(results, nDocs, new ScoreDocComparator());
+		return (mergedResult!=null ? mergedResult
+				: new TopDocs(0, new ScoreDoc[0], Float.NEGATIVE_INFINITY));
+	}
+
+	/**
+	 * Execute the search concurrently on every sub-searcher and merge
+	 * the best hits according to the specified sort.
+	 *
+	 * @see org.apache.lucene.search.MultiSearcher#search(Weight, Filter, int, Sort)
+	 */
+	public TopFieldDocs search(final Weight weight, final Filter filter,
+							final int n, final Sort sort) throws IOException {
+		TopDocs[] results = executeSearches(new ShardSearch() {
+			public TopDocs search(Searchable searchable) throws IOException {
+				return searchable.search(weight, filter, n, sort);
+			}
+		});
+		TopFieldDocs firstResult = null;
+		for(int cpt=0; cpt<results.length && firstResult==null; cpt++) {
+			firstResult = (TopFieldDocs)results[cpt];
+		}
+		if( firstResult==null ) {
+			return new TopFieldDocs(0, new ScoreDoc[0], sort.getSort(), Float.NEGATIVE_INFINITY);
+		}
+		Comparator comparator = new FieldDocComparator(firstResult.fields);
+		return (TopFieldDocs)mergeResults(results, n, comparator);
+	}
+
+	/**
+	 * Execute a search on every sub-searcher using the TaskExecutor and
+	 * wait for their results until the timeout. The document identifiers
+	 * of the hits are converted to the ones of this searcher.
+	 *
+	 * @param shardSearch the search to execute
+	 * @return the results of the sub-searchers, or null for the ones
+	 * which did not answer before the timeout
+	 * @throws IOException if a sub-searcher fails with an IOException
+	 * @throws LuceneSearchException if a sub-searcher fails with
+	 * another exception
+	 */
+	private TopDocs[] executeSearches(final ShardSearch shardSearch) throws IOException {
+		final TopDocs[] results = new TopDocs[searchables.length];
+		final Throwable[] errors = new Throwable[searchables.length];
+		final CountDownLatch latch = new CountDownLatch(searchables.length);
+		for(int cpt=0; cpt<searchables.length; cpt++) {
+			final int index = cpt;
+			taskExecutor.execute(new Runnable() {
+				public void run() {
+					try {
+						TopDocs result = shardSearch.search(searchables[index]);
+						ScoreDoc[] scoreDocs = result.scoreDocs;
+						for(int cptDoc=0; cptDoc<scoreDocs.length; cptDoc++) {
+							scoreDocs[cptDoc].doc += starts[index];
+						}
+						synchronized( results ) {
+							results[index] = result;
+						}
+					} catch(Throwable ex) {
+						synchronized( results ) {
+							errors[index] = ex;
+						}
+					} finally {
+						latch.countDown();
+					}
+				}
+			});
+		}
+
+		boolean completed = false;
+		try {
+			if( timeout>0 ) {
+				completed = latch.await(timeout, TimeUnit.MILLISECONDS);
+			} else {
+				latch.await();
+				completed = true;
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new LuceneSearchException("Interrupted while waiting for the sub-searchers");
+		}
+
+		TopDocs[] answeredResults = new TopDocs[searchables.length];
+		synchronized( results ) {
+			for(int cpt=0; cpt<searchables.length; cpt++) {
+				if( errors[cpt]!=null ) {
+					rethrowError(errors[cpt], cpt);
+				}
+				answeredResults[cpt] = results[cpt];
+			}
+		}
+
+		if( !completed ) {
+			checkPartialResults(answeredResults);
+		}
+		return answeredResults;
+	}
+
+	/**
+	 * Rethrow the error of a sub-searcher in the calling thread. The
+	 * IOExceptions and the Errors are rethrown as is, the other
+	 * exceptions are wrapped in a LuceneSearchException.
+	 */
+	private void rethrowError(Throwable error, int index) throws IOException {
+		if( error instanceof IOException ) {
+			throw (IOException)error;
+		}
+		if( error instanceof Error ) {
+			throw (Error)error;
+		}
+		throw new LuceneSearchException("The sub-searcher " + index + " failed", (Exception)error);
+	}
+
+	/**
+	 * Check if the results of the sub-searchers which answered before
+	 * the timeout can be returned.
+	 */
+	private void checkPartialResults(TopDocs[] results) {
+		List missingSearchables = new ArrayList();
+		for(int cpt=0; cpt<results.length; cpt++) {
+			if( results[cpt]==null ) {
+				missingSearchables.add(new Integer(cpt));
+			}
+		}
+		if( missingSearchables.size()==results.length ) {
+			throw new LuceneSearchException("No sub-searcher answered within " + timeout + " ms");
+		}
+		if( !allowPartialResults ) {
+			throw new LuceneSearchException("The sub-searchers " + missingSearchables
+					+ " did not answer within " + timeout + " ms");
+		}
+		if( logger.isWarnEnabled() ) {
+			logger.warn("Ignoring the sub-searchers " + missingSearchables
+					+ " which did not answer within " + timeout + " ms");
+		}
+	}
+
+	/**
+	 * Merge the results of the sub-searchers. The returned instance is
+	 * the result of the sub-searcher with the best score, so that its
+	 * maximum score is the one of the merged hits. Return null if there
+	 * is no result to merge (no sub-searcher).
+	 */
+	private TopDocs mergeResults(TopDocs[] results, int nDocs, Comparator comparator) {
+		TopDocs mergedResult = null;
+		int totalHits = 0;
+		List scoreDocs = new ArrayList();
+		for(int cpt=0; cpt<results.length; cpt++) {
+			if( results[cpt]==null ) {
+				continue;
+			}
+			if( mergedResult==null || results[cpt].getMaxScore()>mergedResult.getMaxScore() ) {
+				mergedResult = results[cpt];
+			}
+			totalHits += results[cpt].totalHits;
+			scoreDocs.addAll(Arrays.asList(results[cpt].scoreDocs));
+		}
+		if( mergedResult==null ) {
+			return null;
+		}
+
+		ScoreDoc[] sortedScoreDocs = (ScoreDoc[])scoreDocs.toArray(new ScoreDoc[scoreDocs.size()]);
+		Arrays.sort(sortedScoreDocs, comparator);
+		int length = Math.min(nDocs, sortedScoreDocs.length);
+		ScoreDoc[] bestScoreDocs = new ScoreDoc[length];
+		System.arraycopy(sortedScoreDocs, 0, bestScoreDocs, 0, length);
+
+		mergedResult.totalHits = totalHits;
+		mergedResult.scoreDocs = bestScoreDocs;
+		return mergedResult;
+	}
+
+	/**
+	 * Search to execute on a sub-searcher.
+	 */
+	private interface ShardSearch {
+		TopDocs search(Searchable searchable) throws IOException;
+	}
+
+	/**
+	 * Comparator of hits according to their scores. The hits with the
+	 * same score are sorted according to their document identifiers.
+	 */
+	private static class ScoreDocComparator implements Comparator {
+		public int compare(Object o1, Object o2) {
+			ScoreDoc scoreDoc1 = (ScoreDoc)o1;
+			ScoreDoc scoreDoc2 = (ScoreDoc)o2;
+			if( scoreDoc1.score!=scoreDoc2.score ) {
+				return scoreDoc1.score>scoreDoc2.score ? -1 : 1;
+			}
+			return scoreDoc1.doc - scoreDoc2.doc;
+		}
+	}
+
+	/**
+	 * Comparator of hits according to the values of their sort fields.
+	 * The string fields are compared without using their locale.
+	 */
+	private static class FieldDocComparator implements Comparator {
+		private final SortField[] sortFields;
+
+		public FieldDocComparator(SortField[] sortFields) {
+			this.sortFields = sortFields;
+		}
+
+		public int compare(Object o1, Object o2) {
+			FieldDoc fieldDoc1 = (FieldDoc)o1;
+			FieldDoc fieldDoc2 = (FieldDoc)o2;
+			for(int cpt=0; cpt<sortFields.length; cpt++) {
+				int result = 0;
+				int type = sortFields[cpt].getType();
+				if( type==SortField.SCORE ) {
+					Float score1 = (Float)fieldDoc1.fields[cpt];
+					Float score2 = (Float)fieldDoc2.fields[cpt];
+					result = score2.compareTo(score1);
+				} else if( type==SortField.DOC ) {
+					result = fieldDoc1.doc - fieldDoc2.doc;
+				} else {
+					Comparable value1 = fieldDoc1.fields[cpt];
+					Comparable value2 = fieldDoc2.fields[cpt];
+					if( value1==null ) {
+						result = (value2==null ? 0 : -1);
+					} else if( value2==null ) {
+						result = 1;
+					} else {
+						result = value1.compareTo(value2);
+					}
+				}
+				if( sortFields[cpt].getReverse() ) {
+					result = -result;
+				}
+				if( result!=0 ) {
+					return result;
+				}
+			}
+			return fieldDoc1.doc - fieldDoc2.doc;
+		}
+	}
+}
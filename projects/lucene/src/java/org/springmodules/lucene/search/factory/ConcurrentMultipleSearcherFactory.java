@@ -0,0 +1,210 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.search.factory;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.Searcher;
+import org.apache.lucene.store.Directory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springmodules.lucene.index.factory.IndexFactory;
+
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>This is the factory to make concurrent searches on several Lucene
+ * indexes, using the same searcher instances for every search.
+ *
+ * <p>Contrary to the ParallelMultipleSearcherFactory, the searchers on
+ * the indexes are created once when the factory is initialized and closed
+ * when it is destroyed, like with the SingleSearcherFactory. The searches on
+ * the indexes are executed by the configured TaskExecutor, for example a
+ * ThreadPoolTaskExecutor. By default, they are executed by a pool with one
+ * thread per index, created when the factory is initialized and shut down
+ * when it is destroyed, so no thread is started per search.
+ *
+ * <p>A timeout can be specified with the timeout property. In this case,
+ * the hits of the indexes which do not answer in time are ignored, unless
+ * the allowPartialResults property is set to false.
+ *
+ * @author Thierry Templier
+ * @see ConcurrentMultiSearcher
+ * @see org.springmodules.lucene.search.factory.SearcherFactory
+ * @see org.springframework.core.task.TaskExecutor
+ */
+public class ConcurrentMultipleSearcherFactory extends AbstractMultipleSearcherFactory
+											implements SearcherFactory, InitializingBean, DisposableBean {
+
+	private TaskExecutor taskExecutor;
+	private long timeout;
+	private boolean allowPartialResults = true;
+
+	private ConcurrentMultiSearcher multiSearcher;
+	private LuceneSearcher searcher;
+	private ExecutorService defaultExecutorService;
+
+	/**
+	 * Construct a new ConcurrentMultipleSearcherFactory for bean usage.
+	 * Note: The Directories or the IndexFactories have to be set before
+	 * using the instance.
+	 * @see AbstractMultipleSearcherFactory#setDirectories(Directory[])
+	 * @see AbstractMultipleSearcherFactory#setIndexFactories(IndexFactory[])
+	 */
+	public ConcurrentMultipleSearcherFactory() {
+	}
+
+	/**
+	 * Construct a new ConcurrentMultipleSearcherFactory, given Directories
+	 * to obtain a Searcher.
+	 * @param directories Directories to obtain Searcher
+	 */
+	public ConcurrentMultipleSearcherFactory(Directory[] directories) {
+		setDirectories(directories);
+	}
+
+	/**
+	 * Construct a new ConcurrentMultipleSearcherFactory, given IndexFactories
+	 * to obtain a Searcher.
+	 * @param indexFactories IndexFactories to obtain Searcher
+	 */
+	public ConcurrentMultipleSearcherFactory(IndexFactory[] indexFactories) {
+		setIndexFactories(indexFactories);
+	}
+
+	/**
+	 * Set the TaskExecutor used to execute the searches on the indexes.
+	 * By default, a pool with one thread per index is used.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor used to execute the searches on the indexes.
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for the results of
+	 * the indexes. Default is 0, which means no timeout.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Return the maximum time in milliseconds to wait for the results
+	 * of the indexes.
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Set if the hits of the indexes which answer in time are returned
+	 * when other ones exceed the timeout. Default is true.
+	 */
+	public void setAllowPartialResults(boolean allowPartialResults) {
+		this.allowPartialResults = allowPartialResults;
+	}
+
+	/**
+	 * Return if partial results are returned when indexes exceed
+	 * the timeout.
+	 */
+	public boolean isAllowPartialResults() {
+		return allowPartialResults;
+	}
+
+	/**
+	 * This method creates the searchers on every index and the
+	 * concurrent searcher on them.
+	 * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+	 */
+	public void afterPropertiesSet() throws Exception {
+		Searcher[] searchers = createSearchers();
+		TaskExecutor searchExecutor = taskExecutor;
+		if( searchExecutor==null ) {
+			searchExecutor = createDefaultTaskExecutor(searchers.length);
+		}
+
+		this.multiSearcher = new ConcurrentMultiSearcher(searchers, searchExecutor);
+		this.multiSearcher.setTimeout(timeout);
+		this.multiSearcher.setAllowPartialResults(allowPartialResults);
+		this.searcher = new SimpleLuceneSearcher(multiSearcher) {
+			public void close() throws IOException {
+				//The searchers are closed when the factory is destroyed
+			}
+		};
+	}
+
+	/**
+	 * This method closes the searchers on every index.
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	public void destroy() throws Exception {
+		try {
+			SearcherFactoryUtils.closeSearcher(multiSearcher);
+		} finally {
+			if( defaultExecutorService!=null ) {
+				defaultExecutorService.shutdown();
+				defaultExecutorService = null;
+			}
+		}
+	}
+
+	/**
+	 * Create the default TaskExecutor, based on a pool with one daemon
+	 * thread per index.
+	 */
+	private TaskExecutor createDefaultTaskExecutor(int threadCount) {
+		final ExecutorService executorService = Executors.newFixedThreadPool(
+				Math.max(threadCount, 1), new ThreadFactory() {
+					private int threadNumber = 0;
+
+					public synchronized Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "ConcurrentMultiSearcher-" + (++threadNumber));
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.defaultExecutorService = executorService;
+		return new TaskExecutor() {
+			public void execute(Runnable task) {
+				executorService.execute(task);
+			}
+		};
+	}
+
+	/**
+	 * This method returns the concurrent searcher on the configured indexes.
+	 * Closing it has no effect.
+	 *
+	 * @return a Searcher instance
+	 * @see org.springmodules.lucene.search.SearcherFactory#getSearcher()
+	 */
+	public LuceneSearcher getSearcher() throws IOException {
+		return searcher;
+	}
+
+}
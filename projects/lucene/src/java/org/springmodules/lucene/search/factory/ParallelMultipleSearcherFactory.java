@@ -30,8 +30,14 @@ import org.springmodules.lucene.index.factory.IndexFactory;
  * This is the simpler factory to get searcher instances to make parallel
  * search of informations on several Lucene indexes. 
  * 
+ * <p>New searchers are created on the indexes for every call of the
+ * getSearcher method and a thread is created for every index on each
+ * search. Use the ConcurrentMultipleSearcherFactory to reuse the searchers,
+ * execute the searches with a TaskExecutor and specify a timeout.
+ * 
  * @author Thierry Templier
  * @see org.springmodules.lucene.search.factory.SearcherFactory
+ * @see org.springmodules.lucene.search.factory.ConcurrentMultipleSearcherFactory
  */
 public class ParallelMultipleSearcherFactory extends AbstractMultipleSearcherFactory implements SearcherFactory {
 
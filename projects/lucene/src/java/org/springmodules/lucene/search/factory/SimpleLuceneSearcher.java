@@ -9,6 +9,7 @@ import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.HitCollector;
 import org.apache.lucene.search.Hits;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Searcher;
 import org.apache.lucene.search.Similarity;
@@ -49,7 +50,9 @@ public class SimpleLuceneSearcher implements LuceneSearcher {
 	}
 
 	public IndexReader getIndexReader() {
-		// TODO: to be implemented
+		if( searcher instanceof IndexSearcher ) {
+			return ((IndexSearcher)searcher).getIndexReader();
+		}
 		return null;
 	}
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream which truncates the target stream once a number of bytes
+ * has been read or once a time has elapsed since the first read. The end
+ * of the stream is then signaled to the reader.
+ *
+ * <p>The time is only checked when data is read, so a reader which does
+ * not read the stream anymore is not interrupted. A stream whose size is
+ * exactly the maximum number of bytes is not considered as truncated: one
+ * more byte is read from the target stream to detect its end.
+ *
+ * <p>The onTruncation method is called once the stream is truncated,
+ * during the read call which reaches the limit.
+ *
+ * @author Thierry Templier
+ */
+public class BoundedInputStream extends FilterInputStream {
+
+	private final long maxSize;
+	private final long maxTime;
+	private long deadline = -1;
+	private long position;
+	private boolean limitReached;
+	private boolean truncated;
+
+	/**
+	 * Construct a new BoundedInputStream.
+	 *
+	 * @param inputStream the target stream
+	 * @param maxSize the maximum number of bytes to read, or -1 for no limit
+	 * @param maxTime the maximum time in milliseconds to read the stream,
+	 * starting at the first read, or 0 for no limit
+	 */
+	public BoundedInputStream(InputStream inputStream, long maxSize, long maxTime) {
+		super(inputStream);
+		this.maxSize = maxSize;
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * Return the number of bytes allowed to be read, or 0 if
+	 * a limit is reached.
+	 */
+	private long getRemaining() throws IOException {
+		if( limitReached ) {
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		if( deadline<0 ) {
+			deadline = (maxTime>0 ? now + maxTime : Long.MAX_VALUE);
+		} else if( now>deadline ) {
+			limitReached = true;
+			truncate();
+			return 0;
+		}
+		if( maxSize>=0 && position>=maxSize ) {
+			limitReached = true;
+			if( super.read()!=-1 ) {
+				truncate();
+			}
+			return 0;
+		}
+		return (maxSize>=0 ? maxSize - position : Long.MAX_VALUE);
+	}
+
+	private void truncate() {
+		truncated = true;
+		onTruncation(position);
+	}
+
+	/**
+	 * Callback called once the stream is truncated. The default
+	 * implementation does nothing.
+	 *
+	 * @param position the number of bytes read
+	 */
+	protected void onTruncation(long position) {
+	}
+
+	public int read() throws IOException {
+		if( getRemaining()==0 ) {
+			return -1;
+		}
+		int result = super.read();
+		if( result!=-1 ) {
+			position++;
+		}
+		return result;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		long remaining = getRemaining();
+		if( remaining==0 ) {
+			return -1;
+		}
+		int count = super.read(b, off, (int)Math.min(len, remaining));
+		if( count>0 ) {
+			position += count;
+		}
+		return count;
+	}
+
+	public long skip(long n) throws IOException {
+		long remaining = getRemaining();
+		if( remaining==0 ) {
+			return 0;
+		}
+		long count = super.skip(Math.min(n, remaining));
+		position += count;
+		return count;
+	}
+
+	public int available() throws IOException {
+		if( limitReached ) {
+			return 0;
+		}
+		long remaining = (maxSize>=0 ? Math.max(maxSize - position, 0) : Long.MAX_VALUE);
+		return (int)Math.min(super.available(), remaining);
+	}
+
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Return the number of bytes read.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Return if the stream has been truncated because a limit is reached.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springmodules.lucene.index.core.DefaultLuceneIndexTemplate;
+import org.springmodules.lucene.index.core.DocumentModifier;
+import org.springmodules.lucene.index.factory.IndexFactory;
+import org.springmodules.lucene.index.factory.RAMBufferedIndexFactory;
+import org.springmodules.lucene.index.factory.SimpleIndexFactory;
+import org.springmodules.lucene.index.factory.concurrent.LockIndexFactory;
+import org.springmodules.lucene.search.core.DefaultLuceneSearchTemplate;
+import org.springmodules.lucene.search.core.HitExtractor;
+import org.springmodules.lucene.search.core.QueryResultCache;
+import org.springmodules.lucene.search.factory.ConcurrentMultipleSearcherFactory;
+import org.springmodules.lucene.search.factory.SearcherFactory;
+import org.springmodules.lucene.search.factory.SimpleSearcherFactory;
+import org.springmodules.lucene.search.factory.SingleSearcherFactory;
+
+/**
+ * <p>Benchmark of the indexing and search facilities of the module, using
+ * synthetic documents. For every type of directory (RAMDirectory and
+ * FSDirectory), it reports:
+ * <ul>
+ * <li>the number of documents indexed per second with the
+ * DefaultLuceneIndexTemplate, for every IndexFactory strategy,</li>
+ * <li>the number of documents updated per second,</li>
+ * <li>the median and 99th percentile latencies of the searches with the
+ * DefaultLuceneSearchTemplate, for every SearcherFactory strategy.</li>
+ * </ul>
+ *
+ * <p>This class is not a unit test. It is launched with its main method,
+ * whose optional arguments are the number of documents, the number of
+ * measured queries and the number of words per document:
+ * <pre>
+ * java org.springmodules.lucene.benchmark.LuceneBenchmark 100000 5000 100
+ * </pre>
+ *
+ * <p>The indexes of the FSDirectory benchmarks are created in the temporary
+ * directory and deleted at the end of the benchmark.
+ *
+ * @author Thierry Templier
+ * @see SyntheticCorpus
+ */
+public class LuceneBenchmark {
+
+	private static final int BATCH_SIZE = 1000;
+	private static final int SINGLE_ADDITIONS = 1000;
+	private static final int UPDATES = 200;
+	private static final int SHARDS = 4;
+	private static final long SEED = 42;
+
+	private static Method nanoTimeMethod;
+
+	static {
+		try {
+			nanoTimeMethod = System.class.getMethod("nanoTime", null);
+		} catch(NoSuchMethodException ex) {
+			//JDK 1.4: the milliseconds are used
+		}
+	}
+
+	private final int documentCount;
+	private final int queryCount;
+	private final int wordsPerDocument;
+	private final Analyzer analyzer = new SimpleAnalyzer();
+	private final List temporaryDirectories = new ArrayList();
+
+	public LuceneBenchmark(int documentCount, int queryCount, int wordsPerDocument) {
+		this.documentCount = documentCount;
+		this.queryCount = queryCount;
+		this.wordsPerDocument = wordsPerDocument;
+	}
+
+	/**
+	 * Return the current time in nanoseconds, with the precision of
+	 * the JVM.
+	 */
+	private static long currentTime() {
+		if( nanoTimeMethod!=null ) {
+			try {
+				return ((Long)nanoTimeMethod.invoke(null, null)).longValue();
+			} catch(Exception ex) {
+			}
+		}
+		return System.currentTimeMillis() * 1000000L;
+	}
+
+	private SyntheticCorpus createCorpus() {
+		return new SyntheticCorpus(50000, wordsPerDocument, 20, SEED);
+	}
+
+	private Directory createDirectory(boolean fileSystem, String name) throws IOException {
+		Directory directory = null;
+		if( fileSystem ) {
+			File file = new File(System.getProperty("java.io.tmpdir"), "lucene-benchmark-" + name);
+			temporaryDirectories.add(file);
+			directory = FSDirectory.getDirectory(file, true);
+		} else {
+			directory = new RAMDirectory();
+		}
+		new IndexWriter(directory, analyzer, true).close();
+		return directory;
+	}
+
+	/**
+	 * Close the specified directories, ignoring the null ones.
+	 */
+	private void closeDirectories(Directory[] directories) throws IOException {
+		for(int cpt=0; cpt<directories.length; cpt++) {
+			if( directories[cpt]!=null ) {
+				directories[cpt].close();
+			}
+		}
+	}
+
+	/**
+	 * Release the resources of the specified factory, if it holds some.
+	 */
+	private void destroy(Object factory) throws Exception {
+		if( factory instanceof DisposableBean ) {
+			((DisposableBean)factory).destroy();
+		}
+	}
+
+	/**
+	 * Delete the directories created by the FSDirectory benchmarks.
+	 */
+	private void deleteTemporaryDirectories() {
+		for(Iterator i = temporaryDirectories.iterator(); i.hasNext(); ) {
+			File directory = (File)i.next();
+			File[] files = directory.listFiles();
+			for(int cpt=0; files!=null && cpt<files.length; cpt++) {
+				files[cpt].delete();
+			}
+			directory.delete();
+		}
+		temporaryDirectories.clear();
+	}
+
+	//-------------------------------------------------------------------------
+	// Indexing benchmarks
+	//-------------------------------------------------------------------------
+
+	private IndexFactory createIndexFactory(String strategy, Directory directory) throws Exception {
+		SimpleIndexFactory simpleIndexFactory = new SimpleIndexFactory(directory, analyzer);
+		if( "simple".equals(strategy) ) {
+			return simpleIndexFactory;
+		} else if( "lock".equals(strategy) ) {
+			LockIndexFactory lockIndexFactory = new LockIndexFactory();
+			lockIndexFactory.setTargetIndexFactory(simpleIndexFactory);
+			lockIndexFactory.afterPropertiesSet();
+			return lockIndexFactory;
+		} else {
+			return new RAMBufferedIndexFactory(directory, analyzer);
+		}
+	}
+
+	private void benchmarkIndexing(boolean fileSystem) throws Exception {
+		String[] strategies = new String[] { "simple", "lock", "ram-buffered" };
+		for(int cptStrategy=0; cptStrategy<strategies.length; cptStrategy++) {
+			String strategy = strategies[cptStrategy];
+			Directory directory = createDirectory(fileSystem, "indexing");
+			IndexFactory indexFactory = null;
+			try {
+				indexFactory = createIndexFactory(strategy, directory);
+				benchmarkIndexing(strategy, indexFactory);
+			} finally {
+				destroy(indexFactory);
+				directory.close();
+			}
+		}
+	}
+
+	private void benchmarkIndexing(String strategy, IndexFactory indexFactory) throws Exception {
+		DefaultLuceneIndexTemplate template = new DefaultLuceneIndexTemplate(indexFactory, analyzer);
+		SyntheticCorpus corpus = createCorpus();
+
+		//Additions by batches
+		long start = currentTime();
+		int id = 0;
+		while( id<documentCount ) {
+			List documents = new ArrayList();
+			for(int cpt=0; cpt<BATCH_SIZE && id<documentCount; cpt++) {
+				documents.add(corpus.createDocument(id++));
+			}
+			template.addDocuments(documents);
+		}
+		flush(indexFactory);
+		report(strategy, "batch additions", documentCount, currentTime() - start);
+
+		//Additions one by one
+		start = currentTime();
+		for(int cpt=0; cpt<SINGLE_ADDITIONS; cpt++) {
+			template.addDocument(corpus.createDocument(id++));
+		}
+		flush(indexFactory);
+		report(strategy, "single additions", SINGLE_ADDITIONS, currentTime() - start);
+
+		//Updates
+		start = currentTime();
+		for(int cpt=0; cpt<UPDATES; cpt++) {
+			final Document document = corpus.createDocument(cpt);
+			template.updateDocument(new Term(SyntheticCorpus.ID_FIELD, String.valueOf(cpt)), new DocumentModifier() {
+				public Document updateDocument(Document oldDocument) throws Exception {
+					return document;
+				}
+			});
+		}
+		flush(indexFactory);
+		report(strategy, "updates", UPDATES, currentTime() - start);
+	}
+
+	private void flush(IndexFactory indexFactory) {
+		if( indexFactory instanceof RAMBufferedIndexFactory ) {
+			((RAMBufferedIndexFactory)indexFactory).flush();
+		}
+	}
+
+	private void report(String strategy, String operation, int count, long time) {
+		double seconds = time / 1000000000.0;
+		System.out.println("  " + strategy + " - " + operation + ": "
+				+ Math.round(count / seconds) + " docs/s (" + count + " docs in "
+				+ Math.round(seconds * 1000) + " ms)");
+	}
+
+	//-------------------------------------------------------------------------
+	// Search benchmarks
+	//-------------------------------------------------------------------------
+
+	private Directory[] createShards(boolean fileSystem) throws Exception {
+		Directory[] shards = new Directory[SHARDS];
+		IndexWriter[] writers = new IndexWriter[SHARDS];
+		for(int cpt=0; cpt<SHARDS; cpt++) {
+			shards[cpt] = createDirectory(fileSystem, "shard" + cpt);
+			writers[cpt] = new IndexWriter(shards[cpt], analyzer, false);
+		}
+		SyntheticCorpus corpus = createCorpus();
+		for(int id=0; id<documentCount; id++) {
+			writers[id % SHARDS].addDocument(corpus.createDocument(id));
+		}
+		for(int cpt=0; cpt<SHARDS; cpt++) {
+			writers[cpt].optimize();
+			writers[cpt].close();
+		}
+		return shards;
+	}
+
+	private Directory createIndex(boolean fileSystem) throws Exception {
+		Directory directory = createDirectory(fileSystem, "search");
+		IndexWriter writer = new IndexWriter(directory, analyzer, false);
+		SyntheticCorpus corpus = createCorpus();
+		for(int id=0; id<documentCount; id++) {
+			writer.addDocument(corpus.createDocument(id));
+		}
+		writer.optimize();
+		writer.close();
+		return directory;
+	}
+
+	private void benchmarkSearch(boolean fileSystem) throws Exception {
+		Directory directory = null;
+		Directory[] shards = new Directory[0];
+		SingleSearcherFactory singleSearcherFactory = null;
+		ConcurrentMultipleSearcherFactory concurrentSearcherFactory = null;
+		try {
+			directory = createIndex(fileSystem);
+			shards = createShards(fileSystem);
+
+			singleSearcherFactory = new SingleSearcherFactory(directory);
+			singleSearcherFactory.afterPropertiesSet();
+			concurrentSearcherFactory = new ConcurrentMultipleSearcherFactory(shards);
+			concurrentSearcherFactory.afterPropertiesSet();
+
+			benchmarkSearch("simple", new SimpleSearcherFactory(directory), null);
+			benchmarkSearch("single", singleSearcherFactory, null);
+			benchmarkSearch("single with cache", singleSearcherFactory, new QueryResultCache());
+			benchmarkSearch("concurrent " + SHARDS + " shards", concurrentSearcherFactory, null);
+		} finally {
+			destroy(concurrentSearcherFactory);
+			destroy(singleSearcherFactory);
+			closeDirectories(shards);
+			closeDirectories(new Directory[] { directory });
+		}
+	}
+
+	private void benchmarkSearch(String strategy, SearcherFactory searcherFactory,
+									QueryResultCache cache) throws Exception {
+		DefaultLuceneSearchTemplate template = new DefaultLuceneSearchTemplate(searcherFactory, analyzer);
+		template.setQueryResultCache(cache);
+		HitExtractor extractor = new HitExtractor() {
+			public Object mapHit(int id, Document document, float score) {
+				return document.get(SyntheticCorpus.ID_FIELD);
+			}
+		};
+
+		//Warm up with the same distribution of queries
+		SyntheticCorpus corpus = createCorpus();
+		for(int cpt=0; cpt<queryCount / 10; cpt++) {
+			template.search(corpus.createQuery(), extractor);
+		}
+
+		long[] latencies = new long[queryCount];
+		for(int cpt=0; cpt<queryCount; cpt++) {
+			Query query = corpus.createQuery();
+			long start = currentTime();
+			template.search(query, extractor);
+			latencies[cpt] = currentTime() - start;
+		}
+		Arrays.sort(latencies);
+		System.out.println("  " + strategy + ": p50=" + formatLatency(latencies[queryCount / 2])
+				+ " p99=" + formatLatency(latencies[(int)(queryCount * 0.99)])
+				+ " max=" + formatLatency(latencies[queryCount - 1]));
+	}
+
+	private String formatLatency(long latency) {
+		return (Math.round(latency / 1000.0) / 1000.0) + " ms";
+	}
+
+	//-------------------------------------------------------------------------
+	// Entry point
+	//-------------------------------------------------------------------------
+
+	public void run() throws Exception {
+		boolean[] fileSystems = new boolean[] { false, true };
+		try {
+			for(int cpt=0; cpt<fileSystems.length; cpt++) {
+				String directoryType = fileSystems[cpt] ? "FSDirectory" : "RAMDirectory";
+				System.out.println("Indexing with " + directoryType + " (" + documentCount + " documents)");
+				benchmarkIndexing(fileSystems[cpt]);
+				System.out.println("Searching with " + directoryType + " (" + queryCount + " queries)");
+				benchmarkSearch(fileSystems[cpt]);
+			}
+		} finally {
+			deleteTemporaryDirectories();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int documentCount = (args.length>0 ? Integer.parseInt(args[0]) : 20000);
+		int queryCount = (args.length>1 ? Integer.parseInt(args[1]) : 2000);
+		int wordsPerDocument = (args.length>2 ? Integer.parseInt(args[2]) : 100);
+		new LuceneBenchmark(documentCount, queryCount, wordsPerDocument).run();
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.benchmark;
+
+import java.util.Random;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Generator of synthetic documents and queries for the benchmarks. The
+ * words of the documents follow a Zipf-like distribution on a vocabulary
+ * of generated words, so that the frequencies of the terms are close to
+ * the ones of a natural language. The generation is deterministic for a
+ * given seed.
+ *
+ * <p>Every document has an "id" keyword field, a "category" keyword field
+ * and a "contents" text field.
+ *
+ * @author Thierry Templier
+ */
+public class SyntheticCorpus {
+
+	public final static String ID_FIELD = "id";
+	public final static String CATEGORY_FIELD = "category";
+	public final static String CONTENTS_FIELD = "contents";
+
+	private final String[] vocabulary;
+	private final double[] cumulativeFrequencies;
+	private final int wordsPerDocument;
+	private final int categoryCount;
+	private final Random random;
+
+	/**
+	 * Construct a new SyntheticCorpus.
+	 *
+	 * @param vocabularySize the number of distinct words
+	 * @param wordsPerDocument the number of words of the contents of a document
+	 * @param categoryCount the number of distinct categories
+	 * @param seed the seed of the random generator
+	 */
+	public SyntheticCorpus(int vocabularySize, int wordsPerDocument, int categoryCount, long seed) {
+		this.wordsPerDocument = wordsPerDocument;
+		this.categoryCount = categoryCount;
+		this.random = new Random(seed);
+		this.vocabulary = new String[vocabularySize];
+		this.cumulativeFrequencies = new double[vocabularySize];
+
+		double total = 0;
+		for(int cpt=0; cpt<vocabularySize; cpt++) {
+			vocabulary[cpt] = createWord(cpt);
+			total += 1.0 / (cpt + 1);
+			cumulativeFrequencies[cpt] = total;
+		}
+		for(int cpt=0; cpt<vocabularySize; cpt++) {
+			cumulativeFrequencies[cpt] /= total;
+		}
+	}
+
+	/**
+	 * Create a word from its rank using only letters, so that it
+	 * is kept as a single token by the analyzers.
+	 */
+	private String createWord(int rank) {
+		StringBuffer word = new StringBuffer();
+		int value = rank;
+		do {
+			word.append((char)('a' + value % 26));
+			value /= 26;
+		} while( value>0 );
+		word.append("w");
+		return word.toString();
+	}
+
+	/**
+	 * Return a word of the vocabulary according to the distribution.
+	 */
+	public String nextWord() {
+		double value = random.nextDouble();
+		int low = 0;
+		int high = cumulativeFrequencies.length - 1;
+		while( low<high ) {
+			int middle = (low + high) / 2;
+			if( cumulativeFrequencies[middle]<value ) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return vocabulary[low];
+	}
+
+	/**
+	 * Create the document with the specified identifier.
+	 */
+	public Document createDocument(int id) {
+		StringBuffer contents = new StringBuffer();
+		for(int cpt=0; cpt<wordsPerDocument; cpt++) {
+			if( cpt>0 ) {
+				contents.append(' ');
+			}
+			contents.append(nextWord());
+		}
+
+		Document document = new Document();
+		document.add(new Field(ID_FIELD, String.valueOf(id), Field.Store.YES, Field.Index.UN_TOKENIZED));
+		document.add(new Field(CATEGORY_FIELD, "category" + random.nextInt(categoryCount),
+				Field.Store.YES, Field.Index.UN_TOKENIZED));
+		document.add(new Field(CONTENTS_FIELD, contents.toString(), Field.Store.NO, Field.Index.TOKENIZED));
+		return document;
+	}
+
+	/**
+	 * Create a query on a word of the contents chosen according
+	 * to the distribution.
+	 */
+	public Query createQuery() {
+		return new TermQuery(new Term(CONTENTS_FIELD, nextWord()));
+	}
+}
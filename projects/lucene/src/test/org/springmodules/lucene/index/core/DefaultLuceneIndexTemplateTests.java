@@ -22,17 +22,21 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.lucene.analysis.SimpleAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.search.TermQuery;
 import org.easymock.MockControl;
 import org.easymock.classextension.MockClassControl;
 import org.springmodules.lucene.AbstractLuceneTestCase;
+import org.springmodules.lucene.index.LuceneIndexAccessException;
 import org.springmodules.lucene.index.LuceneIndexingException;
 import org.springmodules.lucene.index.document.handler.AbstractDocumentHandler;
 import org.springmodules.lucene.index.document.handler.DefaultDocumentHandlerManager;
@@ -937,6 +941,71 @@ public class DefaultLuceneIndexTemplateTests extends AbstractLuceneTestCase {
 		hitsControl.replay();
 	}
 
+	private DocumentModifier createSortModifier(final String sort) {
+		return new DocumentModifier() {
+			public Document updateDocument(Document document) throws Exception {
+				Document updatedDocument = new Document();
+				updatedDocument.add(new Field("id", document.get("id"), Field.Store.YES, Field.Index.UN_TOKENIZED));
+				updatedDocument.add(new Field("field", document.get("field"), Field.Store.YES, Field.Index.TOKENIZED));
+				updatedDocument.add(new Field("sort", sort, Field.Store.YES, Field.Index.UN_TOKENIZED));
+				return updatedDocument;
+			}
+		};
+	}
+
+	final public void testUpdateDocumentsWithModifiers() throws Exception {
+		Map documentModifiers = new LinkedHashMap();
+		documentModifiers.put(new Term("id", "1"), createSortModifier("10"));
+		documentModifiers.put(new Term("id", "3"), createSortModifier("30"));
+
+		indexFactory.setAnalyzer(new SimpleAnalyzer());
+		LuceneIndexTemplate template = new DefaultLuceneIndexTemplate(indexFactory, new SimpleAnalyzer());
+		template.updateDocuments(documentModifiers);
+
+		IndexReader reader = IndexReader.open(directory);
+		try {
+			assertEquals(3, reader.numDocs());
+			assertEquals("10", getDocument(reader, "1").get("sort"));
+			assertEquals("3", getDocument(reader, "2").get("sort"));
+			assertEquals("30", getDocument(reader, "3").get("sort"));
+		} finally {
+			reader.close();
+		}
+	}
+
+	final public void testUpdateDocumentsWithUnknownIdentifier() throws Exception {
+		Map documentModifiers = new LinkedHashMap();
+		documentModifiers.put(new Term("id", "1"), createSortModifier("10"));
+		documentModifiers.put(new Term("id", "4"), createSortModifier("40"));
+
+		indexFactory.setAnalyzer(new SimpleAnalyzer());
+		LuceneIndexTemplate template = new DefaultLuceneIndexTemplate(indexFactory, new SimpleAnalyzer());
+		try {
+			template.updateDocuments(documentModifiers);
+			fail();
+		} catch(LuceneIndexAccessException ex) {
+		}
+
+		//No document must have been deleted
+		IndexReader reader = IndexReader.open(directory);
+		try {
+			assertEquals(3, reader.numDocs());
+			assertEquals("2", getDocument(reader, "1").get("sort"));
+		} finally {
+			reader.close();
+		}
+	}
+
+	private Document getDocument(IndexReader reader, String id) throws IOException {
+		TermDocs termDocs = reader.termDocs(new Term("id", id));
+		try {
+			assertTrue(termDocs.next());
+			return reader.document(termDocs.doc());
+		} finally {
+			termDocs.close();
+		}
+	}
+
 	final public void testOptimize() throws Exception {
 		SimpleAnalyzer analyzer = new SimpleAnalyzer();
 		MockControl indexFactoryControl = MockControl.createStrictControl(IndexFactory.class);
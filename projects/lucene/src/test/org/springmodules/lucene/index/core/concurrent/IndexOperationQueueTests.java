@@ -0,0 +1,294 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.index.core.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.springmodules.lucene.index.LuceneIndexAccessException;
+import org.springmodules.lucene.index.LuceneIndexingException;
+import org.springmodules.lucene.index.core.WriterCallback;
+import org.springmodules.lucene.index.factory.LuceneIndexReader;
+import org.springmodules.lucene.index.factory.LuceneIndexWriter;
+import org.springmodules.lucene.index.factory.SimpleIndexFactory;
+
+import edu.emory.mathcs.backport.java.util.concurrent.CountDownLatch;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
+
+/**
+ * @author Thierry Templier
+ */
+public class IndexOperationQueueTests extends TestCase {
+
+	private RAMDirectory directory;
+	private IndexOperationQueue queue;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		this.directory = new RAMDirectory();
+		new IndexWriter(this.directory, new SimpleAnalyzer(), true).close();
+	}
+
+	/**
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		if( this.queue!=null ) {
+			this.queue.destroy();
+		}
+		this.directory = null;
+	}
+
+	private Document createDocument(String id) {
+		Document document = new Document();
+		document.add(new Field("id", id, Field.Store.YES, Field.Index.UN_TOKENIZED));
+		document.add(new Field("field", "a sample", Field.Store.YES, Field.Index.TOKENIZED));
+		return document;
+	}
+
+	private int getNumDocs() throws Exception {
+		IndexReader reader = IndexReader.open(directory);
+		try {
+			return reader.numDocs();
+		} finally {
+			reader.close();
+		}
+	}
+
+	final public void testAddDocuments() throws Exception {
+		queue = new IndexOperationQueue(new SimpleIndexFactory(directory, new SimpleAnalyzer()));
+
+		List futures = new ArrayList();
+		for(int cpt=0; cpt<10; cpt++) {
+			futures.add(queue.addDocument(createDocument(String.valueOf(cpt))));
+		}
+		for(Iterator i = futures.iterator(); i.hasNext(); ) {
+			Future future = (Future)i.next();
+			assertNull(future.get());
+			assertTrue(future.isDone());
+		}
+
+		assertEquals(10, getNumDocs());
+	}
+
+	final public void testAddDocumentsFromSeveralThreads() throws Exception {
+		queue = new IndexOperationQueue();
+		queue.setIndexFactory(new SimpleIndexFactory(directory, new SimpleAnalyzer()));
+		queue.setQueueCapacity(2);
+		queue.afterPropertiesSet();
+
+		//The writer thread is blocked, so that the queue fills up
+		final CountDownLatch writerStarted = new CountDownLatch(1);
+		final CountDownLatch writerReleased = new CountDownLatch(1);
+		Future blockingOperation = queue.submit(new WriterCallback() {
+			public Object doWithWriter(LuceneIndexWriter writer) throws Exception {
+				writerStarted.countDown();
+				writerReleased.await();
+				return null;
+			}
+		});
+		writerStarted.await();
+
+		final List errors = new ArrayList();
+		final List futures = new ArrayList();
+		final int[] maxPendingOperationCount = new int[1];
+		final CountDownLatch latch = new CountDownLatch(5);
+		for(int cptThread=0; cptThread<5; cptThread++) {
+			final int threadIndex = cptThread;
+			new Thread(new Runnable() {
+				public void run() {
+					try {
+						for(int cpt=0; cpt<10; cpt++) {
+							Future future = queue.addDocument(createDocument(threadIndex + "-" + cpt));
+							synchronized( futures ) {
+								futures.add(future);
+								maxPendingOperationCount[0] = Math.max(maxPendingOperationCount[0],
+															queue.getPendingOperationCount());
+							}
+						}
+					} catch(Exception ex) {
+						synchronized( errors ) {
+							errors.add(ex);
+						}
+					} finally {
+						latch.countDown();
+					}
+				}
+			}).start();
+		}
+
+		//The producers wait for a place in the queue
+		Thread.sleep(200);
+		assertEquals(5, latch.getCount());
+		assertEquals(2, queue.getPendingOperationCount());
+
+		writerReleased.countDown();
+		latch.await();
+		blockingOperation.get();
+		for(Iterator i = futures.iterator(); i.hasNext(); ) {
+			((Future)i.next()).get();
+		}
+
+		assertTrue(errors.isEmpty());
+		assertTrue(maxPendingOperationCount[0]<=2);
+		assertEquals(50, futures.size());
+		assertEquals(50, getNumDocs());
+	}
+
+	final public void testUpdateAndDeleteDocuments() throws Exception {
+		queue = new IndexOperationQueue(new SimpleIndexFactory(directory, new SimpleAnalyzer()));
+
+		queue.addDocument(createDocument("1"));
+		queue.addDocument(createDocument("2"));
+		Future update = queue.updateDocument(new Term("id", "1"), createDocument("1"));
+		Future deletion = queue.deleteDocuments(new Term("id", "2"));
+
+		update.get();
+		assertEquals(new Integer(1), deletion.get());
+		assertEquals(1, getNumDocs());
+	}
+
+	final public void testUpdateDocumentWithFailedDeletion() throws Exception {
+		queue = new IndexOperationQueue(new SimpleIndexFactory(directory, new SimpleAnalyzer()) {
+			public LuceneIndexReader getIndexReader() {
+				throw new LuceneIndexAccessException("Error during opening the reader");
+			}
+		});
+
+		Future update = queue.updateDocument(new Term("id", "1"), createDocument("1"));
+		try {
+			update.get();
+			fail();
+		} catch(ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof LuceneIndexAccessException);
+		}
+		assertEquals(0, getNumDocs());
+	}
+
+	final public void testOperationError() throws Exception {
+		queue = new IndexOperationQueue(new SimpleIndexFactory(directory, new SimpleAnalyzer()));
+
+		Future future = queue.submit(new WriterCallback() {
+			public Object doWithWriter(LuceneIndexWriter writer) throws Exception {
+				throw new IllegalStateException();
+			}
+		});
+		Future addition = queue.addDocument(createDocument("1"));
+
+		try {
+			future.get();
+			fail();
+		} catch(ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+		addition.get();
+		assertEquals(1, getNumDocs());
+	}
+
+	final public void testSubmitAfterDestroy() throws Exception {
+		queue = new IndexOperationQueue(new SimpleIndexFactory(directory, new SimpleAnalyzer()));
+		Future addition = queue.addDocument(createDocument("1"));
+		queue.destroy();
+
+		assertTrue(addition.isDone());
+		assertEquals(1, getNumDocs());
+		try {
+			queue.addDocument(createDocument("2"));
+			fail();
+		} catch(LuceneIndexingException ex) {
+		}
+	}
+
+	final public void testPendingOperationsWhenWriterThreadInterrupted() throws Exception {
+		queue = new IndexOperationQueue();
+		queue.setIndexFactory(new SimpleIndexFactory(directory, new SimpleAnalyzer()));
+		queue.setThreadName("interrupted-writer");
+		queue.afterPropertiesSet();
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		Future blocking = queue.submit(new WriterCallback() {
+			public Object doWithWriter(LuceneIndexWriter writer) throws Exception {
+				started.countDown();
+				boolean interrupted = false;
+				while( true ) {
+					try {
+						released.await();
+						break;
+					} catch(InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+				if( interrupted ) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}
+		});
+		started.await();
+		Future pending = queue.addDocument(createDocument("1"));
+		findThread("interrupted-writer").interrupt();
+		released.countDown();
+
+		assertNull(blocking.get());
+		try {
+			pending.get();
+			fail();
+		} catch(ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof LuceneIndexingException);
+		}
+		try {
+			queue.addDocument(createDocument("2"));
+			fail();
+		} catch(LuceneIndexingException ex) {
+		}
+		assertEquals(0, getNumDocs());
+	}
+
+	private Thread findThread(String name) {
+		Thread[] threads = new Thread[Thread.activeCount() + 10];
+		int count = Thread.enumerate(threads);
+		for(int cpt=0; cpt<count; cpt++) {
+			if( name.equals(threads[cpt].getName()) ) {
+				return threads[cpt];
+			}
+		}
+		throw new IllegalStateException("No thread named " + name);
+	}
+
+	final public void testWithoutIndexFactory() throws Exception {
+		IndexOperationQueue queue = new IndexOperationQueue();
+		try {
+			queue.afterPropertiesSet();
+			fail();
+		} catch(IllegalArgumentException ex) {
+		}
+	}
+}
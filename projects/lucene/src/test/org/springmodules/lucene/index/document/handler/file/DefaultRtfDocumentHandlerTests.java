@@ -43,4 +43,20 @@ public class DefaultRtfDocumentHandlerTests extends TestCase {
 		}
 	}
 
+	public void testGetDocumentWithMaxTextLength() throws Exception {
+		DefaultRtfDocumentHandler documentHandler = new DefaultRtfDocumentHandler();
+		documentHandler.setMaxTextLength(5);
+
+		InputStream inputStream = null;
+		try {
+			inputStream = getRtfResource().getInputStream();
+			Document document = documentHandler.doGetDocumentWithInputStream(new HashMap(), inputStream);
+			Field field = document.getField("contents");
+			assertNotNull(field);
+			assertEquals(5, field.stringValue().length());
+		} finally {
+			IOUtils.closeInputStream(inputStream);
+		}
+	}
+
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.index.document.handler.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+
+/**
+ * @author Thierry Templier
+ */
+public class TextDocumentHandlerTests extends TestCase {
+
+	private String readContents(Document document) throws Exception {
+		Field field = document.getField("contents");
+		assertNotNull(field);
+		Reader reader = field.readerValue();
+		assertNotNull(reader);
+		StringBuffer contents = new StringBuffer();
+		char[] buffer = new char[16];
+		int count = 0;
+		while( (count = reader.read(buffer))!=-1 ) {
+			contents.append(buffer, 0, count);
+		}
+		return contents.toString();
+	}
+
+	public void testGetDocument() throws Exception {
+		TextDocumentHandler documentHandler = new TextDocumentHandler();
+		Map description = new HashMap();
+		description.put(AbstractInputStreamDocumentHandler.FILENAME, "test.txt");
+
+		Document document = documentHandler.getDocument(description,
+				new ByteArrayInputStream("a sample text".getBytes()));
+
+		assertEquals("a sample text", readContents(document));
+		assertEquals("test.txt", document.get("filename"));
+	}
+
+	public void testGetDocumentWithMaxDocumentSize() throws Exception {
+		final List truncations = new ArrayList();
+		TextDocumentHandler documentHandler = new TextDocumentHandler() {
+			protected void documentTruncated(Map description, long position) {
+				truncations.add(new Long(position));
+			}
+		};
+		documentHandler.setMaxDocumentSize(8);
+
+		Document document = documentHandler.getDocument(new HashMap(),
+				new ByteArrayInputStream("a sample text".getBytes()));
+		assertTrue(truncations.isEmpty());
+
+		assertEquals("a sample", readContents(document));
+		assertEquals(1, truncations.size());
+		assertEquals(new Long(8), truncations.get(0));
+	}
+
+	public void testGetDocumentWithExactMaxDocumentSize() throws Exception {
+		final List truncations = new ArrayList();
+		TextDocumentHandler documentHandler = new TextDocumentHandler() {
+			protected void documentTruncated(Map description, long position) {
+				truncations.add(new Long(position));
+			}
+		};
+		documentHandler.setMaxDocumentSize(13);
+
+		Document document = documentHandler.getDocument(new HashMap(),
+				new ByteArrayInputStream("a sample text".getBytes()));
+
+		assertEquals("a sample text", readContents(document));
+		assertTrue(truncations.isEmpty());
+	}
+
+	public void testGetDocumentWithMaxExtractionTime() throws Exception {
+		final List truncations = new ArrayList();
+		TextDocumentHandler documentHandler = new TextDocumentHandler() {
+			protected void documentTruncated(Map description, long position) {
+				truncations.add(new Long(position));
+			}
+		};
+		documentHandler.setMaxExtractionTime(100);
+
+		//Stream giving one byte every 20 milliseconds
+		InputStream slowInputStream = new ByteArrayInputStream("a sample text".getBytes()) {
+			public synchronized int read(byte[] b, int off, int len) {
+				try {
+					Thread.sleep(20);
+				} catch(InterruptedException ex) {
+				}
+				return super.read(b, off, Math.min(len, 1));
+			}
+
+			public synchronized int available() {
+				return 0;
+			}
+		};
+		Document document = documentHandler.getDocument(new HashMap(), slowInputStream);
+		//The time limit starts with the reading of the stream
+		Thread.sleep(200);
+
+		String contents = readContents(document);
+		assertTrue(contents.length()>0);
+		assertTrue(contents.length()<"a sample text".length());
+		assertTrue("a sample text".startsWith(contents));
+		assertEquals(1, truncations.size());
+		assertEquals(new Long(contents.length()), truncations.get(0));
+	}
+
+}
@@ -51,6 +51,26 @@ public class PropertiesDocumentHandlerTests extends TestCase {
 		assertTrue(typeField3.startsWith("stored/uncompressed,indexed<"));
 	}
 
+	public void testGetDocumentsOfSameClass() throws Exception {
+		PropertiesDocumentHandler documentHandler = new PropertiesDocumentHandler();
+		documentHandler.setPropertiesFileName(new ClassPathResource(
+				"/org/springmodules/lucene/index/document/handler/object/mapping.properties"));
+
+		TestBean bean1 = new TestBean();
+		bean1.setField1("field1");
+		TestBean bean2 = new TestBean();
+		bean2.setField1("other field1");
+
+		Document document1 = documentHandler.getDocument(new HashMap(), bean1);
+		Document document2 = documentHandler.getDocument(new HashMap(), bean2);
+
+		assertEquals("field1", document1.get("field1"));
+		assertEquals("other field1", document2.get("field1"));
+		assertEquals(TestBean.class.getName(), document2.get("class"));
+		//The field of the class name is shared by the documents
+		assertSame(document1.getField("class"), document2.getField("class"));
+	}
+
 	public void testClassNotSupported() throws Exception {
 		PropertiesDocumentHandler documentHandler = new PropertiesDocumentHandler();
 		documentHandler.setPropertiesFileName(new ClassPathResource(
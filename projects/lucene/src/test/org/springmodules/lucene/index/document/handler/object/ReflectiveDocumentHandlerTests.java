@@ -46,4 +46,23 @@ public class ReflectiveDocumentHandlerTests extends TestCase {
 		String typeField3 = document.getField("field3").toString();
 		assertTrue(typeField3.startsWith("stored/uncompressed,indexed,tokenized<"));
 	}
+
+	public void testGetDocumentsOfSameClass() throws Exception {
+		DocumentHandler documentHandler = new ReflectiveDocumentHandler();
+
+		TestBean bean1 = new TestBean();
+		bean1.setField1("field1");
+		bean1.setField2(1);
+		TestBean bean2 = new TestBean();
+		bean2.setField1("other field1");
+		bean2.setField2(2);
+
+		Document document1 = documentHandler.getDocument(new HashMap(), bean1);
+		Document document2 = documentHandler.getDocument(new HashMap(), bean2);
+
+		assertEquals("field1", document1.get("field1"));
+		assertEquals("1", document1.get("field2"));
+		assertEquals("other field1", document2.get("field1"));
+		assertEquals("2", document2.get("field2"));
+	}
 }
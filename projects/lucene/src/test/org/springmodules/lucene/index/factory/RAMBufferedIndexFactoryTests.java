@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.index.factory;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.springmodules.lucene.index.core.DefaultLuceneIndexTemplate;
+import org.springmodules.lucene.search.factory.LuceneHits;
+import org.springmodules.lucene.search.factory.LuceneSearcher;
+import org.springmodules.lucene.search.factory.SimpleSearcherFactory;
+
+/**
+ * @author Thierry Templier
+ */
+public class RAMBufferedIndexFactoryTests extends TestCase {
+
+	private RAMDirectory directory;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		//Initialization of the index
+		this.directory = new RAMDirectory();
+		IndexWriter indexWriter = new IndexWriter(this.directory, new SimpleAnalyzer(), true);
+		indexWriter.addDocument(createDocument("1"));
+		indexWriter.close();
+	}
+
+	/**
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		this.directory = null;
+	}
+
+	private Document createDocument(String id) {
+		Document document = new Document();
+		document.add(new Field("id", id, Field.Store.YES, Field.Index.UN_TOKENIZED));
+		document.add(new Field("field", "a sample", Field.Store.YES, Field.Index.TOKENIZED));
+		return document;
+	}
+
+	private int getNumDocs(RAMDirectory directory) throws Exception {
+		IndexReader reader = IndexReader.open(directory);
+		try {
+			return reader.numDocs();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private int search(SimpleSearcherFactory searcherFactory, String id) throws Exception {
+		LuceneSearcher searcher = searcherFactory.getSearcher();
+		try {
+			LuceneHits hits = searcher.search(new TermQuery(new Term("id", id)));
+			return hits.length();
+		} finally {
+			searcher.close();
+		}
+	}
+
+	final public void testAddedDocumentSearchableBeforeFlush() throws Exception {
+		RAMBufferedIndexFactory indexFactory = new RAMBufferedIndexFactory(directory, new SimpleAnalyzer());
+		DefaultLuceneIndexTemplate template = new DefaultLuceneIndexTemplate(indexFactory, new SimpleAnalyzer());
+		SimpleSearcherFactory searcherFactory = new SimpleSearcherFactory(indexFactory);
+
+		template.addDocument(createDocument("2"));
+
+		assertEquals(1, getNumDocs(directory));
+		assertEquals(1, search(searcherFactory, "1"));
+		assertEquals(1, search(searcherFactory, "2"));
+		assertEquals(2, template.getNumDocs());
+	}
+
+	final public void testFlush() throws Exception {
+		RAMBufferedIndexFactory indexFactory = new RAMBufferedIndexFactory(directory, new SimpleAnalyzer());
+		DefaultLuceneIndexTemplate template = new DefaultLuceneIndexTemplate(indexFactory, new SimpleAnalyzer());
+		SimpleSearcherFactory searcherFactory = new SimpleSearcherFactory(indexFactory);
+
+		template.addDocument(createDocument("2"));
+		indexFactory.flush();
+
+		assertEquals(2, getNumDocs(directory));
+		assertEquals(1, search(searcherFactory, "2"));
+		assertEquals(2, template.getNumDocs());
+
+		template.addDocument(createDocument("3"));
+		indexFactory.destroy();
+
+		assertEquals(3, getNumDocs(directory));
+	}
+
+	final public void testDeleteDocumentsInBothIndexes() throws Exception {
+		RAMBufferedIndexFactory indexFactory = new RAMBufferedIndexFactory(directory, new SimpleAnalyzer());
+		DefaultLuceneIndexTemplate template = new DefaultLuceneIndexTemplate(indexFactory, new SimpleAnalyzer());
+
+		Document document = createDocument("1");
+		template.addDocument(document);
+		assertEquals(2, template.getNumDocs());
+
+		template.deleteDocuments(new Term("id", "1"));
+		assertEquals(0, template.getNumDocs());
+	}
+
+	final public void testWithoutDirectory() throws Exception {
+		RAMBufferedIndexFactory indexFactory = new RAMBufferedIndexFactory();
+		indexFactory.setAnalyzer(new SimpleAnalyzer());
+		try {
+			indexFactory.afterPropertiesSet();
+			fail();
+		} catch(IllegalArgumentException ex) {
+		}
+	}
+}
@@ -18,22 +18,30 @@ package org.springmodules.lucene.index.object.database;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 
 import junit.framework.TestCase;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.SimpleAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.RAMDirectory;
 import org.easymock.AbstractMatcher;
 import org.easymock.MockControl;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springmodules.lucene.index.LuceneIndexAccessException;
 import org.springmodules.lucene.index.document.handler.database.SqlDocumentHandler;
 import org.springmodules.lucene.index.document.handler.database.SqlRequest;
 import org.springmodules.lucene.index.factory.IndexFactory;
 import org.springmodules.lucene.index.factory.LuceneIndexWriter;
+import org.springmodules.lucene.index.factory.SimpleIndexFactory;
 
 /**
  * @author Thierry Templier
@@ -410,4 +418,116 @@ public class DatabaseIndexerTests extends TestCase {
 		listenerControl.verify();
 	}
 
+	final public void testIndexDataSourceWithTaskExecutor() throws Exception {
+		//Insertion of tuples
+		for(int cpt=2; cpt<=4; cpt++) {
+			this.template.execute("insert into TEST (TEST_ID, TEST_NAME) values("+cpt+", 'test "+cpt+"')");
+		}
+
+		RAMDirectory directory = new RAMDirectory();
+		SimpleIndexFactory indexFactory = new SimpleIndexFactory(directory, new SimpleAnalyzer());
+		indexFactory.setCreate(true);
+
+		//requests on key ranges
+		String sql = "select * from TEST where TEST_ID between ? and ?";
+		int[] types = new int[] { Types.INTEGER, Types.INTEGER };
+		SqlRequest request1 = new SqlRequest(sql, new Object[] { new Integer(1), new Integer(2) }, types);
+		SqlRequest request2 = new SqlRequest(sql, new Object[] { new Integer(3), new Integer(4) }, types);
+
+		SqlDocumentHandler handler = new SqlDocumentHandler() {
+			public Document getDocument(SqlRequest request, ResultSet rs) throws SQLException {
+				Document document = new Document();
+				document.add(new Field("id", rs.getString("TEST_ID"), Field.Store.YES, Field.Index.UN_TOKENIZED));
+				document.add(new Field("contents", rs.getString("TEST_NAME"), Field.Store.NO, Field.Index.TOKENIZED));
+				return document;
+			}
+		};
+
+		//Indexer
+		DefaultDatabaseIndexer indexer = new DefaultDatabaseIndexer(indexFactory);
+		indexer.setFetchSize(2);
+		indexer.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		indexer.registerDocumentHandler(request1, handler);
+		indexer.registerDocumentHandler(request2, handler);
+
+		//Index
+		indexer.index(this.dataSource);
+
+		IndexReader reader = IndexReader.open(directory);
+		try {
+			assertEquals(4, reader.numDocs());
+		} finally {
+			reader.close();
+		}
+	}
+
+	final public void testIndexDataSourceWithTaskExecutorAndError() throws Exception {
+		RAMDirectory directory = new RAMDirectory();
+		SimpleIndexFactory indexFactory = new SimpleIndexFactory(directory, new SimpleAnalyzer());
+		indexFactory.setCreate(true);
+
+		SqlDocumentHandler handler = new SqlDocumentHandler() {
+			public Document getDocument(SqlRequest request, ResultSet rs) throws SQLException {
+				throw new Error("Error in the handler");
+			}
+		};
+
+		DefaultDatabaseIndexer indexer = new DefaultDatabaseIndexer(indexFactory);
+		indexer.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		indexer.registerDocumentHandler(new SqlRequest("select * from TEST"), handler);
+
+		try {
+			indexer.index(this.dataSource, true);
+			fail();
+		} catch(Error err) {
+			assertEquals("Error in the handler", err.getMessage());
+		}
+	}
+
+	final public void testIndexDataSourceWithRejectingTaskExecutor() throws Exception {
+		RAMDirectory directory = new RAMDirectory();
+		SimpleIndexFactory indexFactory = new SimpleIndexFactory(directory, new SimpleAnalyzer());
+		indexFactory.setCreate(true);
+
+		final boolean[] indexed = new boolean[1];
+		SqlDocumentHandler handler = new SqlDocumentHandler() {
+			public Document getDocument(SqlRequest request, ResultSet rs) throws SQLException {
+				try {
+					Thread.sleep(200);
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				indexed[0] = true;
+				Document document = new Document();
+				document.add(new Field("id", rs.getString("TEST_ID"), Field.Store.YES, Field.Index.UN_TOKENIZED));
+				return document;
+			}
+		};
+
+		//Executor that accepts only the first request
+		TaskExecutor taskExecutor = new TaskExecutor() {
+			private boolean accepted = false;
+
+			public synchronized void execute(Runnable task) {
+				if( accepted ) {
+					throw new IllegalStateException("Request rejected");
+				}
+				accepted = true;
+				new Thread(task).start();
+			}
+		};
+
+		DefaultDatabaseIndexer indexer = new DefaultDatabaseIndexer(indexFactory);
+		indexer.setTaskExecutor(taskExecutor);
+		indexer.registerDocumentHandler(new SqlRequest("select * from TEST where TEST_ID = 1"), handler);
+		indexer.registerDocumentHandler(new SqlRequest("select * from TEST where TEST_ID < 10"), handler);
+
+		try {
+			indexer.index(this.dataSource);
+			fail();
+		} catch(LuceneIndexAccessException ex) {
+			//The submitted request completed before the writer was released
+			assertTrue(indexed[0]);
+		}
+	}
 }
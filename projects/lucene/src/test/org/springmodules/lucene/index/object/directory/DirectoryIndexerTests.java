@@ -17,6 +17,7 @@
 package org.springmodules.lucene.index.object.directory;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Map;
@@ -26,6 +27,9 @@ import junit.framework.TestCase;
 import org.apache.lucene.analysis.SimpleAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.store.RAMDirectory;
 import org.easymock.AbstractMatcher;
 import org.easymock.MockControl;
@@ -36,6 +40,7 @@ import org.springmodules.lucene.index.document.handler.file.ExtensionDocumentMat
 import org.springmodules.lucene.index.document.handler.file.TextDocumentHandler;
 import org.springmodules.lucene.index.factory.IndexFactory;
 import org.springmodules.lucene.index.factory.LuceneIndexWriter;
+import org.springmodules.lucene.index.factory.SimpleIndexFactory;
 
 /**
  * @author Thierry Templier
@@ -547,4 +552,96 @@ public class DirectoryIndexerTests extends TestCase {
 		
 		indexFactoryControl.verify();
 	}
+
+	private void writeFile(File file, String contents) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(contents);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private int getDocumentCount(File file) throws IOException {
+		IndexReader reader = IndexReader.open(directory);
+		try {
+			TermDocs termDocs = reader.termDocs(new Term(DefaultDirectoryIndexer.FILE_PATH_FIELD, file.getAbsolutePath()));
+			int count = 0;
+			while( termDocs.next() ) {
+				count++;
+			}
+			termDocs.close();
+			return count;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	 * Test for void updateIndex(String)
+	 */
+	final public void testUpdateIndexString() throws Exception {
+		File baseDirectory = File.createTempFile("indexer", "");
+		baseDirectory.delete();
+		baseDirectory.mkdir();
+		File unchangedFile = new File(baseDirectory, "unchanged.txt");
+		File modifiedFile = new File(baseDirectory, "modified.txt");
+		File removedFile = new File(baseDirectory, "removed.txt");
+		File addedFile = new File(baseDirectory, "added.txt");
+		try {
+			writeFile(unchangedFile, "unchanged");
+			writeFile(modifiedFile, "modified");
+			writeFile(removedFile, "removed");
+
+			SimpleIndexFactory indexFactory = new SimpleIndexFactory(directory, new SimpleAnalyzer());
+			indexFactory.setCreate(true);
+			DefaultDirectoryIndexer indexer = new DefaultDirectoryIndexer(indexFactory);
+			indexer.index(baseDirectory.getAbsolutePath());
+
+			writeFile(modifiedFile, "modified again");
+			removedFile.delete();
+			writeFile(addedFile, "added");
+
+			MockControl listenerControl = MockControl.createControl(FileDocumentIndexingListener.class);
+			FileDocumentIndexingListener listener = (FileDocumentIndexingListener)listenerControl.getMock();
+
+			listener.beforeIndexingDirectory(baseDirectory);
+			listenerControl.setVoidCallable(1);
+			listener.beforeIndexingFile(addedFile);
+			listenerControl.setVoidCallable(1);
+			listener.afterIndexingFile(addedFile);
+			listenerControl.setVoidCallable(1);
+			listener.beforeIndexingFile(modifiedFile);
+			listenerControl.setVoidCallable(1);
+			listener.afterIndexingFile(modifiedFile);
+			listenerControl.setVoidCallable(1);
+			listener.afterIndexingDirectory(baseDirectory);
+			listenerControl.setVoidCallable(1);
+
+			listenerControl.replay();
+
+			indexer.addListener(listener);
+			indexer.updateIndex(baseDirectory.getAbsolutePath());
+
+			listenerControl.verify();
+
+			assertEquals(1, getDocumentCount(unchangedFile));
+			assertEquals(1, getDocumentCount(modifiedFile));
+			assertEquals(1, getDocumentCount(addedFile));
+			assertEquals(0, getDocumentCount(removedFile));
+
+			IndexReader reader = IndexReader.open(directory);
+			try {
+				assertEquals(3, reader.numDocs());
+			} finally {
+				reader.close();
+			}
+		} finally {
+			unchangedFile.delete();
+			modifiedFile.delete();
+			removedFile.delete();
+			addedFile.delete();
+			baseDirectory.delete();
+		}
+	}
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.index.support;
+
+import java.util.Calendar;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.springmodules.lucene.index.factory.SimpleIndexFactory;
+
+/**
+ * @author Thierry Templier
+ */
+public class IndexMaintenanceSchedulerTests extends TestCase {
+
+	private RAMDirectory directory;
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		//Initialization of an index with several segments
+		this.directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(this.directory, new SimpleAnalyzer(), true);
+		writer.setMaxBufferedDocs(2);
+		writer.setMergeFactor(100);
+		for(int cpt=0; cpt<10; cpt++) {
+			Document document = new Document();
+			document.add(new Field("id", String.valueOf(cpt), Field.Store.YES, Field.Index.UN_TOKENIZED));
+			writer.addDocument(document);
+		}
+		writer.close();
+	}
+
+	/**
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		this.directory = null;
+	}
+
+	private IndexMaintenanceScheduler createScheduler() {
+		IndexMaintenanceScheduler scheduler = new IndexMaintenanceScheduler();
+		scheduler.setIndexFactory(new SimpleIndexFactory(directory, new SimpleAnalyzer()));
+		scheduler.setCheckInterval(0);
+		return scheduler;
+	}
+
+	final public void testMaintainWithTooManySegments() throws Exception {
+		IndexMaintenanceScheduler scheduler = createScheduler();
+		scheduler.setMaxSegments(2);
+		scheduler.afterPropertiesSet();
+
+		assertTrue(scheduler.isMaintenanceRequired());
+		assertTrue(scheduler.maintain());
+		assertFalse(scheduler.isMaintenanceRequired());
+		assertFalse(scheduler.maintain());
+	}
+
+	final public void testMaintainWithDeletedDocuments() throws Exception {
+		IndexMaintenanceScheduler scheduler = createScheduler();
+		scheduler.setMaxSegments(100);
+		scheduler.setMaxDeletedRatio(0.2f);
+		scheduler.afterPropertiesSet();
+
+		IndexReader reader = IndexReader.open(directory);
+		reader.deleteDocuments(new Term("id", "1"));
+		reader.close();
+		assertFalse(scheduler.isMaintenanceRequired());
+
+		reader = IndexReader.open(directory);
+		reader.deleteDocuments(new Term("id", "2"));
+		reader.deleteDocuments(new Term("id", "3"));
+		reader.close();
+		assertTrue(scheduler.maintain());
+
+		reader = IndexReader.open(directory);
+		try {
+			assertEquals(7, reader.maxDoc());
+			assertFalse(reader.hasDeletions());
+		} finally {
+			reader.close();
+		}
+	}
+
+	final public void testMaintainOutsideWindow() throws Exception {
+		int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+		IndexMaintenanceScheduler scheduler = createScheduler();
+		scheduler.setMaxSegments(2);
+		scheduler.setWindowStartHour((hour + 1) % 24);
+		scheduler.setWindowEndHour((hour + 2) % 24 + 1);
+		scheduler.afterPropertiesSet();
+
+		assertTrue(scheduler.isMaintenanceRequired());
+		assertFalse(scheduler.maintain());
+	}
+
+	final public void testMaintenanceWindow() throws Exception {
+		IndexMaintenanceScheduler scheduler = createScheduler();
+		scheduler.setWindowStartHour(22);
+		scheduler.setWindowEndHour(4);
+
+		assertTrue(scheduler.isInMaintenanceWindow(23));
+		assertTrue(scheduler.isInMaintenanceWindow(2));
+		assertFalse(scheduler.isInMaintenanceWindow(4));
+		assertFalse(scheduler.isInMaintenanceWindow(12));
+	}
+
+	final public void testWithoutIndexFactory() throws Exception {
+		IndexMaintenanceScheduler scheduler = new IndexMaintenanceScheduler();
+		try {
+			scheduler.afterPropertiesSet();
+			fail();
+		} catch(IllegalArgumentException ex) {
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.search.core;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryFilter;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.springmodules.lucene.AbstractLuceneTestCase;
+import org.springmodules.lucene.search.factory.LuceneHits;
+import org.springmodules.lucene.search.factory.LuceneSearcher;
+import org.springmodules.lucene.search.factory.SearcherFactory;
+import org.springmodules.lucene.search.factory.SimpleLuceneSearcher;
+
+/**
+ * @author Thierry Templier
+ */
+public class QueryResultCacheTests extends AbstractLuceneTestCase {
+
+	private int searchCount;
+
+	private SearcherFactory createSearcherFactory() {
+		return new SearcherFactory() {
+			public LuceneSearcher getSearcher() throws IOException {
+				return new SimpleLuceneSearcher(new IndexSearcher(directory)) {
+					public LuceneHits search(Query query) throws IOException {
+						searchCount++;
+						return super.search(query);
+					}
+
+					public LuceneHits search(Query query, Filter filter) throws IOException {
+						searchCount++;
+						return super.search(query, filter);
+					}
+
+					public TopDocs search(Query query, Filter filter, int n) throws IOException {
+						searchCount++;
+						return super.search(query, filter, n);
+					}
+				};
+			}
+		};
+	}
+
+	private HitExtractor createHitExtractor() {
+		return new HitExtractor() {
+			public Object mapHit(int id, Document document, float score) {
+				return document.get("id");
+			}
+		};
+	}
+
+	final public void testSearchWithCache() throws Exception {
+		DefaultLuceneSearchTemplate template = new DefaultLuceneSearchTemplate(
+				createSearcherFactory(), new SimpleAnalyzer());
+		QueryResultCache cache = new QueryResultCache();
+		template.setQueryResultCache(cache);
+
+		List results1 = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor());
+		List results2 = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor());
+
+		assertEquals(1, searchCount);
+		assertEquals(1, cache.size());
+		assertEquals(3, results1.size());
+		assertEquals(results1, results2);
+	}
+
+	final public void testSearchWithCacheAndIndexModification() throws Exception {
+		DefaultLuceneSearchTemplate template = new DefaultLuceneSearchTemplate(
+				createSearcherFactory(), new SimpleAnalyzer());
+		template.setQueryResultCache(new QueryResultCache());
+
+		List results = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor());
+		assertEquals(3, results.size());
+
+		IndexWriter writer = new IndexWriter(directory, new SimpleAnalyzer(), false);
+		Document document = new Document();
+		document.add(new Field("id", "4", Field.Store.YES, Field.Index.UN_TOKENIZED));
+		document.add(new Field("field", "another sample", Field.Store.YES, Field.Index.TOKENIZED));
+		writer.addDocument(document);
+		writer.close();
+
+		results = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor());
+		assertEquals(2, searchCount);
+		assertEquals(4, results.size());
+	}
+
+	final public void testSearchWithCacheAndMaxCachedHits() throws Exception {
+		DefaultLuceneSearchTemplate template = new DefaultLuceneSearchTemplate(
+				createSearcherFactory(), new SimpleAnalyzer());
+		QueryResultCache cache = new QueryResultCache();
+		cache.setMaxCachedHits(1);
+		template.setQueryResultCache(cache);
+
+		List results1 = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor());
+		List results2 = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor());
+
+		//The hits after the first one are got by executing the search again
+		assertEquals(3, searchCount);
+		assertEquals(results1, results2);
+	}
+
+	final public void testSearchWithCacheAndFilter() throws Exception {
+		DefaultLuceneSearchTemplate template = new DefaultLuceneSearchTemplate(
+				createSearcherFactory(), new SimpleAnalyzer());
+		QueryResultCache cache = new QueryResultCache();
+		template.setQueryResultCache(cache);
+
+		Filter filter = new QueryFilter(new TermQuery(new Term("filter", "another")));
+		List results1 = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor(), filter);
+		List results2 = template.search(new TermQuery(new Term("field", "sample")), createHitExtractor(), filter);
+
+		assertEquals(1, searchCount);
+		assertEquals(2, results1.size());
+		assertEquals(results1, results2);
+		assertTrue(cache.getCachingFilter(filter) instanceof CachingWrapperFilter);
+		assertSame(cache.getCachingFilter(filter), cache.getCachingFilter(filter));
+	}
+
+	final public void testMaxEntries() throws Exception {
+		DefaultLuceneSearchTemplate template = new DefaultLuceneSearchTemplate(
+				createSearcherFactory(), new SimpleAnalyzer());
+		QueryResultCache cache = new QueryResultCache();
+		cache.setMaxEntries(1);
+		template.setQueryResultCache(cache);
+
+		template.search(new TermQuery(new Term("field", "sample")), createHitExtractor());
+		template.search(new TermQuery(new Term("field", "different")), createHitExtractor());
+		assertEquals(1, cache.size());
+	}
+
+	final public void testMaxCachedFilters() throws Exception {
+		QueryResultCache cache = new QueryResultCache();
+		cache.setMaxCachedFilters(2);
+
+		Filter filter = new QueryFilter(new TermQuery(new Term("filter", "another")));
+		Filter cachingFilter = cache.getCachingFilter(filter);
+		for(int cpt=0; cpt<10; cpt++) {
+			cache.getCachingFilter(new QueryFilter(new TermQuery(new Term("filter", "value" + cpt))));
+		}
+
+		assertEquals(2, cache.getCachedFilterCount());
+		assertNotSame(cachingFilter, cache.getCachingFilter(filter));
+	}
+
+	final public void testIteratorOfCachedHits() throws Exception {
+		QueryResultCache cache = new QueryResultCache();
+		LuceneSearcher searcher = createSearcherFactory().getSearcher();
+		Query query = new TermQuery(new Term("field", "sample"));
+
+		LuceneHits hits = searcher.search(query);
+		searchCount = 0;
+		cache.getHits(searcher, query, null, null);
+		LuceneHits cachedHits = cache.getHits(searcher, query, null, null);
+
+		int count = 0;
+		for(Iterator i = cachedHits.iterator(); i.hasNext(); count++) {
+			QueryResultCache.CachedHit hit = (QueryResultCache.CachedHit)i.next();
+			assertEquals(hits.id(count), hit.getId());
+			assertEquals(hits.score(count), hit.getScore(), 0);
+			assertEquals(hits.doc(count).get("id"), hit.getDocument().get("id"));
+		}
+		assertEquals(3, count);
+		//The iteration does not execute the search again
+		assertEquals(1, searchCount);
+	}
+
+	final public void testIteratorOfHitsNotCached() throws Exception {
+		QueryResultCache cache = new QueryResultCache();
+		LuceneSearcher searcher = createSearcherFactory().getSearcher();
+		Query query = new TermQuery(new Term("field", "sample"));
+
+		LuceneHits hits = searcher.search(query);
+		searchCount = 0;
+		LuceneHits notCachedHits = cache.getHits(searcher, query, null, null);
+
+		//The hits of a search which is not cached yet are the same
+		//than the cached ones
+		int count = 0;
+		for(Iterator i = notCachedHits.iterator(); i.hasNext(); count++) {
+			QueryResultCache.CachedHit hit = (QueryResultCache.CachedHit)i.next();
+			assertEquals(hits.id(count), hit.getId());
+			assertEquals(hits.score(count), hit.getScore(), 0);
+		}
+		assertEquals(3, count);
+		assertEquals(1, searchCount);
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.lucene.search.factory;
+
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Searchable;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springmodules.lucene.index.factory.IndexFactory;
+import org.springmodules.lucene.index.factory.SimpleIndexFactory;
+import org.springmodules.lucene.search.LuceneSearchException;
+
+/**
+ * @author Thierry Templier
+ */
+public class ConcurrentMultipleSearcherFactoryTests extends TestCase {
+
+	private RAMDirectory directory1;
+	private RAMDirectory directory2;
+
+	private void setUpDirectory(Directory directory) throws IOException {
+		IndexWriter writer = new IndexWriter(directory,new SimpleAnalyzer(),true);
+		//Adding a document
+		Document document1 = new Document();
+		document1.add(new Field("field", "a sample", Field.Store.YES, Field.Index.TOKENIZED));
+		document1.add(new Field("filter", "a sample filter", Field.Store.YES, Field.Index.TOKENIZED));
+		document1.add(new Field("sort", "2", Field.Store.YES, Field.Index.UN_TOKENIZED));
+		writer.addDocument(document1);
+		//Adding a document
+		Document document2 = new Document();
+		document2.add(new Field("field", "a Lucene support sample", Field.Store.YES, Field.Index.TOKENIZED));
+		document2.add(new Field("filter", "another sample filter", Field.Store.YES, Field.Index.TOKENIZED));
+		document2.add(new Field("sort", "3", Field.Store.YES, Field.Index.UN_TOKENIZED));
+		writer.addDocument(document2);
+		//Adding a document
+		Document document3 = new Document();
+		document3.add(new Field("field", "a different sample", Field.Store.YES, Field.Index.TOKENIZED));
+		document3.add(new Field("filter", "another sample filter", Field.Store.YES, Field.Index.TOKENIZED));
+		document3.add(new Field("sort", "1", Field.Store.YES, Field.Index.UN_TOKENIZED));
+		writer.addDocument(document3);
+		writer.optimize();
+		writer.close();
+	}
+
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		//Initialization of the indexes
+		this.directory1 = new RAMDirectory();
+		setUpDirectory(this.directory1);
+		this.directory2 = new RAMDirectory();
+		setUpDirectory(this.directory2);
+	}
+
+	final public void testGetSearcherWithoutIndexes() throws Exception {
+		ConcurrentMultipleSearcherFactory searcherFactory = new ConcurrentMultipleSearcherFactory();
+		try {
+			searcherFactory.afterPropertiesSet();
+			fail();
+		} catch(LuceneSearchException ex) {}
+	}
+
+	final public void testGetSearcherWithDirectories() throws Exception {
+		ConcurrentMultipleSearcherFactory searcherFactory = new ConcurrentMultipleSearcherFactory();
+		searcherFactory.setDirectories(new Directory[] {directory1, directory2});
+		searcherFactory.afterPropertiesSet();
+
+		try {
+			LuceneSearcher searcher = searcherFactory.getSearcher();
+			assertNotNull(searcher);
+			LuceneHits hits = searcher.search(new TermQuery(new Term("field", "sample")));
+			assertEquals(hits.length(), 6);
+			searcher.close();
+
+			//The same searcher is reused after being closed
+			assertSame(searcher, searcherFactory.getSearcher());
+			hits = searcher.search(new TermQuery(new Term("field", "lucene")));
+			assertEquals(hits.length(), 2);
+			assertEquals("a Lucene support sample", hits.doc(0).get("field"));
+			assertEquals("a Lucene support sample", hits.doc(1).get("field"));
+		} finally {
+			searcherFactory.destroy();
+		}
+	}
+
+	final public void testGetSearcherWithIndexFactories() throws Exception {
+		SimpleIndexFactory indexFactory1 = new SimpleIndexFactory();
+		indexFactory1.setDirectory(directory1);
+		SimpleIndexFactory indexFactory2 = new SimpleIndexFactory();
+		indexFactory2.setDirectory(directory2);
+
+		ConcurrentMultipleSearcherFactory searcherFactory = new ConcurrentMultipleSearcherFactory(
+				new IndexFactory[] {indexFactory1, indexFactory2});
+		searcherFactory.afterPropertiesSet();
+
+		try {
+			LuceneSearcher searcher = searcherFactory.getSearcher();
+			LuceneHits hits = searcher.search(new TermQuery(new Term("field", "sample")));
+			assertEquals(hits.length(), 6);
+		} finally {
+			searcherFactory.destroy();
+		}
+	}
+
+	final public void testSearchWithSort() throws Exception {
+		ConcurrentMultipleSearcherFactory searcherFactory = new ConcurrentMultipleSearcherFactory(
+				new Directory[] {directory1, directory2});
+		searcherFactory.afterPropertiesSet();
+
+		try {
+			LuceneSearcher searcher = searcherFactory.getSearcher();
+			LuceneHits hits = searcher.search(new TermQuery(new Term("field", "sample")), new Sort("sort"));
+			assertEquals(hits.length(), 6);
+			assertEquals("1", hits.doc(0).get("sort"));
+			assertEquals("1", hits.doc(1).get("sort"));
+			assertEquals("2", hits.doc(2).get("sort"));
+			assertEquals("2", hits.doc(3).get("sort"));
+			assertEquals("3", hits.doc(4).get("sort"));
+			assertEquals("3", hits.doc(5).get("sort"));
+		} finally {
+			searcherFactory.destroy();
+		}
+	}
+
+	private Searchable createSlowSearcher(Directory directory) throws IOException {
+		return new IndexSearcher(directory) {
+			public TopDocs search(Weight weight, Filter filter, int nDocs) throws IOException {
+				try {
+					Thread.sleep(2000);
+				} catch(InterruptedException ex) {
+				}
+				return super.search(weight, filter, nDocs);
+			}
+		};
+	}
+
+	final public void testSearchWithTimeout() throws Exception {
+		ConcurrentMultiSearcher multiSearcher = new ConcurrentMultiSearcher(new Searchable[] {
+				new IndexSearcher(directory1), createSlowSearcher(directory2) },
+				new SimpleAsyncTaskExecutor());
+		multiSearcher.setTimeout(200);
+
+		LuceneSearcher searcher = new SimpleLuceneSearcher(multiSearcher);
+		LuceneHits hits = searcher.search(new TermQuery(new Term("field", "sample")));
+		assertEquals(hits.length(), 3);
+	}
+
+	final public void testSearchWithTimeoutAndWithoutPartialResults() throws Exception {
+		ConcurrentMultiSearcher multiSearcher = new ConcurrentMultiSearcher(new Searchable[] {
+				new IndexSearcher(directory1), createSlowSearcher(directory2) },
+				new SimpleAsyncTaskExecutor());
+		multiSearcher.setTimeout(200);
+		multiSearcher.setAllowPartialResults(false);
+
+		LuceneSearcher searcher = new SimpleLuceneSearcher(multiSearcher);
+		try {
+			searcher.search(new TermQuery(new Term("field", "sample")));
+			fail();
+		} catch(LuceneSearchException ex) {
+		}
+	}
+
+	final public void testSearchWithFailingSubSearcher() throws Exception {
+		Searchable failingSearcher = new IndexSearcher(directory2) {
+			public TopDocs search(Weight weight, Filter filter, int nDocs) throws IOException {
+				throw new IllegalStateException("failure");
+			}
+		};
+		ConcurrentMultiSearcher multiSearcher = new ConcurrentMultiSearcher(new Searchable[] {
+				new IndexSearcher(directory1), failingSearcher }, new SimpleAsyncTaskExecutor());
+		Weight weight = new TermQuery(new Term("field", "sample")).weight(new IndexSearcher(directory1));
+
+		try {
+			multiSearcher.search(weight, null, 10);
+			fail();
+		} catch(LuceneSearchException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	final public void testSearchWithoutSubSearchers() throws Exception {
+		ConcurrentMultiSearcher multiSearcher = new ConcurrentMultiSearcher(
+				new Searchable[0], new SimpleAsyncTaskExecutor());
+		Weight weight = new TermQuery(new Term("field", "sample")).weight(new IndexSearcher(directory1));
+
+		TopDocs topDocs = multiSearcher.search(weight, null, 10);
+		assertEquals(0, topDocs.totalHits);
+		assertEquals(0, topDocs.scoreDocs.length);
+
+		Sort sort = new Sort("sort");
+		TopFieldDocs topFieldDocs = multiSearcher.search(weight, null, 10, sort);
+		assertEquals(0, topFieldDocs.totalHits);
+		assertEquals(0, topFieldDocs.scoreDocs.length);
+	}
+
+}
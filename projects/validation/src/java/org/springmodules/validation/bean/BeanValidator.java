@@ -20,26 +20,42 @@ import java.lang.reflect.Array;
 import java.util.*;
 import java.util.Map.Entry;
 
+import org.apache.commons.collections.IteratorUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.MapBindingResult;
+import org.springframework.validation.ObjectError;
 import org.springframework.validation.Validator;
 import org.springmodules.validation.bean.conf.BeanValidationConfiguration;
 import org.springmodules.validation.bean.conf.CascadeValidation;
 import org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader;
 import org.springmodules.validation.bean.conf.loader.xml.DefaultXmlBeanValidationConfigurationLoader;
+import org.springmodules.validation.bean.context.ValidationContext;
+import org.springmodules.validation.bean.context.ValidationContextHolder;
 import org.springmodules.validation.bean.converter.ErrorCodeConverter;
 import org.springmodules.validation.bean.converter.ModelAwareErrorCodeConverter;
 import org.springmodules.validation.bean.rule.ValidationRule;
+import org.springmodules.validation.util.collection.IdentitySet;
 import org.springmodules.validation.util.condition.Condition;
+import org.springmodules.validation.util.lang.PropertyPathAccessor;
+import org.springmodules.validation.validator.ValidationStatistics;
 
 /**
  * An {@link org.springmodules.validation.validator.AbstractTypeSpecificValidator} implementation that applies all validation rules
  * on a bean of a specific type, based on an appropriate {@link org.springmodules.validation.bean.conf.BeanValidationConfiguration}. The validation
  * configuration is loaded per bean type by the configured {@link BeanValidationConfigurationLoader}.
+ * <p/>
+ * In fail-fast mode (see {@link #setFailFast(boolean)}) the validation of the whole object graph stops at the first
+ * registered error. In this mode the rules of each validated object can also be ordered by their observed cost and
+ * failure rate (see {@link #setAdaptiveRuleOrdering(boolean)}), so that the rules that are cheap and likely to fail
+ * are applied first.
  *
  * @author Uri Boness
  */
@@ -51,12 +67,30 @@ public class BeanValidator extends RuleBasedValidator {
 
     private final static String PROPERTY_KEY_SUFFIX = "]";
 
+    private final static int DEFAULT_PARALLEL_CASCADE_CHUNK_SIZE = 100;
+
+    // marks the threads that validate a chunk of a collection, nested collections are validated sequentially on them
+    private final static ThreadLocal cascadeWorkerMarker = new ThreadLocal();
+
+    // the object graph traversal of the current thread - ThreadLocal<GraphTraversal>
+    private final ThreadLocal currentTraversal = new ThreadLocal();
+
     private BeanValidationConfigurationLoader configurationLoader;
 
     private ErrorCodeConverter errorCodeConverter;
 
     private boolean shortCircuitFieldValidation = true;
 
+    private TaskExecutor cascadeTaskExecutor;
+
+    private int parallelCascadeChunkSize = DEFAULT_PARALLEL_CASCADE_CHUNK_SIZE;
+
+    private boolean adaptiveRuleOrdering = false;
+
+    // the observed cost and failure rate of the global rules and of the rules of each property, keyed by the (first)
+    // rule - Map<ValidationRule, RuleStatistics>
+    private final Map statisticsByRule = Collections.synchronizedMap(new IdentityHashMap());
+
     /**
      * Constructs a new BeanValidator. By default the
      * {@link org.springmodules.validation.bean.conf.loader.SimpleBeanValidationConfigurationLoader} is
@@ -91,15 +125,15 @@ public class BeanValidator extends RuleBasedValidator {
      * Applies all validation rules as defined in the {@link org.springmodules.validation.bean.conf.BeanValidationConfiguration} retrieved for the given
      * bean from the configured {@link org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader}.
      *
-     * @see Validator#validate(Object, org.springframework.validation.Errors)
+     * @see RuleBasedValidator#doValidate(Object, org.springframework.validation.Errors)
      */
-    public void validate(Object obj, Errors errors) {
+    protected void doValidate(Object obj, Errors errors) {
 
         // validation the object graph using the class validation manager.
-        validateObjectGraphConstraints(obj, obj, errors, new HashSet());
+        validateObjectGraphConstraints(obj, obj, errors, new IdentitySet());
 
         // applying the registered validation rules.
-        super.validate(obj, errors);
+        super.doValidate(obj, errors);
     }
 
     //============================================== Setter/Getter =====================================================
@@ -135,13 +169,61 @@ public class BeanValidator extends RuleBasedValidator {
         this.shortCircuitFieldValidation = shortCircuitFieldValidation;
     }
 
+    /**
+     * Sets the task executor that will be used to validate the elements of large cascaded arrays, collections and
+     * maps in parallel. The elements are split into chunks (see {@link #setParallelCascadeChunkSize(int)}), each
+     * chunk is validated by a separate task into its own error buffer, and the buffered errors are then registered
+     * with the validated {@link Errors} in the order of the elements, so the registered errors are the same as when
+     * validating the elements sequentially. By default no task executor is set and all elements are validated
+     * sequentially.
+     * <p/>
+     * Note that objects that are shared by elements of different chunks are validated once per chunk (their errors
+     * are only registered once), and that custom validators applied on an element only see the errors of their chunk.
+     *
+     * @param cascadeTaskExecutor The task executor that will validate the chunks of elements.
+     */
+    public void setCascadeTaskExecutor(TaskExecutor cascadeTaskExecutor) {
+        this.cascadeTaskExecutor = cascadeTaskExecutor;
+    }
+
+    /**
+     * Sets the number of elements validated by each parallel task (see {@link #setCascadeTaskExecutor(TaskExecutor)}).
+     * Only the cascaded properties with more elements than this number are validated in parallel. Defaults to 100.
+     *
+     * @param parallelCascadeChunkSize The number of elements validated by each parallel task.
+     */
+    public void setParallelCascadeChunkSize(int parallelCascadeChunkSize) {
+        if (parallelCascadeChunkSize < 1) {
+            throw new IllegalArgumentException("Parallel cascade chunk size must be positive");
+        }
+        this.parallelCascadeChunkSize = parallelCascadeChunkSize;
+    }
+
+    /**
+     * Determines whether, in fail-fast mode, the global rules and the rules of each property of a validated object are
+     * applied in the order of their observed failure rate per time unit rather than in their configured order. The
+     * rules of a single property are always applied in their configured order. This has no effect when the validator
+     * is not in fail-fast mode, as all the rules are then applied anyway. Disabled by default.
+     *
+     * @param adaptiveRuleOrdering Whether the rules are ordered by their observed cost and failure rate.
+     */
+    public void setAdaptiveRuleOrdering(boolean adaptiveRuleOrdering) {
+        this.adaptiveRuleOrdering = adaptiveRuleOrdering;
+    }
+
     //=============================================== Helper Methods ===================================================
 
     /**
-     * The heart of this validator. This is a recursive method that validates the given object (object) under the
-     * context of the given object graph root (root). The validation rules to be applied are loaded using the
-     * configured {@link org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader}. All errors are registered with the given {@link Errors}
-     * object under the context of the object graph root.
+     * The heart of this validator. Validates the given object (object) under the context of the given object graph
+     * root (root), and then the objects reachable from it through its cascaded properties. The validation rules to be
+     * applied are loaded using the configured {@link org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader}.
+     * All errors are registered with the given {@link Errors} object under the context of the object graph root.
+     * <p/>
+     * The object graph is traversed depth first using an explicit work stack rather than the call stack, so deep
+     * graphs (e.g. long linked structures) do not overflow the stack. When this method is called (through the
+     * cascade hooks) while the graph of the same errors and validated objects registry is being traversed, the object
+     * is only scheduled under the current nested path of the errors, and validated once its parent is done. The
+     * objects and the errors are visited in the same order as a recursive traversal would.
      *
      * @param root The root of the object graph.
      * @param obj The object to be validated
@@ -151,11 +233,52 @@ public class BeanValidator extends RuleBasedValidator {
      */
     protected void validateObjectGraphConstraints(Object root, Object obj, Errors errors, Set validatedObjects) {
 
-        // cannot load any validation rules for null values
-        if (obj == null) {
+        // cannot load any validation rules for null values, and nothing is validated once the validation is stopped
+        if (obj == null || isValidationStopped()) {
+            return;
+        }
+
+        GraphTraversal traversal = (GraphTraversal) currentTraversal.get();
+        if (traversal != null && traversal.isTraversing(errors, validatedObjects)) {
+            traversal.schedule(new PendingValidation(obj, errors.getNestedPath()));
             return;
         }
 
+        GraphTraversal previousTraversal = traversal;
+        traversal = new GraphTraversal(errors, validatedObjects);
+        currentTraversal.set(traversal);
+        try {
+            validateObject(root, obj, errors, validatedObjects);
+            traversal.pushScheduled();
+            while (traversal.hasNext() && !isValidationStopped()) {
+                PendingValidation pending = traversal.next();
+
+                // the scheduled path always extends the nested path the traversal started with
+                String nestedPath = errors.getNestedPath();
+                boolean pushed = pending.nestedPath.length() > nestedPath.length();
+                if (pushed) {
+                    errors.pushNestedPath(pending.nestedPath.substring(nestedPath.length(), pending.nestedPath.length() - 1));
+                }
+                if (pending.elements != null) {
+                    validateChunksInParallel(root, pending.elements, pending.nestedPaths, errors, validatedObjects);
+                } else {
+                    validateObject(root, pending.obj, errors, validatedObjects);
+                }
+                traversal.pushScheduled();
+                if (pushed) {
+                    errors.popNestedPath();
+                }
+            }
+        } finally {
+            currentTraversal.set(previousTraversal);
+        }
+    }
+
+    /**
+     * Validates the given object and schedules the validation of its cascaded properties.
+     */
+    private void validateObject(Object root, Object obj, Errors errors, Set validatedObjects) {
+
         // if this object was already validated, the skipping this valiation.
         if (validatedObjects.contains(obj)) {
             if (logger.isDebugEnabled()) {
@@ -178,14 +301,26 @@ public class BeanValidator extends RuleBasedValidator {
         }
 
         // applying all the validation rules for the object and registering the object as "validated"
-        applyBeanValidation(configuration, obj, errors);
+        int errorCount = errors.getErrorCount();
+        ValidationStatistics statistics = getStatistics();
+        if (statistics != null && statistics.isEnabled()) {
+            long start = System.nanoTime();
+            applyBeanValidation(configuration, obj, errors);
+            recordValidation(statistics, clazz, System.nanoTime() - start, errors.getErrorCount() > errorCount);
+        } else {
+            applyBeanValidation(configuration, obj, errors);
+        }
         validatedObjects.add(obj);
+        if (validatedObjects instanceof LayeredSet) {
+            // the errors of an object that is shared by several chunks are only merged once
+            ((LayeredSet) validatedObjects).objectValidated(obj, errorCount, errors.getErrorCount());
+        }
 
         // after all the validation rules where applied, checking what properties of the object require their own
-        // validation and recursively calling this method on them.
+        // validation and scheduling their validation through the cascade hooks.
         CascadeValidation[] cascadeValidations = configuration.getCascadeValidations();
-        BeanWrapper wrapper = wrapBean(obj);
-        for (int i = 0; i < cascadeValidations.length; i++) {
+        BeanWrapper wrapper = null;
+        for (int i = 0; i < cascadeValidations.length && !isValidationStopped(); i++) {
             CascadeValidation cascadeValidation = cascadeValidations[i];
             Condition applicabilityCondition = cascadeValidation.getApplicabilityCondition();
 
@@ -193,9 +328,21 @@ public class BeanValidator extends RuleBasedValidator {
                 continue;
             }
 
+            // plain properties are read through the shared accessors, the bean wrapper is only created for the others
             String propertyName = cascadeValidation.getPropertyName();
-            Class propertyType = wrapper.getPropertyType(propertyName);
-            Object propertyValue = wrapper.getPropertyValue(propertyName);
+            Class propertyType;
+            Object propertyValue;
+            PropertyPathAccessor accessor = PropertyPathAccessor.getAccessor(clazz, propertyName);
+            if (accessor != null) {
+                propertyType = accessor.getPropertyType();
+                propertyValue = accessor.getValue(obj);
+            } else {
+                if (wrapper == null) {
+                    wrapper = wrapBean(obj);
+                }
+                propertyType = wrapper.getPropertyType(propertyName);
+                propertyValue = wrapper.getPropertyValue(propertyName);
+            }
 
             // if the property value is not there nothing to validate.
             if (propertyValue == null) {
@@ -222,7 +369,8 @@ public class BeanValidator extends RuleBasedValidator {
     }
 
     /**
-     * Wraps the given bean in a {@link BeanWrapper}.
+     * Wraps the given bean in a {@link BeanWrapper}. The bean wrapper is used to read the cascaded properties that
+     * cannot be read through a {@link PropertyPathAccessor} (e.g. indexed or mapped properties).
      *
      * @param bean The bean to be wraped.
      * @return The bean wrapper that wraps the given bean.
@@ -247,7 +395,19 @@ public class BeanValidator extends RuleBasedValidator {
         Errors errors,
         Set validatedObjects) {
 
-        for (int i = 0; i < Array.getLength(array); i++) {
+        int length = Array.getLength(array);
+        if (isParallelCascade(length)) {
+            Object[] elements = new Object[length];
+            String[] nestedPaths = new String[length];
+            for (int i = 0; i < length; i++) {
+                elements[i] = Array.get(array, i);
+                nestedPaths[i] = propertyName + PROPERTY_KEY_PREFIX + i + PROPERTY_KEY_SUFFIX;
+            }
+            validateElementsInParallel(root, elements, nestedPaths, errors, validatedObjects);
+            return;
+        }
+
+        for (int i = 0; i < length; i++) {
             String nestedPath = propertyName + PROPERTY_KEY_PREFIX + i + PROPERTY_KEY_SUFFIX;
             errors.pushNestedPath(nestedPath);
             validateObjectGraphConstraints(root, Array.get(array, i), errors, validatedObjects);
@@ -271,6 +431,16 @@ public class BeanValidator extends RuleBasedValidator {
         Errors errors,
         Set validatedObjects) {
 
+        if (isParallelCascade(collection.size())) {
+            Object[] elements = collection.toArray();
+            String[] nestedPaths = new String[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                nestedPaths[i] = propertyName + PROPERTY_KEY_PREFIX + i + PROPERTY_KEY_SUFFIX;
+            }
+            validateElementsInParallel(root, elements, nestedPaths, errors, validatedObjects);
+            return;
+        }
+
         int i = 0;
         for (Iterator iter = collection.iterator(); iter.hasNext();) {
             Object element = iter.next();
@@ -292,6 +462,21 @@ public class BeanValidator extends RuleBasedValidator {
      * @param validatedObjects A registry of all objects that were already validated.
      */
     protected void validateMapProperty(Object root, Map map, String propertyName, Errors errors, Set validatedObjects) {
+        if (isParallelCascade(map.size())) {
+            List elements = new ArrayList(map.size());
+            List nestedPaths = new ArrayList(map.size());
+            for (Iterator entries = map.entrySet().iterator(); entries.hasNext();) {
+                Entry entry = (Entry) entries.next();
+                if (entry.getKey() instanceof String) {
+                    elements.add(entry.getValue());
+                    nestedPaths.add(propertyName + PROPERTY_KEY_PREFIX + entry.getKey() + PROPERTY_KEY_SUFFIX);
+                }
+            }
+            validateElementsInParallel(root, elements.toArray(), (String[]) nestedPaths.toArray(new String[nestedPaths.size()]),
+                errors, validatedObjects);
+            return;
+        }
+
         for (Iterator entries = map.entrySet().iterator(); entries.hasNext();) {
             Entry entry = (Entry) entries.next();
             Object key = entry.getKey();
@@ -308,6 +493,92 @@ public class BeanValidator extends RuleBasedValidator {
         }
     }
 
+    /**
+     * Determines whether the given number of cascaded elements should be validated in parallel.
+     */
+    private boolean isParallelCascade(int elementCount) {
+        return cascadeTaskExecutor != null && elementCount > parallelCascadeChunkSize && cascadeWorkerMarker.get() == null;
+    }
+
+    /**
+     * Validates the given elements in chunks using the cascade task executor, and registers the errors of the
+     * chunks with the given {@link Errors} in the order of the elements.
+     *
+     * @param root The root of the object graph that is being validated.
+     * @param elements The elements to be validated.
+     * @param nestedPaths The nested path of each element.
+     * @param errors The {@link Errors} instance where all validation errors will be registered.
+     * @param validatedObjects A registry of all objects that were already validated.
+     */
+    private void validateElementsInParallel(Object root, Object[] elements, String[] nestedPaths, Errors errors, Set validatedObjects) {
+        GraphTraversal traversal = (GraphTraversal) currentTraversal.get();
+        if (traversal != null && traversal.isTraversing(errors, validatedObjects)) {
+            // keeping the order of the errors: the elements are validated after the preceding scheduled objects
+            traversal.schedule(new PendingValidation(elements, nestedPaths, errors.getNestedPath()));
+            return;
+        }
+        validateChunksInParallel(root, elements, nestedPaths, errors, validatedObjects);
+    }
+
+    /**
+     * Validates the given elements in chunks using the cascade task executor, waits for all chunks to complete and
+     * registers their errors with the given {@link Errors} in the order of the elements. The current thread validates
+     * the chunks that are not started yet before waiting, so it never waits for chunks that are queued behind it in
+     * the executor. Since the chunks do not see each other's validated objects, an object that is shared by several
+     * chunks may be validated more than once: only the errors of the first chunk that validated it are registered.
+     */
+    private void validateChunksInParallel(Object root, Object[] elements, String[] nestedPaths, Errors errors, Set validatedObjects) {
+        int chunkCount = (elements.length + parallelCascadeChunkSize - 1) / parallelCascadeChunkSize;
+        CascadeChunk[] chunks = new CascadeChunk[chunkCount];
+        ChunkCompletion completion = new ChunkCompletion(chunkCount);
+        ValidationContext context = ValidationContextHolder.getValidationContext();
+        ValidationRun run = getValidationRun();
+        for (int i = 0; i < chunkCount; i++) {
+            int end = Math.min(elements.length, (i + 1) * parallelCascadeChunkSize);
+            Errors buffer = (root instanceof Map) ?
+                (Errors) new MapBindingResult((Map) root, errors.getObjectName()) :
+                new BeanPropertyBindingResult(root, errors.getObjectName());
+            buffer.setNestedPath(errors.getNestedPath());
+            chunks[i] = new CascadeChunk(root, elements, nestedPaths, i * parallelCascadeChunkSize, end, buffer,
+                new LayeredSet(validatedObjects), context, run, completion);
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            try {
+                cascadeTaskExecutor.execute(chunks[i]);
+            } catch (RuntimeException e) {
+                // the executor rejected the task, validating the chunk in the current thread
+                chunks[i].run();
+            }
+        }
+        // validating the chunks that no worker has started yet, they may be queued behind the current task
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i].run();
+        }
+        completion.await();
+
+        String parentPath = errors.getNestedPath();
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i].rethrowFailure();
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            List chunkErrors = chunks[i].buffer.getAllErrors();
+            boolean[] duplicates = chunks[i].validatedObjects.findErrorsOf(validatedObjects, chunkErrors.size());
+            for (int j = 0; j < chunkErrors.size(); j++) {
+                if (duplicates[j]) {
+                    continue;
+                }
+                ObjectError error = (ObjectError) chunkErrors.get(j);
+                if (error instanceof FieldError) {
+                    String field = ((FieldError) error).getField().substring(parentPath.length());
+                    errors.rejectValue(field, error.getCode(), error.getArguments(), error.getDefaultMessage());
+                } else {
+                    errors.reject(error.getCode(), error.getArguments(), error.getDefaultMessage());
+                }
+            }
+            validatedObjects.addAll(chunks[i].validatedObjects.getAddedObjects());
+        }
+    }
+
     /**
      * Validates the given nested property bean (sub-bean).
      *
@@ -338,20 +609,104 @@ public class BeanValidator extends RuleBasedValidator {
      * @param errors The {@link Errors} instance where the validation error will be registered.
      */
     protected void applyBeanValidation(BeanValidationConfiguration configuration, Object obj, Errors errors) {
-        if (logger.isDebugEnabled()) {
-            logger.debug("Validating global rules...");
-        }
-        applyGlobalValidationRules(configuration, obj, errors);
+        if (adaptiveRuleOrdering && isFailFast()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Validating global and properties rules in observed order...");
+            }
+            applyValidationRulesInObservedOrder(configuration, obj, errors);
+        } else {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Validating global rules...");
+            }
+            applyGlobalValidationRules(configuration, obj, errors);
 
-        if (logger.isDebugEnabled()) {
-            logger.debug("Validating properties rules...");
+            if (logger.isDebugEnabled()) {
+                logger.debug("Validating properties rules...");
+            }
+            applyPropertiesValidationRules(configuration, obj, errors);
         }
-        applyPropertiesValidationRules(configuration, obj, errors);
 
         if (logger.isDebugEnabled()) {
             logger.debug("Executing custom validator...");
         }
-        applyCustomValidator(configuration, obj, errors);
+        if (getValidationRun() == null) {
+            applyCustomValidator(configuration, obj, errors);
+        } else if (startRuleEvaluation()) {
+            int errorCount = errors.getErrorCount();
+            applyCustomValidator(configuration, obj, errors);
+            if (errors.getErrorCount() > errorCount) {
+                errorRegistered();
+            }
+        }
+    }
+
+    /**
+     * Applies the global rules and the rules of each property of the given configuration in decreasing order of their
+     * observed failure rate per time unit, until an error is registered. Used in fail-fast mode when the adaptive
+     * rule ordering is enabled.
+     *
+     * @param configuration The bean validation configuration that holds the validation rules.
+     * @param obj The validated object.
+     * @param errors The {@link Errors} instance where the validation error will be registered.
+     */
+    private void applyValidationRulesInObservedOrder(BeanValidationConfiguration configuration, Object obj, Errors errors) {
+        ValidationRule[] globalRules = configuration.getGlobalRules();
+        String[] propertyNames = configuration.getValidatedProperties();
+        int groupCount = globalRules.length + propertyNames.length;
+        ValidationRule[][] rulesByGroup = new ValidationRule[groupCount][];
+        RuleStatistics[] statisticsByGroup = new RuleStatistics[groupCount];
+        final double[] scores = new double[groupCount];
+        Integer[] order = new Integer[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            rulesByGroup[i] = (i < globalRules.length) ?
+                new ValidationRule[] { globalRules[i] } : configuration.getPropertyRules(propertyNames[i - globalRules.length]);
+            if (rulesByGroup[i].length > 0) {
+                statisticsByGroup[i] = getStatistics(rulesByGroup[i][0]);
+                scores[i] = statisticsByGroup[i].getScore();
+            }
+            order[i] = new Integer(i);
+        }
+
+        // a stable sort, so the groups with equal scores keep their configured order
+        Arrays.sort(order, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return Double.compare(scores[((Integer) o2).intValue()], scores[((Integer) o1).intValue()]);
+            }
+        });
+
+        for (int i = 0; i < groupCount && !isValidationStopped(); i++) {
+            int group = order[i].intValue();
+            if (rulesByGroup[group].length == 0) {
+                continue;
+            }
+            int errorCount = errors.getErrorCount();
+            long start = System.nanoTime();
+            if (group < globalRules.length) {
+                if (!startRuleEvaluation()) {
+                    return;
+                }
+                applyGlobalValidationRule(globalRules[group], obj, errors);
+            } else {
+                validateAndShortCircuitRules(rulesByGroup[group], propertyNames[group - globalRules.length], obj, errors);
+            }
+            long time = System.nanoTime() - start;
+            boolean failed = errors.getErrorCount() > errorCount;
+            // a group that was cut short by the budget (or not evaluated at all) does not tell its cost
+            if (failed || !isValidationStopped()) {
+                statisticsByGroup[group].record(time, failed);
+            }
+        }
+    }
+
+    private RuleStatistics getStatistics(ValidationRule rule) {
+        synchronized (statisticsByRule) {
+            RuleStatistics statistics = (RuleStatistics) statisticsByRule.get(rule);
+            if (statistics == null) {
+                statistics = new RuleStatistics();
+                statisticsByRule.put(rule, statistics);
+            }
+            return statistics;
+        }
     }
 
     /**
@@ -365,25 +720,35 @@ public class BeanValidator extends RuleBasedValidator {
     protected void applyGlobalValidationRules(BeanValidationConfiguration configuration, Object obj, Errors errors) {
         ValidationRule[] globalRules = configuration.getGlobalRules();
         for (int i = 0; i < globalRules.length; i++) {
-            ValidationRule rule = globalRules[i];
-            if (rule.isApplicable(obj) && !rule.getCondition().check(obj)) {
-                String errorCode = errorCodeConverter.convertGlobalErrorCode(rule.getErrorCode(), obj.getClass());
-
-                // if there is a nested path in errors, the global errors should be registered as field errors
-                // for the nested path. Otherwise, they should be registered as global errors. Starting from Spring 2.0-rc2
-                // this is actually not required - it's just enough to call rejectValue() with null as the field name,
-                // but we keep this implementation for now to support earlier versions.
-
-                if (StringUtils.hasLength(errors.getNestedPath())) {
-                    String nestedPath = errors.getNestedPath();
-                    String propertyName = nestedPath.substring(0, nestedPath.length() - 1);
-                    errors.popNestedPath();
-                    errors.rejectValue(propertyName, errorCode, rule.getErrorArguments(obj), rule.getDefaultErrorMessage());
-                    errors.pushNestedPath(propertyName);
-                } else {
-                    errors.reject(errorCode, rule.getErrorArguments(obj), rule.getDefaultErrorMessage());
-                }
+            if (!startRuleEvaluation()) {
+                return;
             }
+            applyGlobalValidationRule(globalRules[i], obj, errors);
+        }
+    }
+
+    /**
+     * Applies the given global validation rule on the given object.
+     */
+    private void applyGlobalValidationRule(ValidationRule rule, Object obj, Errors errors) {
+        if (isViolated(rule, obj, null)) {
+            String errorCode = errorCodeConverter.convertGlobalErrorCode(rule.getErrorCode(), obj.getClass());
+
+            // if there is a nested path in errors, the global errors should be registered as field errors
+            // for the nested path. Otherwise, they should be registered as global errors. Starting from Spring 2.0-rc2
+            // this is actually not required - it's just enough to call rejectValue() with null as the field name,
+            // but we keep this implementation for now to support earlier versions.
+
+            if (StringUtils.hasLength(errors.getNestedPath())) {
+                String nestedPath = errors.getNestedPath();
+                String propertyName = nestedPath.substring(0, nestedPath.length() - 1);
+                errors.popNestedPath();
+                errors.rejectValue(propertyName, errorCode, rule.getErrorArguments(obj), rule.getDefaultErrorMessage());
+                errors.pushNestedPath(propertyName);
+            } else {
+                errors.reject(errorCode, rule.getErrorArguments(obj), rule.getDefaultErrorMessage());
+            }
+            errorRegistered();
         }
     }
 
@@ -398,7 +763,7 @@ public class BeanValidator extends RuleBasedValidator {
      */
     protected void applyPropertiesValidationRules(BeanValidationConfiguration configuration, Object obj, Errors errors) {
         String[] propertyNames = configuration.getValidatedProperties();
-        for (int i = 0; i < propertyNames.length; i++) {
+        for (int i = 0; i < propertyNames.length && !isValidationStopped(); i++) {
             String propertyName = propertyNames[i];
             if (logger.isDebugEnabled()) {
                 logger.debug("Validating property '" + propertyName + "' rules...");
@@ -426,10 +791,14 @@ public class BeanValidator extends RuleBasedValidator {
     protected void validateAndShortCircuitRules(ValidationRule[] rules, String propertyName, Object obj, Errors errors) {
         for (int i = 0; i < rules.length; i++) {
             ValidationRule rule = rules[i];
-            if (rule.isApplicable(obj) && !rule.getCondition().check(obj)) {
+            if (!startRuleEvaluation()) {
+                return;
+            }
+            if (isViolated(rule, obj, propertyName)) {
                 String errorCode = errorCodeConverter.convertPropertyErrorCode(rule.getErrorCode(), obj.getClass(), propertyName);
                 errors.rejectValue(propertyName, errorCode, rule.getErrorArguments(obj), rule.getDefaultErrorMessage());
-                if (shortCircuitFieldValidation) {
+                errorRegistered();
+                if (shortCircuitFieldValidation || isValidationStopped()) {
                     return;
                 }
             }
@@ -452,4 +821,323 @@ public class BeanValidator extends RuleBasedValidator {
         }
     }
 
+    /**
+     * Each object of the validated graph is recorded when its rules are applied, see
+     * {@link #validateObjectGraphConstraints(Object, Object, Errors, Set)}.
+     *
+     * @see RuleBasedValidator#isValidationRecorded()
+     */
+    protected boolean isValidationRecorded() {
+        return false;
+    }
+
+    /**
+     * Prefixes the default rule name with the name of the validated class, as the rules of this validator are
+     * configured per class.
+     *
+     * @see RuleBasedValidator#getRuleName(ValidationRule, Object, String)
+     */
+    protected String getRuleName(ValidationRule rule, Object obj, String propertyName) {
+        return obj.getClass().getName() + "#" + super.getRuleName(rule, obj, propertyName);
+    }
+
+    //=================================================== Inner Classes ================================================
+
+    /**
+     * Validates a range of cascaded elements into an error buffer.
+     */
+    private class CascadeChunk implements Runnable {
+
+        private final Object root;
+        private final Object[] elements;
+        private final String[] nestedPaths;
+        private final int start;
+        private final int end;
+        private final Errors buffer;
+        private final LayeredSet validatedObjects;
+        private final ValidationContext context;
+        private final ValidationRun run;
+        private final ChunkCompletion completion;
+        private boolean claimed;
+        private Throwable failure;
+
+        public CascadeChunk(Object root, Object[] elements, String[] nestedPaths, int start, int end, Errors buffer,
+            LayeredSet validatedObjects, ValidationContext context, ValidationRun run, ChunkCompletion completion) {
+
+            this.root = root;
+            this.elements = elements;
+            this.nestedPaths = nestedPaths;
+            this.start = start;
+            this.end = end;
+            this.buffer = buffer;
+            this.validatedObjects = validatedObjects;
+            this.context = context;
+            this.run = run;
+            this.completion = completion;
+        }
+
+        /**
+         * Validates the chunk, unless it is already validated or being validated by another thread.
+         */
+        public void run() {
+            if (claim()) {
+                validateChunk();
+            }
+        }
+
+        private synchronized boolean claim() {
+            if (claimed) {
+                return false;
+            }
+            claimed = true;
+            return true;
+        }
+
+        private void validateChunk() {
+            ValidationContext originalContext = ValidationContextHolder.getValidationContext();
+            Object originalMarker = cascadeWorkerMarker.get();
+            ValidationRun originalRun = getValidationRun();
+            try {
+                cascadeWorkerMarker.set(Boolean.TRUE);
+                setValidationRun(run);
+                if (context != null) {
+                    ValidationContextHolder.setValidationContext(context);
+                } else {
+                    ValidationContextHolder.clearContext();
+                }
+                for (int i = start; i < end; i++) {
+                    buffer.pushNestedPath(nestedPaths[i]);
+                    validateObjectGraphConstraints(root, elements[i], buffer, validatedObjects);
+                    buffer.popNestedPath();
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                cascadeWorkerMarker.set(originalMarker);
+                setValidationRun(originalRun);
+                if (originalContext != null) {
+                    ValidationContextHolder.setValidationContext(originalContext);
+                } else {
+                    ValidationContextHolder.clearContext();
+                }
+                completion.chunkCompleted();
+            }
+        }
+
+        public void rethrowFailure() {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new IllegalStateException("Cascade validation failed: " + failure);
+            }
+        }
+    }
+
+    /**
+     * The state of an object graph traversal: the scheduled validations of the object being validated and the work
+     * stack of the validations that are still to be done.
+     */
+    private static class GraphTraversal {
+
+        private final Errors errors;
+        private final Set validatedObjects;
+        private final List stack = new ArrayList();
+        private final List scheduled = new ArrayList();
+
+        public GraphTraversal(Errors errors, Set validatedObjects) {
+            this.errors = errors;
+            this.validatedObjects = validatedObjects;
+        }
+
+        public boolean isTraversing(Errors errors, Set validatedObjects) {
+            return this.errors == errors && this.validatedObjects == validatedObjects;
+        }
+
+        public void schedule(PendingValidation pending) {
+            scheduled.add(pending);
+        }
+
+        /**
+         * Pushes the validations scheduled by the last validated object on the work stack, in reverse order so the
+         * first scheduled validation is done first.
+         */
+        public void pushScheduled() {
+            for (int i = scheduled.size() - 1; i >= 0; i--) {
+                stack.add(scheduled.get(i));
+            }
+            scheduled.clear();
+        }
+
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        public PendingValidation next() {
+            return (PendingValidation) stack.remove(stack.size() - 1);
+        }
+    }
+
+    /**
+     * A scheduled validation of a cascaded object, or of cascaded elements that are validated in parallel, along
+     * with the nested path of the errors under which it is done.
+     */
+    private static class PendingValidation {
+
+        private final Object obj;
+        private final Object[] elements;
+        private final String[] nestedPaths;
+        private final String nestedPath;
+
+        public PendingValidation(Object obj, String nestedPath) {
+            this.obj = obj;
+            this.elements = null;
+            this.nestedPaths = null;
+            this.nestedPath = nestedPath;
+        }
+
+        public PendingValidation(Object[] elements, String[] nestedPaths, String nestedPath) {
+            this.obj = null;
+            this.elements = elements;
+            this.nestedPaths = nestedPaths;
+            this.nestedPath = nestedPath;
+        }
+    }
+
+    /**
+     * The observed cost and failure rate of a global rule or of the rules of a property.
+     */
+    private static class RuleStatistics {
+
+        private long evaluations;
+        private long failures;
+        private long totalTime;
+
+        public synchronized void record(long time, boolean failed) {
+            evaluations++;
+            totalTime += time;
+            if (failed) {
+                failures++;
+            }
+        }
+
+        /**
+         * Returns the (smoothed) failure rate divided by the average evaluation time, so the rules that were never
+         * evaluated come first.
+         */
+        public synchronized double getScore() {
+            double failureRate = (failures + 1.0) / (evaluations + 2.0);
+            double averageTime = (evaluations > 0) ? Math.max(1.0, (double) totalTime / evaluations) : 1.0;
+            return failureRate / averageTime;
+        }
+    }
+
+    /**
+     * Lets the validating thread wait until all the chunks of a collection are validated.
+     */
+    private static class ChunkCompletion {
+
+        private int remainingChunks;
+
+        public ChunkCompletion(int chunkCount) {
+            this.remainingChunks = chunkCount;
+        }
+
+        public synchronized void chunkCompleted() {
+            remainingChunks--;
+            if (remainingChunks == 0) {
+                notifyAll();
+            }
+        }
+
+        public synchronized void await() {
+            boolean interrupted = false;
+            while (remainingChunks > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The validated objects registry of a chunk. It holds the objects validated by the chunk on top of the objects
+     * validated before the chunks were started, which are not modified while the chunks are validated. It also keeps
+     * the range of the errors that were registered for each object validated by the chunk.
+     */
+    private static class LayeredSet extends AbstractSet {
+
+        private final Set parent;
+        private final Set addedObjects = new IdentitySet();
+
+        // the errors registered for each validated object - List<ErrorRange>
+        private final List errorRanges = new ArrayList();
+
+        public LayeredSet(Set parent) {
+            this.parent = parent;
+        }
+
+        public boolean contains(Object o) {
+            return addedObjects.contains(o) || parent.contains(o);
+        }
+
+        public boolean add(Object o) {
+            return !parent.contains(o) && addedObjects.add(o);
+        }
+
+        public Iterator iterator() {
+            return IteratorUtils.unmodifiableIterator(IteratorUtils.chainedIterator(parent.iterator(), addedObjects.iterator()));
+        }
+
+        public int size() {
+            return parent.size() + addedObjects.size();
+        }
+
+        public Set getAddedObjects() {
+            return addedObjects;
+        }
+
+        public void objectValidated(Object obj, int firstError, int endError) {
+            if (endError > firstError) {
+                errorRanges.add(new ErrorRange(obj, firstError, endError));
+            }
+        }
+
+        /**
+         * Returns, for each error of the chunk, whether it was registered for one of the given objects.
+         */
+        public boolean[] findErrorsOf(Set objects, int errorCount) {
+            boolean[] found = new boolean[errorCount];
+            for (Iterator iter = errorRanges.iterator(); iter.hasNext();) {
+                ErrorRange range = (ErrorRange) iter.next();
+                if (objects.contains(range.obj)) {
+                    Arrays.fill(found, range.firstError, range.endError, true);
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * The errors registered by a chunk for a validated object, from the first error index to the end error index.
+     */
+    private static class ErrorRange {
+
+        private final Object obj;
+        private final int firstError;
+        private final int endError;
+
+        public ErrorRange(Object obj, int firstError, int endError) {
+            this.obj = obj;
+            this.firstError = firstError;
+            this.endError = endError;
+        }
+    }
+
 }
@@ -25,6 +25,8 @@ import org.springmodules.validation.bean.rule.DefaultValidationRule;
 import org.springmodules.validation.bean.rule.PropertyValidationRule;
 import org.springmodules.validation.bean.rule.ValidationRule;
 import org.springmodules.validation.util.condition.Condition;
+import org.springmodules.validation.validator.StatisticsCounterCache;
+import org.springmodules.validation.validator.ValidationStatistics;
 
 /**
  * A {@link org.springframework.validation.Validator} implementation which uses {@link org.springmodules.validation.bean.rule.ValidationRule}'s to define its
@@ -40,17 +42,51 @@ import org.springmodules.validation.util.condition.Condition;
  * (i.e. {@link Errors#rejectValue(String, String)}).
  * </li>
  * </ul>
+ * <p/>
+ * By default all the rules are applied. In fail-fast mode (see {@link #setFailFast(boolean)}) the validation stops
+ * at the first registered error. The validation can also be given a budget, as a maximum number of evaluated rules
+ * (see {@link #setMaxRuleEvaluations(int)}) or a maximum duration (see {@link #setMaxValidationTime(long)}). When
+ * the budget is exhausted the validation stops and a global error with the
+ * {@link #setBudgetExceededErrorCode(String) budget exceeded error code} is registered, so the validated object is
+ * never accepted without being fully validated.
+ * <p/>
+ * When given {@link #setStatistics(ValidationStatistics) statistics}, this validator records the count, the failures
+ * and the duration of each rule evaluation and of each validation.
  *
  * @author Uri Boness
  */
 public class RuleBasedValidator implements Validator {
 
+    /**
+     * The default error code registered when the validation budget is exhausted.
+     */
+    public final static String DEFAULT_BUDGET_EXCEEDED_ERROR_CODE = "validation.budget.exceeded";
+
     // a list of global ValidationRule's - List<ValidationRule>
     private List globalRules;
 
     // maps a list of ValidationRule's to propertyNames - Map<String, List<ValidationRule>>
     private Map rulesByProperty;
 
+    private boolean failFast = false;
+
+    private int maxRuleEvaluations = 0;
+
+    private long maxValidationTime = 0;
+
+    private String budgetExceededErrorCode = DEFAULT_BUDGET_EXCEEDED_ERROR_CODE;
+
+    private ValidationStatistics statistics;
+
+    // the statistics counters of the evaluated rules, per class of the validated objects and rule
+    private final StatisticsCounterCache ruleCounters = new StatisticsCounterCache();
+
+    // the statistics counters of the validated classes
+    private final StatisticsCounterCache classCounters = new StatisticsCounterCache();
+
+    // the run of the validation performed by the current thread, if it is tracked - ValidationRun
+    private final ThreadLocal currentValidationRun = new ThreadLocal();
+
     /**
      * Contrusts a new RuleBasedValidator for the given type. After contruction, this validator will initially hold
      * no rules.
@@ -73,16 +109,88 @@ public class RuleBasedValidator implements Validator {
     /**
      * Validates the given object and registers all validation errors with the given errors object. The validation
      * is done by applying all validation rules associated with this validator on the given object.
+     * <p/>
+     * In fail-fast mode, or when the validation has a budget, the validation is tracked by a run that is bound to
+     * the current thread for the duration of this call (see {@link #doValidate(Object, Errors)}).
      *
      * @see org.springframework.validation.Validator#validate(Object, org.springframework.validation.Errors)
      */
     public void validate(Object obj, Errors errors) {
+        ValidationStatistics statistics = this.statistics;
+        if (statistics == null || !statistics.isEnabled() || obj == null || !isValidationRecorded()) {
+            validateInRun(obj, errors);
+            return;
+        }
+        int errorCount = errors.getErrorCount();
+        long start = System.nanoTime();
+        validateInRun(obj, errors);
+        recordValidation(statistics, obj.getClass(), System.nanoTime() - start, errors.getErrorCount() > errorCount);
+    }
+
+    /**
+     * Returns whether {@link #validate(Object, Errors)} records the validation of the given object with the
+     * statistics of this validator. Sub-classes that record each object they validate themselves (see
+     * {@link #recordValidation(ValidationStatistics, Class, long, boolean)}) return <code>false</code>.
+     *
+     * @return <code>true</code> by default.
+     */
+    protected boolean isValidationRecorded() {
+        return true;
+    }
+
+    /**
+     * Records the validation of an object of the given class with the given statistics.
+     *
+     * @param statistics The statistics of this validator.
+     * @param clazz The class of the validated object.
+     * @param time The duration of the validation in nanoseconds.
+     * @param failed Whether the validation registered at least one error.
+     */
+    protected final void recordValidation(ValidationStatistics statistics, Class clazz, long time, boolean failed) {
+        ValidationStatistics.Counter counter = classCounters.getCounter(statistics, null, clazz);
+        if (counter == null) {
+            counter = statistics.getClassCounter(clazz);
+            classCounters.putCounter(statistics, null, clazz, counter);
+        }
+        counter.record(time, failed);
+    }
+
+    private void validateInRun(Object obj, Errors errors) {
+        if (getValidationRun() != null || !(failFast || maxRuleEvaluations > 0 || maxValidationTime > 0)) {
+            doValidate(obj, errors);
+            return;
+        }
+        ValidationRun run = new ValidationRun(failFast, maxRuleEvaluations, maxValidationTime);
+        setValidationRun(run);
+        try {
+            doValidate(obj, errors);
+        } finally {
+            setValidationRun(null);
+        }
+        if (run.isBudgetExceeded()) {
+            errors.reject(budgetExceededErrorCode, null, "Validation budget exceeded");
+        }
+    }
+
+    /**
+     * Applies the validation rules associated with this validator on the given object. Sub-classes that apply their
+     * own rules should call {@link #startRuleEvaluation()} before evaluating each rule and
+     * {@link #errorRegistered()} after registering an error, so they honour the fail-fast mode and the budget.
+     *
+     * @param obj The validated object.
+     * @param errors The {@link Errors} instance where the validation errors will be registered.
+     */
+    protected void doValidate(Object obj, Errors errors) {
 
         // validating using the registered global rules
         for (Iterator iter = globalRules.iterator(); iter.hasNext();) {
             ValidationRule rule = (ValidationRule) iter.next();
-            if (rule.isApplicable(obj) && !rule.getCondition().check(obj)) {
+            if (!startRuleEvaluation()) {
+                return;
+            }
+            if (isViolated(rule, obj, null)) {
                 errors.reject(rule.getErrorCode(), rule.getErrorArguments(obj), rule.getDefaultErrorMessage());
+                errorRegistered();
             }
         }
 
@@ -92,15 +200,168 @@ public class RuleBasedValidator implements Validator {
             List rules = (List) rulesByProperty.get(propertyName);
             for (Iterator iter = rules.iterator(); iter.hasNext();) {
                 ValidationRule rule = (ValidationRule) iter.next();
-                if (rule.isApplicable(obj) && !rule.getCondition().check(obj)) {
+                if (!startRuleEvaluation()) {
+                    return;
+                }
+                if (isViolated(rule, obj, propertyName)) {
                     errors.rejectValue(propertyName, rule.getErrorCode(), rule.getErrorArguments(obj), rule.getDefaultErrorMessage());
+                    errorRegistered();
                 }
             }
         }
     }
 
+    /**
+     * Evaluates the given rule on the given object, recording the evaluation with the statistics of this validator
+     * (if it has any).
+     *
+     * @param rule The evaluated rule.
+     * @param obj The validated object.
+     * @param propertyName The name of the property the rule validates, or <code>null</code> for a global rule.
+     * @return <code>true</code> if the rule applies to the given object and its condition does not hold.
+     */
+    protected final boolean isViolated(ValidationRule rule, Object obj, String propertyName) {
+        ValidationStatistics statistics = this.statistics;
+        if (statistics == null || !statistics.isEnabled()) {
+            return rule.isApplicable(obj) && !rule.getCondition().check(obj);
+        }
+        long start = System.nanoTime();
+        boolean violated = rule.isApplicable(obj) && !rule.getCondition().check(obj);
+        long time = System.nanoTime() - start;
+        Class scope = (obj != null) ? obj.getClass() : null;
+        ValidationStatistics.Counter counter = ruleCounters.getCounter(statistics, scope, rule);
+        if (counter == null) {
+            counter = statistics.getRuleCounter(getRuleName(rule, obj, propertyName));
+            ruleCounters.putCounter(statistics, scope, rule, counter);
+        }
+        counter.record(time, violated);
+        return violated;
+    }
+
+    /**
+     * Returns the name under which the evaluations of the given rule are recorded with the statistics of this
+     * validator. By default, the name is made of the property name (if any) and the error code of the rule. The name
+     * is only resolved on the first evaluation of a rule on an object of a given class, so it should not depend on
+     * anything else than the rule, the class of the object and the property name.
+     *
+     * @param rule The evaluated rule.
+     * @param obj The validated object.
+     * @param propertyName The name of the property the rule validates, or <code>null</code> for a global rule.
+     * @return The name of the rule.
+     */
+    protected String getRuleName(ValidationRule rule, Object obj, String propertyName) {
+        return (propertyName == null) ? rule.getErrorCode() : propertyName + ": " + rule.getErrorCode();
+    }
+
+    /**
+     * Registers the evaluation of a rule with the current validation run.
+     *
+     * @return <code>true</code> if the rule should be evaluated, <code>false</code> if the validation is stopped
+     *         (fail-fast mode) or its budget is exhausted.
+     */
+    protected final boolean startRuleEvaluation() {
+        ValidationRun run = getValidationRun();
+        return run == null || run.startRuleEvaluation();
+    }
+
+    /**
+     * Notifies the current validation run that a validation error was registered.
+     */
+    protected final void errorRegistered() {
+        ValidationRun run = getValidationRun();
+        if (run != null) {
+            run.errorRegistered();
+        }
+    }
+
+    /**
+     * Returns whether the current validation should stop (fail-fast mode or exhausted budget).
+     */
+    protected final boolean isValidationStopped() {
+        ValidationRun run = getValidationRun();
+        return run != null && run.isStopped();
+    }
+
+    ValidationRun getValidationRun() {
+        return (ValidationRun) currentValidationRun.get();
+    }
+
+    void setValidationRun(ValidationRun run) {
+        if (run != null) {
+            currentValidationRun.set(run);
+        } else {
+            currentValidationRun.remove();
+        }
+    }
+
     //====== Setters to support JavaBean based configuration environment (e.g. spring's application context ===========
 
+    /**
+     * Sets whether the validation stops at the first registered error. By default all rules are applied.
+     *
+     * @param failFast Whether the validation stops at the first registered error.
+     */
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /**
+     * Returns whether the validation stops at the first registered error.
+     *
+     * @return <code>true</code> if the validation stops at the first registered error, <code>false</code> otherwise.
+     */
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    /**
+     * Sets the maximum number of rules evaluated by a single validation. By default (0) there is no limit.
+     *
+     * @param maxRuleEvaluations The maximum number of rules evaluated by a single validation.
+     */
+    public void setMaxRuleEvaluations(int maxRuleEvaluations) {
+        this.maxRuleEvaluations = maxRuleEvaluations;
+    }
+
+    /**
+     * Sets the maximum duration of a single validation, in milliseconds. By default (0) there is no limit. The
+     * duration is checked before each rule is evaluated, so a single slow rule is not interrupted.
+     *
+     * @param maxValidationTime The maximum duration of a single validation, in milliseconds.
+     */
+    public void setMaxValidationTime(long maxValidationTime) {
+        this.maxValidationTime = maxValidationTime;
+    }
+
+    /**
+     * Sets the code of the global error registered when the budget of a validation is exhausted. Defaults to
+     * {@link #DEFAULT_BUDGET_EXCEEDED_ERROR_CODE}.
+     *
+     * @param budgetExceededErrorCode The code of the error registered when the budget is exhausted.
+     */
+    public void setBudgetExceededErrorCode(String budgetExceededErrorCode) {
+        this.budgetExceededErrorCode = budgetExceededErrorCode;
+    }
+
+    /**
+     * Sets the statistics with which this validator records its rule evaluations and validations. By default
+     * (<code>null</code>) nothing is recorded.
+     *
+     * @param statistics The statistics with which this validator records its rule evaluations and validations.
+     */
+    public void setStatistics(ValidationStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the statistics with which this validator records its rule evaluations and validations.
+     *
+     * @return The statistics of this validator, or <code>null</code> if nothing is recorded.
+     */
+    public ValidationStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Sets extra global validation rules for this validator.
      *
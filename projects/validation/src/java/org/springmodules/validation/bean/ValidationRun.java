@@ -0,0 +1,94 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.bean;
+
+/**
+ * Tracks a single validation of a {@link RuleBasedValidator} that runs in fail-fast mode or with an evaluation
+ * budget: the number of rules evaluated so far, the deadline of the validation and whether an error was registered.
+ * A run may be shared by the tasks validating the elements of a collection in parallel, hence it is thread-safe.
+ *
+ * @author Uri Boness
+ */
+class ValidationRun {
+
+    private final boolean failFast;
+
+    private final int maxRuleEvaluations;
+
+    private final long deadline;
+
+    private int ruleEvaluations;
+
+    private boolean errorRegistered;
+
+    private boolean budgetExceeded;
+
+    /**
+     * Constructs a new ValidationRun.
+     *
+     * @param failFast Whether the validation stops at the first registered error.
+     * @param maxRuleEvaluations The maximum number of rules to evaluate, or 0 for no limit.
+     * @param maxValidationTime The maximum duration of the validation in milliseconds, or 0 for no limit.
+     */
+    public ValidationRun(boolean failFast, int maxRuleEvaluations, long maxValidationTime) {
+        this.failFast = failFast;
+        this.maxRuleEvaluations = maxRuleEvaluations;
+        this.deadline = (maxValidationTime > 0) ? System.currentTimeMillis() + maxValidationTime : 0;
+    }
+
+    /**
+     * Registers the evaluation of a rule.
+     *
+     * @return <code>true</code> if the rule can be evaluated, <code>false</code> if the validation is stopped or
+     *         its budget is exhausted.
+     */
+    public synchronized boolean startRuleEvaluation() {
+        if (isStopped()) {
+            return false;
+        }
+        if ((maxRuleEvaluations > 0 && ruleEvaluations >= maxRuleEvaluations) ||
+            (deadline > 0 && System.currentTimeMillis() > deadline)) {
+            budgetExceeded = true;
+            return false;
+        }
+        ruleEvaluations++;
+        return true;
+    }
+
+    /**
+     * Registers that a validation error was registered.
+     */
+    public synchronized void errorRegistered() {
+        errorRegistered = true;
+    }
+
+    /**
+     * Returns whether the validation should stop, either because an error was registered in fail-fast mode or
+     * because the budget of the validation is exhausted.
+     */
+    public synchronized boolean isStopped() {
+        return budgetExceeded || (failFast && errorRegistered);
+    }
+
+    /**
+     * Returns whether the validation was stopped because its budget was exhausted.
+     */
+    public synchronized boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+}
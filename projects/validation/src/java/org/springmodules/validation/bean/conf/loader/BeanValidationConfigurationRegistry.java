@@ -0,0 +1,117 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.bean.conf.loader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springmodules.validation.bean.conf.BeanValidationConfiguration;
+
+/**
+ * A thread-safe registry of bean validation configurations by class, used by the configuration loaders to cache the
+ * configurations they load. Lookups never lock: the registrations replace the underlying map with an updated copy
+ * (copy on write), which suits registries that are mostly filled once and then read by every validation.
+ * <p/>
+ * A class can be registered with a <code>null</code> configuration to indicate that it has no configuration.
+ *
+ * @author Uri Boness
+ */
+public class BeanValidationConfigurationRegistry {
+
+    private volatile Map configurationByClass = new HashMap();
+
+    private final Object lock = new Object();
+
+    /**
+     * Returns whether the given class is registered with this registry (possibly with a <code>null</code>
+     * configuration).
+     *
+     * @param clazz The class to look for.
+     * @return <code>true</code> if the given class is registered, <code>false</code> otherwise.
+     */
+    public boolean contains(Class clazz) {
+        return configurationByClass.containsKey(clazz);
+    }
+
+    /**
+     * Returns the configuration registered with the given class.
+     *
+     * @param clazz The class of which the configuration is requested.
+     * @return The configuration registered with the given class, or <code>null</code> if none is registered.
+     */
+    public BeanValidationConfiguration get(Class clazz) {
+        return (BeanValidationConfiguration) configurationByClass.get(clazz);
+    }
+
+    /**
+     * Registers the given configuration with the given class, replacing any previously registered configuration.
+     *
+     * @param clazz The class to which the configuration is associated.
+     * @param configuration The configuration to register.
+     */
+    public void register(Class clazz, BeanValidationConfiguration configuration) {
+        synchronized (lock) {
+            Map newConfigurationByClass = new HashMap(configurationByClass);
+            newConfigurationByClass.put(clazz, configuration);
+            configurationByClass = newConfigurationByClass;
+        }
+    }
+
+    /**
+     * Registers the given configuration with the given class, unless a configuration was registered for that class in
+     * the meantime, in which case the registered configuration is kept. Loaders that create configurations lazily use
+     * this method so concurrent first loads of a class all end up with the same configuration.
+     *
+     * @param clazz The class to which the configuration is associated.
+     * @param configuration The configuration to register.
+     * @return The configuration registered with the given class after this call.
+     */
+    public BeanValidationConfiguration registerIfAbsent(Class clazz, BeanValidationConfiguration configuration) {
+        synchronized (lock) {
+            if (configurationByClass.containsKey(clazz)) {
+                return (BeanValidationConfiguration) configurationByClass.get(clazz);
+            }
+            Map newConfigurationByClass = new HashMap(configurationByClass);
+            newConfigurationByClass.put(clazz, configuration);
+            configurationByClass = newConfigurationByClass;
+            return configuration;
+        }
+    }
+
+    /**
+     * Registers all the given configurations at once.
+     *
+     * @param configurations The configurations to register, mapped by their associated classes.
+     */
+    public void registerAll(Map configurations) {
+        synchronized (lock) {
+            Map newConfigurationByClass = new HashMap(configurationByClass);
+            newConfigurationByClass.putAll(configurations);
+            configurationByClass = newConfigurationByClass;
+        }
+    }
+
+    /**
+     * Returns the number of classes registered with this registry.
+     *
+     * @return The number of classes registered with this registry.
+     */
+    public int size() {
+        return configurationByClass.size();
+    }
+
+}
@@ -16,35 +16,33 @@
 
 package org.springmodules.validation.bean.conf.loader;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.springmodules.validation.bean.conf.BeanValidationConfiguration;
 
 /**
  * A simple implementation of {@link BeanValidationConfigurationLoader} that enables registration of bean validation
  * configuration with classes.
  * <p/>
- * This class can be used on its own or can be extended and used as configuration cache.
+ * This class can be used on its own or can be extended and used as configuration cache. The configurations are held
+ * in a thread-safe {@link BeanValidationConfigurationRegistry}, so classes can be registered while validating.
  *
  * @author Uri Boness
  */
 public class SimpleBeanValidationConfigurationLoader implements BeanValidationConfigurationLoader {
 
-    private Map configurationByClass;
+    private BeanValidationConfigurationRegistry configurationRegistry;
 
     /**
      * Constructs a new SimpleBeanValidationConfigurationLoader.
      */
     public SimpleBeanValidationConfigurationLoader() {
-        configurationByClass = new HashMap();
+        configurationRegistry = new BeanValidationConfigurationRegistry();
     }
 
     /**
      * @see BeanValidationConfigurationLoader#supports(Class)
      */
     public boolean supports(Class clazz) {
-        return configurationByClass.containsKey(clazz);
+        return configurationRegistry.contains(clazz);
     }
 
     /**
@@ -55,10 +53,10 @@ public class SimpleBeanValidationConfigurationLoader implements BeanValidationCo
      * @return The validation configuration that is associated with the given class.
      */
     public BeanValidationConfiguration loadConfiguration(Class clazz) {
-        while (clazz != null && !configurationByClass.containsKey(clazz)) {
+        while (clazz != null && !configurationRegistry.contains(clazz)) {
             clazz = clazz.getSuperclass();
         }
-        return (clazz != null) ? (BeanValidationConfiguration) configurationByClass.get(clazz) : null;
+        return (clazz != null) ? configurationRegistry.get(clazz) : null;
     }
 
     /**
@@ -68,7 +66,7 @@ public class SimpleBeanValidationConfigurationLoader implements BeanValidationCo
      * @param configuration The bean validation configuration to associate with the given class.
      */
     public void setClassValidation(Class clazz, BeanValidationConfiguration configuration) {
-        configurationByClass.put(clazz, configuration);
+        configurationRegistry.register(clazz, configuration);
     }
 
 }
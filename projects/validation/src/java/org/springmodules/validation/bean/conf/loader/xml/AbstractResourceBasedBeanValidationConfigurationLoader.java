@@ -16,7 +16,6 @@
 
 package org.springmodules.validation.bean.conf.loader.xml;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -27,10 +26,16 @@ import org.springframework.core.io.Resource;
 import org.springframework.util.ClassUtils;
 import org.springmodules.validation.bean.conf.BeanValidationConfiguration;
 import org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader;
+import org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationRegistry;
 
 /**
  * A base class for all bean validation configuration loaders that are resource based (that is, load configuration from
  * files, urls, etc...)
+ * <p/>
+ * The loaded configurations are kept in a thread-safe {@link BeanValidationConfigurationRegistry}. The default
+ * configuration of a class (see {@link #loadDefaultConfiguration(Class)}) is loaded the first time the class is
+ * validated, unless the class is listed in the preloaded classes, in which case it is loaded when this loader is
+ * initialized.
  *
  * @author Uri Boness
  */
@@ -41,10 +46,12 @@ public abstract class AbstractResourceBasedBeanValidationConfigurationLoader
 
     private final static String DEFAULT_RESOURCE_EXTENTION = ".vld.xml";
 
-    private Map configurationByClass;
+    private BeanValidationConfigurationRegistry configurationRegistry;
 
     private Resource[] resources;
 
+    private Class[] preloadedClasses;
+
     /**
      * Constructs a new AbstractResourceBasedBeanValidationConfigurationLoader.
      */
@@ -59,7 +66,8 @@ public abstract class AbstractResourceBasedBeanValidationConfigurationLoader
      */
     public AbstractResourceBasedBeanValidationConfigurationLoader(Resource[] resources) {
         this.resources = resources;
-        configurationByClass = new HashMap();
+        this.preloadedClasses = new Class[0];
+        configurationRegistry = new BeanValidationConfigurationRegistry();
     }
 
     /**
@@ -68,8 +76,8 @@ public abstract class AbstractResourceBasedBeanValidationConfigurationLoader
      * @see org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader#loadConfiguration(Class)
      */
     public final BeanValidationConfiguration loadConfiguration(Class clazz) {
-        BeanValidationConfiguration configuration = (BeanValidationConfiguration) configurationByClass.get(clazz);
-        if (configuration != null) {
+        BeanValidationConfiguration configuration = configurationRegistry.get(clazz);
+        if (configuration != null || configurationRegistry.contains(clazz)) {
             return configuration;
         }
         return loadDefaultConfiguration(clazz);
@@ -81,7 +89,7 @@ public abstract class AbstractResourceBasedBeanValidationConfigurationLoader
      * @see BeanValidationConfigurationLoader#supports(Class)
      */
     public final boolean supports(Class clazz) {
-        return configurationByClass.get(clazz) != null;
+        return configurationRegistry.get(clazz) != null;
     }
 
     /**
@@ -90,7 +98,10 @@ public abstract class AbstractResourceBasedBeanValidationConfigurationLoader
     public void afterPropertiesSet() throws Exception {
         for (int i = 0; i < resources.length; i++) {
             Map configurations = loadConfigurations(resources[i]);
-            configurationByClass.putAll(configurations);
+            configurationRegistry.registerAll(configurations);
+        }
+        for (int i = 0; i < preloadedClasses.length; i++) {
+            loadConfiguration(preloadedClasses[i]);
         }
     }
 
@@ -142,11 +153,22 @@ public abstract class AbstractResourceBasedBeanValidationConfigurationLoader
         setResources(new Resource[]{resource});
     }
 
+    /**
+     * Sets the classes whose default configurations will be loaded when this loader is initialized rather than the
+     * first time they are validated.
+     *
+     * @param preloadedClasses The classes whose default configurations will be loaded on initialization.
+     */
+    public void setPreloadedClasses(Class[] preloadedClasses) {
+        this.preloadedClasses = preloadedClasses;
+    }
+
     //=============================================== Helper Methods ===================================================
 
     /**
      * Loads the default validation configuration for the given class, caches it and returns it. The configuration
      * resource for the given class is resolved by the {@link #createDefaultConfigurationFileName(Class)} method.
+     * A class without default configuration is cached as well, so its resource is only looked up once.
      *
      * @param clazz The class for which the default configuration should be loaded.
      * @return The default validation configuration of the given class.
@@ -156,12 +178,11 @@ public abstract class AbstractResourceBasedBeanValidationConfigurationLoader
         Resource resource = new ClassPathResource(fileName, clazz);
         if (resource.exists()) {
             Map configurationByClass = loadConfigurations(resource);
-            this.configurationByClass.putAll(configurationByClass);
+            configurationRegistry.registerAll(configurationByClass);
             return (BeanValidationConfiguration) configurationByClass.get(clazz);
         }
         logger.warn("Could not find the default validation configuration for class '" + clazz.getName() + "'");
-        this.configurationByClass.put(clazz, null);
-        return null;
+        return configurationRegistry.registerIfAbsent(clazz, null);
     }
 
     /**
@@ -19,11 +19,11 @@ package org.springmodules.validation.bean.rule;
 import java.beans.PropertyDescriptor;
 
 import org.springframework.beans.BeanUtils;
-import org.springframework.beans.BeanWrapperImpl;
 import org.springmodules.validation.util.condition.AbstractCondition;
 import org.springmodules.validation.util.condition.Condition;
 import org.springmodules.validation.util.condition.Conditions;
 import org.springmodules.validation.bean.context.ValidationContextUtils;
+import org.springmodules.validation.util.lang.PropertyPathAccessor;
 
 /**
  * A {@link ValidationRule} implementation that wraps another validation rule and is associated with a specific
@@ -149,7 +149,7 @@ public class PropertyValidationRule implements ValidationRule {
             if (propertyDescriptor == null) {
                 return false;
             }
-            Object value = new BeanWrapperImpl(obj).getPropertyValue(propertyName);
+            Object value = PropertyPathAccessor.getPropertyValue(obj, propertyName);
             return rule.isApplicable(value);
         }
 
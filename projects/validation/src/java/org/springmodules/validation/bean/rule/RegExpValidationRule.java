@@ -29,16 +29,17 @@ public class RegExpValidationRule extends AbstractValidationRule {
 
     public final static String DEFAULT_ERROR_CODE = "regexp";
 
-    private String expression;
+    private final Condition condition;
 
     /**
-     * Constructs a new RegExpValidationRule with a given regular expression.
+     * Constructs a new RegExpValidationRule with a given regular expression. The expression is compiled once, when the
+     * rule is constructed.
      *
      * @param expression The given regular expression.
      */
     public RegExpValidationRule(String expression) {
         super(DEFAULT_ERROR_CODE, createErrorArgumentsResolver(expression));
-        this.expression = expression;
+        this.condition = Conditions.regexp(expression);
     }
 
     /**
@@ -47,7 +48,7 @@ public class RegExpValidationRule extends AbstractValidationRule {
      * @see org.springmodules.validation.bean.rule.AbstractValidationRule#getCondition()
      */
     public Condition getCondition() {
-        return Conditions.regexp(expression);
+        return condition;
     }
 
     public static String getDefaultErrorCode() {
@@ -17,16 +17,19 @@
 package org.springmodules.validation.commons;
 
 import java.io.Serializable;
-import java.io.StringReader;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import antlr.ANTLRException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.commons.validator.*;
 import org.apache.commons.validator.util.ValidatorUtils;
 import org.springframework.validation.Errors;
-import org.springmodules.validation.commons.validwhen.ValidWhenLexer;
-import org.springmodules.validation.commons.validwhen.ValidWhenParser;
+import org.springmodules.validation.commons.validwhen.ValidWhenExpression;
 
 /**
  * This class contains the default validations that are used in the validator-rules.xml file.
@@ -55,6 +58,11 @@ public class FieldChecks implements Serializable {
 
     public static final String FIELD_TEST_EQUAL = "EQUAL";
 
+    /**
+     * The compiled <code>validwhen</code> tests by field definition - Map&lt;Field, CompiledValidWhen&gt;.
+     */
+    private static final Map validWhenExpressions = Collections.synchronizedMap(new WeakHashMap());
+
     /**
      * Checks if the field isn't null and length of the field is greater than zero not including whitespace.
      *
@@ -765,39 +773,8 @@ public class FieldChecks implements Serializable {
             return false;
         }
 
-        // Create the Lexer
-        ValidWhenLexer lexer = null;
-        try {
-            lexer = new ValidWhenLexer(new StringReader(test));
-        } catch (Exception ex) {
-            String msg = "ValidWhenLexer Error for field ' " + field.getKey() + "' - " + ex;
-            errors.rejectValue(field.getKey(), msg);
-            log.error(msg);
-            log.debug(msg, ex);
-            return false;
-        }
-
-        // Create the Parser
-        ValidWhenParser parser = null;
-        try {
-            parser = new ValidWhenParser(lexer);
-        } catch (Exception ex) {
-            String msg = "ValidWhenParser Error for field ' " + field.getKey() + "' - " + ex;
-            errors.rejectValue(field.getKey(), msg);
-            log.error(msg);
-            log.debug(msg, ex);
-            return false;
-        }
-
-
-        parser.setForm(form);
-        parser.setIndex(index);
-        parser.setValue(value);
-
         try {
-            parser.expression();
-            valid = parser.getResult();
-
+            valid = getValidWhenExpression(field, test).evaluate(form, index, value);
         } catch (Exception ex) {
             String msg = "ValidWhen Error for field ' " + field.getKey() + "' - " + ex;
             errors.rejectValue(field.getKey(), msg);
@@ -815,6 +792,25 @@ public class FieldChecks implements Serializable {
         return true;
     }
 
+    /**
+     * Returns the compiled <code>validwhen</code> test of the given field. The test is compiled once per field
+     * definition and cached for as long as the field definition (and so the <code>ValidatorResources</code> it
+     * belongs to) is in use.
+     *
+     * @param field The field definition.
+     * @param test The <code>validwhen</code> test of the field.
+     * @return The compiled test.
+     * @throws ANTLRException when the test is not a valid expression.
+     */
+    static ValidWhenExpression getValidWhenExpression(Field field, String test) throws ANTLRException {
+        CompiledValidWhen compiled = (CompiledValidWhen) validWhenExpressions.get(field);
+        if (compiled == null || !compiled.test.equals(test)) {
+            compiled = new CompiledValidWhen(test, ValidWhenExpression.compile(test));
+            validWhenExpressions.put(field, compiled);
+        }
+        return compiled.expression;
+    }
+
     /**
      * Extracts the value of the given bean. If the bean is <code>null</code>, the returned value is also <code>null</code>.
      * If the bean is a <code>String</code> then the bean itself is returned. In all other cases, the <code>ValidatorUtils</code>
@@ -868,4 +864,20 @@ public class FieldChecks implements Serializable {
     private static boolean isString(Object obj) {
         return (obj == null) ? true : String.class.isInstance(obj);
     }
+
+    /**
+     * A compiled <code>validwhen</code> test along with the test it was compiled from.
+     */
+    private static class CompiledValidWhen {
+
+        private final String test;
+
+        private final ValidWhenExpression expression;
+
+        public CompiledValidWhen(String test, ValidWhenExpression expression) {
+            this.test = test;
+            this.expression = expression;
+        }
+    }
+
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.commons.validwhen;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import antlr.ANTLRException;
+import org.apache.commons.validator.util.ValidatorUtils;
+
+/**
+ * A compiled <code>validwhen</code> test expression. The {@link ValidWhenParser} builds the expression while parsing
+ * the test, after which the expression can be evaluated any number of times, against different forms, by several
+ * threads at once, without lexing or parsing the test again.
+ *
+ * @author Uri Boness
+ */
+public abstract class ValidWhenExpression {
+
+    static final int LESS_EQUAL = 0;
+
+    static final int LESS_THAN = 1;
+
+    static final int EQUAL = 2;
+
+    static final int GREATER_THAN = 3;
+
+    static final int GREATER_EQUAL = 4;
+
+    static final int NOT_EQUAL = 5;
+
+    static final int AND = 6;
+
+    static final int OR = 7;
+
+    /**
+     * Compiles the given <code>validwhen</code> test expression.
+     *
+     * @param test The test expression.
+     * @return The compiled expression.
+     * @throws ANTLRException when the given test is not a valid expression.
+     */
+    public static ValidWhenExpression compile(String test) throws ANTLRException {
+        ValidWhenParser parser = new ValidWhenParser(new ValidWhenLexer(new StringReader(test)));
+        parser.expression();
+        return parser.getExpression();
+    }
+
+    /**
+     * Evaluates this expression.
+     *
+     * @param form The form (bean) of which the fields are referenced by the expression.
+     * @param index The index of the validated field (if it is an indexed field), <code>-1</code> otherwise.
+     * @param value The value of the validated field (referenced as <code>*this*</code>).
+     * @return Whether the expression holds.
+     */
+    public abstract boolean evaluate(Object form, int index, String value);
+
+    //=============================================== Operands =========================================================
+
+    /**
+     * A value that is compared by an expression.
+     */
+    static abstract class Operand {
+
+        abstract Object getValue(Object form, int index, String value);
+    }
+
+    /**
+     * A literal value (number, string or <code>null</code>).
+     */
+    static class Literal extends Operand {
+
+        private final Object literal;
+
+        Literal(Object literal) {
+            this.literal = literal;
+        }
+
+        Object getValue(Object form, int index, String value) {
+            return literal;
+        }
+    }
+
+    /**
+     * The value of the validated field (<code>*this*</code>).
+     */
+    static class ThisValue extends Operand {
+
+        Object getValue(Object form, int index, String value) {
+            return value;
+        }
+    }
+
+    /**
+     * A field of the form. The path of a field that refers to the index of the validated field (e.g.
+     * <code>items[].name</code>) is completed with that index on evaluation.
+     */
+    static class FieldValue extends Operand {
+
+        private final String path;
+
+        private final String indexedPathSuffix;
+
+        /**
+         * Creates the operand of the field of the given path.
+         */
+        FieldValue(String path) {
+            this(path, null);
+        }
+
+        /**
+         * Creates the operand of the field of the path made of the given prefix, the index of the validated field
+         * and the given suffix, unless the suffix is <code>null</code>.
+         */
+        FieldValue(String path, String indexedPathSuffix) {
+            this.path = path;
+            this.indexedPathSuffix = indexedPathSuffix;
+        }
+
+        Object getValue(Object form, int index, String value) {
+            String fieldPath = (indexedPathSuffix == null) ? path : path + "[" + index + "]" + indexedPathSuffix;
+            return ValidatorUtils.getValueAsString(form, fieldPath);
+        }
+    }
+
+    //============================================== Expressions =======================================================
+
+    /**
+     * A comparison of two operands.
+     */
+    static class Comparison extends ValidWhenExpression {
+
+        private final Operand left;
+
+        private final int operator;
+
+        private final Operand right;
+
+        Comparison(Operand left, int operator, Operand right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        public boolean evaluate(Object form, int index, String value) {
+            return compare(left.getValue(form, index, value), operator, right.getValue(form, index, value));
+        }
+
+        private static boolean compare(Object v1, int operator, Object v2) {
+            if ((v1 == null) || (v2 == null)) {
+                if ((v1 instanceof String) && ((String) v1).length() == 0) {
+                    v1 = null;
+                }
+                if ((v2 instanceof String) && ((String) v2).length() == 0) {
+                    v2 = null;
+                }
+                switch (operator) {
+                    case LESS_EQUAL:
+                    case GREATER_THAN:
+                    case LESS_THAN:
+                    case GREATER_EQUAL:
+                        return false;
+                    case EQUAL:
+                        return (v1 == v2);
+                    case NOT_EQUAL:
+                        return (v1 != v2);
+                }
+            }
+
+            if ((v1 instanceof BigDecimal || v1 instanceof String) && (v2 instanceof BigDecimal || v2 instanceof String)) {
+                try {
+                    BigDecimal number1 = (v1 instanceof BigDecimal) ? (BigDecimal) v1 : new BigDecimal((String) v1);
+                    BigDecimal number2 = (v2 instanceof BigDecimal) ? (BigDecimal) v2 : new BigDecimal((String) v2);
+                    return holds(operator, number1.compareTo(number2));
+                } catch (NumberFormatException ex) {
+                    // comparing the values as strings
+                }
+            }
+
+            return holds(operator, String.valueOf(v1).compareTo(String.valueOf(v2)));
+        }
+
+        private static boolean holds(int operator, int compareResult) {
+            switch (operator) {
+                case LESS_EQUAL:
+                    return (compareResult <= 0);
+                case LESS_THAN:
+                    return (compareResult < 0);
+                case EQUAL:
+                    return (compareResult == 0);
+                case GREATER_THAN:
+                    return (compareResult > 0);
+                case GREATER_EQUAL:
+                    return (compareResult >= 0);
+                case NOT_EQUAL:
+                    return (compareResult != 0);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Two expressions joined by <code>and</code> or <code>or</code>.
+     */
+    static class Join extends ValidWhenExpression {
+
+        private final ValidWhenExpression left;
+
+        private final boolean and;
+
+        private final ValidWhenExpression right;
+
+        Join(ValidWhenExpression left, boolean and, ValidWhenExpression right) {
+            this.left = left;
+            this.and = and;
+            this.right = right;
+        }
+
+        public boolean evaluate(Object form, int index, String value) {
+            if (and) {
+                return left.evaluate(form, index, value) && right.evaluate(form, index, value);
+            }
+            return left.evaluate(form, index, value) || right.evaluate(form, index, value);
+        }
+    }
+
+}
@@ -27,7 +27,6 @@ import java.util.Stack;
 
 import antlr.*;
 import antlr.collections.impl.BitSet;
-import org.apache.commons.validator.util.ValidatorUtils;
 
 public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserTokenTypes {
 
@@ -58,125 +57,28 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
     ;
 
     public boolean getResult() {
-        return ((Boolean) argStack.peek()).booleanValue();
+        return getExpression().evaluate(form, index, value);
     }
 
-    private final int LESS_EQUAL = 0;
-
-    private final int LESS_THAN = 1;
-
-    private final int EQUAL = 2;
-
-    private final int GREATER_THAN = 3;
-
-    private final int GREATER_EQUAL = 4;
-
-    private final int NOT_EQUAL = 5;
-
-    private final int AND = 6;
-
-    private final int OR = 7;
-
-    private boolean evaluateComparison(Object v1, Object compare, Object v2) {
-        if ((v1 == null) || (v2 == null)) {
-            if (String.class.isInstance(v1)) {
-                if (((String) v1).length() == 0) {
-                    v1 = null;
-                }
-            }
-            if (String.class.isInstance(v2)) {
-                if (((String) v2).length() == 0) {
-                    v2 = null;
-                }
-            }
-            switch (((Integer) compare).intValue()) {
-                case LESS_EQUAL:
-                case GREATER_THAN:
-                case LESS_THAN:
-                case GREATER_EQUAL:
-                    return false;
-                case EQUAL:
-                    return (v1 == v2);
-                case NOT_EQUAL:
-                    return (v1 != v2);
-            }
-        }
-
-        boolean numberCompare = true;
-        if ((BigDecimal.class.isInstance(v1) || String.class.isInstance(v1)) &&
-            (BigDecimal.class.isInstance(v2) || String.class.isInstance(v2))) {
-            numberCompare = true;
-        } else {
-            numberCompare = false;
-        }
-
-        if (numberCompare) {
-            try {
-                BigDecimal number1, number2;
-                if (BigDecimal.class.isInstance(v1)) {
-                    number1 = (BigDecimal) v1;
-                } else {
-                    number1 = new BigDecimal((String) v1);
-                }
-                if (BigDecimal.class.isInstance(v2)) {
-                    number2 = (BigDecimal) v2;
-                } else {
-                    number2 = new BigDecimal((String) v2);
-                }
-                int compareResult = number1.compareTo(number2);
-
-                switch (((Integer) compare).intValue()) {
-                    case LESS_EQUAL:
-                        return (compareResult <= 0);
-
-                    case LESS_THAN:
-                        return (compareResult < 0);
-
-                    case EQUAL:
-                        return (compareResult == 0);
-
-                    case GREATER_THAN:
-                        return (compareResult > 0);
-
-                    case GREATER_EQUAL:
-                        return (compareResult >= 0);
-
-                    case NOT_EQUAL:
-                        return (compareResult != 0);
-                }
-            } catch (NumberFormatException ex) {
-            }
-            ;
-        }
-
-        String string1 = String.valueOf(v1);
-        String string2 = String.valueOf(v2);
-
-        int res = string1.compareTo(string2);
+    public ValidWhenExpression getExpression() {
+        return (ValidWhenExpression) argStack.peek();
+    }
 
-        switch (((Integer) compare).intValue()) {
-            case LESS_EQUAL:
-                return (res <= 0);
+    private final int LESS_EQUAL = ValidWhenExpression.LESS_EQUAL;
 
-            case LESS_THAN:
-                return (res < 0);
+    private final int LESS_THAN = ValidWhenExpression.LESS_THAN;
 
-            case EQUAL:
-                return (res == 0);
+    private final int EQUAL = ValidWhenExpression.EQUAL;
 
-            case GREATER_THAN:
-                return (res > 0);
+    private final int GREATER_THAN = ValidWhenExpression.GREATER_THAN;
 
-            case GREATER_EQUAL:
-                return (res >= 0);
+    private final int GREATER_EQUAL = ValidWhenExpression.GREATER_EQUAL;
 
-            case NOT_EQUAL:
-                return (res != 0);
-        }
+    private final int NOT_EQUAL = ValidWhenExpression.NOT_EQUAL;
 
-        return true;
-    }
+    private final int AND = ValidWhenExpression.AND;
 
+    private final int OR = ValidWhenExpression.OR;
 
     protected ValidWhenParser(TokenBuffer tokenBuf, int k) {
         super(tokenBuf, k);
@@ -254,7 +156,7 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
 
             Object i2 = argStack.pop();
             Object i1 = argStack.pop();
-            argStack.push(ValidatorUtils.getValueAsString(form, i1 + "[" + index + "]" + i2));
+            argStack.push(new ValidWhenExpression.FieldValue((String) i1, (String) i2));
 
         } else
         if ((LA(1) == IDENTIFIER) && (LA(2) == LBRACKET) && (LA(3) == DECIMAL_LITERAL || LA(3) == HEX_LITERAL) && (LA(4) == RBRACKET) && (LA(5) == IDENTIFIER))
@@ -268,7 +170,7 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
             Object i5 = argStack.pop();
             Object i4 = argStack.pop();
             Object i3 = argStack.pop();
-            argStack.push(ValidatorUtils.getValueAsString(form, i3 + "[" + i4 + "]" + i5));
+            argStack.push(new ValidWhenExpression.FieldValue(i3 + "[" + i4 + "]" + i5));
 
         } else
         if ((LA(1) == IDENTIFIER) && (LA(2) == LBRACKET) && (LA(3) == DECIMAL_LITERAL || LA(3) == HEX_LITERAL) && (LA(4) == RBRACKET) && (LA(5) == LBRACKET))
@@ -281,7 +183,7 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
 
             Object i7 = argStack.pop();
             Object i6 = argStack.pop();
-            argStack.push(ValidatorUtils.getValueAsString(form, i6 + "[" + i7 + "]"));
+            argStack.push(new ValidWhenExpression.FieldValue(i6 + "[" + i7 + "]"));
 
         } else if ((LA(1) == IDENTIFIER) && (LA(2) == LBRACKET) && (LA(3) == RBRACKET) && (_tokenSet_0.member(LA(4)))) {
             identifier();
@@ -289,13 +191,13 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
             match(RBRACKET);
 
             Object i8 = argStack.pop();
-            argStack.push(ValidatorUtils.getValueAsString(form, i8 + "[" + index + "]"));
+            argStack.push(new ValidWhenExpression.FieldValue((String) i8, ""));
 
         } else if ((LA(1) == IDENTIFIER) && (_tokenSet_0.member(LA(2)))) {
             identifier();
 
             Object i9 = argStack.pop();
-            argStack.push(ValidatorUtils.getValueAsString(form, (String) i9));
+            argStack.push(new ValidWhenExpression.FieldValue((String) i9));
 
         } else {
             throw new NoViableAltException(LT(1), getFilename());
@@ -310,20 +212,22 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
             case DECIMAL_LITERAL:
             case HEX_LITERAL: {
                 number();
+                argStack.push(new ValidWhenExpression.Literal(argStack.pop()));
                 break;
             }
             case STRING_LITERAL: {
                 string();
+                argStack.push(new ValidWhenExpression.Literal(argStack.pop()));
                 break;
             }
             case LITERAL_null: {
                 match(LITERAL_null);
-                argStack.push(null);
+                argStack.push(new ValidWhenExpression.Literal(null));
                 break;
             }
             case THIS: {
                 match(THIS);
-                argStack.push(value);
+                argStack.push(new ValidWhenExpression.ThisValue());
                 break;
             }
             default: {
@@ -388,7 +292,8 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
         Object v2 = argStack.pop();
         Object comp = argStack.pop();
         Object v1 = argStack.pop();
-        argStack.push(new Boolean(evaluateComparison(v1, comp, v2)));
+        argStack.push(new ValidWhenExpression.Comparison((ValidWhenExpression.Operand) v1, ((Integer) comp).intValue(),
+            (ValidWhenExpression.Operand) v2));
 
     }
 
@@ -399,14 +304,10 @@ public class ValidWhenParser extends antlr.LLkParser implements ValidWhenParserT
         join();
         expr();
 
-        Boolean v1 = (Boolean) argStack.pop();
+        ValidWhenExpression v1 = (ValidWhenExpression) argStack.pop();
         Integer join = (Integer) argStack.pop();
-        Boolean v2 = (Boolean) argStack.pop();
-        if (join.intValue() == AND) {
-            argStack.push(new Boolean(v1.booleanValue() && v2.booleanValue()));
-        } else {
-            argStack.push(new Boolean(v1.booleanValue() || v2.booleanValue()));
-        }
+        ValidWhenExpression v2 = (ValidWhenExpression) argStack.pop();
+        argStack.push(new ValidWhenExpression.Join(v2, join.intValue() == AND, v1));
 
     }
 
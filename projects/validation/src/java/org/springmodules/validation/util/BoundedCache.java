@@ -0,0 +1,131 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe cache that holds up to a maximum number of entries. When the cache is full, the least recently used
+ * entry is evicted. It is the storage of the caches that are shared by all the validators (see {@link ExpressionCache}
+ * and {@link PatternCache}), so their size stays bounded whatever the number of expressions they see.
+ *
+ * @author Uri Boness
+ */
+public class BoundedCache {
+
+    private volatile int maxSize;
+
+    // Map<Object, Object>, in access order
+    private final Map entries = Collections.synchronizedMap(new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > maxSize;
+        }
+    });
+
+    /**
+     * Constructs a new BoundedCache.
+     *
+     * @param maxSize The maximum number of cached entries.
+     */
+    public BoundedCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the value cached for the given key.
+     *
+     * @param key The key of the value.
+     * @return The cached value, or <code>null</code> if no value is cached for the given key.
+     */
+    public Object get(Object key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches the given value for the given key, replacing the value that is cached for the key (if any).
+     *
+     * @param key The key of the value.
+     * @param value The value to cache.
+     */
+    public void put(Object key, Object value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Caches the given value for the given key, unless a value is already cached for the key, in which case the
+     * cached value is kept.
+     *
+     * @param key The key of the value.
+     * @param value The value to cache.
+     * @return The value that is cached for the given key after this call.
+     */
+    public Object putIfAbsent(Object key, Object value) {
+        synchronized (entries) {
+            Object cachedValue = entries.get(key);
+            if (cachedValue != null) {
+                return cachedValue;
+            }
+            entries.put(key, value);
+            return value;
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached entries, evicting the least recently used entries that exceed it.
+     *
+     * @param maxSize The maximum number of cached entries.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of the cache must be positive");
+        }
+        synchronized (entries) {
+            this.maxSize = maxSize;
+            Iterator iter = entries.keySet().iterator();
+            for (int size = entries.size(); size > maxSize; size--) {
+                iter.next();
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached entries.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all the cached entries.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.util;
+
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A cache of parsed condition and function expressions that is shared by all the expression parsers (and so by all
+ * the validation configuration loaders that use them). The parsed expressions are cached by the expression text and a
+ * parser key, which identifies the parser type and the parser configuration the result depends on (typically the
+ * name of the parser class). Only parsers that produce immutable, thread-safe results should use this cache. Since the
+ * cache is static, neither the parser keys nor the cached results should refer to the parsers that created them or
+ * to their classes, so the cache does not keep parsers (and the application contexts and class loaders they depend
+ * on) alive. When the cache is full, the least recently used expression is evicted.
+ *
+ * @author Uri Boness
+ */
+public class ExpressionCache {
+
+    /**
+     * The default maximum number of cached expressions.
+     */
+    public final static int DEFAULT_MAX_SIZE = 1000;
+
+    // BoundedCache<Key, Object>
+    private final static BoundedCache parsedExpressions = new BoundedCache(DEFAULT_MAX_SIZE);
+
+    /**
+     * Returns the parsed expression cached for the given parser key and expression.
+     *
+     * @param parserKey The key that identifies the parser of the expression.
+     * @param expression The expression text.
+     * @return The cached parsed expression, or <code>null</code> if the expression was not parsed yet.
+     */
+    public static Object get(Object parserKey, String expression) {
+        return parsedExpressions.get(new Key(parserKey, expression));
+    }
+
+    /**
+     * Caches the given parsed expression, unless an expression was cached for the same parser key and expression
+     * text in the meantime, in which case the cached expression is kept.
+     *
+     * @param parserKey The key that identifies the parser of the expression.
+     * @param expression The expression text.
+     * @param parsedExpression The parsed expression.
+     * @return The parsed expression that is cached after this call.
+     */
+    public static Object register(Object parserKey, String expression, Object parsedExpression) {
+        return parsedExpressions.putIfAbsent(new Key(parserKey, expression), parsedExpression);
+    }
+
+    /**
+     * Sets the maximum number of cached expressions, evicting the least recently used expressions that exceed it. By
+     * default, up to {@link #DEFAULT_MAX_SIZE} expressions are cached.
+     *
+     * @param maxSize The maximum number of cached expressions.
+     */
+    public static void setMaxSize(int maxSize) {
+        parsedExpressions.setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the maximum number of cached expressions.
+     */
+    public static int getMaxSize() {
+        return parsedExpressions.getMaxSize();
+    }
+
+    /**
+     * Returns the number of cached expressions.
+     */
+    public static int size() {
+        return parsedExpressions.size();
+    }
+
+    /**
+     * Removes all the cached expressions.
+     */
+    public static void clear() {
+        parsedExpressions.clear();
+    }
+
+    /**
+     * The cache key of a parsed expression.
+     */
+    private static class Key {
+
+        private final Object parserKey;
+
+        private final String expression;
+
+        public Key(Object parserKey, String expression) {
+            this.parserKey = parserKey;
+            this.expression = expression;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return ObjectUtils.nullSafeEquals(parserKey, other.parserKey) &&
+                ObjectUtils.nullSafeEquals(expression, other.expression);
+        }
+
+        public int hashCode() {
+            return 31 * ObjectUtils.nullSafeHashCode(parserKey) + ObjectUtils.nullSafeHashCode(expression);
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * A bounded cache of compiled regular expressions that is shared by all the regular expression based rules, conditions
+ * and functions. Compiling a pattern is far more expensive than matching it, and the same patterns are typically
+ * used by many rules. When the cache is full, the least recently used pattern is evicted, so patterns that come from
+ * user data (e.g. the pattern argument of a valang <code>match</code> function that is read from the validated bean)
+ * can not make the cache grow without limit. This class is thread-safe.
+ *
+ * @author Uri Boness
+ */
+public class PatternCache {
+
+    /**
+     * The default maximum number of cached patterns.
+     */
+    public final static int DEFAULT_MAX_SIZE = 500;
+
+    // BoundedCache<String, Pattern>
+    private final static BoundedCache patterns = new BoundedCache(DEFAULT_MAX_SIZE);
+
+    /**
+     * Returns the compiled pattern of the given regular expression, compiling (and caching) it if it is not cached.
+     *
+     * @param regexp The regular expression.
+     * @return The compiled pattern.
+     * @throws java.util.regex.PatternSyntaxException if the given regular expression is invalid.
+     */
+    public static Pattern compile(String regexp) {
+        Pattern pattern = (Pattern) patterns.get(regexp);
+        if (pattern == null) {
+            // compiled outside the lock, a pattern compiled twice by concurrent threads is harmless
+            pattern = Pattern.compile(regexp);
+            patterns.put(regexp, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Sets the maximum number of cached patterns, evicting the least recently used patterns that exceed it. By
+     * default, up to {@link #DEFAULT_MAX_SIZE} patterns are cached.
+     *
+     * @param maxSize The maximum number of cached patterns.
+     */
+    public static void setMaxSize(int maxSize) {
+        patterns.setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the maximum number of cached patterns.
+     */
+    public static int getMaxSize() {
+        return patterns.getMaxSize();
+    }
+
+    /**
+     * Returns the number of cached patterns.
+     */
+    public static int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Removes all the cached patterns.
+     */
+    public static void clear() {
+        patterns.clear();
+    }
+
+}
@@ -16,19 +16,29 @@
 
 package org.springmodules.validation.util.cel.ognl;
 
+import org.springmodules.validation.util.ExpressionCache;
 import org.springmodules.validation.util.cel.CelParseException;
 import org.springmodules.validation.util.cel.ConditionExpressionParser;
 import org.springmodules.validation.util.condition.Condition;
 
 /**
  * A {@link ConditionExpressionParser} implementation that knows how to parse boolean OGNL expressions and return
- * the appropriate condition.
+ * the appropriate condition. The expressions are parsed once and the parsed conditions are shared through the
+ * {@link ExpressionCache}.
  *
  * @author Uri Boness
  */
 public class OgnlConditionExpressionParser implements ConditionExpressionParser {
 
     public Condition parse(String expression) throws CelParseException {
+        Condition condition = (Condition) ExpressionCache.get(getClass().getName(), expression);
+        if (condition == null) {
+            condition = (Condition) ExpressionCache.register(getClass().getName(), expression, doParse(expression));
+        }
+        return condition;
+    }
+
+    protected Condition doParse(String expression) throws CelParseException {
         try {
             return new OgnlCondition(expression);
         } catch (IllegalArgumentException iae) {
@@ -16,6 +16,7 @@
 
 package org.springmodules.validation.util.cel.valang;
 
+import org.springmodules.validation.util.ExpressionCache;
 import org.springmodules.validation.util.cel.CelParseException;
 import org.springmodules.validation.util.cel.ConditionExpressionParser;
 import org.springmodules.validation.util.condition.Condition;
@@ -24,13 +25,26 @@ import org.springmodules.validation.valang.parser.ParseException;
 import org.springmodules.validation.valang.parser.SimpleValangBased;
 
 /**
- * A {@link ConditionExpressionParser} implementation that knows how to parse valang boolean expressions.
+ * A {@link ConditionExpressionParser} implementation that knows how to parse valang boolean expressions. Unless
+ * custom functions are registered, the parsed conditions are shared through the {@link ExpressionCache}.
  *
  * @author Uri Boness
  */
 public class ValangConditionExpressionParser extends SimpleValangBased implements ConditionExpressionParser {
 
     public Condition parse(String expression) throws CelParseException {
+        Object cacheKey = getExpressionCacheKey();
+        if (cacheKey == null) {
+            return doParse(expression);
+        }
+        Condition condition = (Condition) ExpressionCache.get(cacheKey, expression);
+        if (condition == null) {
+            condition = (Condition) ExpressionCache.register(cacheKey, expression, doParse(expression));
+        }
+        return condition;
+    }
+
+    protected Condition doParse(String expression) throws CelParseException {
         try {
             return new CommonsPredicateCondition(createValangParser(expression).parseExpression());
         } catch (ParseException pe) {
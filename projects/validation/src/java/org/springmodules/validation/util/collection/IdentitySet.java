@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.util.collection;
+
+import java.util.AbstractSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A set that compares its elements by reference (<code>==</code>) instead of by <code>equals(Object)</code>, backed
+ * by an {@link IdentityHashMap}. Neither <code>equals(Object)</code> nor <code>hashCode()</code> of the elements is
+ * ever called, which makes this set suitable for tracking visited objects in an object graph: distinct objects that
+ * are equal are all visited, and objects with expensive or broken <code>equals</code>/<code>hashCode</code>
+ * implementations are handled in constant time.
+ * <p/>
+ * Note: this set intentionally violates the general {@link java.util.Set} contract, which mandates the use of
+ * <code>equals(Object)</code> when comparing elements. This set is not thread-safe.
+ *
+ * @author Uri Boness
+ */
+public class IdentitySet extends AbstractSet {
+
+    private final Map map;
+
+    /**
+     * Constructs a new empty identity set.
+     */
+    public IdentitySet() {
+        map = new IdentityHashMap();
+    }
+
+    /**
+     * Constructs a new empty identity set with the given expected maximum size.
+     *
+     * @param expectedMaxSize The expected maximum number of elements in the set.
+     */
+    public IdentitySet(int expectedMaxSize) {
+        map = new IdentityHashMap(expectedMaxSize);
+    }
+
+    public boolean add(Object o) {
+        return map.put(o, Boolean.TRUE) == null;
+    }
+
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    public boolean remove(Object o) {
+        return map.remove(o) != null;
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public Iterator iterator() {
+        return map.keySet().iterator();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+}
@@ -19,6 +19,7 @@ package org.springmodules.validation.util.condition.bean;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.util.Assert;
 import org.springmodules.validation.util.condition.Condition;
+import org.springmodules.validation.util.lang.PropertyPathAccessor;
 
 /**
  * An {@link AbstractBeanCondition} implementation that checks the value of a specific property of the checked bean
@@ -47,14 +48,15 @@ public class PropertyBeanCondition extends AbstractBeanCondition {
 
     /**
      * Checks the value of the property of the given bean using the property condition associated with this condition. The
-     * property to be checked is resolved by the property name associated with this condition.
+     * property to be checked is resolved by the property name associated with this condition, and is read through a
+     * cached {@link PropertyPathAccessor} rather than introspected by the bean wrapper.
      *
      * @param bean The bean to be checked.
      * @return <code>true</code> if the property condition associated with this condition returns <code>true</code> when
      *         checking the bean's property, <code>false</code> otherwise.
      */
     protected boolean checkBean(BeanWrapper bean) {
-        Object value = bean.getPropertyValue(propertyName);
+        Object value = PropertyPathAccessor.getPropertyValue(bean.getWrappedInstance(), propertyName);
         return propertyCondition.check(value);
     }
 
@@ -19,6 +19,7 @@ package org.springmodules.validation.util.condition.string;
 import java.util.regex.Pattern;
 
 import org.springframework.util.Assert;
+import org.springmodules.validation.util.PatternCache;
 
 /**
  * An {@link AbstractStringCondition} implementation that checks whether the checked strings match a specific regular
@@ -38,7 +39,7 @@ public class RegExpStringCondition extends AbstractStringCondition {
      */
     public RegExpStringCondition(String regexp) {
         Assert.notNull(regexp, "The given regular expression cannot be null");
-        this.pattern = Pattern.compile(regexp);
+        this.pattern = PatternCache.compile(regexp);
     }
 
     /**
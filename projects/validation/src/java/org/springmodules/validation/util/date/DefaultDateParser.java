@@ -19,12 +19,17 @@ package org.springmodules.validation.util.date;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.collections.Predicate;
-
 /**
  * <p>DefaultDateParser parses many date formats to a string.
  * <p/>
@@ -80,72 +85,76 @@ import org.apache.commons.collections.Predicate;
  * <p>Modifiers can be combined and are parsed from left to right, for example:
  * <p/>
  * <p><code>2005-04-09 23:30:00&gt;M+10d+8H</code> results in <code>2005-05-11 08:00:00</code>.
+ * <p/>
+ * <p>This parser is thread-safe. The regular expressions and formats of the default registrations are compiled
+ * once, and each parsed date string is compiled once into a parse plan (the date format parse and the modifiers to
+ * apply). The dates of the strings that do not depend on the current time (that do not start with <code>T</code> and
+ * only use the default modifiers) are computed once.
  *
  * @author Steven Devijver
  * @since 25-04-2005
  */
 public class DefaultDateParser implements DateParser {
 
-    private static DefaultDateParser instance = new DefaultDateParser();
+    private final static int MAX_CACHED_PLANS = 1000;
 
-    private Map registrations = new HashMap();
+    private final static Registration[] defaultRegistrations;
 
-    public static DefaultDateParser getInstance() {
-        return instance;
-    }
+    // the calendar the modifiers are applied on, reused by all the parsers of a thread
+    private final static ThreadLocal calendars = new ThreadLocal();
 
-    public DefaultDateParser() {
-        super();
-        register("^\\d{8}$", "yyyyMMdd");
-        register("^\\d{4}\\-\\d{2}\\-\\d{2}$", "yyyy-MM-dd");
-        register("^\\d{4}\\-\\d{2}\\-\\d{2}\\s+\\d{2}:\\d{2}:\\d{2}$", "yyyy-MM-dd HH:mm:ss");
-        register("^\\d{8}\\s+\\d{6}$", "yyyyMMdd HHmmss");
-        register("^\\d{8}\\s+\\d{2}:\\d{2}:\\d{2}$", "yyyyMMdd HH:mm:ss");
-        register("^\\d{4}\\-\\d{2}\\-\\d{2}\\s+\\d{6}$", "yyyy-MM-dd HHmmss");
-
-        register("^T$", new DateModifier() {
+    static {
+        List defaults = new ArrayList();
+        addDefault(defaults, "^\\d{8}$", "yyyyMMdd");
+        addDefault(defaults, "^\\d{4}\\-\\d{2}\\-\\d{2}$", "yyyy-MM-dd");
+        addDefault(defaults, "^\\d{4}\\-\\d{2}\\-\\d{2}\\s+\\d{2}:\\d{2}:\\d{2}$", "yyyy-MM-dd HH:mm:ss");
+        addDefault(defaults, "^\\d{8}\\s+\\d{6}$", "yyyyMMdd HHmmss");
+        addDefault(defaults, "^\\d{8}\\s+\\d{2}:\\d{2}:\\d{2}$", "yyyyMMdd HH:mm:ss");
+        addDefault(defaults, "^\\d{4}\\-\\d{2}\\-\\d{2}\\s+\\d{6}$", "yyyy-MM-dd HHmmss");
+
+        addDefault(defaults, "^T$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
             }
         });
 
-        register("^T\\+(\\d+)S$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)S$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MILLISECOND, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)S$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)S$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MILLISECOND, Integer.parseInt(value) * -1);
             }
         });
 
-        register("^T>s$", new DateModifier() {
+        addDefault(defaults, "^T>s$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.SECOND, 1);
                 calendar.add(Calendar.MILLISECOND, calendar.get(Calendar.MILLISECOND) + 1 * -1);
             }
         });
 
-        register("^T<s$", new DateModifier() {
+        addDefault(defaults, "^T<s$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MILLISECOND, calendar.get(Calendar.MILLISECOND) * -1);
             }
         });
 
-        register("^T\\+(\\d+)s$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)s$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.SECOND, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)s$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)s$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.SECOND, Integer.parseInt(value) * -1);
             }
         });
 
-        register("^T>m$", new DateModifier() {
+        addDefault(defaults, "^T>m$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MINUTE, 1);
                 calendar.add(Calendar.SECOND, calendar.get(Calendar.SECOND) * -1);
@@ -153,26 +162,26 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T<m$", new DateModifier() {
+        addDefault(defaults, "^T<m$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.SECOND, calendar.get(Calendar.SECOND) * -1);
                 calendar.add(Calendar.MILLISECOND, calendar.get(Calendar.MILLISECOND) * -1);
             }
         });
 
-        register("^T\\+(\\d+)m$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)m$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MINUTE, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)m$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)m$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MINUTE, Integer.parseInt(value) * -1);
             }
         });
 
-        register("^T>H$", new DateModifier() {
+        addDefault(defaults, "^T>H$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.HOUR_OF_DAY, 1);
                 calendar.add(Calendar.MINUTE, calendar.get(Calendar.MINUTE) * -1);
@@ -181,7 +190,7 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T<H$", new DateModifier() {
+        addDefault(defaults, "^T<H$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MINUTE, calendar.get(Calendar.MINUTE) * -1);
                 calendar.add(Calendar.SECOND, calendar.get(Calendar.SECOND) * -1);
@@ -189,19 +198,19 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T\\+(\\d+)H$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)H$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.HOUR_OF_DAY, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)H$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)H$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.HOUR_OF_DAY, Integer.parseInt(value) * -1);
             }
         });
 
-        register("^T>d$", new DateModifier() {
+        addDefault(defaults, "^T>d$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.DAY_OF_YEAR, 1);
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
@@ -211,7 +220,7 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T<d$", new DateModifier() {
+        addDefault(defaults, "^T<d$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
                 calendar.add(Calendar.MINUTE, calendar.get(Calendar.MINUTE) * -1);
@@ -220,19 +229,19 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T\\+(\\d+)d$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)d$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.DAY_OF_YEAR, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)d$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)d$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.DAY_OF_YEAR, Integer.parseInt(value) * -1);
             }
         });
 
-        register("^T>w$", new DateModifier() {
+        addDefault(defaults, "^T>w$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 int thisWeek = calendar.get(Calendar.WEEK_OF_YEAR);
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
@@ -248,7 +257,7 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T<w$", new DateModifier() {
+        addDefault(defaults, "^T<w$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 int thisWeek = calendar.get(Calendar.WEEK_OF_YEAR);
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
@@ -263,19 +272,19 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T\\+(\\d+)w$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)w$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.WEEK_OF_YEAR, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)w$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)w$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.WEEK_OF_YEAR, Integer.parseInt(value) * -1);
             }
         });
 
-        register("^T>M$", new DateModifier() {
+        addDefault(defaults, "^T>M$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 int thisMonth = calendar.get(Calendar.MONTH);
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
@@ -291,7 +300,7 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T<M$", new DateModifier() {
+        addDefault(defaults, "^T<M$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 int thisMonth = calendar.get(Calendar.MONTH);
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
@@ -306,19 +315,19 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T\\+(\\d+)M$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)M$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MONTH, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)M$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)M$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.MONTH, Integer.parseInt(value) * -1);
             }
         });
 
-        register("^T>y$", new DateModifier() {
+        addDefault(defaults, "^T>y$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 int thisYear = calendar.get(Calendar.YEAR);
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
@@ -334,7 +343,7 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T<y$", new DateModifier() {
+        addDefault(defaults, "^T<y$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 int thisYear = calendar.get(Calendar.YEAR);
                 calendar.add(Calendar.HOUR_OF_DAY, calendar.get(Calendar.HOUR_OF_DAY) * -1);
@@ -349,36 +358,76 @@ public class DefaultDateParser implements DateParser {
             }
         });
 
-        register("^T\\+(\\d+)y$", new DateModifier() {
+        addDefault(defaults, "^T\\+(\\d+)y$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.YEAR, Integer.parseInt(value));
             }
         });
 
-        register("^T\\-(\\d+)y$", new DateModifier() {
+        addDefault(defaults, "^T\\-(\\d+)y$", new BuiltInModifier() {
             public void modify(Calendar calendar, String value) {
                 calendar.add(Calendar.YEAR, Integer.parseInt(value) * -1);
             }
         });
+
+        defaultRegistrations = (Registration[]) defaults.toArray(new Registration[defaults.size()]);
     }
 
-    public Date parse(String str) throws DateParseException {
-        Date t = null;
-        String tmpStr = null;
-        int parsedSoFar = 0;
-        boolean firstPass = true;
+    private static DefaultDateParser instance = new DefaultDateParser();
+
+    private volatile Registration[] registrations = defaultRegistrations;
+
+    // the compiled plans of the parsed strings - Map<String, ParsePlan>
+    private final Map plansByString = Collections.synchronizedMap(new HashMap());
+
+    public static DefaultDateParser getInstance() {
+        return instance;
+    }
+
+    public DefaultDateParser() {
+        super();
+    }
 
+    private static void addDefault(List defaults, String regexp, String format) {
+        defaults.add(new Registration(regexp, new BasicDateParser(format)));
+    }
+
+    private static void addDefault(List defaults, String regexp, DateModifier modifier) {
+        defaults.add(new Registration(regexp, modifier));
+    }
+
+    public Date parse(String str) throws DateParseException {
         if (str == null || str.length() == 0) {
             throw new IllegalArgumentException("Date string should not be null or blank!");
         }
 
+        ParsePlan plan = (ParsePlan) plansByString.get(str);
+        if (plan == null) {
+            plan = compile(str);
+            if (plansByString.size() < MAX_CACHED_PLANS) {
+                plansByString.put(str, plan);
+            }
+        }
+        return plan.execute();
+    }
+
+    /**
+     * Compiles the given date string into a parse plan. The string is split into the longest parsable prefix
+     * followed by modifiers (each applied on "T", the date parsed so far).
+     */
+    private ParsePlan compile(String str) throws DateParseException {
+        Registration[] registrations = this.registrations;
+        List steps = new ArrayList();
+        String tmpStr = null;
+        int parsedSoFar = 0;
+        boolean firstPass = true;
+
         tmpStr = str;
 
         while (tmpStr.length() > 0) {
-            Date tmpT = null;
-            tmpT = simpleParse(tmpStr, t);
-            if (tmpT != null) {
-                t = tmpT;
+            Object step = simpleCompile(registrations, tmpStr);
+            if (step != null) {
+                steps.add(step);
                 if (firstPass) {
                     parsedSoFar = tmpStr.length();
                 } else {
@@ -398,30 +447,27 @@ public class DefaultDateParser implements DateParser {
             }
         }
 
-        if (t == null) {
+        if (steps.isEmpty()) {
             throw new DateParseException("Could not parse date string [" + str + "]!");
-        } else {
-            return t;
         }
+        return new ParsePlan(steps.toArray());
     }
 
-    private Date simpleParse(String str, Date t) throws DateParseException {
-        for (Iterator iter = this.registrations.keySet().iterator(); iter.hasNext();) {
-            RegexpPredicate predicate = (RegexpPredicate) iter.next();
-            if (predicate.evaluate(str)) {
-                Object dateParser = this.registrations.get(predicate);
+    /**
+     * Returns the parse step of the first registration that matches the given string: the parsed date for a
+     * date format, or the {@link ModifierStep} for a modifier. Returns <code>null</code> if no registration
+     * matches or if the matching date format cannot parse the string.
+     */
+    private Object simpleCompile(Registration[] registrations, String str) throws DateParseException {
+        for (int i = 0; i < registrations.length; i++) {
+            Matcher matcher = registrations[i].pattern.matcher(str);
+            if (matcher.matches()) {
+                Object dateParser = registrations[i].dateParser;
                 if (dateParser instanceof DateParser) {
                     return ((DateParser) dateParser).parse(str);
-                } else if (dateParser instanceof DateModifier) {
-                    Calendar calendar = new GregorianCalendar();
-                    calendar.setFirstDayOfWeek(Calendar.MONDAY);
-                    if (t == null) {
-                        calendar.setTime(new Date());
-                    } else {
-                        calendar.setTime(t);
-                    }
-                    ((DateModifier) dateParser).modify(calendar, predicate.getGroup1(str));
-                    return calendar.getTime();
+                } else {
+                    String value = (matcher.groupCount() > 0) ? matcher.group(1) : null;
+                    return new ModifierStep((DateModifier) dateParser, value);
                 }
             }
         }
@@ -436,7 +482,7 @@ public class DefaultDateParser implements DateParser {
      * @param format the date format
      */
     public void register(String regexp, String format) {
-        this.registrations.put(new RegexpPredicate(regexp), new BasicDateParser(format));
+        register(new Registration(regexp, new BasicDateParser(format)));
     }
 
     /**
@@ -446,7 +492,29 @@ public class DefaultDateParser implements DateParser {
      * @param dateParser the date parser
      */
     public void register(String regexp, DateModifier dateParser) {
-        this.registrations.put(new RegexpPredicate(regexp), dateParser);
+        register(new Registration(regexp, dateParser));
+    }
+
+    /**
+     * Adds the given registration (replacing the registration of the same regular expression, if any) and
+     * discards the compiled plans.
+     */
+    private synchronized void register(Registration registration) {
+        List newRegistrations = new ArrayList(registrations.length + 1);
+        boolean replaced = false;
+        for (int i = 0; i < registrations.length; i++) {
+            if (registrations[i].regexp.equals(registration.regexp)) {
+                newRegistrations.add(registration);
+                replaced = true;
+            } else {
+                newRegistrations.add(registrations[i]);
+            }
+        }
+        if (!replaced) {
+            newRegistrations.add(registration);
+        }
+        registrations = (Registration[]) newRegistrations.toArray(new Registration[newRegistrations.size()]);
+        plansByString.clear();
     }
 
     public interface DateModifier {
@@ -454,50 +522,131 @@ public class DefaultDateParser implements DateParser {
         public void modify(Calendar calendar, String value);
     }
 
-    private class RegexpPredicate implements Predicate {
+    /**
+     * The base class of the default modifiers, which depend on nothing but the date they modify.
+     */
+    private static abstract class BuiltInModifier implements DateModifier {
+    }
+
+    /**
+     * A regular expression along with the date parser or the modifier applied on the strings it matches.
+     */
+    private static class Registration {
 
-        private Pattern pattern = null;
+        private final String regexp;
 
-        public RegexpPredicate(String regexp) {
-            super();
+        private final Pattern pattern;
+
+        private final Object dateParser;
+
+        public Registration(String regexp, Object dateParser) {
             if (regexp == null || regexp.length() == 0) {
                 throw new IllegalArgumentException("Regular expression parameter should not be null or blank!");
             }
+            this.regexp = regexp;
             this.pattern = Pattern.compile(regexp);
+            this.dateParser = dateParser;
+        }
+    }
+
+    /**
+     * A modifier to apply along with its value (the first group of its regular expression).
+     */
+    private static class ModifierStep {
+
+        private final DateModifier modifier;
+
+        private final String value;
+
+        public ModifierStep(DateModifier modifier, String value) {
+            this.modifier = modifier;
+            this.value = value;
         }
+    }
+
+    /**
+     * The compiled steps of a date string: parsed dates and modifiers, applied in order. The date of a plan that
+     * does not depend on the current time is computed once.
+     */
+    private static class ParsePlan {
 
-        public boolean evaluate(Object o) {
-            return this.pattern.matcher((String) o).matches();
+        private final Object[] steps;
+
+        private final boolean constant;
+
+        private final long time;
+
+        public ParsePlan(Object[] steps) {
+            this.steps = steps;
+            boolean constant = steps[0] instanceof Date;
+            for (int i = 1; i < steps.length && constant; i++) {
+                constant = !(steps[i] instanceof ModifierStep) || ((ModifierStep) steps[i]).modifier instanceof BuiltInModifier;
+            }
+            this.constant = constant;
+            this.time = constant ? computeTime() : 0;
         }
 
-        public String getGroup1(Object o) {
-            Matcher matcher = this.pattern.matcher((String) o);
-            if (matcher.matches() && matcher.groupCount() > 0) {
-                return matcher.group(1);
-            } else {
-                return null;
+        public Date execute() {
+            return new Date(constant ? time : computeTime());
+        }
+
+        private long computeTime() {
+            long time = 0;
+            for (int i = 0; i < steps.length; i++) {
+                if (steps[i] instanceof Date) {
+                    time = ((Date) steps[i]).getTime();
+                    continue;
+                }
+                ModifierStep step = (ModifierStep) steps[i];
+                Calendar calendar = getCalendar();
+                calendar.setTimeInMillis((i == 0) ? System.currentTimeMillis() : time);
+                step.modifier.modify(calendar, step.value);
+                time = calendar.getTimeInMillis();
             }
+            return time;
+        }
+
+        private static Calendar getCalendar() {
+            Calendar calendar = (Calendar) calendars.get();
+            if (calendar == null) {
+                calendar = new GregorianCalendar();
+                calendars.set(calendar);
+            }
+            calendar.clear();
+            calendar.setFirstDayOfWeek(Calendar.MONDAY);
+            return calendar;
         }
     }
 
-    private class BasicDateParser implements DateParser {
+    /**
+     * A date parser for a date format. The date formats are not thread-safe, hence each thread parses with its own
+     * date format.
+     */
+    private static class BasicDateParser implements DateParser {
 
-        private DateFormat dateFormat = null;
+        private final String format;
+
+        private final ThreadLocal dateFormats = new ThreadLocal();
 
         public BasicDateParser(String format) {
             super();
             if (format == null || format.length() == 0) {
                 throw new IllegalArgumentException("Format parameter should not be null or blank!");
             }
-            this.dateFormat = new SimpleDateFormat(format);
+            this.format = format;
         }
 
         public Date parse(String s) throws DateParseException {
+            DateFormat dateFormat = (DateFormat) dateFormats.get();
+            if (dateFormat == null) {
+                dateFormat = new SimpleDateFormat(format);
+                dateFormats.set(dateFormat);
+            }
             try {
-                return this.dateFormat.parse(s);
+                return dateFormat.parse(s);
             } catch (ParseException e) {
                 return null;
             }
         }
     }
-}
\ No newline at end of file
+}
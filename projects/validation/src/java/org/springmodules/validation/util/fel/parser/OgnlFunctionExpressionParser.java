@@ -18,6 +18,7 @@ package org.springmodules.validation.util.fel.parser;
 
 import ognl.Ognl;
 import ognl.OgnlException;
+import org.springmodules.validation.util.ExpressionCache;
 import org.springmodules.validation.util.fel.FelEvaluationException;
 import org.springmodules.validation.util.fel.FelParseException;
 import org.springmodules.validation.util.fel.Function;
@@ -25,21 +26,26 @@ import org.springmodules.validation.util.fel.FunctionExpressionParser;
 
 /**
  * A {@link FunctionExpressionParser} implementation that knows how to parse OGNL expressions and
- * return the appropriate function.
+ * return the appropriate function. The expressions are parsed once and the parsed functions are shared through the
+ * {@link ExpressionCache}.
  *
  * @author Uri Boness
  */
 public class OgnlFunctionExpressionParser implements FunctionExpressionParser {
 
     public Function parse(String expression) {
-        return new OgnlFunction(expression);
+        Function function = (Function) ExpressionCache.get(getClass().getName(), expression);
+        if (function == null) {
+            function = (Function) ExpressionCache.register(getClass().getName(), expression, new OgnlFunction(expression));
+        }
+        return function;
     }
 
     /**
      * A function that is associated with an OGNL expression and evaluates this expression on
-     * the given object.
+     * the given object. It only holds the parsed expression, not the parser that created it.
      */
-    protected class OgnlFunction implements Function {
+    protected static class OgnlFunction implements Function {
 
         private String expressionAsString;
 
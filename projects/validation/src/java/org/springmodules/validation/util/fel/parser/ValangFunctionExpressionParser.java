@@ -16,6 +16,7 @@
 
 package org.springmodules.validation.util.fel.parser;
 
+import org.springmodules.validation.util.ExpressionCache;
 import org.springmodules.validation.util.fel.FelEvaluationException;
 import org.springmodules.validation.util.fel.FelParseException;
 import org.springmodules.validation.util.fel.Function;
@@ -26,35 +27,47 @@ import org.springmodules.validation.valang.parser.SimpleValangBased;
 import org.springmodules.validation.valang.parser.ValangParser;
 
 /**
- * A {@link FunctionExpressionParser} implementation that knows how to parse valang function expressions.
+ * A {@link FunctionExpressionParser} implementation that knows how to parse valang function expressions. Unless
+ * custom functions are registered, the parsed functions are shared through the {@link ExpressionCache}.
  *
  * @author Uri Boness
  */
 public class ValangFunctionExpressionParser extends SimpleValangBased implements FunctionExpressionParser {
 
     public Function parse(String expression) {
-        return new ValangFunction(expression);
+        Object cacheKey = getExpressionCacheKey();
+        if (cacheKey == null) {
+            return doParse(expression);
+        }
+        Function function = (Function) ExpressionCache.get(cacheKey, expression);
+        if (function == null) {
+            function = (Function) ExpressionCache.register(cacheKey, expression, doParse(expression));
+        }
+        return function;
+    }
+
+    protected Function doParse(String expression) {
+        ValangParser parser = createValangParser(expression);
+        try {
+            return new ValangFunction(expression, parser.function(new TargetBeanFunction()));
+        } catch (ParseException pe) {
+            throw new FelParseException("Could not parse valang function expression '" + expression + "'", pe);
+        }
     }
 
     /**
      * A function that is associated with a valang function expression. This function evaluates the function on
-     * the given object and returns the result.
+     * the given object and returns the result. It only holds the parsed expression, not the parser that created it.
      */
-    protected class ValangFunction implements Function {
+    protected static class ValangFunction implements Function {
 
-        private String valangExpression;
+        private final String valangExpression;
 
-        private org.springmodules.validation.valang.functions.Function valangFunction;
+        private final org.springmodules.validation.valang.functions.Function valangFunction;
 
-        public ValangFunction(String valangExpression) {
+        public ValangFunction(String valangExpression, org.springmodules.validation.valang.functions.Function valangFunction) {
             this.valangExpression = valangExpression;
-            ValangParser parser = createValangParser(valangExpression);
-            try {
-                this.valangFunction = parser.function(new TargetBeanFunction());
-            } catch (ParseException pe) {
-                throw new FelParseException("Could not parse valang function expression '" +
-                    valangExpression + "'", pe);
-            }
+            this.valangFunction = valangFunction;
         }
 
         public Object evaluate(Object argument) {
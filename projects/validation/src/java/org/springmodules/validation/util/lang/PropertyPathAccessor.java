@@ -0,0 +1,203 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.util.lang;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.util.StringUtils;
+
+/**
+ * Reads a (possibly nested) property of the beans of a given class by directly invoking the read methods of the
+ * property path. The read methods are resolved once per class and property path, and the accessors are cached and
+ * shared by all the validation rules, conditions and functions reading the same property.
+ * <p/>
+ * Only the paths made of plain property names separated by dots (e.g. <code>address.city</code>) are resolved.
+ * Indexed and mapped paths are left to a {@link BeanWrapperImpl}. Likewise, when a nested value of the path is
+ * <code>null</code> or a read method fails, the property is read again through a {@link BeanWrapperImpl} so the
+ * callers get the same values and exceptions as when using a bean wrapper.
+ * <p/>
+ * The cache does not keep the classes alive: the accessors of a class that is not visible to the class loader of this
+ * class (e.g. a class of a web application when this class is shared by the server) are only weakly referenced, so
+ * they do not prevent its class loader from being garbage collected. This class is thread-safe.
+ *
+ * @author Uri Boness
+ */
+public final class PropertyPathAccessor {
+
+    // the accessors by property path, by class - Map<Class, Map<String, Object>>. A path that cannot be resolved is
+    // mapped to UNRESOLVABLE. The maps of the paths are never modified once published (copy on write), and are held by
+    // a weak reference when their class is not cache safe (see isCacheSafe(Class)).
+    private final static Map accessorsByClass = Collections.synchronizedMap(new WeakHashMap());
+
+    private final static Object UNRESOLVABLE = new Object();
+
+    private final String propertyPath;
+
+    private final Method[] readMethods;
+
+    private final Class propertyType;
+
+    private PropertyPathAccessor(String propertyPath, Method[] readMethods, Class propertyType) {
+        this.propertyPath = propertyPath;
+        this.readMethods = readMethods;
+        this.propertyType = propertyType;
+    }
+
+    /**
+     * Returns the value of the given property of the given bean.
+     *
+     * @param bean The bean.
+     * @param propertyPath The path of the property.
+     * @return The value of the property.
+     * @throws org.springframework.beans.BeansException if the property cannot be read, as thrown by a
+     * {@link BeanWrapperImpl}.
+     */
+    public static Object getPropertyValue(Object bean, String propertyPath) {
+        if (bean != null) {
+            PropertyPathAccessor accessor = getAccessor(bean.getClass(), propertyPath);
+            if (accessor != null) {
+                return accessor.getValue(bean);
+            }
+        }
+        return new BeanWrapperImpl(bean).getPropertyValue(propertyPath);
+    }
+
+    /**
+     * Returns the accessor of the given property path for the given class.
+     *
+     * @param clazz The class of the beans.
+     * @param propertyPath The path of the property.
+     * @return The accessor of the property, or <code>null</code> if the path cannot be resolved to read methods
+     *         of the given class.
+     */
+    public static PropertyPathAccessor getAccessor(Class clazz, String propertyPath) {
+        Map accessorsByPath = getAccessorsByPath(clazz);
+        Object accessor = (accessorsByPath != null) ? accessorsByPath.get(propertyPath) : null;
+        if (accessor == null) {
+            accessor = resolveAccessor(clazz, propertyPath);
+            if (accessor == null) {
+                accessor = UNRESOLVABLE;
+            }
+            synchronized (accessorsByClass) {
+                Map oldAccessorsByPath = getAccessorsByPath(clazz);
+                Map newAccessorsByPath = (oldAccessorsByPath != null) ? new HashMap(oldAccessorsByPath) : new HashMap();
+                newAccessorsByPath.put(propertyPath, accessor);
+                // the accessors refer to their class through their read methods
+                accessorsByClass.put(clazz, isCacheSafe(clazz) ? (Object) newAccessorsByPath : new WeakReference(newAccessorsByPath));
+            }
+        }
+        return (accessor != UNRESOLVABLE) ? (PropertyPathAccessor) accessor : null;
+    }
+
+    /**
+     * Removes all the cached accessors, for instance when the classes are reloaded.
+     */
+    public static void clearCache() {
+        accessorsByClass.clear();
+    }
+
+    private static Map getAccessorsByPath(Class clazz) {
+        Object accessorsByPath = accessorsByClass.get(clazz);
+        if (accessorsByPath instanceof Reference) {
+            return (Map) ((Reference) accessorsByPath).get();
+        }
+        return (Map) accessorsByPath;
+    }
+
+    /**
+     * Returns whether the given class is loaded by the class loader of this class or one of its parents, in which case
+     * its accessors can be strongly referenced without keeping another class loader alive.
+     */
+    private static boolean isCacheSafe(Class clazz) {
+        ClassLoader target = clazz.getClassLoader();
+        for (ClassLoader current = PropertyPathAccessor.class.getClassLoader(); current != null; current = current.getParent()) {
+            if (current == target) {
+                return true;
+            }
+        }
+        return target == null;
+    }
+
+    private static PropertyPathAccessor resolveAccessor(Class clazz, String propertyPath) {
+        if (!StringUtils.hasLength(propertyPath) || propertyPath.indexOf('[') != -1 || Map.class.isAssignableFrom(clazz)) {
+            return null;
+        }
+        String[] propertyNames = StringUtils.delimitedListToStringArray(propertyPath, ".");
+        Method[] readMethods = new Method[propertyNames.length];
+        Class currentClass = clazz;
+        for (int i = 0; i < propertyNames.length; i++) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(currentClass, propertyNames[i]);
+            if (descriptor == null || descriptor.getReadMethod() == null) {
+                return null;
+            }
+            Method readMethod = descriptor.getReadMethod();
+            if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                readMethod.setAccessible(true);
+            }
+            readMethods[i] = readMethod;
+            currentClass = descriptor.getPropertyType();
+        }
+        return new PropertyPathAccessor(propertyPath, readMethods, currentClass);
+    }
+
+    /**
+     * Returns the value of the property of the given bean. The bean must be an instance of the class this
+     * accessor was resolved for.
+     *
+     * @param bean The bean.
+     * @return The value of the property.
+     */
+    public Object getValue(Object bean) {
+        Object value = bean;
+        try {
+            for (int i = 0; i < readMethods.length; i++) {
+                if (value == null) {
+                    return new BeanWrapperImpl(bean).getPropertyValue(propertyPath);
+                }
+                value = readMethods[i].invoke(value, null);
+            }
+        } catch (Exception e) {
+            return new BeanWrapperImpl(bean).getPropertyValue(propertyPath);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the declared type of the property.
+     */
+    public Class getPropertyType() {
+        return propertyType;
+    }
+
+    /**
+     * Returns the path of the property.
+     */
+    public String getPropertyPath() {
+        return propertyPath;
+    }
+
+}
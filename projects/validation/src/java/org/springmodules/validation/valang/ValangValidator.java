@@ -17,6 +17,8 @@
 package org.springmodules.validation.valang;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -26,12 +28,16 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.Errors;
-import org.springframework.validation.Validator;
 import org.springmodules.validation.util.date.DefaultDateParser;
 import org.springmodules.validation.util.date.DefaultDateParser.DateModifier;
+import org.springmodules.validation.valang.compiler.ValangRuleCompiler;
 import org.springmodules.validation.valang.parser.SimpleValangBased;
 import org.springmodules.validation.valang.parser.ValangParser;
+import org.springmodules.validation.valang.predicates.BasicValidationRule;
 import org.springmodules.validation.valang.predicates.ValidationRule;
+import org.springmodules.validation.validator.BatchAwareValidator;
+import org.springmodules.validation.validator.StatisticsCounterCache;
+import org.springmodules.validation.validator.ValidationStatistics;
 
 /**
  * <p/>
@@ -83,6 +89,13 @@ import org.springmodules.validation.valang.predicates.ValidationRule;
  * <p/>
  * A custom visitor can be registered to use custom functions in the Valang
  * syntax.
+ * <p/>
+ * When validating batches of beans with a
+ * {@link org.springmodules.validation.validator.BatchValidator}, the bean
+ * wrapper and its custom property editors are set up once per chunk of beans.
+ * <p/>
+ * The count, the failures and the duration of each rule evaluation can be
+ * recorded with {@link ValidationStatistics}.
  *
  * @author Steven Devijver
  * @see org.springmodules.validation.util.date.DefaultDateParser
@@ -90,7 +103,7 @@ import org.springmodules.validation.valang.predicates.ValidationRule;
  * @since 23-04-2005
  */
 
-public class ValangValidator extends SimpleValangBased implements Validator, InitializingBean {
+public class ValangValidator extends SimpleValangBased implements BatchAwareValidator, InitializingBean {
 
     private String valang = null;
 
@@ -98,6 +111,16 @@ public class ValangValidator extends SimpleValangBased implements Validator, Ini
 
     private Collection rules = null;
 
+    private boolean compileRules = false;
+
+    private final Map compiledRulesByClass = Collections.synchronizedMap(new HashMap());
+
+    private ValidationStatistics statistics = null;
+
+    // the statistics counters of the evaluated rules (scoped by ValidationRule.class) and of the validated classes
+    // (scoped by Class.class)
+    private final StatisticsCounterCache counters = new StatisticsCounterCache();
+
     public ValangValidator() {
         super();
     }
@@ -150,6 +173,39 @@ public class ValangValidator extends SimpleValangBased implements Validator, Ini
         return this.valang;
     }
 
+    /**
+     * <p/>
+     * Sets whether the rules are compiled for the class of the validated
+     * beans (optional, default is <code>false</code>). The rules are compiled
+     * the first time a bean of a given class is validated, the property
+     * paths are then resolved only once to the read methods of the class.
+     *
+     * @param compileRules whether the rules are compiled
+     * @see ValangRuleCompiler
+     */
+    public void setCompileRules(boolean compileRules) {
+        this.compileRules = compileRules;
+    }
+
+    public boolean isCompileRules() {
+        return compileRules;
+    }
+
+    /**
+     * <p/>
+     * Sets the statistics with which the rule evaluations and the
+     * validations are recorded (optional). By default nothing is recorded.
+     *
+     * @param statistics the statistics
+     */
+    public void setStatistics(ValidationStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public ValidationStatistics getStatistics() {
+        return statistics;
+    }
+
     public Collection getRules() {
         return rules;
     }
@@ -158,6 +214,19 @@ public class ValangValidator extends SimpleValangBased implements Validator, Ini
         Assert.hasLength(getValang(), "'valang' property must be set!");
         ValangParser parser = createValangParser(getValang());
         rules = parser.parseValidation();
+        compiledRulesByClass.clear();
+    }
+
+    /**
+     * Returns the rules compiled for the given class, compiling them if needed.
+     */
+    protected Collection getCompiledRules(Class targetClass) {
+        Collection compiledRules = (Collection) compiledRulesByClass.get(targetClass);
+        if (compiledRules == null) {
+            compiledRules = new ValangRuleCompiler(targetClass).compile(rules);
+            compiledRulesByClass.put(targetClass, compiledRules);
+        }
+        return compiledRules;
     }
 
     public boolean supports(Class clazz) {
@@ -165,9 +234,39 @@ public class ValangValidator extends SimpleValangBased implements Validator, Ini
     }
 
     public void validate(Object target, Errors errors) {
-
         BeanWrapper beanWrapper = (target instanceof BeanWrapper) ? (BeanWrapper) target : new BeanWrapperImpl(target);
+        registerCustomPropertyEditors(beanWrapper);
+        applyRules(beanWrapper, errors);
+    }
 
+    /**
+     * Creates a bean wrapper on which the custom property editors are registered. The bean wrapper is reused to
+     * validate the beans of a chunk.
+     *
+     * @see org.springmodules.validation.validator.BatchAwareValidator#createBatchState()
+     */
+    public Object createBatchState() {
+        BeanWrapper beanWrapper = new BeanWrapperImpl();
+        registerCustomPropertyEditors(beanWrapper);
+        return beanWrapper;
+    }
+
+    /**
+     * Validates the given target by wrapping it with the given bean wrapper.
+     *
+     * @see org.springmodules.validation.validator.BatchAwareValidator#validate(Object, Errors, Object)
+     */
+    public void validate(Object target, Errors errors, Object batchState) {
+        if (target instanceof BeanWrapper) {
+            validate(target, errors);
+            return;
+        }
+        BeanWrapperImpl beanWrapper = (BeanWrapperImpl) batchState;
+        beanWrapper.setWrappedInstance(target);
+        applyRules(beanWrapper, errors);
+    }
+
+    private void registerCustomPropertyEditors(BeanWrapper beanWrapper) {
         if (getCustomPropertyEditors() != null) {
             for (Iterator iter = getCustomPropertyEditors().iterator(); iter.hasNext();) {
                 CustomPropertyEditor customPropertyEditor = (CustomPropertyEditor) iter.next();
@@ -188,10 +287,54 @@ public class ValangValidator extends SimpleValangBased implements Validator, Ini
                 }
             }
         }
+    }
+
+    private void applyRules(BeanWrapper beanWrapper, Errors errors) {
+        Collection rulesToApply = isCompileRules() ? getCompiledRules(beanWrapper.getWrappedClass()) : rules;
+        ValidationStatistics statistics = this.statistics;
+        if (statistics == null || !statistics.isEnabled()) {
+            for (Iterator iter = rulesToApply.iterator(); iter.hasNext();) {
+                ValidationRule rule = (ValidationRule) iter.next();
+                rule.validate(beanWrapper, errors);
+            }
+            return;
+        }
 
-        for (Iterator iter = rules.iterator(); iter.hasNext();) {
+        int initialErrorCount = errors.getErrorCount();
+        long validationStart = System.nanoTime();
+        for (Iterator iter = rulesToApply.iterator(); iter.hasNext();) {
             ValidationRule rule = (ValidationRule) iter.next();
+            int errorCount = errors.getErrorCount();
+            long start = System.nanoTime();
             rule.validate(beanWrapper, errors);
+            long time = System.nanoTime() - start;
+            ValidationStatistics.Counter counter = counters.getCounter(statistics, ValidationRule.class, rule);
+            if (counter == null) {
+                counter = statistics.getRuleCounter(getRuleName(rule));
+                counters.putCounter(statistics, ValidationRule.class, rule, counter);
+            }
+            counter.record(time, errors.getErrorCount() > errorCount);
+        }
+        long validationTime = System.nanoTime() - validationStart;
+        Class clazz = beanWrapper.getWrappedClass();
+        ValidationStatistics.Counter counter = counters.getCounter(statistics, Class.class, clazz);
+        if (counter == null) {
+            counter = statistics.getClassCounter(clazz);
+            counters.putCounter(statistics, Class.class, clazz, counter);
+        }
+        counter.record(validationTime, errors.getErrorCount() > initialErrorCount);
+    }
+
+    /**
+     * Returns the name under which the evaluations of the given rule are recorded: the field and the error key of
+     * basic rules, the class name of any other rule.
+     */
+    private String getRuleName(ValidationRule rule) {
+        if (!(rule instanceof BasicValidationRule)) {
+            return rule.getClass().getName();
         }
+        BasicValidationRule basicRule = (BasicValidationRule) rule;
+        String errorKey = StringUtils.hasLength(basicRule.getErrorKey()) ? basicRule.getErrorKey() : basicRule.getField();
+        return basicRule.getField() + ": " + errorKey;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.valang.compiler;
+
+import java.util.Map;
+
+import org.springframework.beans.BeanWrapper;
+import org.springmodules.validation.util.lang.PropertyPathAccessor;
+import org.springmodules.validation.valang.functions.BeanPropertyFunction;
+import org.springmodules.validation.valang.functions.Function;
+
+/**
+ * A function that reads a nested property of beans of a given class with a {@link PropertyPathAccessor} resolved
+ * at compile time, instead of resolving the property path on every call.
+ * <p/>
+ * Whenever the target is not an instance of the compiled class, the evaluation is delegated to the interpreted
+ * {@link BeanPropertyFunction}, so the results and the exceptions are the same in both cases.
+ *
+ * @author Uri Boness
+ */
+public class CompiledPropertyFunction implements Function {
+
+    private final Class targetClass;
+
+    private final PropertyPathAccessor accessor;
+
+    private final BeanPropertyFunction interpretedFunction;
+
+    private CompiledPropertyFunction(Class targetClass, PropertyPathAccessor accessor, BeanPropertyFunction interpretedFunction) {
+        this.targetClass = targetClass;
+        this.accessor = accessor;
+        this.interpretedFunction = interpretedFunction;
+    }
+
+    /**
+     * Compiles the given property function for the given target class.
+     *
+     * @param function The interpreted property function.
+     * @param targetClass The class of the beans the function will be applied on.
+     * @return The compiled function or <code>null</code> if the property path cannot be resolved statically
+     *         (indexed or mapped properties, map targets, unknown properties).
+     */
+    public static CompiledPropertyFunction compile(BeanPropertyFunction function, Class targetClass) {
+        String path = function.getField();
+        if (path.startsWith("this.")) {
+            path = path.substring(5);
+        }
+        if ("this".equals(path) || Map.class.isAssignableFrom(targetClass)) {
+            return null;
+        }
+        PropertyPathAccessor accessor = PropertyPathAccessor.getAccessor(targetClass, path);
+        return (accessor != null) ? new CompiledPropertyFunction(targetClass, accessor, function) : null;
+    }
+
+    public Object getResult(Object target) {
+        Object bean = (target instanceof BeanWrapper) ? ((BeanWrapper) target).getWrappedInstance() : target;
+        if (!targetClass.isInstance(bean)) {
+            return interpretedFunction.getResult(target);
+        }
+        return accessor.getValue(bean);
+    }
+
+    /**
+     * Returns the interpreted function this function was compiled from.
+     */
+    public BeanPropertyFunction getInterpretedFunction() {
+        return interpretedFunction;
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.valang.compiler;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.collections.Predicate;
+import org.apache.commons.collections.functors.AndPredicate;
+import org.apache.commons.collections.functors.NotPredicate;
+import org.apache.commons.collections.functors.OrPredicate;
+import org.springframework.core.ReflectiveVisitorHelper;
+import org.springmodules.validation.valang.ValangException;
+import org.springmodules.validation.valang.functions.AbstractFunction;
+import org.springmodules.validation.valang.functions.AbstractInitializableFunction;
+import org.springmodules.validation.valang.functions.AbstractMathFunction;
+import org.springmodules.validation.valang.functions.BeanPropertyFunction;
+import org.springmodules.validation.valang.functions.Function;
+import org.springmodules.validation.valang.functions.LiteralFunction;
+import org.springmodules.validation.valang.predicates.BasicValidationRule;
+import org.springmodules.validation.valang.predicates.GenericTestPredicate;
+
+/**
+ * Compiles the validation rules parsed by the {@link org.springmodules.validation.valang.parser.ValangParser} for
+ * a given target class. The compiled rules are equivalent to the parsed ones, but:
+ * <ul>
+ * <li>the property paths are resolved once to the read methods of the target class (see
+ * {@link CompiledPropertyFunction}),</li>
+ * <li>the arithmetic operations on literals are evaluated once.</li>
+ * </ul>
+ * <p/>
+ * The parts of the rules that cannot be compiled (custom functions, custom predicates, indexed and mapped
+ * properties, etc.) are kept as they are and interpreted. The parsed rules are never modified, so the same parsed
+ * rules can be compiled for several classes. This class is thread-safe.
+ *
+ * @author Uri Boness
+ */
+public class ValangRuleCompiler {
+
+    private static final ReflectiveVisitorHelper reflectiveVisitorHelper = new ReflectiveVisitorHelper();
+
+    private static final String FUNCTIONS_PACKAGE = "org.springmodules.validation.valang.functions.";
+
+    private final Class targetClass;
+
+    /**
+     * Creates a new compiler for the given target class.
+     *
+     * @param targetClass The class of the beans the compiled rules will be applied on.
+     */
+    public ValangRuleCompiler(Class targetClass) {
+        if (targetClass == null) {
+            throw new IllegalArgumentException("Target class parameter must not be null!");
+        }
+        this.targetClass = targetClass;
+    }
+
+    /**
+     * Compiles the given validation rules.
+     *
+     * @param rules The parsed validation rules.
+     * @return The compiled validation rules, in the same order.
+     */
+    public Collection compile(Collection rules) {
+        List compiledRules = new ArrayList(rules.size());
+        for (Iterator iter = rules.iterator(); iter.hasNext();) {
+            compiledRules.add(doVisit(iter.next()));
+        }
+        return compiledRules;
+    }
+
+    protected Object doVisit(Object value) {
+        return reflectiveVisitorHelper.invokeVisit(this, value);
+    }
+
+    Object visitNull() {
+        return null;
+    }
+
+    Object visit(Object value) {
+        return value;
+    }
+
+    //============================================= Rules ==================================================
+
+    Object visit(BasicValidationRule rule) {
+        Collection errorArgs = null;
+        if (rule.getErrorArgs() != null) {
+            errorArgs = new ArrayList(rule.getErrorArgs().size());
+            for (Iterator iter = rule.getErrorArgs().iterator(); iter.hasNext();) {
+                errorArgs.add(doVisit(iter.next()));
+            }
+        }
+        Predicate predicate = (Predicate) doVisit(rule.getPredicate());
+        return new BasicValidationRule(rule.getField(), predicate, rule.getErrorKey(), rule.getErrorMessage(), errorArgs);
+    }
+
+    //=========================================== Predicates ===============================================
+
+    Object visit(NotPredicate p) {
+        return NotPredicate.getInstance((Predicate) doVisit(p.getPredicates()[0]));
+    }
+
+    Object visit(AndPredicate p) {
+        return AndPredicate.getInstance((Predicate) doVisit(p.getPredicates()[0]), (Predicate) doVisit(p.getPredicates()[1]));
+    }
+
+    Object visit(OrPredicate p) {
+        return OrPredicate.getInstance((Predicate) doVisit(p.getPredicates()[0]), (Predicate) doVisit(p.getPredicates()[1]));
+    }
+
+    Object visit(GenericTestPredicate p) {
+        if (p.getClass() != GenericTestPredicate.class) {
+            // subclasses created by custom visitors may depend on the original functions
+            return p;
+        }
+        Function leftFunction = (Function) doVisit(p.getLeftFunction());
+        Function rightFunction = (Function) doVisit(p.getRightFunction());
+        return new GenericTestPredicate(leftFunction, p.getOperator(), rightFunction, p.getLine(), p.getColumn());
+    }
+
+    //============================================ Functions ===============================================
+
+    Object visit(BeanPropertyFunction f) {
+        Function compiledFunction = CompiledPropertyFunction.compile(f, targetClass);
+        return (compiledFunction != null) ? compiledFunction : f;
+    }
+
+    Object visit(LiteralFunction f) {
+        // the operands of the IN and BETWEEN operators are literal collections or arrays of functions
+        Object literal = f.getResult(null);
+        if (literal instanceof Function[]) {
+            Function[] functions = (Function[]) literal;
+            Function[] compiledFunctions = new Function[functions.length];
+            for (int i = 0; i < functions.length; i++) {
+                compiledFunctions[i] = (Function) doVisit(functions[i]);
+            }
+            return new LiteralFunction(compiledFunctions);
+        } else if (literal instanceof Collection) {
+            Collection compiledValues = new ArrayList(((Collection) literal).size());
+            for (Iterator iter = ((Collection) literal).iterator(); iter.hasNext();) {
+                Object value = iter.next();
+                compiledValues.add((value instanceof Function) ? doVisit(value) : value);
+            }
+            return new LiteralFunction(compiledValues);
+        }
+        return f;
+    }
+
+    Object visit(AbstractMathFunction f) {
+        Function leftFunction = (Function) doVisit(f.getLeftFunction());
+        Function rightFunction = (Function) doVisit(f.getRightFunction());
+        if (isConstant(leftFunction) && isConstant(rightFunction)) {
+            try {
+                return new LiteralFunction(f.getResult(null));
+            } catch (ValangException e) {
+                // the error is reported when the rule is evaluated
+                return f;
+            }
+        }
+        if (!isBuiltInFunction(f)) {
+            return f;
+        }
+        return instantiate(f.getClass(),
+            new Class[] { Function.class, Function.class, int.class, int.class },
+            new Object[] { leftFunction, rightFunction, new Integer(f.getLine()), new Integer(f.getColumn()) });
+    }
+
+    Object visit(AbstractFunction f) {
+        // custom functions may hold state set by the bean factory, only the built-in functions are recreated
+        if (!isBuiltInFunction(f) || f instanceof AbstractInitializableFunction) {
+            return f;
+        }
+        Function[] arguments = f.getArguments();
+        Function[] compiledArguments = new Function[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            compiledArguments[i] = (Function) doVisit(arguments[i]);
+        }
+        return instantiate(f.getClass(),
+            new Class[] { Function[].class, int.class, int.class },
+            new Object[] { compiledArguments, new Integer(f.getLine()), new Integer(f.getColumn()) });
+    }
+
+    //============================================= Helpers ================================================
+
+    private boolean isConstant(Function function) {
+        if (!(function instanceof LiteralFunction)) {
+            return false;
+        }
+        Object literal = function.getResult(null);
+        return literal instanceof Number || literal instanceof String;
+    }
+
+    private boolean isBuiltInFunction(Function function) {
+        return function.getClass().getName().startsWith(FUNCTIONS_PACKAGE);
+    }
+
+    private Object instantiate(Class functionClass, Class[] parameterTypes, Object[] arguments) {
+        try {
+            Constructor constructor = functionClass.getConstructor(parameterTypes);
+            return constructor.newInstance(arguments);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not compile function of class [" + functionClass.getName() + "]: " + e);
+        }
+    }
+
+}
@@ -106,6 +106,20 @@ public abstract class AbstractFunction implements Function {
         return this.template;
     }
 
+    /**
+     * Returns the line of the function in the Valang expression.
+     */
+    public int getLine() {
+        return getTemplate().getLine();
+    }
+
+    /**
+     * Returns the column of the function in the Valang expression.
+     */
+    public int getColumn() {
+        return getTemplate().getColumn();
+    }
+
     public final Object getResult(Object target) {
         return getTemplate().execute(target, new FunctionCallback() {
             public Object execute(Object target) throws Exception {
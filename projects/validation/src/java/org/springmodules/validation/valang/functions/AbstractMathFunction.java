@@ -67,11 +67,29 @@ public abstract class AbstractMathFunction implements Function {
         return this.template;
     }
 
+    /**
+     * Returns the line of the function in the Valang expression.
+     */
+    public int getLine() {
+        return getTemplate().getLine();
+    }
+
+    /**
+     * Returns the column of the function in the Valang expression.
+     */
+    public int getColumn() {
+        return getTemplate().getColumn();
+    }
+
     protected static double transform(Object o) {
         if (o instanceof BigInteger) {
             return new BigDecimal((BigInteger) o).doubleValue();
         } else if (o instanceof BigDecimal) {
             return ((BigDecimal) o).doubleValue();
+        } else if (o instanceof Double || o instanceof Integer || o instanceof Long
+            || o instanceof Short || o instanceof Byte) {
+            // same result as the conversion through a BigDecimal, without parsing the string form
+            return ((Number) o).doubleValue();
         } else if (o instanceof Number) {
             return new BigDecimal(o.toString()).doubleValue();
         } else if (o instanceof String) {
@@ -16,18 +16,19 @@
 
 package org.springmodules.validation.valang.functions;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Map;
 
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
+import org.springmodules.validation.util.lang.PropertyPathAccessor;
 
 /**
  * <p>Function taking the value from a bean property or a java.util.Map instance.
  *
+ * <p>The property path is split once when the function is created, and bean properties are read through the
+ * shared {@link PropertyPathAccessor} cache instead of through a new bean wrapper on every call.
+ *
  * @author Steven Devijver
  * @since Apr 23, 2005
  */
@@ -35,9 +36,22 @@ public class BeanPropertyFunction implements Function {
 
     private String field = null;
 
+    private final String path;
+
+    // the elements of the path and, for each element, the path from that element on
+    private final String[] pathElements;
+
+    private final String[] subPaths;
+
     public BeanPropertyFunction(String field) {
         super();
         this.field = field;
+        this.path = field.startsWith("this.") ? field.substring(5) : field;
+        this.pathElements = StringUtils.split(path, '.');
+        this.subPaths = new String[pathElements.length];
+        for (int i = pathElements.length - 1; i >= 0; i--) {
+            subPaths[i] = (i == pathElements.length - 1) ? pathElements[i] : pathElements[i] + "." + subPaths[i + 1];
+        }
     }
 
     public String getField() {
@@ -45,51 +59,30 @@ public class BeanPropertyFunction implements Function {
     }
 
     public Object getResult(Object target) {
-        String fieldName = getField();
-        if ("this".equals(fieldName)) {
+        if ("this".equals(field)) {
             return target;
         }
-        if (fieldName.startsWith("this.")) {
-            fieldName = field.substring(5);
-        }
         if (target instanceof Map) {
-            return getValue((Map) target, split(fieldName));
-        }
-        if (target instanceof BeanWrapper) {
-            return ((BeanWrapper) target).getPropertyValue(fieldName);
+            return getValue((Map) target, 0);
         }
-        return new BeanWrapperImpl(target).getPropertyValue(fieldName);
+        return getValue(target, path);
     }
 
-    private String[] split(String path) {
-        return StringUtils.split(path, '.');
-    }
-
-    private String[] pop(String[] path) {
-        Collection coll = new ArrayList();
-        for (int i = 1; i < path.length; i++) {
-            coll.add(path[i]);
-        }
-        return (String[]) coll.toArray(new String[]{});
-    }
-
-    private String concat(String[] path) {
-        StringBuffer sb = new StringBuffer();
-
-        for (int i = 0; i < path.length; i++) {
-            sb.append(path[i]);
-            sb.append(".");
+    private Object getValue(Object target, String propertyPath) {
+        if (target instanceof BeanWrapper) {
+            BeanWrapper beanWrapper = (BeanWrapper) target;
+            Object bean = beanWrapper.getWrappedInstance();
+            PropertyPathAccessor accessor = (bean != null) ? PropertyPathAccessor.getAccessor(bean.getClass(), propertyPath) : null;
+            return (accessor != null) ? accessor.getValue(bean) : beanWrapper.getPropertyValue(propertyPath);
         }
-
-        sb.setLength(sb.length() - 1);
-        return sb.toString();
+        return PropertyPathAccessor.getPropertyValue(target, propertyPath);
     }
 
-    private Object getValue(Map map, String[] path) {
-        if (path.length > 0) {
-            Object result = MapUtils.getObject(map, path[0]);
-            if (path.length > 1) {
-                return new BeanPropertyFunction(concat(pop(path))).getResult(result);
+    private Object getValue(Map map, int index) {
+        if (index < pathElements.length) {
+            Object result = MapUtils.getObject(map, pathElements[index]);
+            if (index < pathElements.length - 1) {
+                return (result instanceof Map) ? getValue((Map) result, index + 1) : getValue(result, subPaths[index + 1]);
             } else {
                 return result;
             }
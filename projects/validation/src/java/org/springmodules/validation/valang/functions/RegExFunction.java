@@ -16,43 +16,48 @@
 
 package org.springmodules.validation.valang.functions;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Pattern;
 
+import org.springmodules.validation.util.PatternCache;
+
 /**
  * Regular expression match function. Takes two arguments: the pattern as a string and the string
  * to be matched. The toString method of the second parameter value is called to retrieve the
  * string value. This function is not null-safe.
+ * <p/>
+ * A literal pattern is compiled once, when the function is created. Other patterns are compiled
+ * on evaluation, through the shared {@link PatternCache}.
  *
  * @author Steven Devijver
  * @since Sep 15, 2005
  */
 public class RegExFunction extends AbstractFunction {
 
-    private Map patternCache = null;
+    // the compiled pattern of a literal pattern argument, null if the pattern is not literal
+    private final Pattern constantPattern;
 
     public RegExFunction(Function[] arguments, int line, int column) {
         super(arguments, line, column);
         definedExactNumberOfArguments(2);
-        patternCache = new HashMap();
+        constantPattern = (arguments[0] instanceof LiteralFunction) ? compileLiteralPattern(arguments[0]) : null;
     }
 
     protected Object doGetResult(Object target) throws Exception {
-        Object value = getArguments()[0].getResult(target);
-        if (value instanceof String) {
-            Pattern pattern = null;
-            if (patternCache.containsKey(value)) {
-                pattern = (Pattern) patternCache.get(value);
-            } else {
-                pattern = Pattern.compile((String) value);
-                patternCache.put(value, pattern);
+        Pattern pattern = constantPattern;
+        if (pattern == null) {
+            Object value = getArguments()[0].getResult(target);
+            if (!(value instanceof String)) {
+                throw new Exception("No String value for regular expression");
             }
-            String str = getArguments()[1].getResult(target).toString();
-            return pattern.matcher(str).matches() ? Boolean.TRUE : Boolean.FALSE;
-        } else {
-            throw new Exception("No String value for regular expression");
+            pattern = PatternCache.compile((String) value);
         }
+        String str = getArguments()[1].getResult(target).toString();
+        return pattern.matcher(str).matches() ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    private static Pattern compileLiteralPattern(Function literalFunction) {
+        Object literal = literalFunction.getResult(null);
+        return (literal instanceof String) ? PatternCache.compile((String) literal) : null;
     }
 
 }
@@ -16,6 +16,7 @@
 
 package org.springmodules.validation.valang.parser;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -79,6 +80,21 @@ public class SimpleValangBased extends BasicContextAware implements ValangBased
         return parser;
     }
 
+    /**
+     * Returns the key that identifies the expressions parsed by this instance in the
+     * {@link org.springmodules.validation.util.ExpressionCache}: the class name of this instance along with its
+     * date parsers. The class itself is not part of the key, so the shared cache does not keep it alive. Returns <code>null</code> when custom functions are registered, for these functions may depend on the
+     * application context they are initialized with, so the parsed expressions cannot be shared.
+     *
+     * @return The key of the expressions parsed by this instance, or <code>null</code> if they cannot be cached.
+     */
+    protected Object getExpressionCacheKey() {
+        if (!getAllCustomFunctions().isEmpty()) {
+            return null;
+        }
+        return Arrays.asList(new Object[] { getClass().getName(), new HashMap(dateParsers) });
+    }
+
     public void initValang(Object object) {
         super.initLifecycle(object);
         if (object instanceof ValangBased) {
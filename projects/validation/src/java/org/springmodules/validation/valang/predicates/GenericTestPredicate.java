@@ -17,13 +17,16 @@
 package org.springmodules.validation.valang.predicates;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.apache.commons.collections.Predicate;
-import org.apache.commons.collections.functors.AndPredicate;
 import org.apache.commons.collections.functors.AnyPredicate;
 import org.apache.commons.collections.functors.FalsePredicate;
 import org.springframework.util.StringUtils;
@@ -34,11 +37,22 @@ import org.springmodules.validation.valang.functions.LiteralFunction;
 /**
  * <p>GenericTestPredicate can test if a property value is null or not null.
  *
+ * <p>The lists of the IN and NOT IN operators that only contain literal values are compiled once into a hashed set
+ * of lookup keys, so these operators do not depend on the size of the list. The bounds of the BETWEEN and
+ * NOT BETWEEN operators are compared directly with the tested value.
+ *
  * @author Steven Devijver
  * @since 23-04-2005
  */
 public class GenericTestPredicate extends AbstractPropertyPredicate {
 
+    private final static BigInteger TEN = BigInteger.valueOf(10);
+
+    private final static BigDecimal ZERO = new BigDecimal(BigInteger.valueOf(0), 0);
+
+    // the lookup keys of a constant IN / NOT IN list, or null if the list has to be evaluated on each test
+    private final Set lookupKeys;
+
     /**
      * <p>Constructor taking two functions and an operator.
      *
@@ -47,6 +61,7 @@ public class GenericTestPredicate extends AbstractPropertyPredicate {
      */
     public GenericTestPredicate(Function leftFunction, Operator operator, Function rightFunction, int line, int column) {
         super(leftFunction, operator, rightFunction, line, column);
+        this.lookupKeys = compileLookupKeys(operator, rightFunction);
     }
 
 
@@ -57,46 +72,85 @@ public class GenericTestPredicate extends AbstractPropertyPredicate {
      * @return the result of the test
      */
     public boolean evaluate(Object target) {
-        Object leftValue = getLeftFunction().getResult(target);
+        Object leftValue = toBigDecimalIfNumber(getLeftFunction().getResult(target));
         Object rightValue = null;
-        boolean dates = false;
-        boolean numbers = false;
 
         if (getRightFunction() != null) {
-            rightValue = getRightFunction().getResult(target);
-        }
-
-        if (leftValue instanceof Number) {
-            leftValue = new BigDecimal(leftValue.toString());
-        }
-        if (rightValue instanceof Number) {
-            rightValue = new BigDecimal(rightValue.toString());
+            rightValue = toBigDecimalIfNumber(getRightFunction().getResult(target));
         }
 
-        dates = leftValue instanceof Date && rightValue instanceof Date;
-        numbers = leftValue instanceof BigDecimal && rightValue instanceof BigDecimal;
-
         if (getOperator() instanceof Operator.NullOperator) {
             return leftValue == null;
         } else if (getOperator() instanceof Operator.NotNullOperator) {
             return leftValue != null;
-        } else if (getOperator() instanceof Operator.EqualsOperator) {
-            if (leftValue instanceof BigDecimal && rightValue instanceof BigDecimal) {
+        } else if (getOperator() instanceof Operator.InOperator) {
+            if (lookupKeys != null && leftValue != null) {
+                return lookupKeys.contains(getLookupKey(leftValue));
+            }
+            return evaluateIn("IN", leftValue, rightValue, target);
+        } else if (getOperator() instanceof Operator.NotInOperator) {
+            if (lookupKeys != null && leftValue != null) {
+                return !lookupKeys.contains(getLookupKey(leftValue));
+            }
+            return !evaluateIn("NOT IN", leftValue, rightValue, target);
+        } else if (getOperator() instanceof Operator.BetweenOperator) {
+            return evaluateBetween(leftValue, rightValue, target);
+        } else if (getOperator() instanceof Operator.NotBetweenOperator) {
+            return !evaluateBetween(leftValue, rightValue, target);
+        } else if (getOperator() instanceof Operator.HasLengthOperator) {
+            return StringUtils.hasLength(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.HasNoLengthOperator) {
+            return !StringUtils.hasLength(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.HasTextOperator) {
+            return StringUtils.hasText(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.HasNoTextOperator) {
+            return !StringUtils.hasText(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsBlankOperator) {
+            return isBlank(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsNotBlankOperator) {
+            return !isBlank(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsWordOperator) {
+            return isWord(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsNotWordOperator) {
+            return !isWord(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsLowerCaseOperator) {
+            return isLowerCase(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsNotLowerCaseOperator) {
+            return !isLowerCase(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsUpperCaseOperator) {
+            return isUpperCase(leftValue != null ? leftValue.toString() : null);
+        } else if (getOperator() instanceof Operator.IsNotUpperCaseOperator) {
+            return !isUpperCase(leftValue != null ? leftValue.toString() : null);
+        }
+
+        return compare(getOperator(), leftValue, rightValue);
+    }
+
+    /**
+     * Compares the given values with the given comparison operator. Numbers are expected to be converted to
+     * {@link BigDecimal} already.
+     */
+    private boolean compare(Operator operator, Object leftValue, Object rightValue) {
+        boolean dates = leftValue instanceof Date && rightValue instanceof Date;
+        boolean numbers = leftValue instanceof BigDecimal && rightValue instanceof BigDecimal;
+
+        if (operator instanceof Operator.EqualsOperator) {
+            if (numbers) {
                 return ((BigDecimal) leftValue).compareTo((BigDecimal) rightValue) == 0;
             } else if (dates) {
                 return ((Date) leftValue).getTime() == ((Date) rightValue).getTime();
             } else {
                 return leftValue.equals(rightValue);
             }
-        } else if (getOperator() instanceof Operator.NotEqualsOperator) {
-            if (leftValue instanceof BigDecimal && rightValue instanceof BigDecimal) {
+        } else if (operator instanceof Operator.NotEqualsOperator) {
+            if (numbers) {
                 return ((BigDecimal) leftValue).compareTo((BigDecimal) rightValue) != 0;
             } else if (dates) {
                 return ((Date) leftValue).getTime() != ((Date) rightValue).getTime();
             } else {
                 return !leftValue.equals(rightValue);
             }
-        } else if (getOperator() instanceof Operator.LessThanOperator) {
+        } else if (operator instanceof Operator.LessThanOperator) {
             if (dates) {
                 return ((Date) leftValue).getTime() < ((Date) rightValue).getTime();
             } else if (numbers) {
@@ -104,7 +158,7 @@ public class GenericTestPredicate extends AbstractPropertyPredicate {
             } else {
                 throw new ValangException("< operator only supports two date or two number values!", getLine(), getColumn());
             }
-        } else if (getOperator() instanceof Operator.LessThanOrEqualOperator) {
+        } else if (operator instanceof Operator.LessThanOrEqualOperator) {
             if (dates) {
                 return ((Date) leftValue).getTime() <= ((Date) rightValue).getTime();
             } else if (numbers) {
@@ -112,7 +166,7 @@ public class GenericTestPredicate extends AbstractPropertyPredicate {
             } else {
                 throw new ValangException("<= operator only supports two date or two number values!", getLine(), getColumn());
             }
-        } else if (getOperator() instanceof Operator.MoreThanOperator) {
+        } else if (operator instanceof Operator.MoreThanOperator) {
             if (dates) {
                 return ((Date) leftValue).getTime() > ((Date) rightValue).getTime();
             } else if (numbers) {
@@ -120,7 +174,7 @@ public class GenericTestPredicate extends AbstractPropertyPredicate {
             } else {
                 throw new ValangException("> operator only supports two date or two number values!", getLine(), getColumn());
             }
-        } else if (getOperator() instanceof Operator.MoreThanOrEqualOperator) {
+        } else if (operator instanceof Operator.MoreThanOrEqualOperator) {
             if (dates) {
                 return ((Date) leftValue).getTime() >= ((Date) rightValue).getTime();
             } else if (numbers) {
@@ -128,75 +182,133 @@ public class GenericTestPredicate extends AbstractPropertyPredicate {
             } else {
                 throw new IllegalArgumentException(">= operator only supports two date or two number values!");
             }
-        } else if (getOperator() instanceof Operator.InOperator) {
-            Collection predicates = new ArrayList();
-            for (Iterator iter = getIterator(rightValue); iter.hasNext();) {
-                Object o = iter.next();
-                if (o instanceof Function) {
-                    predicates.add(getPredicate(new LiteralFunction(leftValue), OperatorConstants.EQUALS_OPERATOR, (Function) o, getLine(), getColumn()));
-                } else {
-                    predicates.add(getPredicate(new LiteralFunction(leftValue), OperatorConstants.EQUALS_OPERATOR, new LiteralFunction(o), getLine(), getColumn()));
-                }
+        }
+
+        throw new IllegalStateException("Operator class [" + operator.getClass().getName() + "] not supported!");
+    }
+
+    /**
+     * Evaluates an IN list that could not be compiled (the list holds non literal functions or is only known when the
+     * predicate is evaluated) by testing the equality of the value with each of the list elements.
+     */
+    private boolean evaluateIn(String operatorName, Object leftValue, Object rightValue, Object target) {
+        Collection predicates = new ArrayList();
+        for (Iterator iter = getIterator(rightValue); iter.hasNext();) {
+            Object o = iter.next();
+            if (o instanceof Function) {
+                predicates.add(getPredicate(new LiteralFunction(leftValue), OperatorConstants.EQUALS_OPERATOR, (Function) o, getLine(), getColumn()));
+            } else {
+                predicates.add(getPredicate(new LiteralFunction(leftValue), OperatorConstants.EQUALS_OPERATOR, new LiteralFunction(o), getLine(), getColumn()));
             }
-            if (predicates.isEmpty()) {
-                throw new IllegalStateException("IN expression contains no elements!");
-            } else if (predicates.size() == 1) {
-                predicates.add(FalsePredicate.getInstance());
+        }
+        if (predicates.isEmpty()) {
+            throw new IllegalStateException(operatorName + " expression contains no elements!");
+        } else if (predicates.size() == 1) {
+            predicates.add(FalsePredicate.getInstance());
+        }
+        return AnyPredicate.getInstance(predicates).evaluate(target);
+    }
+
+    /**
+     * Compares the value with the lower bound and, only if it is not lower, with the upper bound of the range.
+     */
+    private boolean evaluateBetween(Object leftValue, Object rightValue, Object target) {
+        Object[] bounds = getArray(rightValue);
+        Object lowerBound = toBigDecimalIfNumber(((Function) bounds[0]).getResult(target));
+        if (!compare(OperatorConstants.MORE_THAN_OR_EQUAL_OPERATOR, leftValue, lowerBound)) {
+            return false;
+        }
+        Object upperBound = toBigDecimalIfNumber(((Function) bounds[1]).getResult(target));
+        return compare(OperatorConstants.LESS_THAN_OR_EQUAL_OPERATOR, leftValue, upperBound);
+    }
+
+    /**
+     * Compiles the list of an IN or NOT IN operator into a set of lookup keys (see {@link #getLookupKey(Object)}).
+     * Only non empty collections and arrays of literal values are compiled.
+     *
+     * @return The lookup keys or <code>null</code> if the list cannot be compiled.
+     */
+    private static Set compileLookupKeys(Operator operator, Function rightFunction) {
+        if (!(operator instanceof Operator.InOperator || operator instanceof Operator.NotInOperator) ||
+            rightFunction == null || rightFunction.getClass() != LiteralFunction.class) {
+            return null;
+        }
+        Object literal = rightFunction.getResult(null);
+        Collection values;
+        if (literal instanceof Collection) {
+            values = (Collection) literal;
+        } else if (literal instanceof Object[]) {
+            values = Arrays.asList((Object[]) literal);
+        } else {
+            return null; // iterators and enumerations can only be traversed once
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+        Set keys = new HashSet(values.size() * 2);
+        for (Iterator iter = values.iterator(); iter.hasNext();) {
+            Object value = iter.next();
+            if (value instanceof Function) {
+                if (value.getClass() != LiteralFunction.class) {
+                    return null;
+                }
+                value = ((Function) value).getResult(null);
             }
-            return AnyPredicate.getInstance(predicates).evaluate(target);
-        } else if (getOperator() instanceof Operator.NotInOperator) {
-            Collection predicates = new ArrayList();
-            for (Iterator iter = getIterator(rightValue); iter.hasNext();) {
-                Object o = iter.next();
-                if (o instanceof Function) {
-                    predicates.add(getPredicate(new LiteralFunction(leftValue), OperatorConstants.EQUALS_OPERATOR, (Function) o, getLine(), getColumn()));
-                } else {
-                    predicates.add(getPredicate(new LiteralFunction(leftValue), OperatorConstants.EQUALS_OPERATOR, new LiteralFunction(o), getLine(), getColumn()));
+            // a null element never equals the tested value
+            if (value != null) {
+                try {
+                    keys.add(getLookupKey(toBigDecimalIfNumber(value)));
+                } catch (NumberFormatException e) {
+                    return null;
                 }
             }
-            if (predicates.isEmpty()) {
-                throw new IllegalStateException("NOT IN expression contains no elements!");
-            } else if (predicates.size() == 1) {
-                predicates.add(FalsePredicate.getInstance());
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the key under which the given value is looked up in a compiled IN list. Two values have equal keys if
+     * and only if the equals operator considers them equal: numbers are compared by value regardless of their scale,
+     * dates by their time.
+     */
+    private static Object getLookupKey(Object value) {
+        if (value instanceof BigDecimal) {
+            return stripTrailingZeros((BigDecimal) value);
+        } else if (value instanceof Date) {
+            // numbers are always keyed as big decimals, so the time of a date cannot collide with a number
+            return new Long(((Date) value).getTime());
+        }
+        return value;
+    }
+
+    private static BigDecimal stripTrailingZeros(BigDecimal value) {
+        if (value.signum() == 0) {
+            return ZERO;
+        }
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        BigInteger unscaledValue = value.unscaledValue();
+        int scale = value.scale();
+        while (scale > 0) {
+            BigInteger[] quotientAndRemainder = unscaledValue.divideAndRemainder(TEN);
+            if (quotientAndRemainder[1].signum() != 0) {
+                break;
             }
-            return !AnyPredicate.getInstance(predicates).evaluate(target);
-        } else if (getOperator() instanceof Operator.BetweenOperator) {
-            Object[] array = getArray(rightValue);
-            Predicate predicate1 = getPredicate(new LiteralFunction(leftValue), OperatorConstants.MORE_THAN_OR_EQUAL_OPERATOR, (Function) array[0], getLine(), getColumn());
-            Predicate predicate2 = getPredicate(new LiteralFunction(leftValue), OperatorConstants.LESS_THAN_OR_EQUAL_OPERATOR, (Function) array[1], getLine(), getColumn());
-            return AndPredicate.getInstance(predicate1, predicate2).evaluate(target);
-        } else if (getOperator() instanceof Operator.NotBetweenOperator) {
-            Object[] array = getArray(rightValue);
-            Predicate predicate1 = getPredicate(new LiteralFunction(leftValue), OperatorConstants.MORE_THAN_OR_EQUAL_OPERATOR, (Function) array[0], getLine(), getColumn());
-            Predicate predicate2 = getPredicate(new LiteralFunction(leftValue), OperatorConstants.LESS_THAN_OR_EQUAL_OPERATOR, (Function) array[1], getLine(), getColumn());
-            return !AndPredicate.getInstance(predicate1, predicate2).evaluate(target);
-        } else if (getOperator() instanceof Operator.HasLengthOperator) {
-            return StringUtils.hasLength(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.HasNoLengthOperator) {
-            return !StringUtils.hasLength(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.HasTextOperator) {
-            return StringUtils.hasText(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.HasNoTextOperator) {
-            return !StringUtils.hasText(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsBlankOperator) {
-            return isBlank(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsNotBlankOperator) {
-            return !isBlank(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsWordOperator) {
-            return isWord(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsNotWordOperator) {
-            return !isWord(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsLowerCaseOperator) {
-            return isLowerCase(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsNotLowerCaseOperator) {
-            return !isLowerCase(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsUpperCaseOperator) {
-            return isUpperCase(leftValue != null ? leftValue.toString() : null);
-        } else if (getOperator() instanceof Operator.IsNotUpperCaseOperator) {
-            return !isUpperCase(leftValue != null ? leftValue.toString() : null);
+            unscaledValue = quotientAndRemainder[0];
+            scale--;
         }
+        return new BigDecimal(unscaledValue, scale);
+    }
 
-        throw new IllegalStateException("Operator class [" + getOperator().getClass().getName() + "] not supported!");
+    private static Object toBigDecimalIfNumber(Object value) {
+        if (value instanceof BigDecimal || !(value instanceof Number)) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        return new BigDecimal(value.toString());
     }
 
     protected Predicate getPredicate(Function leftFunction, Operator operator, Function rightFunction, int line, int column) {
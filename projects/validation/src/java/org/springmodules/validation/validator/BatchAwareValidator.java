@@ -0,0 +1,48 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+/**
+ * A validator that can reuse some state (e.g. a configured bean wrapper) between the validations of the beans of a
+ * batch. The {@link BatchValidator} creates the state once for every chunk of beans it validates, and always uses
+ * a state from a single thread at a time.
+ *
+ * @author Uri Boness
+ */
+public interface BatchAwareValidator extends Validator {
+
+    /**
+     * Creates the state reused to validate the beans of a chunk.
+     *
+     * @return The state reused to validate the beans of a chunk.
+     */
+    Object createBatchState();
+
+    /**
+     * Validates the given object using the given batch state.
+     *
+     * @param obj The validated object.
+     * @param errors The registery where validation errors will be registered.
+     * @param batchState The state created by {@link #createBatchState()}.
+     */
+    void validate(Object obj, Errors errors, Object batchState);
+
+}
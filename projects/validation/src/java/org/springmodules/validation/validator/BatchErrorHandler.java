@@ -0,0 +1,37 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+/**
+ * Receives the errors of the invalid beans of a batch validated by a {@link BatchValidator}. The errors are handed
+ * over in the order of the beans, and always by the thread that called the batch validator.
+ *
+ * @author Uri Boness
+ */
+public interface BatchErrorHandler {
+
+    /**
+     * Handles the errors of an invalid bean.
+     *
+     * @param index The position of the bean in the batch (starting at 0).
+     * @param bean The invalid bean.
+     * @param errors The errors registered for the bean.
+     */
+    void handleErrors(int index, Object bean, BatchValidationError[] errors);
+
+}
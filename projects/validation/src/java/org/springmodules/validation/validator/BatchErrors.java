@@ -0,0 +1,151 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.AbstractErrors;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+
+/**
+ * The errors of a bean of a batch. The errors are recorded as {@link BatchValidationError}s and the instance is
+ * reset and reused for every bean of a chunk. The rejected values are not recorded, but the field values are read
+ * from the current bean (honoring the nested path) like a {@link org.springframework.validation.BindingResult} does,
+ * so validators can use {@link #getFieldValue(String)}, e.g. through
+ * {@link org.springframework.validation.ValidationUtils}.
+ *
+ * @author Uri Boness
+ */
+class BatchErrors extends AbstractErrors {
+
+    private final String objectName;
+
+    private final List records = new ArrayList();
+
+    private Object target;
+
+    // reused for all the beans of the chunk, created on the first call of getFieldValue()
+    private BeanWrapper beanWrapper;
+
+    public BatchErrors(String objectName) {
+        this.objectName = objectName;
+    }
+
+    /**
+     * Removes all the recorded errors, resets the nested path and sets the bean whose errors are recorded.
+     *
+     * @param target The bean that is validated next.
+     */
+    public void reset(Object target) {
+        records.clear();
+        setNestedPath("");
+        this.target = target;
+        if (beanWrapper != null && target != null) {
+            beanWrapper.setWrappedInstance(target);
+        }
+    }
+
+    /**
+     * Returns the recorded errors.
+     */
+    public BatchValidationError[] getErrorRecords() {
+        return (BatchValidationError[]) records.toArray(new BatchValidationError[records.size()]);
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public void reject(String errorCode, Object[] errorArgs, String defaultMessage) {
+        records.add(new BatchValidationError(null, errorCode, errorArgs, defaultMessage));
+    }
+
+    public void rejectValue(String field, String errorCode, Object[] errorArgs, String defaultMessage) {
+        if ("".equals(getNestedPath()) && !StringUtils.hasLength(field)) {
+            // the same as BindingResult: an empty field on the top level object is a global error
+            reject(errorCode, errorArgs, defaultMessage);
+            return;
+        }
+        records.add(new BatchValidationError(fixedField(field), errorCode, errorArgs, defaultMessage));
+    }
+
+    public void addAllErrors(Errors errors) {
+        for (Iterator iter = errors.getAllErrors().iterator(); iter.hasNext();) {
+            ObjectError error = (ObjectError) iter.next();
+            String field = (error instanceof FieldError) ? ((FieldError) error).getField() : null;
+            records.add(new BatchValidationError(field, error.getCode(), error.getArguments(), error.getDefaultMessage()));
+        }
+    }
+
+    public boolean hasErrors() {
+        return !records.isEmpty();
+    }
+
+    public int getErrorCount() {
+        return records.size();
+    }
+
+    public List getGlobalErrors() {
+        List errors = new ArrayList();
+        for (Iterator iter = records.iterator(); iter.hasNext();) {
+            BatchValidationError record = (BatchValidationError) iter.next();
+            if (record.isGlobal()) {
+                errors.add(new ObjectError(objectName, new String[] { record.getErrorCode() },
+                    record.getErrorArguments(), record.getDefaultMessage()));
+            }
+        }
+        return errors;
+    }
+
+    public List getFieldErrors() {
+        List errors = new ArrayList();
+        for (Iterator iter = records.iterator(); iter.hasNext();) {
+            BatchValidationError record = (BatchValidationError) iter.next();
+            if (!record.isGlobal()) {
+                errors.add(new FieldError(objectName, record.getField(), null, false,
+                    new String[] { record.getErrorCode() }, record.getErrorArguments(), record.getDefaultMessage()));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Returns the current value of the given field of the current bean. The field is relative to the nested path.
+     */
+    public Object getFieldValue(String field) {
+        String fixedField = fixedField(field);
+        if (target == null) {
+            return null;
+        }
+        if (fixedField.length() == 0) {
+            return target;
+        }
+        if (beanWrapper == null) {
+            beanWrapper = new BeanWrapperImpl(target);
+        }
+        return beanWrapper.getPropertyValue(fixedField);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+/**
+ * A compact record of a validation error registered while validating a batch of beans (see {@link BatchValidator}).
+ * Unlike the errors of a {@link org.springframework.validation.BindingResult}, the record only holds the error code
+ * as it was registered (the message codes are not resolved) and not the rejected value.
+ *
+ * @author Uri Boness
+ */
+public class BatchValidationError {
+
+    private final String field;
+
+    private final String errorCode;
+
+    private final Object[] errorArguments;
+
+    private final String defaultMessage;
+
+    /**
+     * Constructs a new BatchValidationError.
+     *
+     * @param field The full path of the rejected field, or <code>null</code> for a global error.
+     * @param errorCode The error code.
+     * @param errorArguments The error arguments (may be <code>null</code>).
+     * @param defaultMessage The default error message (may be <code>null</code>).
+     */
+    public BatchValidationError(String field, String errorCode, Object[] errorArguments, String defaultMessage) {
+        this.field = field;
+        this.errorCode = errorCode;
+        this.errorArguments = errorArguments;
+        this.defaultMessage = defaultMessage;
+    }
+
+    /**
+     * Returns the full path of the rejected field, or <code>null</code> if this is a global error.
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Returns whether this error was registered for the validated bean as a whole.
+     */
+    public boolean isGlobal() {
+        return field == null;
+    }
+
+    /**
+     * Returns the error code.
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Returns the error arguments.
+     */
+    public Object[] getErrorArguments() {
+        return errorArguments;
+    }
+
+    /**
+     * Returns the default error message.
+     */
+    public String getDefaultMessage() {
+        return defaultMessage;
+    }
+
+    public String toString() {
+        return (isGlobal() ? "" : field + ": ") + errorCode;
+    }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.Assert;
+import org.springframework.validation.Validator;
+import org.springmodules.validation.bean.context.ValidationContext;
+import org.springmodules.validation.bean.context.ValidationContextHolder;
+
+/**
+ * Validates large batches of beans (e.g. imported records) with an underlying validator. The beans are read from an
+ * iterator in chunks, so the batch never has to be loaded at once, and the errors of the invalid beans are handed to a
+ * {@link BatchErrorHandler} as compact {@link BatchValidationError} records, in the order of the beans.
+ * <p/>
+ * The errors instance used to validate the beans is reused for all the beans of a chunk, as is the state of a
+ * {@link BatchAwareValidator}. When a task executor is set, the chunks are validated in parallel by the executor,
+ * while the calling thread reads the next chunks (up to a maximum number of pending chunks) and handles the errors
+ * of the completed ones. The validation context of the calling thread is propagated to the executor threads. When the
+ * calling thread needs the errors of a chunk that no executor thread has started yet, it validates the chunk itself,
+ * so a batch validated from a thread of a busy executor never waits for chunks queued behind it.
+ * <p/>
+ * A batch validator can validate several batches at once, provided the underlying validator is thread-safe.
+ *
+ * @author Uri Boness
+ */
+public class BatchValidator {
+
+    public final static int DEFAULT_CHUNK_SIZE = 500;
+
+    public final static int DEFAULT_MAX_PENDING_CHUNKS = 4;
+
+    public final static String DEFAULT_OBJECT_NAME = "bean";
+
+    private Validator validator;
+
+    private TaskExecutor taskExecutor;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int maxPendingChunks = DEFAULT_MAX_PENDING_CHUNKS;
+
+    private String objectName = DEFAULT_OBJECT_NAME;
+
+    /**
+     * Constructs a new BatchValidator. The validator must be set before any batch is validated.
+     */
+    public BatchValidator() {
+    }
+
+    /**
+     * Constructs a new BatchValidator with the given underlying validator.
+     *
+     * @param validator The validator that validates the beans of the batches.
+     */
+    public BatchValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Validates the beans of the given batch.
+     *
+     * @param beans The beans to validate.
+     * @param errorHandler The handler of the errors of the invalid beans.
+     * @return The number of invalid beans.
+     */
+    public int validate(Iterator beans, BatchErrorHandler errorHandler) {
+        Assert.notNull(validator, "The validator must be set");
+        Assert.notNull(errorHandler, "The error handler cannot be null");
+
+        ValidationContext context = ValidationContextHolder.getValidationContext();
+        LinkedList pendingChunks = new LinkedList();
+        int invalidBeans = 0;
+        int index = 0;
+        while (beans.hasNext()) {
+            Object[] chunkBeans = new Object[chunkSize];
+            int count = 0;
+            while (count < chunkSize && beans.hasNext()) {
+                chunkBeans[count++] = beans.next();
+            }
+            Chunk chunk = new Chunk(index, chunkBeans, count, context);
+            index += count;
+
+            if (taskExecutor == null) {
+                chunk.run();
+                invalidBeans += handleErrors(chunk, errorHandler);
+                continue;
+            }
+
+            try {
+                taskExecutor.execute(chunk);
+            } catch (RuntimeException e) {
+                // the executor rejected the task, validating the chunk in the current thread
+                chunk.run();
+            }
+            pendingChunks.add(chunk);
+            if (pendingChunks.size() >= maxPendingChunks) {
+                invalidBeans += handleErrors((Chunk) pendingChunks.removeFirst(), errorHandler);
+            }
+        }
+        while (!pendingChunks.isEmpty()) {
+            invalidBeans += handleErrors((Chunk) pendingChunks.removeFirst(), errorHandler);
+        }
+        return invalidBeans;
+    }
+
+    /**
+     * Waits for the given chunk to be validated and hands the errors of its invalid beans to the given handler. The
+     * chunk is validated by the current thread if no executor thread has started it yet.
+     *
+     * @return The number of invalid beans in the given chunk.
+     */
+    private int handleErrors(Chunk chunk, BatchErrorHandler errorHandler) {
+        chunk.run();
+        chunk.await();
+        chunk.rethrowFailure();
+        int invalidBeans = 0;
+        for (int i = 0; i < chunk.count; i++) {
+            if (chunk.errors[i] != null) {
+                errorHandler.handleErrors(chunk.firstIndex + i, chunk.beans[i], chunk.errors[i]);
+                invalidBeans++;
+            }
+        }
+        return invalidBeans;
+    }
+
+    //============================================= Setter/Getter ===================================================
+
+    /**
+     * Sets the validator that validates the beans of the batches. If it is a {@link BatchAwareValidator}, its batch
+     * state is reused for all the beans of a chunk.
+     *
+     * @param validator The validator that validates the beans of the batches.
+     */
+    public void setValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Returns the validator that validates the beans of the batches.
+     *
+     * @return The validator that validates the beans of the batches.
+     */
+    public Validator getValidator() {
+        return validator;
+    }
+
+    /**
+     * Sets the task executor used to validate the chunks in parallel. By default no executor is set and the chunks
+     * are validated by the calling thread.
+     *
+     * @param taskExecutor The task executor used to validate the chunks.
+     */
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Sets the number of beans in a chunk (500 by default).
+     *
+     * @param chunkSize The number of beans in a chunk.
+     */
+    public void setChunkSize(int chunkSize) {
+        Assert.isTrue(chunkSize > 0, "The chunk size must be positive");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the maximum number of chunks that are validated by the task executor at once, that is the chunks read
+     * ahead of the chunk of which the errors are handled (4 by default).
+     *
+     * @param maxPendingChunks The maximum number of chunks validated at once.
+     */
+    public void setMaxPendingChunks(int maxPendingChunks) {
+        Assert.isTrue(maxPendingChunks > 0, "The maximum number of pending chunks must be positive");
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    /**
+     * Sets the object name of the errors the beans are validated with ("bean" by default).
+     *
+     * @param objectName The object name of the errors.
+     */
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    //=============================================== Inner Classes ====================================================
+
+    /**
+     * Validates a chunk of beans, recording the errors of each bean.
+     */
+    private class Chunk implements Runnable {
+
+        private final int firstIndex;
+        private final Object[] beans;
+        private final int count;
+        private final ValidationContext context;
+        private final BatchValidationError[][] errors;
+        private boolean claimed;
+        private boolean completed;
+        private Throwable failure;
+
+        public Chunk(int firstIndex, Object[] beans, int count, ValidationContext context) {
+            this.firstIndex = firstIndex;
+            this.beans = beans;
+            this.count = count;
+            this.context = context;
+            this.errors = new BatchValidationError[count][];
+        }
+
+        /**
+         * Validates the chunk, unless it is already validated or being validated by another thread.
+         */
+        public void run() {
+            if (claim()) {
+                validateChunk();
+            }
+        }
+
+        private synchronized boolean claim() {
+            if (claimed) {
+                return false;
+            }
+            claimed = true;
+            return true;
+        }
+
+        private void validateChunk() {
+            ValidationContext originalContext = ValidationContextHolder.getValidationContext();
+            try {
+                if (context != null) {
+                    ValidationContextHolder.setValidationContext(context);
+                } else {
+                    ValidationContextHolder.clearContext();
+                }
+                BatchErrors beanErrors = new BatchErrors(objectName);
+                BatchAwareValidator batchAwareValidator =
+                    (validator instanceof BatchAwareValidator) ? (BatchAwareValidator) validator : null;
+                Object batchState = (batchAwareValidator != null) ? batchAwareValidator.createBatchState() : null;
+                for (int i = 0; i < count; i++) {
+                    beanErrors.reset(beans[i]);
+                    if (batchAwareValidator != null) {
+                        batchAwareValidator.validate(beans[i], beanErrors, batchState);
+                    } else {
+                        validator.validate(beans[i], beanErrors);
+                    }
+                    if (beanErrors.hasErrors()) {
+                        errors[i] = beanErrors.getErrorRecords();
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                if (originalContext != null) {
+                    ValidationContextHolder.setValidationContext(originalContext);
+                } else {
+                    ValidationContextHolder.clearContext();
+                }
+                synchronized (this) {
+                    completed = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        public synchronized void await() {
+            boolean interrupted = false;
+            while (!completed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public void rethrowFailure() {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new IllegalStateException("Batch validation failed: " + failure);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the {@link ValidationStatistics.Counter}s resolved by a validator, so the counter of a rule (or of a
+ * validated class) is looked up by name in the statistics only once, and then found by the identity of the rule
+ * within a scope (e.g. the class of the validated objects, when the name of the rule depends on it). Looking up a
+ * cached counter takes no lock: the cache is copied when a counter is added, which only happens the first time a rule
+ * is evaluated. The cached counters are ignored once the statistics they belong to are replaced or reset. This class
+ * is thread-safe.
+ *
+ * @author Uri Boness
+ */
+public class StatisticsCounterCache {
+
+    private volatile CachedCounters cachedCounters = new CachedCounters(null, Collections.EMPTY_MAP);
+
+    /**
+     * Returns the counter cached for the given key within the given scope.
+     *
+     * @param statistics The statistics the counter belongs to.
+     * @param scope The scope of the key (may be <code>null</code>).
+     * @param key The key of the counter, typically a rule or a class.
+     * @return The cached counter, or <code>null</code> if no counter of the given statistics is cached.
+     */
+    public ValidationStatistics.Counter getCounter(ValidationStatistics statistics, Object scope, Object key) {
+        CachedCounters cached = cachedCounters;
+        if (cached.statistics != statistics) {
+            return null;
+        }
+        Map counters = (Map) cached.countersByScope.get(scope);
+        ValidationStatistics.Counter counter = (counters == null) ? null : (ValidationStatistics.Counter) counters.get(key);
+        return (counter == null || counter.isDetached()) ? null : counter;
+    }
+
+    /**
+     * Caches the given counter for the given key within the given scope.
+     *
+     * @param statistics The statistics the counter belongs to.
+     * @param scope The scope of the key (may be <code>null</code>).
+     * @param key The key of the counter, typically a rule or a class.
+     * @param counter The counter to cache.
+     */
+    public synchronized void putCounter(ValidationStatistics statistics, Object scope, Object key,
+        ValidationStatistics.Counter counter) {
+
+        CachedCounters cached = cachedCounters;
+        Map countersByScope = new IdentityHashMap((cached.statistics == statistics) ?
+            cached.countersByScope : Collections.EMPTY_MAP);
+        Map counters = (Map) countersByScope.get(scope);
+        counters = (counters == null) ? new IdentityHashMap() : new IdentityHashMap(counters);
+        counters.put(key, counter);
+        countersByScope.put(scope, counters);
+        cachedCounters = new CachedCounters(statistics, countersByScope);
+    }
+
+    /**
+     * The cached counters of some statistics, by scope and key. Never modified once published.
+     */
+    private static class CachedCounters {
+
+        private final ValidationStatistics statistics;
+
+        // Map<Object, Map<Object, Counter>>
+        private final Map countersByScope;
+
+        public CachedCounters(ValidationStatistics statistics, Map countersByScope) {
+            this.statistics = statistics;
+            this.countersByScope = countersByScope;
+        }
+    }
+
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Collects performance statistics of validators: the number of evaluations, the number of failures and the
+ * cumulative evaluation time of each rule, and the same figures for each validated class. The statistics tell
+ * which rules are expensive (and so worth optimizing) and which rules fail often (and so are worth evaluating
+ * first).
+ * <p/>
+ * The instrumentation is optional: a validator records its evaluations only when it is given statistics (see for
+ * example {@link org.springmodules.validation.bean.RuleBasedValidator#setStatistics(ValidationStatistics)}). Several
+ * validators may share the same statistics. The statistics are exposed via JMX (see
+ * {@link ValidationStatisticsMBean}) and as a textual report (see {@link #dump(Writer)}). This class is thread-safe.
+ * <p/>
+ * Validators that evaluate the same rules many times can resolve the counter of each rule once (see
+ * {@link #getRuleCounter(String)} and {@link StatisticsCounterCache}) and record the evaluations with it directly.
+ *
+ * @author Uri Boness
+ */
+public class ValidationStatistics implements ValidationStatisticsMBean {
+
+    // Map<String, Counter>
+    private final Map countersByRule = Collections.synchronizedMap(new HashMap());
+
+    // Map<String, Counter>
+    private final Map countersByClass = Collections.synchronizedMap(new HashMap());
+
+    private volatile boolean enabled = true;
+
+    /**
+     * Records the evaluation of a rule.
+     *
+     * @param ruleName The name of the evaluated rule.
+     * @param time The duration of the evaluation in nanoseconds.
+     * @param failed Whether the rule failed.
+     */
+    public void recordRuleEvaluation(String ruleName, long time, boolean failed) {
+        getRuleCounter(ruleName).record(time, failed);
+    }
+
+    /**
+     * Records the validation of an object.
+     *
+     * @param clazz The class of the validated object.
+     * @param time The duration of the validation in nanoseconds.
+     * @param failed Whether the validation registered at least one error.
+     */
+    public void recordValidation(Class clazz, long time, boolean failed) {
+        getClassCounter(clazz).record(time, failed);
+    }
+
+    /**
+     * Returns the counter of the rule of the given name, creating it if the rule was never evaluated. The counter
+     * records the evaluations of the rule until these statistics are reset.
+     *
+     * @param ruleName The name of the rule.
+     * @return The counter of the rule.
+     */
+    public Counter getRuleCounter(String ruleName) {
+        return getCounter(countersByRule, ruleName);
+    }
+
+    /**
+     * Returns the counter of the given validated class, creating it if no object of the class was validated. The
+     * counter records the validations of the class until these statistics are reset.
+     *
+     * @param clazz The validated class.
+     * @return The counter of the class.
+     */
+    public Counter getClassCounter(Class clazz) {
+        return getCounter(countersByClass, clazz.getName());
+    }
+
+    /**
+     * Returns the statistics of the rule of the given name.
+     *
+     * @param ruleName The name of the rule.
+     * @return The statistics of the rule, or <code>null</code> if the rule was never evaluated.
+     */
+    public Counter getRuleStatistics(String ruleName) {
+        return (Counter) countersByRule.get(ruleName);
+    }
+
+    /**
+     * Returns the statistics of the given validated class.
+     *
+     * @param clazz The validated class.
+     * @return The statistics of the class, or <code>null</code> if no object of the class was validated.
+     */
+    public Counter getClassStatistics(Class clazz) {
+        return (Counter) countersByClass.get(clazz.getName());
+    }
+
+    /**
+     * Returns the statistics of all the evaluated rules, sorted by their cumulative evaluation time (the most
+     * expensive first).
+     */
+    public Counter[] getRuleStatistics() {
+        return sortedCounters(countersByRule);
+    }
+
+    /**
+     * Returns the statistics of all the validated classes, sorted by their cumulative validation time (the most
+     * expensive first).
+     */
+    public Counter[] getClassStatistics() {
+        return sortedCounters(countersByClass);
+    }
+
+    /**
+     * Writes a report of the statistics of all the rules and classes to the given writer.
+     *
+     * @param writer The writer the report is written to.
+     */
+    public void dump(Writer writer) {
+        PrintWriter out = new PrintWriter(writer);
+        dump(out, "Validated classes", getClassStatistics());
+        out.println();
+        dump(out, "Rules", getRuleStatistics());
+        out.flush();
+    }
+
+    //============================================ ValidationStatisticsMBean ===========================================
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRuleCount() {
+        return countersByRule.size();
+    }
+
+    public int getClassCount() {
+        return countersByClass.size();
+    }
+
+    public long getRuleEvaluationCount() {
+        return totalCount(getRuleStatistics());
+    }
+
+    public long getRuleFailureCount() {
+        return totalFailures(getRuleStatistics());
+    }
+
+    public long getValidationCount() {
+        return totalCount(getClassStatistics());
+    }
+
+    public long getValidationFailureCount() {
+        return totalFailures(getClassStatistics());
+    }
+
+    public String getReport() {
+        StringWriter writer = new StringWriter();
+        dump(writer);
+        return writer.toString();
+    }
+
+    public void reset() {
+        detachCounters(countersByRule);
+        detachCounters(countersByClass);
+    }
+
+    //=============================================== Helper Methods ===================================================
+
+    private Counter getCounter(Map counters, String name) {
+        Counter counter = (Counter) counters.get(name);
+        if (counter == null) {
+            synchronized (counters) {
+                counter = (Counter) counters.get(name);
+                if (counter == null) {
+                    counter = new Counter(name);
+                    counters.put(name, counter);
+                }
+            }
+        }
+        return counter;
+    }
+
+    private static void detachCounters(Map counters) {
+        synchronized (counters) {
+            for (Iterator iter = counters.values().iterator(); iter.hasNext();) {
+                ((Counter) iter.next()).detached = true;
+            }
+            counters.clear();
+        }
+    }
+
+    private Counter[] sortedCounters(Map counters) {
+        Counter[] result;
+        synchronized (counters) {
+            result = (Counter[]) counters.values().toArray(new Counter[counters.size()]);
+        }
+        Arrays.sort(result, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long time1 = ((Counter) o1).getTotalTime();
+                long time2 = ((Counter) o2).getTotalTime();
+                return (time1 > time2) ? -1 : ((time1 == time2) ? 0 : 1);
+            }
+        });
+        return result;
+    }
+
+    private static long totalCount(Counter[] counters) {
+        long total = 0;
+        for (int i = 0; i < counters.length; i++) {
+            total += counters[i].getCount();
+        }
+        return total;
+    }
+
+    private static long totalFailures(Counter[] counters) {
+        long total = 0;
+        for (int i = 0; i < counters.length; i++) {
+            total += counters[i].getFailures();
+        }
+        return total;
+    }
+
+    private static void dump(PrintWriter out, String title, Counter[] counters) {
+        out.println(title + " (" + counters.length + "):");
+        out.println("      count   failures  failure%    total(ms)   average(us)  name");
+        for (int i = 0; i < counters.length; i++) {
+            Counter counter = counters[i];
+            out.println(String.format("%11d %10d %9.1f %12.3f %13.3f  %s", new Object[] {
+                new Long(counter.getCount()),
+                new Long(counter.getFailures()),
+                new Double(counter.getFailureRate() * 100),
+                new Double(counter.getTotalTime() / 1000000d),
+                new Double(counter.getAverageTime() / 1000d),
+                counter.getName()
+            }));
+        }
+    }
+
+    //=============================================== Inner Classes ====================================================
+
+    /**
+     * The statistics of a single rule or validated class.
+     */
+    public static class Counter {
+
+        private final String name;
+
+        private long count;
+
+        private long failures;
+
+        private long totalTime;
+
+        // set once the statistics are reset, the evaluations recorded afterwards are not reported anymore
+        private volatile boolean detached;
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records an evaluation.
+         *
+         * @param time The duration of the evaluation in nanoseconds.
+         * @param failed Whether the evaluation failed.
+         */
+        public synchronized void record(long time, boolean failed) {
+            count++;
+            totalTime += time;
+            if (failed) {
+                failures++;
+            }
+        }
+
+        /**
+         * Returns whether this counter was removed from its statistics by a reset.
+         */
+        public boolean isDetached() {
+            return detached;
+        }
+
+        /**
+         * Returns the name of the rule or validated class.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of evaluations.
+         */
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the number of evaluations that failed.
+         */
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the ratio of the failed evaluations (between 0 and 1).
+         */
+        public synchronized double getFailureRate() {
+            return (count == 0) ? 0 : (double) failures / count;
+        }
+
+        /**
+         * Returns the cumulative evaluation time in nanoseconds.
+         */
+        public synchronized long getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * Returns the average evaluation time in nanoseconds.
+         */
+        public synchronized double getAverageTime() {
+            return (count == 0) ? 0 : (double) totalTime / count;
+        }
+
+        public String toString() {
+            return name + " [count=" + getCount() + ", failures=" + getFailures() + ", totalTime=" + getTotalTime() + "ns]";
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+/**
+ * The management interface of {@link ValidationStatistics}, which makes the statistics a standard MBean. The
+ * statistics can therefore be registered with an MBean server directly, or exported with Spring's
+ * <code>MBeanExporter</code>.
+ *
+ * @author Uri Boness
+ */
+public interface ValidationStatisticsMBean {
+
+    /**
+     * Returns whether the validations and rule evaluations are currently recorded.
+     */
+    boolean isEnabled();
+
+    /**
+     * Sets whether the validations and rule evaluations are recorded.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the number of distinct rules that were evaluated.
+     */
+    int getRuleCount();
+
+    /**
+     * Returns the number of distinct classes that were validated.
+     */
+    int getClassCount();
+
+    /**
+     * Returns the total number of rule evaluations.
+     */
+    long getRuleEvaluationCount();
+
+    /**
+     * Returns the total number of rule evaluations that failed.
+     */
+    long getRuleFailureCount();
+
+    /**
+     * Returns the total number of validations.
+     */
+    long getValidationCount();
+
+    /**
+     * Returns the total number of validations that registered at least one error.
+     */
+    long getValidationFailureCount();
+
+    /**
+     * Returns a report of the statistics of all the rules and classes, the most expensive first.
+     */
+    String getReport();
+
+    /**
+     * Clears all the statistics.
+     */
+    void reset();
+
+}
@@ -16,14 +16,20 @@
 
 package org.springmodules.validation.bean;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.validation.BindException;
 import org.springframework.validation.Validator;
+import org.springmodules.validation.bean.conf.CascadeValidation;
 import org.springmodules.validation.bean.conf.DefaultBeanValidationConfiguration;
 import org.springmodules.validation.bean.conf.loader.SimpleBeanValidationConfigurationLoader;
 import org.springmodules.validation.bean.conf.loader.xml.DefaultValidationRuleElementHandlerRegistry;
@@ -32,8 +38,10 @@ import org.springmodules.validation.bean.converter.ModelAwareErrorCodeConverter;
 import org.springmodules.validation.bean.rule.DefaultValidationRule;
 import org.springmodules.validation.util.cel.valang.ValangCondition;
 import org.springmodules.validation.util.cel.valang.ValangConditionExpressionParser;
+import org.springmodules.validation.util.condition.AbstractCondition;
 import org.springmodules.validation.util.condition.Conditions;
 import org.springmodules.validation.valang.functions.UpperCaseFunction;
+import org.springmodules.validation.validator.ValidationStatistics;
 
 /**
  * Integration tests for the bean validator framework.
@@ -164,4 +172,244 @@ public class BeanValidatorIntegrationTests extends TestCase {
         assertEquals("Person.phone[min.length]", errors.getFieldError("phone").getCode());
     }
 
+    public void testBeanValidator_WithParallelCascadeValidation() throws Exception {
+
+        SimpleBeanValidationConfigurationLoader loader = createGroupConfigurationLoader();
+
+        Group group = new Group();
+        for (int i = 0; i < 250; i++) {
+            group.getMembers().add(new Person((i % 3 == 0) ? "Uri" : "Steven"));
+        }
+
+        BeanValidator sequentialValidator = new BeanValidator(loader);
+        BindException sequentialErrors = new BindException(group, "group");
+        sequentialValidator.validate(group, sequentialErrors);
+
+        BeanValidator parallelValidator = new BeanValidator(loader);
+        parallelValidator.setCascadeTaskExecutor(new SimpleAsyncTaskExecutor());
+        parallelValidator.setParallelCascadeChunkSize(10);
+        BindException parallelErrors = new BindException(group, "group");
+        parallelValidator.validate(group, parallelErrors);
+
+        assertEquals(84, parallelErrors.getErrorCount());
+        assertEquals("Person.name[minLength]", parallelErrors.getFieldError("members[0].name").getCode());
+        assertEquals(sequentialErrors.getAllErrors(), parallelErrors.getAllErrors());
+    }
+
+    public void testBeanValidator_WithParallelCascadeValidationOfSharedObjects() throws Exception {
+
+        SimpleBeanValidationConfigurationLoader loader = createGroupConfigurationLoader();
+
+        // the same invalid person is a member of the group in every chunk
+        Person sharedPerson = new Person("Uri");
+        Group group = new Group();
+        for (int i = 0; i < 50; i++) {
+            group.getMembers().add((i % 10 == 5) ? sharedPerson : new Person((i % 7 == 0) ? "Uri" : "Steven"));
+        }
+
+        BeanValidator sequentialValidator = new BeanValidator(loader);
+        BindException sequentialErrors = new BindException(group, "group");
+        sequentialValidator.validate(group, sequentialErrors);
+
+        BeanValidator parallelValidator = new BeanValidator(loader);
+        parallelValidator.setCascadeTaskExecutor(new SimpleAsyncTaskExecutor());
+        parallelValidator.setParallelCascadeChunkSize(10);
+        BindException parallelErrors = new BindException(group, "group");
+        parallelValidator.validate(group, parallelErrors);
+
+        assertEquals(1, parallelErrors.getFieldErrorCount("members[5].name"));
+        assertEquals(0, parallelErrors.getFieldErrorCount("members[15].name"));
+        assertEquals(sequentialErrors.getAllErrors(), parallelErrors.getAllErrors());
+    }
+
+    public void testBeanValidator_WithParallelCascadeValidationAndBusyExecutor() throws Exception {
+
+        SimpleBeanValidationConfigurationLoader loader = createGroupConfigurationLoader();
+
+        Group group = new Group();
+        for (int i = 0; i < 30; i++) {
+            group.getMembers().add(new Person((i % 3 == 0) ? "Uri" : "Steven"));
+        }
+
+        // an executor whose threads are all busy: the queued chunks are never started by it
+        final List queuedTasks = new ArrayList();
+        BeanValidator validator = new BeanValidator(loader);
+        validator.setCascadeTaskExecutor(new TaskExecutor() {
+            public void execute(Runnable task) {
+                queuedTasks.add(task);
+            }
+        });
+        validator.setParallelCascadeChunkSize(10);
+        BindException errors = new BindException(group, "group");
+        validator.validate(group, errors);
+
+        assertEquals(3, queuedTasks.size());
+        assertEquals(10, errors.getErrorCount());
+        assertEquals("Person.name[minLength]", errors.getFieldError("members[27].name").getCode());
+    }
+
+    public void testBeanValidator_WithStatistics() throws Exception {
+
+        SimpleBeanValidationConfigurationLoader loader = createGroupConfigurationLoader();
+
+        Group group = new Group();
+        group.getMembers().add(new Person("Uri"));
+        group.getMembers().add(new Person("Steven"));
+        group.getMembers().add(new Person("Rob"));
+
+        ValidationStatistics statistics = new ValidationStatistics();
+        BeanValidator validator = new BeanValidator(loader);
+        validator.setStatistics(statistics);
+        validator.validate(group, new BindException(group, "group"));
+        validator.validate(group, new BindException(group, "group"));
+
+        // the cascaded objects are recorded along with the root
+        assertEquals(2, statistics.getClassStatistics(Group.class).getCount());
+        assertEquals(6, statistics.getClassStatistics(Person.class).getCount());
+        assertEquals(4, statistics.getClassStatistics(Person.class).getFailures());
+        ValidationStatistics.Counter ruleCounter = statistics.getRuleStatistics(Person.class.getName() + "#name: minLength");
+        assertEquals(6, ruleCounter.getCount());
+        assertEquals(4, ruleCounter.getFailures());
+
+        // the counters resolved by the validator are not used anymore once the statistics are reset
+        statistics.reset();
+        validator.validate(group, new BindException(group, "group"));
+        assertEquals(3, statistics.getRuleStatistics(Person.class.getName() + "#name: minLength").getCount());
+        assertEquals(3, statistics.getClassStatistics(Person.class).getCount());
+    }
+
+    public void testBeanValidator_WithDeepObjectGraph() throws Exception {
+
+        SimpleBeanValidationConfigurationLoader loader = createGroupConfigurationLoader();
+
+        // a chain of nested groups, validated without a call stack frame per level
+        int depth = 3000;
+        Group root = new Group();
+        Group group = root;
+        for (int i = 0; i < depth; i++) {
+            Group member = new Group();
+            group.getMembers().add(member);
+            group = member;
+        }
+        group.getMembers().add(new Person("Uri"));
+        group.getMembers().add(new Person("Steven"));
+
+        // the root is cascaded again, it is not validated twice
+        group.getMembers().add(root);
+
+        BeanValidator validator = new BeanValidator(loader);
+        BindException errors = new BindException(root, "group");
+        validator.validate(root, errors);
+
+        assertEquals(1, errors.getErrorCount());
+        StringBuffer path = new StringBuffer();
+        for (int i = 0; i < depth; i++) {
+            path.append("members[0].");
+        }
+        assertEquals("Person.name[minLength]", errors.getFieldError(path + "members[0].name").getCode());
+    }
+
+    public void testBeanValidator_InFailFastModeWithAdaptiveRuleOrdering() throws Exception {
+
+        List evaluations = new ArrayList();
+        DefaultBeanValidationConfiguration personValidationConfiguration = new DefaultBeanValidationConfiguration();
+        personValidationConfiguration.addGlobalRule(new DefaultValidationRule(new RecordingCondition("valid", true, 2, evaluations), "valid"));
+        personValidationConfiguration.addGlobalRule(new DefaultValidationRule(new RecordingCondition("invalid", false, 0, evaluations), "invalid"));
+        SimpleBeanValidationConfigurationLoader loader = new SimpleBeanValidationConfigurationLoader();
+        loader.setClassValidation(Person.class, personValidationConfiguration);
+
+        BeanValidator validator = new BeanValidator(loader);
+        validator.setFailFast(true);
+        validator.setAdaptiveRuleOrdering(true);
+
+        // no rule was evaluated yet, the rules are evaluated in their configured order
+        Person person = new Person("Uri");
+        BindException errors = new BindException(person, "person");
+        validator.validate(person, errors);
+        assertEquals(1, errors.getErrorCount());
+        assertEquals(Arrays.asList(new Object[] { "valid", "invalid" }), evaluations);
+
+        for (int i = 0; i < 5; i++) {
+            validator.validate(person, new BindException(person, "person"));
+        }
+
+        // the cheap rule that always fails is now evaluated before the slow rule that passes
+        evaluations.clear();
+        errors = new BindException(person, "person");
+        validator.validate(person, errors);
+        assertEquals(1, errors.getErrorCount());
+        assertEquals("Person[invalid]", errors.getGlobalError().getCode());
+        assertEquals(Arrays.asList(new Object[] { "invalid" }), evaluations);
+    }
+
+    public void testBeanValidator_InFailFastModeWithAdaptiveRuleOrderingAndBudget() throws Exception {
+
+        List evaluations = new ArrayList();
+        DefaultBeanValidationConfiguration personValidationConfiguration = new DefaultBeanValidationConfiguration();
+        personValidationConfiguration.addGlobalRule(new DefaultValidationRule(new RecordingCondition("valid", true, 0, evaluations), "valid"));
+        personValidationConfiguration.addGlobalRule(new DefaultValidationRule(new RecordingCondition("invalid", false, 0, evaluations), "invalid"));
+        SimpleBeanValidationConfigurationLoader loader = new SimpleBeanValidationConfigurationLoader();
+        loader.setClassValidation(Person.class, personValidationConfiguration);
+
+        BeanValidator validator = new BeanValidator(loader);
+        validator.setFailFast(true);
+        validator.setAdaptiveRuleOrdering(true);
+        validator.setMaxRuleEvaluations(1);
+
+        Person person = new Person("Uri");
+        validator.validate(person, new BindException(person, "person"));
+        assertEquals(Arrays.asList(new Object[] { "valid" }), evaluations);
+
+        // the second rule was not evaluated, so it was not observed as passing: it is tried before the observed one
+        evaluations.clear();
+        validator.validate(person, new BindException(person, "person"));
+        assertEquals(Arrays.asList(new Object[] { "invalid" }), evaluations);
+    }
+
+    //=============================================== Helper Methods ===================================================
+
+    /**
+     * Creates a loader of the configurations of {@link Group}, whose members are cascaded, and of {@link Person},
+     * whose name must be at least 5 characters long.
+     */
+    private SimpleBeanValidationConfigurationLoader createGroupConfigurationLoader() {
+        DefaultBeanValidationConfiguration personValidationConfiguration = new DefaultBeanValidationConfiguration();
+        personValidationConfiguration.addPropertyRule("name", new DefaultValidationRule(Conditions.minLength("name", 5), "minLength"));
+        DefaultBeanValidationConfiguration groupValidationConfiguration = new DefaultBeanValidationConfiguration();
+        groupValidationConfiguration.addCascadeValidation(new CascadeValidation("members"));
+        SimpleBeanValidationConfigurationLoader loader = new SimpleBeanValidationConfigurationLoader();
+        loader.setClassValidation(Person.class, personValidationConfiguration);
+        loader.setClassValidation(Group.class, groupValidationConfiguration);
+        return loader;
+    }
+
+    //=============================================== Helper Classes ===================================================
+
+    private static class RecordingCondition extends AbstractCondition {
+
+        private final String name;
+        private final boolean result;
+        private final long delay;
+        private final List evaluations;
+
+        public RecordingCondition(String name, boolean result, long delay, List evaluations) {
+            this.name = name;
+            this.result = result;
+            this.delay = delay;
+            this.evaluations = evaluations;
+        }
+
+        public boolean doCheck(Object object) {
+            evaluations.add(name);
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return result;
+        }
+    }
+
 }
@@ -0,0 +1,21 @@
+package org.springmodules.validation.bean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Uri Boness
+ */
+public class Group {
+
+    private List members = new ArrayList();
+
+    public List getMembers() {
+        return members;
+    }
+
+    public void setMembers(List members) {
+        this.members = members;
+    }
+
+}
@@ -20,6 +20,7 @@ import junit.framework.TestCase;
 import org.easymock.MockControl;
 import org.springframework.validation.Errors;
 import org.springmodules.validation.util.condition.Condition;
+import org.springmodules.validation.validator.ValidationStatistics;
 
 /**
  * Tests for {@link org.springmodules.validation.bean.RuleBasedValidator}.
@@ -149,6 +150,86 @@ public class RuleBasedValidatorTests extends TestCase {
         errorsControl.verify();
     }
 
+    public void testValidate_InFailFastMode() throws Exception {
+
+        Object[] args = new Object[0];
+        validator.addGlobalRule(globalCondition, "global.errorCode", args);
+        validator.addPropertyRule("name", propertyCondition, "property.errorCode", args);
+        validator.setFailFast(true);
+
+        Person person = new Person("Uri");
+
+        // the property rule is never evaluated
+        globalConditionControl.expectAndReturn(globalCondition.check(person), false);
+        errors.reject("global.errorCode", args, "global.errorCode");
+
+        globalConditionControl.replay();
+        propertyConditionControl.replay();
+        errorsControl.replay();
+
+        validator.validate(person, errors);
+
+        globalConditionControl.verify();
+        propertyConditionControl.verify();
+        errorsControl.verify();
+    }
+
+    public void testValidate_WhenRuleEvaluationBudgetIsExceeded() throws Exception {
+
+        Object[] args = new Object[0];
+        validator.addGlobalRule(globalCondition, "global.errorCode", args);
+        validator.addPropertyRule("name", propertyCondition, "property.errorCode", args);
+        validator.setMaxRuleEvaluations(1);
+
+        Person person = new Person("Uri");
+
+        globalConditionControl.expectAndReturn(globalCondition.check(person), true);
+        errors.reject(RuleBasedValidator.DEFAULT_BUDGET_EXCEEDED_ERROR_CODE, null, "Validation budget exceeded");
+
+        globalConditionControl.replay();
+        propertyConditionControl.replay();
+        errorsControl.replay();
+
+        validator.validate(person, errors);
+
+        globalConditionControl.verify();
+        propertyConditionControl.verify();
+        errorsControl.verify();
+    }
+
+    public void testValidate_WithStatistics() throws Exception {
+
+        Object[] args = new Object[0];
+        validator.addGlobalRule(globalCondition, "global.errorCode", args);
+        validator.addPropertyRule("name", propertyCondition, "property.errorCode", args);
+        ValidationStatistics statistics = new ValidationStatistics();
+        validator.setStatistics(statistics);
+
+        Person person = new Person("Uri");
+
+        globalConditionControl.expectAndReturn(globalCondition.check(person), true);
+        propertyConditionControl.expectAndReturn(propertyCondition.check("Uri"), false);
+        errorsControl.expectAndReturn(errors.getErrorCount(), 0);
+        errors.rejectValue("name", "property.errorCode", args, "property.errorCode");
+        errorsControl.expectAndReturn(errors.getErrorCount(), 1);
+
+        globalConditionControl.replay();
+        propertyConditionControl.replay();
+        errorsControl.replay();
+
+        validator.validate(person, errors);
+
+        globalConditionControl.verify();
+        propertyConditionControl.verify();
+        errorsControl.verify();
+
+        assertEquals(0, statistics.getRuleStatistics("global.errorCode").getFailures());
+        assertEquals(1, statistics.getRuleStatistics("name: property.errorCode").getFailures());
+        assertEquals(2, statistics.getRuleEvaluationCount());
+        assertEquals(1, statistics.getClassStatistics(Person.class).getCount());
+        assertEquals(1, statistics.getValidationFailureCount());
+    }
+
     protected RuleBasedValidator createRuleBasedValidator(Class clazz) {
         return new RuleBasedValidator();
     }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.bean.conf.loader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import org.springmodules.validation.bean.conf.BeanValidationConfiguration;
+import org.springmodules.validation.bean.conf.DefaultBeanValidationConfiguration;
+
+/**
+ * Tests for {@link BeanValidationConfigurationRegistry}.
+ *
+ * @author Uri Boness
+ */
+public class BeanValidationConfigurationRegistryTests extends TestCase {
+
+    private BeanValidationConfigurationRegistry registry;
+
+    protected void setUp() throws Exception {
+        registry = new BeanValidationConfigurationRegistry();
+    }
+
+    public void testRegister() throws Exception {
+        BeanValidationConfiguration configuration = new DefaultBeanValidationConfiguration();
+        registry.register(String.class, configuration);
+
+        assertTrue(registry.contains(String.class));
+        assertSame(configuration, registry.get(String.class));
+        assertFalse(registry.contains(Integer.class));
+        assertNull(registry.get(Integer.class));
+    }
+
+    public void testRegisterIfAbsent_KeepsTheFirstConfiguration() throws Exception {
+        BeanValidationConfiguration configuration1 = new DefaultBeanValidationConfiguration();
+        BeanValidationConfiguration configuration2 = new DefaultBeanValidationConfiguration();
+
+        assertSame(configuration1, registry.registerIfAbsent(String.class, configuration1));
+        assertSame(configuration1, registry.registerIfAbsent(String.class, configuration2));
+        assertSame(configuration1, registry.get(String.class));
+    }
+
+    public void testRegisterNullConfiguration() throws Exception {
+        assertNull(registry.registerIfAbsent(String.class, null));
+
+        assertTrue(registry.contains(String.class));
+        assertNull(registry.get(String.class));
+    }
+
+    public void testRegisterAll() throws Exception {
+        Map configurations = new HashMap();
+        configurations.put(String.class, new DefaultBeanValidationConfiguration());
+        configurations.put(Integer.class, new DefaultBeanValidationConfiguration());
+        registry.registerAll(configurations);
+
+        assertEquals(2, registry.size());
+        assertSame(configurations.get(Integer.class), registry.get(Integer.class));
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An order of a customer, used by the validation benchmark as a nested and collection heavy bean.
+ *
+ * @author Uri Boness
+ */
+public class Order {
+
+    private String number;
+
+    private Customer customer;
+
+    // List<OrderLine>
+    private List lines = new ArrayList();
+
+    public Order() {
+    }
+
+    public Order(String number, Customer customer) {
+        this.number = number;
+        this.customer = customer;
+    }
+
+    public String getNumber() {
+        return number;
+    }
+
+    public void setNumber(String number) {
+        this.number = number;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+
+    public List getLines() {
+        return lines;
+    }
+
+    public void setLines(List lines) {
+        this.lines = lines;
+    }
+
+    public void addLine(OrderLine line) {
+        lines.add(line);
+    }
+
+}
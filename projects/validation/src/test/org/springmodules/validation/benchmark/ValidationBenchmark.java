@@ -0,0 +1,330 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.benchmark;
+
+import java.lang.reflect.Method;
+import java.text.DecimalFormat;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.validation.BindException;
+import org.springframework.validation.Validator;
+import org.springmodules.validation.bean.Address;
+import org.springmodules.validation.bean.BeanValidator;
+import org.springmodules.validation.bean.conf.loader.xml.DefaultXmlBeanValidationConfigurationLoader;
+import org.springmodules.validation.commons.ConfigurableBeanValidator;
+import org.springmodules.validation.commons.DefaultValidatorFactory;
+import org.springmodules.validation.valang.ValangValidator;
+import org.springmodules.validation.valang.parser.ValangParser;
+import org.springmodules.validation.validator.ValidationStatistics;
+
+/**
+ * Benchmark of the validators of the module. For every validator type it reports the throughput (validations per
+ * second), the average latency and the average number of bytes allocated per validation, of:
+ * <ul>
+ * <li>Valang: the parsing of a rule set, and the validation of flat and nested beans with interpreted and compiled
+ * rules,</li>
+ * <li>the {@link BeanValidator} configured in XML: the validation of flat, nested and collection heavy beans (an
+ * order with many lines), with and without statistics,</li>
+ * <li>the commons validator integration: the validation of flat beans.</li>
+ * </ul>
+ * Half of the validated beans are valid, the other half fail some of the rules, so both the successful and the
+ * failing paths are measured. The annotation based configuration is measured by the
+ * <code>AnnotationValidationBenchmark</code> of the tiger sources, which extends this benchmark.
+ * <p/>
+ * This class is not a unit test. It is launched with its main method, whose optional arguments are the number of
+ * measured validations and the number of lines of the collection heavy orders:
+ * <pre>
+ * java org.springmodules.validation.benchmark.ValidationBenchmark 50000 100
+ * </pre>
+ * Every measure is preceded by as many warm-up validations, so the measured code is compiled by the JIT. Like the
+ * benchmark of the lucene module, this class runs on JDK 1.4: the Java 5 timing and management APIs are accessed
+ * reflectively. The time is measured in milliseconds when <code>System.nanoTime()</code> is not available, and the
+ * allocated bytes are only reported by JVMs that support measuring the allocations of a thread.
+ *
+ * @author Uri Boness
+ */
+public class ValidationBenchmark {
+
+    private static final String CUSTOMER_VALANG =
+        "{ name : ? has text and length(?) <= 50 : 'Name is required' : 'customer.name' }" +
+        "{ email : ? is not null and email(?) == true : 'Invalid email' : 'customer.email' }" +
+        "{ age : ? between 18 and 120 : 'Invalid age' : 'customer.age' }" +
+        "{ phone : ? is null or match('[0-9 +-]{7,20}', ?) == true : 'Invalid phone' : 'customer.phone' }" +
+        "{ address.street : ? is not null : 'Street is required' : 'address.street' }" +
+        "{ address.city : ? is not null : 'City is required' : 'address.city' }";
+
+    private static final String ORDER_VALANG =
+        "{ number : ? has text and match('ORD-[0-9]+', ?) == true : 'Invalid number' : 'order.number' }" +
+        "{ customer : ? is not null : 'Customer is required' : 'order.customer' }" +
+        "{ customer.name : ? has text : 'Name is required' : 'customer.name' }" +
+        "{ customer.email : ? is not null and email(?) == true : 'Invalid email' : 'customer.email' }" +
+        "{ customer.address.city : ? is not null : 'City is required' : 'address.city' }" +
+        "{ lines : size(?) > 0 : 'Lines are required' : 'order.lines' }";
+
+    private static final DecimalFormat INTEGER_FORMAT = new DecimalFormat("0");
+
+    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("0.00");
+
+    private static Method nanoTimeMethod;
+
+    private static Method threadIdMethod;
+
+    private static Object threadMXBean;
+
+    private static Method allocatedBytesMethod;
+
+    static {
+        try {
+            nanoTimeMethod = System.class.getMethod("nanoTime", null);
+        } catch (NoSuchMethodException e) {
+            // JDK 1.4: the milliseconds are used
+        }
+        try {
+            threadIdMethod = Thread.class.getMethod("getId", null);
+            threadMXBean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean", null).invoke(null, null);
+            allocatedBytesMethod = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", new Class[] { long.class });
+        } catch (Exception e) {
+            // the JVM can not measure the allocations, only the time is reported
+            allocatedBytesMethod = null;
+        }
+    }
+
+    private final int iterations;
+
+    private final int linesPerOrder;
+
+    private long sink;
+
+    public ValidationBenchmark(int iterations, int linesPerOrder) {
+        this.iterations = iterations;
+        this.linesPerOrder = linesPerOrder;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getLinesPerOrder() {
+        return linesPerOrder;
+    }
+
+    public void run() throws Exception {
+        System.out.println("Valang (" + iterations + " validations)");
+        benchmarkValang();
+        System.out.println("Bean validator with XML configuration (" + iterations + " validations)");
+        benchmarkXmlBeanValidator();
+        System.out.println("Commons validator (" + iterations + " validations)");
+        benchmarkCommonsValidator();
+    }
+
+    //============================================== Benchmarks ========================================================
+
+    private void benchmarkValang() throws Exception {
+        measure("parsing", new Operation() {
+            public int execute(int iteration) throws Exception {
+                return new ValangParser(CUSTOMER_VALANG).parseValidation().size();
+            }
+        });
+
+        Customer[] customers = createCustomers();
+        Order[] orders = createOrders(1);
+        measureValidations("flat bean", createValangValidator(CUSTOMER_VALANG, false), customers);
+        measureValidations("flat bean, compiled rules", createValangValidator(CUSTOMER_VALANG, true), customers);
+        measureValidations("nested bean", createValangValidator(ORDER_VALANG, false), orders);
+        measureValidations("nested bean, compiled rules", createValangValidator(ORDER_VALANG, true), orders);
+    }
+
+    private void benchmarkXmlBeanValidator() throws Exception {
+        DefaultXmlBeanValidationConfigurationLoader loader = new DefaultXmlBeanValidationConfigurationLoader();
+        loader.setResource(new ClassPathResource("benchmark-validation.xml", ValidationBenchmark.class));
+        loader.afterPropertiesSet();
+        BeanValidator validator = new BeanValidator(loader);
+
+        measureValidations("flat bean", validator, createCustomers());
+        measureValidations("nested bean", validator, createOrders(1));
+        measureValidations("collection heavy bean (" + linesPerOrder + " lines)", validator, createOrders(linesPerOrder));
+
+        BeanValidator instrumentedValidator = new BeanValidator(loader);
+        instrumentedValidator.setStatistics(new ValidationStatistics());
+        measureValidations("flat bean, with statistics", instrumentedValidator, createCustomers());
+    }
+
+    private void benchmarkCommonsValidator() throws Exception {
+        DefaultValidatorFactory factory = new DefaultValidatorFactory();
+        factory.setValidationConfigLocations(new Resource[] {
+            new ClassPathResource("/org/springmodules/validation/commons/validation-rules.xml"),
+            new ClassPathResource("benchmark-commons-validation.xml", ValidationBenchmark.class)
+        });
+        factory.afterPropertiesSet();
+        ConfigurableBeanValidator validator = new ConfigurableBeanValidator();
+        validator.setFormName("customer");
+        validator.setValidatorFactory(factory);
+
+        measureValidations("flat bean", validator, createCustomers());
+    }
+
+    //============================================== Test Data =========================================================
+
+    /**
+     * Returns a valid and an invalid customer.
+     */
+    protected Customer[] createCustomers() {
+        return new Customer[] {
+            new Customer("Uri Boness", "uri@example.com", 30, "+31 20 1234567", new Address("Main Street", "Amsterdam")),
+            new Customer("", "not an email", 12, "phone", new Address(null, "Amsterdam"))
+        };
+    }
+
+    /**
+     * Returns a valid and an invalid order, with the given number of lines. The last line of the invalid order is
+     * invalid.
+     */
+    protected Order[] createOrders(int lineCount) {
+        Customer[] customers = createCustomers();
+        Order validOrder = new Order("ORD-1", customers[0]);
+        Order invalidOrder = new Order("1", customers[1]);
+        for (int i = 0; i < lineCount; i++) {
+            validOrder.addLine(new OrderLine("product-" + i, 1 + (i % 10), 9.99));
+            invalidOrder.addLine((i < lineCount - 1) ?
+                new OrderLine("product-" + i, 1 + (i % 10), 9.99) : new OrderLine(null, 0, 9.99));
+        }
+        return new Order[] { validOrder, invalidOrder };
+    }
+
+    //============================================== Measures ==========================================================
+
+    /**
+     * Measures the validation of the given beans (in turn) with the given validator.
+     */
+    protected void measureValidations(String name, final Validator validator, final Object[] beans) throws Exception {
+        measure(name, new Operation() {
+            public int execute(int iteration) throws Exception {
+                Object bean = beans[iteration % beans.length];
+                BindException errors = new BindException(bean, "bean");
+                validator.validate(bean, errors);
+                return errors.getErrorCount();
+            }
+        });
+    }
+
+    /**
+     * Measures the given operation, after as many warm-up executions, and reports the results.
+     */
+    protected void measure(String name, Operation operation) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.execute(i);
+        }
+
+        long allocatedBytes = getAllocatedBytes();
+        long start = currentTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.execute(i);
+        }
+        long time = Math.max(currentTime() - start, 1);
+        allocatedBytes = (allocatedBytes < 0) ? -1 : getAllocatedBytes() - allocatedBytes;
+
+        report(name, time, allocatedBytes);
+    }
+
+    private void report(String name, long time, long allocatedBytes) {
+        String allocation = (allocatedBytes < 0) ? "n/a" : String.valueOf(allocatedBytes / iterations);
+        System.out.println("  " + padRight(name, 45)
+            + " " + padLeft(INTEGER_FORMAT.format(iterations * 1000000000d / time), 12) + " ops/s"
+            + " " + padLeft(DECIMAL_FORMAT.format(time / 1000d / iterations), 10) + " us/op"
+            + " " + padLeft(allocation, 10) + " bytes/op");
+    }
+
+    private static String padRight(String text, int width) {
+        StringBuffer buffer = new StringBuffer(text);
+        while (buffer.length() < width) {
+            buffer.append(' ');
+        }
+        return buffer.toString();
+    }
+
+    private static String padLeft(String text, int width) {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = text.length(); i < width; i++) {
+            buffer.append(' ');
+        }
+        return buffer.append(text).toString();
+    }
+
+    /**
+     * Returns the current time in nanoseconds, with the precision of the JVM.
+     */
+    private static long currentTime() {
+        if (nanoTimeMethod != null) {
+            try {
+                return ((Long) nanoTimeMethod.invoke(null, null)).longValue();
+            } catch (Exception e) {
+                // falls back to the milliseconds
+            }
+        }
+        return System.currentTimeMillis() * 1000000L;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread, or -1 if the JVM can not measure it.
+     */
+    private static long getAllocatedBytes() {
+        if (allocatedBytesMethod == null) {
+            return -1;
+        }
+        try {
+            Object threadId = threadIdMethod.invoke(Thread.currentThread(), null);
+            return ((Long) allocatedBytesMethod.invoke(threadMXBean, new Object[] { threadId })).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static ValangValidator createValangValidator(String valang, boolean compileRules) throws Exception {
+        ValangValidator validator = new ValangValidator();
+        validator.setValang(valang);
+        validator.setCompileRules(compileRules);
+        validator.afterPropertiesSet();
+        return validator;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int linesPerOrder = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        new ValidationBenchmark(iterations, linesPerOrder).run();
+    }
+
+    //============================================== Inner Classes =====================================================
+
+    /**
+     * A measured operation.
+     */
+    protected static abstract class Operation {
+
+        /**
+         * Executes the operation once.
+         *
+         * @param iteration The number of the execution.
+         * @return A result that is accumulated, so the execution can not be optimized away.
+         */
+        public abstract int execute(int iteration) throws Exception;
+    }
+
+}
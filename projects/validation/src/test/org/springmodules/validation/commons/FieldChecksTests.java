@@ -10,6 +10,7 @@ import org.apache.commons.validator.ValidatorAction;
 import org.apache.commons.validator.ValidatorResources;
 import org.easymock.MockControl;
 import org.springframework.validation.Errors;
+import org.springmodules.validation.commons.validwhen.ValidWhenExpression;
 
 /**
  * @author robh
@@ -164,6 +165,59 @@ public class FieldChecksTests extends TestCase {
         assertTrue(result);
     }
 
+    public void testValidateWhenValid_WithFormFieldsReusesTheCompiledTest() throws Exception {
+        String test = "((*this* == 'uri') and (age > 3))";
+        Field field = createFieldForProperty("name");
+        field.addVar("test", test, "");
+
+        MockControl control = MockControl.createControl(Errors.class);
+
+        ValidatorAction validatorAction = new ValidatorAction();
+        Errors errors = (Errors) control.getMock();
+        // only the second bean is invalid
+        errors.rejectValue(null, null, null, null);
+        control.setMatcher(MockControl.ALWAYS_MATCHER);
+        control.replay();
+
+        ValidatorResources vr = new ValidatorResources();
+        vr.process();
+        Validator validator = new Validator(vr);
+
+        MockValidationBean bean = new MockValidationBean();
+        bean.setName("uri");
+        bean.setAge(5);
+        validator.setParameter(Validator.BEAN_PARAM, bean);
+        assertTrue(FieldChecks.validateValidWhen(bean, validatorAction, field, errors, validator));
+        ValidWhenExpression expression = FieldChecks.getValidWhenExpression(field, test);
+
+        bean = new MockValidationBean();
+        bean.setName("uri");
+        bean.setAge(2);
+        validator.setParameter(Validator.BEAN_PARAM, bean);
+        assertFalse(FieldChecks.validateValidWhen(bean, validatorAction, field, errors, validator));
+
+        assertSame(expression, FieldChecks.getValidWhenExpression(field, test));
+        control.verify();
+    }
+
+    public void testValidateWhenValid_WithInvalidTest() throws Exception {
+        MockValidationBean bean = new MockValidationBean();
+        bean.setName("uri");
+        Field field = createFieldForProperty("name");
+        field.addVar("test", "(*this* == )", "");
+
+        MockControl control = MockControl.createControl(Errors.class);
+
+        ValidatorAction validatorAction = new ValidatorAction();
+        Errors errors = (Errors) control.getMock();
+
+        ValidatorResources vr = new ValidatorResources();
+        vr.process();
+        Validator validator = new Validator(vr);
+
+        assertFalse(FieldChecks.validateValidWhen(bean, validatorAction, field, errors, validator));
+    }
+
     private Field createFieldForProperty(String property) {
         Field field = new Field();
         field.setProperty(property);
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link BoundedCache}.
+ *
+ * @author Uri Boness
+ */
+public class BoundedCacheTests extends TestCase {
+
+    public void testPutIfAbsent() throws Exception {
+        BoundedCache cache = new BoundedCache(10);
+        Object first = new Object();
+
+        assertNull(cache.get("key"));
+        assertSame(first, cache.putIfAbsent("key", first));
+        assertSame(first, cache.putIfAbsent("key", new Object()));
+        assertSame(first, cache.get("key"));
+        assertEquals(1, cache.size());
+    }
+
+    public void testPut_EvictsTheLeastRecentlyUsedEntry() throws Exception {
+        BoundedCache cache = new BoundedCache(2);
+        cache.put("first", "1");
+        cache.put("second", "2");
+
+        // using the first entry, so the second one is evicted
+        assertEquals("1", cache.get("first"));
+        cache.put("third", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals("3", cache.get("third"));
+    }
+
+    public void testSetMaxSize_EvictsTheExceedingEntries() throws Exception {
+        BoundedCache cache = new BoundedCache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, new Integer(i));
+        }
+
+        cache.setMaxSize(3);
+
+        assertEquals(3, cache.getMaxSize());
+        assertEquals(3, cache.size());
+        assertNull(cache.get("key6"));
+        assertEquals(new Integer(9), cache.get("key9"));
+    }
+
+    public void testSetMaxSize_WithNonPositiveSize() throws Exception {
+        try {
+            new BoundedCache(0);
+            fail("An IllegalArgumentException was expected");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    public void testClear() throws Exception {
+        BoundedCache cache = new BoundedCache(10);
+        cache.put("key", "value");
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("key"));
+    }
+
+}
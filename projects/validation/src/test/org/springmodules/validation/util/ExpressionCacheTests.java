@@ -0,0 +1,115 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.util;
+
+import java.lang.reflect.Modifier;
+
+import junit.framework.TestCase;
+import org.springmodules.validation.util.cel.ognl.OgnlConditionExpressionParser;
+import org.springmodules.validation.util.cel.valang.ValangConditionExpressionParser;
+import org.springmodules.validation.util.condition.Condition;
+import org.springmodules.validation.util.fel.parser.OgnlFunctionExpressionParser;
+import org.springmodules.validation.util.fel.parser.ValangFunctionExpressionParser;
+import org.springmodules.validation.valang.functions.UpperCaseFunction;
+
+/**
+ * Tests for {@link ExpressionCache}.
+ *
+ * @author Uri Boness
+ */
+public class ExpressionCacheTests extends TestCase {
+
+    protected void setUp() throws Exception {
+        ExpressionCache.clear();
+    }
+
+    protected void tearDown() throws Exception {
+        ExpressionCache.setMaxSize(ExpressionCache.DEFAULT_MAX_SIZE);
+        ExpressionCache.clear();
+    }
+
+    public void testRegisterKeepsTheFirstCachedExpression() throws Exception {
+        Object first = new Object();
+        Object second = new Object();
+
+        assertNull(ExpressionCache.get(String.class, "expression"));
+        assertSame(first, ExpressionCache.register(String.class, "expression", first));
+        assertSame(first, ExpressionCache.register(String.class, "expression", second));
+        assertSame(first, ExpressionCache.get(String.class, "expression"));
+        assertNull(ExpressionCache.get(Integer.class, "expression"));
+        assertEquals(1, ExpressionCache.size());
+    }
+
+    public void testRegisterEvictsTheLeastRecentlyUsedExpression() throws Exception {
+        ExpressionCache.setMaxSize(2);
+        Object first = new Object();
+        ExpressionCache.register(String.class, "first", first);
+        ExpressionCache.register(String.class, "second", new Object());
+
+        // using the first expression, so the second one is evicted
+        assertSame(first, ExpressionCache.get(String.class, "first"));
+        ExpressionCache.register(String.class, "third", new Object());
+
+        assertEquals(2, ExpressionCache.size());
+        assertSame(first, ExpressionCache.get(String.class, "first"));
+        assertNull(ExpressionCache.get(String.class, "second"));
+    }
+
+    public void testSetMaxSize_EvictsTheExceedingExpressions() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            ExpressionCache.register(String.class, "expression" + i, new Object());
+        }
+
+        ExpressionCache.setMaxSize(3);
+
+        assertEquals(3, ExpressionCache.size());
+    }
+
+    public void testParsersShareTheParsedConditions() throws Exception {
+        Condition condition = new OgnlConditionExpressionParser().parse("name == 'Uri'");
+
+        assertSame(condition, new OgnlConditionExpressionParser().parse("name == 'Uri'"));
+        assertSame(new ValangConditionExpressionParser().parse("name == 'Uri'"),
+            new ValangConditionExpressionParser().parse("name == 'Uri'"));
+        assertNotSame(condition, new ValangConditionExpressionParser().parse("name == 'Uri'"));
+        assertSame(new ValangFunctionExpressionParser().parse("length(name)"),
+            new ValangFunctionExpressionParser().parse("length(name)"));
+    }
+
+    public void testParsersAreIdentifiedByTheirClassName() throws Exception {
+        Condition condition = new OgnlConditionExpressionParser().parse("name == 'Uri'");
+
+        assertSame(condition, ExpressionCache.get(OgnlConditionExpressionParser.class.getName(), "name == 'Uri'"));
+        assertNull(ExpressionCache.get(OgnlConditionExpressionParser.class, "name == 'Uri'"));
+    }
+
+    public void testCachedFunctionsDoNotReferToTheirParser() throws Exception {
+        Class functionClass = new ValangFunctionExpressionParser().parse("length(name)").getClass();
+        assertTrue(Modifier.isStatic(functionClass.getModifiers()));
+        functionClass = new OgnlFunctionExpressionParser().parse("name.length()").getClass();
+        assertTrue(Modifier.isStatic(functionClass.getModifiers()));
+    }
+
+    public void testParsersWithCustomFunctionsDoNotShareTheParsedConditions() throws Exception {
+        ValangConditionExpressionParser parser = new ValangConditionExpressionParser();
+        parser.addCustomFunction("tupper", UpperCaseFunction.class.getName());
+
+        assertNotSame(parser.parse("tupper(name) == 'URI'"), parser.parse("tupper(name) == 'URI'"));
+        assertEquals(0, ExpressionCache.size());
+    }
+
+}
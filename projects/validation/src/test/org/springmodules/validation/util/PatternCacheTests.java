@@ -0,0 +1,109 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.util;
+
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link PatternCache}.
+ *
+ * @author Uri Boness
+ */
+public class PatternCacheTests extends TestCase {
+
+    protected void setUp() throws Exception {
+        PatternCache.clear();
+    }
+
+    protected void tearDown() throws Exception {
+        PatternCache.setMaxSize(PatternCache.DEFAULT_MAX_SIZE);
+        PatternCache.clear();
+    }
+
+    public void testCompile() throws Exception {
+        Pattern pattern = PatternCache.compile("[a-z]+");
+
+        assertEquals("[a-z]+", pattern.pattern());
+        assertSame(pattern, PatternCache.compile("[a-z]+"));
+        assertNotSame(pattern, PatternCache.compile("[0-9]+"));
+        assertEquals(2, PatternCache.size());
+    }
+
+    public void testCompile_EvictsTheLeastRecentlyUsedPattern() throws Exception {
+        PatternCache.setMaxSize(2);
+        Pattern first = PatternCache.compile("first");
+        Pattern second = PatternCache.compile("second");
+
+        // using the first pattern, so the second one is evicted
+        assertSame(first, PatternCache.compile("first"));
+        PatternCache.compile("third");
+
+        assertEquals(2, PatternCache.size());
+        assertSame(first, PatternCache.compile("first"));
+        assertNotSame(second, PatternCache.compile("second"));
+    }
+
+    public void testSetMaxSize_EvictsTheExceedingPatterns() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            PatternCache.compile("pattern" + i);
+        }
+
+        PatternCache.setMaxSize(3);
+
+        assertEquals(3, PatternCache.size());
+    }
+
+    public void testSetMaxSize_WithNonPositiveSize() throws Exception {
+        try {
+            PatternCache.setMaxSize(0);
+            fail("An IllegalArgumentException was expected");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    public void testCompile_Concurrently() throws Exception {
+        PatternCache.setMaxSize(50);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 2000; j++) {
+                            String regexp = "pattern" + (j % 100);
+                            assertEquals(regexp, PatternCache.compile(regexp).pattern());
+                        }
+                    } catch (Throwable t) {
+                        failure[0] = t;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        assertNull(failure[0]);
+        assertTrue(PatternCache.size() <= 50);
+    }
+
+}
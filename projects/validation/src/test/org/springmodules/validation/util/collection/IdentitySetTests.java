@@ -0,0 +1,76 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.util.collection;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link IdentitySet}.
+ *
+ * @author Uri Boness
+ */
+public class IdentitySetTests extends TestCase {
+
+    public void testEqualElementsAreDistinct() throws Exception {
+        IdentitySet set = new IdentitySet();
+        String first = new String("value");
+        String second = new String("value");
+
+        assertTrue(set.add(first));
+        assertTrue(set.add(second));
+        assertFalse(set.add(first));
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(first));
+        assertTrue(set.contains(second));
+        assertFalse(set.contains(new String("value")));
+    }
+
+    public void testElementsAreNeverCompared() throws Exception {
+        IdentitySet set = new IdentitySet();
+        Object element = new Object() {
+            public boolean equals(Object o) {
+                throw new IllegalStateException("equals() should not be called");
+            }
+            public int hashCode() {
+                throw new IllegalStateException("hashCode() should not be called");
+            }
+        };
+
+        assertTrue(set.add(element));
+        assertTrue(set.contains(element));
+        assertTrue(set.remove(element));
+        assertTrue(set.isEmpty());
+    }
+
+    public void testIterator() throws Exception {
+        IdentitySet set = new IdentitySet(2);
+        Object element = new Object();
+        set.add(element);
+
+        Iterator iter = set.iterator();
+        assertTrue(iter.hasNext());
+        assertSame(element, iter.next());
+        assertFalse(iter.hasNext());
+
+        set.clear();
+        assertEquals(0, set.size());
+    }
+
+}
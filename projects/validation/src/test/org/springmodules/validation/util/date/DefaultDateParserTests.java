@@ -258,6 +258,63 @@ public class DefaultDateParserTests extends TestCase {
         assertTrue(t1.getTime() <= t2.getTime() && t2.getTime() <= t3.getTime());
     }
 
+    public void testParsedDatesAreNotShared() throws DateParseException {
+        DefaultDateParser parser = new DefaultDateParser();
+        Date t1 = parser.parse("2005-04-09 23:30:00>M+10d+8H");
+        t1.setTime(0);
+        Date t2 = parser.parse("2005-04-09 23:30:00>M+10d+8H");
+
+        assertNotSame(t1, t2);
+        assertEquals("2005-05-11 07:59:59.999", formatDate(t2, "yyyy-MM-dd HH:mm:ss.SSS"));
+    }
+
+    public void testCachedPlanOfTDependsOnTheCurrentTime() throws Exception {
+        DefaultDateParser parser = new DefaultDateParser();
+        Date t1 = parser.parse("T+1d");
+        Thread.sleep(20);
+        Date t2 = parser.parse("T+1d");
+
+        assertTrue(t2.getTime() > t1.getTime());
+    }
+
+    public void testRegisterReplacesCompiledPlans() throws DateParseException {
+        DefaultDateParser parser = new DefaultDateParser();
+        assertEquals("2005-04-09 23:30:00.000", formatDate(parser.parse("20050409 233000"), "yyyy-MM-dd HH:mm:ss.SSS"));
+
+        parser.register("^\\d{8}\\s+\\d{6}$", "yyyyddMM HHmmss");
+        assertEquals("2005-09-04 23:30:00.000", formatDate(parser.parse("20050409 233000"), "yyyy-MM-dd HH:mm:ss.SSS"));
+        assertEquals("2005-04-09", formatDate(new DefaultDateParser().parse("20050409"), "yyyy-MM-dd"));
+    }
+
+    public void testConcurrentParsing() throws Exception {
+        final DefaultDateParser parser = new DefaultDateParser();
+        final String[] dates = { "20050409 233000", "2005-04-10 12:00:00", "20050411 01:02:03", "2005-04-12 000000" };
+        final String[] expected = { "2005-04-09 23:30:00", "2005-04-10 12:00:00", "2005-04-11 01:02:03", "2005-04-12 00:00:00" };
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 500; j++) {
+                            int k = j % dates.length;
+                            // a modifier makes every parse run the date format
+                            Date t = parser.parse(dates[k] + "+" + j + "S");
+                            assertEquals(expected[k], formatDate(new Date(t.getTime() - j), "yyyy-MM-dd HH:mm:ss"));
+                        }
+                    } catch (Throwable t) {
+                        failure[0] = t;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertNull(failure[0]);
+    }
+
     public String formatDate(Date t, String format) {
         return new SimpleDateFormat(format).format(t);
     }
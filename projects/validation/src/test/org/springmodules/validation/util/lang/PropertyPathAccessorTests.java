@@ -0,0 +1,98 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.util.lang;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+
+import junit.framework.TestCase;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springmodules.validation.bean.Address;
+
+/**
+ * Tests for {@link PropertyPathAccessor}.
+ *
+ * @author Uri Boness
+ */
+public class PropertyPathAccessorTests extends TestCase {
+
+    protected void tearDown() throws Exception {
+        PropertyPathAccessor.clearCache();
+    }
+
+    public void testGetValue() throws Exception {
+        org.springmodules.validation.bean.Person person = new org.springmodules.validation.bean.Person("Uri");
+        person.setAddress(new Address("Main Street", "Amsterdam"));
+
+        assertEquals("Uri", PropertyPathAccessor.getPropertyValue(person, "name"));
+        assertEquals("Amsterdam", PropertyPathAccessor.getPropertyValue(person, "address.city"));
+    }
+
+    public void testGetAccessorIsCached() throws Exception {
+        PropertyPathAccessor accessor = PropertyPathAccessor.getAccessor(Person.class, "name");
+
+        assertNotNull(accessor);
+        assertSame(accessor, PropertyPathAccessor.getAccessor(Person.class, "name"));
+        assertEquals(String.class, accessor.getPropertyType());
+        assertEquals("name", accessor.getPropertyPath());
+    }
+
+    public void testGetAccessorForUnresolvablePaths() throws Exception {
+        assertNull(PropertyPathAccessor.getAccessor(Person.class, "unknown"));
+        assertNull(PropertyPathAccessor.getAccessor(Person.class, "names[0]"));
+        assertNull(PropertyPathAccessor.getAccessor(java.util.HashMap.class, "name"));
+    }
+
+    public void testGetValueWithNullNestedValue() throws Exception {
+        org.springmodules.validation.bean.Person person = new org.springmodules.validation.bean.Person("Uri");
+
+        try {
+            PropertyPathAccessor.getPropertyValue(person, "address.city");
+            fail("Expected the exception of a bean wrapper");
+        } catch (NullValueInNestedPathException nvinpe) {
+            // expected
+        }
+    }
+
+    public void testGetValueUsesTheOverridingReadMethod() throws Exception {
+        assertEquals("employee", PropertyPathAccessor.getPropertyValue(new Employee(), "type"));
+    }
+
+    public void testGetAccessorDoesNotKeepForeignClassLoadersAlive() throws Exception {
+        ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {
+        };
+        Class proxyClass = Proxy.getProxyClass(classLoader, new Class[] { Named.class });
+        assertNotNull(PropertyPathAccessor.getAccessor(proxyClass, "name"));
+
+        Reference classLoaderReference = new WeakReference(classLoader);
+        classLoader = null;
+        proxyClass = null;
+        for (int i = 0; i < 10 && classLoaderReference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        assertNull(classLoaderReference.get());
+    }
+
+    public interface Named {
+
+        String getName();
+    }
+
+}
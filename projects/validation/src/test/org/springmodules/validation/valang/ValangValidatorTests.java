@@ -9,6 +9,7 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.validation.BindException;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
+import org.springmodules.validation.validator.ValidationStatistics;
 
 public class ValangValidatorTests extends TestCase {
 
@@ -104,6 +105,34 @@ public class ValangValidatorTests extends TestCase {
         assertFalse(errors.hasErrors());
     }
 
+    public void testValidate_WithStatistics() throws Exception {
+
+        ValangValidator validator = new ValangValidator();
+        validator.setValang("{ firstName : ? has text : 'First name is empty' : 'firstName_empty' }" +
+            "{ lastName : ? has text : 'Last name is empty' }");
+        validator.afterPropertiesSet();
+        ValidationStatistics statistics = new ValidationStatistics();
+        validator.setStatistics(statistics);
+
+        Person person = new Person();
+        person.setFirstName("FN");
+        validator.validate(person, new BindException(person, "person"));
+        person.setFirstName(null);
+        validator.validate(person, new BindException(person, "person"));
+
+        ValidationStatistics.Counter firstNameRule = statistics.getRuleStatistics("firstName: firstName_empty");
+        assertEquals(2, firstNameRule.getCount());
+        assertEquals(1, firstNameRule.getFailures());
+        ValidationStatistics.Counter lastNameRule = statistics.getRuleStatistics("lastName: lastName");
+        assertEquals(2, lastNameRule.getCount());
+        assertEquals(2, lastNameRule.getFailures());
+
+        ValidationStatistics.Counter personClass = statistics.getClassStatistics(Person.class);
+        assertEquals(2, personClass.getCount());
+        assertEquals(2, personClass.getFailures());
+        assertEquals(4, statistics.getRuleEvaluationCount());
+    }
+
     //================================================ Inner Classes ===================================================
 
     private class Person {
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springmodules.validation.valang.compiler;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+import org.springframework.validation.BindException;
+import org.springmodules.validation.valang.ValangValidator;
+import org.springmodules.validation.valang.functions.BeanPropertyFunction;
+import org.springmodules.validation.valang.functions.LiteralFunction;
+import org.springmodules.validation.valang.parser.Person;
+import org.springmodules.validation.valang.predicates.BasicValidationRule;
+import org.springmodules.validation.valang.predicates.GenericTestPredicate;
+
+/**
+ * Tests for {@link ValangRuleCompiler}.
+ *
+ * @author Uri Boness
+ */
+public class ValangRuleCompilerTests extends TestCase {
+
+    private static final String VALANG =
+        "{ age : ? >= minAge : 'Too young' }" +
+        "{ age : ? between 10 + 8 and 99 : 'Age out of range' }" +
+        "{ firstName : ? has text and length(firstName) > 2 : 'First name too short' }" +
+        "{ size : ? is null or upper(?) in 'S', 'M', 'L' : 'Unknown size' }";
+
+    private Collection parse(String valang) throws Exception {
+        ValangValidator validator = new ValangValidator();
+        validator.setValang(valang);
+        validator.afterPropertiesSet();
+        return validator.getRules();
+    }
+
+    private GenericTestPredicate getPredicate(Collection rules) {
+        return (GenericTestPredicate) ((BasicValidationRule) rules.iterator().next()).getPredicate();
+    }
+
+    public void testCompilePropertyFunction() throws Exception {
+        Collection rules = new ValangRuleCompiler(Person.class).compile(parse("{ age : ? >= minAge : 'Too young' }"));
+
+        GenericTestPredicate predicate = getPredicate(rules);
+        assertTrue(predicate.getLeftFunction() instanceof CompiledPropertyFunction);
+        assertTrue(predicate.getRightFunction() instanceof CompiledPropertyFunction);
+        assertEquals(new Integer(20), predicate.getLeftFunction().getResult(new Person(20, "Uri")));
+    }
+
+    public void testCompileConstantExpression() throws Exception {
+        Collection rules = new ValangRuleCompiler(Person.class).compile(parse("{ age : ? > 10 + 8 : 'Too young' }"));
+
+        GenericTestPredicate predicate = getPredicate(rules);
+        assertTrue(predicate.getRightFunction() instanceof LiteralFunction);
+        assertEquals(18, ((Number) predicate.getRightFunction().getResult(null)).intValue());
+    }
+
+    public void testCompileForMapKeepsInterpretedFunction() throws Exception {
+        Collection rules = new ValangRuleCompiler(HashMap.class).compile(parse("{ age : ? > 18 : 'Too young' }"));
+
+        GenericTestPredicate predicate = getPredicate(rules);
+        assertTrue(predicate.getLeftFunction() instanceof BeanPropertyFunction);
+    }
+
+    public void testParsedRulesAreNotModified() throws Exception {
+        Collection rules = parse("{ age : ? > 10 + 8 : 'Too young' }");
+        new ValangRuleCompiler(Person.class).compile(rules);
+
+        GenericTestPredicate predicate = getPredicate(rules);
+        assertTrue(predicate.getLeftFunction() instanceof BeanPropertyFunction);
+        assertFalse(predicate.getRightFunction() instanceof LiteralFunction);
+    }
+
+    public void testCompiledRulesAreEquivalent() throws Exception {
+        Person[] persons = new Person[] {
+            new Person(20, "Uri"), new Person(10, "Steven"), new Person(30, "Al"), new Person("xl"), new Person("m")
+        };
+        ValangValidator interpreted = new ValangValidator();
+        interpreted.setValang(VALANG);
+        interpreted.afterPropertiesSet();
+        ValangValidator compiled = new ValangValidator();
+        compiled.setValang(VALANG);
+        compiled.setCompileRules(true);
+        compiled.afterPropertiesSet();
+
+        for (int i = 0; i < persons.length; i++) {
+            BindException interpretedErrors = new BindException(persons[i], "person");
+            interpreted.validate(persons[i], interpretedErrors);
+            BindException compiledErrors = new BindException(persons[i], "person");
+            compiled.validate(persons[i], compiledErrors);
+            assertEquals(interpretedErrors.getAllErrors(), compiledErrors.getAllErrors());
+        }
+    }
+
+    public void testCompiledPropertyFunctionWithOtherTarget() throws Exception {
+        CompiledPropertyFunction function = CompiledPropertyFunction.compile(new BeanPropertyFunction("age"), Person.class);
+        HashMap map = new HashMap();
+        map.put("age", new BigDecimal("12"));
+
+        assertEquals(new BigDecimal("12"), function.getResult(map));
+    }
+
+}
@@ -21,6 +21,7 @@ import java.util.List;
 
 import junit.framework.TestCase;
 import org.springframework.util.Assert;
+import org.springmodules.validation.util.PatternCache;
 import org.springmodules.validation.valang.ValangException;
 
 public class FunctionTests extends TestCase {
@@ -124,6 +125,27 @@ public class FunctionTests extends TestCase {
         assertEquals(Boolean.TRUE, result);
     }
 
+    public void testRegExpFunctionWithLiteralPattern_CompilesThePatternOnCreation() {
+        PatternCache.clear();
+        Function function = getRegExpFunction("[0-9]+-literal", "123-literal");
+        assertEquals(1, PatternCache.size());
+
+        assertEquals(Boolean.TRUE, function.getResult(null));
+        assertEquals(1, PatternCache.size());
+    }
+
+    public void testRegExpFunctionWithDynamicPattern() {
+        Function patternFunction = new Function() {
+            public Object getResult(Object target) {
+                return target;
+            }
+        };
+        Function function = new RegExFunction(new Function[]{patternFunction, new LiteralFunction("bar")}, 1, 1);
+
+        assertEquals(Boolean.TRUE, function.getResult("foo|bar"));
+        assertEquals(Boolean.FALSE, function.getResult("foo|baz"));
+    }
+
     public void testEmailFunctionSuccess() {
         Boolean result = (Boolean) getEmailFunction("hello@world.com").getResult(null);
         assertEquals(Boolean.TRUE, result);
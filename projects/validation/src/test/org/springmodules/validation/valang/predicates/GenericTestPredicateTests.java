@@ -144,6 +144,59 @@ public class GenericTestPredicateTests extends TestCase {
         assertFalse("five", OperatorConstants.NOT_IN_OPERATOR, coll);
     }
 
+    public void testInOperatorWithNumbersOfDifferentScales() {
+        Collection coll = new ArrayList();
+        coll.add(new LiteralFunction(new BigDecimal("1.50")));
+        coll.add(new LiteralFunction(new BigDecimal("10")));
+        coll.add(new LiteralFunction(new Integer(0)));
+
+        assertTrue(new Double(1.5), OperatorConstants.IN_OPERATOR, coll);
+        assertTrue(new BigDecimal("10.000"), OperatorConstants.IN_OPERATOR, coll);
+        assertTrue(new BigDecimal("0.00"), OperatorConstants.IN_OPERATOR, coll);
+        assertTrue(new Long(10), OperatorConstants.IN_OPERATOR, coll);
+        assertFalse(new BigDecimal("100"), OperatorConstants.IN_OPERATOR, coll);
+        assertFalse("10", OperatorConstants.IN_OPERATOR, coll);
+    }
+
+    public void testInOperatorWithLargeList() {
+        Collection coll = new ArrayList();
+        for (int i = 0; i < 5000; i++) {
+            coll.add(new LiteralFunction("code" + i));
+        }
+
+        assertTrue("code4999", OperatorConstants.IN_OPERATOR, coll);
+        assertFalse("code5000", OperatorConstants.IN_OPERATOR, coll);
+        assertTrue("code5000", OperatorConstants.NOT_IN_OPERATOR, coll);
+    }
+
+    public void testInOperatorWithDates() {
+        Collection coll = new ArrayList();
+        coll.add(new LiteralFunction(md("2005-04-09")));
+
+        assertTrue(md("2005-04-09"), OperatorConstants.IN_OPERATOR, coll);
+        assertFalse(md("2005-04-10"), OperatorConstants.IN_OPERATOR, coll);
+    }
+
+    public void testInOperatorWithNonLiteralElements() {
+        Collection coll = new ArrayList();
+        coll.add(new LiteralFunction("one"));
+        coll.add(new BeanPropertyFunction("value"));
+
+        // the list is evaluated against the target, so the value is always in it
+        assertTrue("two", OperatorConstants.IN_OPERATOR, coll);
+        assertFalse("two", OperatorConstants.NOT_IN_OPERATOR, coll);
+    }
+
+    public void testBetweenOperatorWithDates() {
+        Collection coll = new ArrayList();
+        coll.add(new LiteralFunction(md("2005-04-01")));
+        coll.add(new LiteralFunction(md("2005-04-30")));
+
+        assertTrue(md("2005-04-09"), OperatorConstants.BETWEEN_OPERATOR, coll);
+        assertFalse(md("2005-05-09"), OperatorConstants.BETWEEN_OPERATOR, coll);
+        assertTrue(md("2005-03-09"), OperatorConstants.NOT_BETWEEN_OPERATOR, coll);
+    }
+
     public void testNullNotNullOperatorSuccess() {
         assertTrue(null, OperatorConstants.NULL_OPERATOR, null);
         assertFalse("five", OperatorConstants.NULL_OPERATOR, null);
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.validation.Errors;
+import org.springframework.validation.ValidationUtils;
+import org.springframework.validation.Validator;
+import org.springmodules.validation.bean.Address;
+import org.springmodules.validation.bean.Person;
+import org.springmodules.validation.valang.ValangValidator;
+
+/**
+ * Tests for {@link BatchValidator}.
+ *
+ * @author Uri Boness
+ */
+public class BatchValidatorTests extends TestCase {
+
+    private List beans;
+
+    protected void setUp() throws Exception {
+        beans = new ArrayList();
+        for (int i = 0; i < 100; i++) {
+            beans.add(new Integer(i));
+        }
+    }
+
+    public void testValidate() throws Exception {
+        BatchValidator validator = new BatchValidator(new OddNumberValidator());
+        validator.setChunkSize(7);
+        RecordingErrorHandler handler = new RecordingErrorHandler();
+
+        assertEquals(50, validator.validate(beans.iterator(), handler));
+
+        assertEquals(50, handler.indices.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(new Integer(i * 2 + 1), handler.indices.get(i));
+            BatchValidationError[] errors = (BatchValidationError[]) handler.errors.get(i);
+            assertEquals(2, errors.length);
+            assertTrue(errors[0].isGlobal());
+            assertEquals("odd", errors[0].getErrorCode());
+            assertEquals("number.value", errors[1].getField());
+            assertEquals("odd.value", errors[1].getErrorCode());
+            assertEquals("Odd number", errors[1].getDefaultMessage());
+        }
+    }
+
+    public void testValidateInParallel() throws Exception {
+        BatchValidator validator = new BatchValidator(new OddNumberValidator());
+        validator.setChunkSize(7);
+        validator.setMaxPendingChunks(3);
+        validator.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        RecordingErrorHandler handler = new RecordingErrorHandler();
+
+        assertEquals(50, validator.validate(beans.iterator(), handler));
+
+        assertEquals(50, handler.indices.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(new Integer(i * 2 + 1), handler.indices.get(i));
+        }
+    }
+
+    public void testValidateInParallelWithBusyExecutor() throws Exception {
+        BatchValidator validator = new BatchValidator(new OddNumberValidator());
+        validator.setChunkSize(7);
+        validator.setMaxPendingChunks(3);
+        // an executor whose threads are all busy: the queued chunks are never started by it
+        final List queuedTasks = new ArrayList();
+        validator.setTaskExecutor(new TaskExecutor() {
+            public void execute(Runnable task) {
+                queuedTasks.add(task);
+            }
+        });
+        RecordingErrorHandler handler = new RecordingErrorHandler();
+
+        assertEquals(50, validator.validate(beans.iterator(), handler));
+
+        assertEquals(15, queuedTasks.size());
+        assertEquals(50, handler.indices.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(new Integer(i * 2 + 1), handler.indices.get(i));
+        }
+    }
+
+    public void testValidateWithBatchAwareValidator() throws Exception {
+        ValangValidator valangValidator = new ValangValidator();
+        valangValidator.setValang("{ name : length(?) > 3 : 'Name is too short' : 'short' }");
+        valangValidator.afterPropertiesSet();
+
+        List persons = new ArrayList();
+        persons.add(new Person("Uri"));
+        persons.add(new Person("Steven"));
+        persons.add(new Person("Rob"));
+
+        BatchValidator validator = new BatchValidator(valangValidator);
+        validator.setChunkSize(2);
+        RecordingErrorHandler handler = new RecordingErrorHandler();
+
+        assertEquals(2, validator.validate(persons.iterator(), handler));
+
+        assertEquals(new Integer(0), handler.indices.get(0));
+        assertEquals(new Integer(2), handler.indices.get(1));
+        BatchValidationError[] errors = (BatchValidationError[]) handler.errors.get(1);
+        assertEquals(1, errors.length);
+        assertEquals("name", errors[0].getField());
+        assertEquals("short", errors[0].getErrorCode());
+    }
+
+    public void testValidateWithValidationUtils() throws Exception {
+        List persons = new ArrayList();
+        persons.add(new Person("Uri"));
+        Person person = new Person("");
+        person.setAddress(new Address("Main Street", "Amsterdam"));
+        persons.add(person);
+        person = new Person("Steven");
+        person.setAddress(new Address("Main Street", " "));
+        persons.add(person);
+
+        BatchValidator validator = new BatchValidator(new Validator() {
+            public boolean supports(Class clazz) {
+                return Person.class.equals(clazz);
+            }
+
+            public void validate(Object obj, Errors errors) {
+                ValidationUtils.rejectIfEmpty(errors, "name", "required");
+                if (((Person) obj).getAddress() != null) {
+                    errors.pushNestedPath("address");
+                    ValidationUtils.rejectIfEmptyOrWhitespace(errors, "city", "required");
+                    errors.popNestedPath();
+                }
+            }
+        });
+        validator.setChunkSize(2);
+        RecordingErrorHandler handler = new RecordingErrorHandler();
+
+        assertEquals(2, validator.validate(persons.iterator(), handler));
+
+        assertEquals(new Integer(1), handler.indices.get(0));
+        BatchValidationError[] errors = (BatchValidationError[]) handler.errors.get(0);
+        assertEquals(1, errors.length);
+        assertEquals("name", errors[0].getField());
+        assertEquals(new Integer(2), handler.indices.get(1));
+        errors = (BatchValidationError[]) handler.errors.get(1);
+        assertEquals(1, errors.length);
+        assertEquals("address.city", errors[0].getField());
+        assertEquals("required", errors[0].getErrorCode());
+    }
+
+    public void testValidateFailure() throws Exception {
+        BatchValidator validator = new BatchValidator(new OddNumberValidator());
+        beans.add("not a number");
+
+        try {
+            validator.validate(beans.iterator(), new RecordingErrorHandler());
+            fail("Expected the exception of the validator");
+        } catch (ClassCastException cce) {
+            // expected
+        }
+    }
+
+    //============================================= Helper Classes ===================================================
+
+    private static class OddNumberValidator implements Validator {
+
+        public boolean supports(Class clazz) {
+            return Integer.class.equals(clazz);
+        }
+
+        public void validate(Object obj, Errors errors) {
+            if (((Integer) obj).intValue() % 2 == 1) {
+                errors.reject("odd");
+                errors.pushNestedPath("number");
+                errors.rejectValue("value", "odd.value", "Odd number");
+                errors.popNestedPath();
+            }
+        }
+    }
+
+    private static class RecordingErrorHandler implements BatchErrorHandler {
+
+        private final List indices = new ArrayList();
+
+        private final List errors = new ArrayList();
+
+        public void handleErrors(int index, Object bean, BatchValidationError[] beanErrors) {
+            indices.add(new Integer(index));
+            errors.add(beanErrors);
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link StatisticsCounterCache}.
+ *
+ * @author Uri Boness
+ */
+public class StatisticsCounterCacheTests extends TestCase {
+
+    private ValidationStatistics statistics;
+
+    private StatisticsCounterCache cache;
+
+    protected void setUp() throws Exception {
+        statistics = new ValidationStatistics();
+        cache = new StatisticsCounterCache();
+    }
+
+    public void testGetCounter() throws Exception {
+        Object rule = new Object();
+        ValidationStatistics.Counter counter = statistics.getRuleCounter("rule");
+
+        assertNull(cache.getCounter(statistics, String.class, rule));
+        cache.putCounter(statistics, String.class, rule, counter);
+
+        assertSame(counter, cache.getCounter(statistics, String.class, rule));
+        assertNull(cache.getCounter(statistics, Integer.class, rule));
+        assertNull(cache.getCounter(statistics, String.class, new Object()));
+        assertNull(cache.getCounter(new ValidationStatistics(), String.class, rule));
+    }
+
+    public void testGetCounter_WithNullScope() throws Exception {
+        ValidationStatistics.Counter counter = statistics.getClassCounter(String.class);
+        cache.putCounter(statistics, null, String.class, counter);
+
+        assertSame(counter, cache.getCounter(statistics, null, String.class));
+    }
+
+    public void testGetCounter_AfterReset() throws Exception {
+        Object rule = new Object();
+        cache.putCounter(statistics, null, rule, statistics.getRuleCounter("rule"));
+
+        statistics.reset();
+
+        assertNull(cache.getCounter(statistics, null, rule));
+    }
+
+    public void testPutCounter_WithOtherStatistics() throws Exception {
+        Object rule = new Object();
+        cache.putCounter(statistics, null, rule, statistics.getRuleCounter("rule"));
+        ValidationStatistics otherStatistics = new ValidationStatistics();
+        ValidationStatistics.Counter otherCounter = otherStatistics.getRuleCounter("rule");
+
+        cache.putCounter(otherStatistics, null, rule, otherCounter);
+
+        assertSame(otherCounter, cache.getCounter(otherStatistics, null, rule));
+        assertNull(cache.getCounter(statistics, null, rule));
+    }
+
+}
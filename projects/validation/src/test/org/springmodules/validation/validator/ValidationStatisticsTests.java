@@ -0,0 +1,136 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.validator;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ValidationStatistics}.
+ *
+ * @author Uri Boness
+ */
+public class ValidationStatisticsTests extends TestCase {
+
+    private ValidationStatistics statistics;
+
+    protected void setUp() throws Exception {
+        statistics = new ValidationStatistics();
+    }
+
+    public void testRecordRuleEvaluation() throws Exception {
+        statistics.recordRuleEvaluation("name: required", 100, false);
+        statistics.recordRuleEvaluation("name: required", 300, true);
+        statistics.recordRuleEvaluation("email: email", 50, true);
+
+        ValidationStatistics.Counter counter = statistics.getRuleStatistics("name: required");
+        assertEquals("name: required", counter.getName());
+        assertEquals(2, counter.getCount());
+        assertEquals(1, counter.getFailures());
+        assertEquals(0.5, counter.getFailureRate(), 0);
+        assertEquals(400, counter.getTotalTime());
+        assertEquals(200, counter.getAverageTime(), 0);
+
+        assertEquals(2, statistics.getRuleCount());
+        assertEquals(3, statistics.getRuleEvaluationCount());
+        assertEquals(2, statistics.getRuleFailureCount());
+        assertNull(statistics.getRuleStatistics("unknown"));
+    }
+
+    public void testRecordValidation() throws Exception {
+        statistics.recordValidation(String.class, 100, false);
+        statistics.recordValidation(Integer.class, 200, true);
+        statistics.recordValidation(String.class, 100, true);
+
+        assertEquals(2, statistics.getClassStatistics(String.class).getCount());
+        assertEquals(1, statistics.getClassStatistics(Integer.class).getCount());
+        assertEquals(2, statistics.getClassCount());
+        assertEquals(3, statistics.getValidationCount());
+        assertEquals(2, statistics.getValidationFailureCount());
+    }
+
+    public void testGetRuleStatistics_SortsByTotalTime() throws Exception {
+        statistics.recordRuleEvaluation("cheap", 10, false);
+        statistics.recordRuleEvaluation("expensive", 1000, false);
+        statistics.recordRuleEvaluation("average", 100, false);
+
+        ValidationStatistics.Counter[] counters = statistics.getRuleStatistics();
+        assertEquals(3, counters.length);
+        assertEquals("expensive", counters[0].getName());
+        assertEquals("average", counters[1].getName());
+        assertEquals("cheap", counters[2].getName());
+    }
+
+    public void testGetReport() throws Exception {
+        statistics.recordRuleEvaluation("name: required", 2000000, true);
+        statistics.recordValidation(String.class, 3000000, true);
+
+        String report = statistics.getReport();
+        assertTrue(report.indexOf("Validated classes (1):") >= 0);
+        assertTrue(report.indexOf("java.lang.String") >= 0);
+        assertTrue(report.indexOf("Rules (1):") >= 0);
+        assertTrue(report.indexOf("name: required") >= 0);
+    }
+
+    public void testReset() throws Exception {
+        statistics.recordRuleEvaluation("name: required", 100, true);
+        statistics.recordValidation(String.class, 100, true);
+
+        statistics.reset();
+
+        assertEquals(0, statistics.getRuleCount());
+        assertEquals(0, statistics.getClassCount());
+        assertEquals(0, statistics.getValidationCount());
+    }
+
+    public void testGetRuleCounter() throws Exception {
+        ValidationStatistics.Counter counter = statistics.getRuleCounter("name: required");
+        counter.record(100, true);
+
+        assertSame(counter, statistics.getRuleCounter("name: required"));
+        assertSame(counter, statistics.getRuleStatistics("name: required"));
+        assertEquals(1, statistics.getRuleEvaluationCount());
+        assertFalse(counter.isDetached());
+
+        statistics.reset();
+
+        assertTrue(counter.isDetached());
+        assertNotSame(counter, statistics.getRuleCounter("name: required"));
+    }
+
+    public void testConcurrentRecording() throws Exception {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        statistics.recordRuleEvaluation("rule" + (j % 10), 1, j % 2 == 0);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        assertEquals(10, statistics.getRuleCount());
+        assertEquals(4000, statistics.getRuleEvaluationCount());
+        assertEquals(2000, statistics.getRuleFailureCount());
+    }
+
+}
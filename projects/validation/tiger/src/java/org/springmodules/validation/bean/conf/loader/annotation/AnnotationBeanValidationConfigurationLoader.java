@@ -21,9 +21,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
@@ -31,12 +29,20 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.util.ClassUtils;
 import org.springmodules.validation.bean.conf.BeanValidationConfiguration;
 import org.springmodules.validation.bean.conf.DefaultBeanValidationConfiguration;
 import org.springmodules.validation.bean.conf.MutableBeanValidationConfiguration;
 import org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader;
+import org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationRegistry;
 import org.springmodules.validation.bean.conf.loader.annotation.handler.ClassValidationAnnotationHandler;
 import org.springmodules.validation.bean.conf.loader.annotation.handler.MethodValidationAnnotationHandler;
 import org.springmodules.validation.bean.conf.loader.annotation.handler.PropertyValidationAnnotationHandler;
@@ -46,6 +52,12 @@ import org.springmodules.validation.util.lang.ReflectionUtils;
 /**
  * A {@link org.springmodules.validation.bean.conf.loader.BeanValidationConfigurationLoader} implementation that
  * creates validation configuration based on validation rule extracted from class annoatations.
+ * <p/>
+ * The configurations are created the first time a class is validated and cached in a thread-safe
+ * {@link BeanValidationConfigurationRegistry}. To avoid creating them while serving the first requests, the classes
+ * can be listed with {@link #setPreloadedClasses(Class[])}, or found by scanning the packages listed with
+ * {@link #setPreloadedPackages(String[])}, in which case their configurations are created when this loader is
+ * initialized.
  *
  * @author Uri Boness
  */
@@ -56,7 +68,11 @@ public class AnnotationBeanValidationConfigurationLoader implements BeanValidati
 
     private boolean checkValidatableAnnotation;
 
-    private Map<Class, BeanValidationConfiguration> configurationByClass;
+    private BeanValidationConfigurationRegistry configurationRegistry;
+
+    private Class[] preloadedClasses;
+
+    private String[] preloadedPackages;
 
     private ValidationAnnotationHandlerRegistry handlerRegistry;
 
@@ -78,7 +94,9 @@ public class AnnotationBeanValidationConfigurationLoader implements BeanValidati
      */
     public AnnotationBeanValidationConfigurationLoader(boolean checkValidatableAnnotation) {
         this.checkValidatableAnnotation = checkValidatableAnnotation;
-        configurationByClass = new HashMap<Class, BeanValidationConfiguration>();
+        configurationRegistry = new BeanValidationConfigurationRegistry();
+        preloadedClasses = new Class[0];
+        preloadedPackages = new String[0];
         handlerRegistry = new DefaultValidationAnnotationHandlerRegistry();
     }
 
@@ -95,24 +113,35 @@ public class AnnotationBeanValidationConfigurationLoader implements BeanValidati
 
     /**
      * Loads the validation configuration for the given class based on validation annotations. The resolved configuration
-     * are cached after the first time they are being loaded.
+     * are cached after the first time they are being loaded. When the same class is loaded concurrently for the first
+     * time, all callers get the configuration that was cached first.
      *
      * @see BeanValidationConfigurationLoader#loadConfiguration(Class)
      */
     public BeanValidationConfiguration loadConfiguration(Class clazz) {
-        BeanValidationConfiguration configuration = configurationByClass.get(clazz);
+        BeanValidationConfiguration configuration = configurationRegistry.get(clazz);
         if (configuration == null) {
-            configuration = createValidationConfiguration(clazz);
-            configurationByClass.put(clazz, configuration);
+            configuration = configurationRegistry.registerIfAbsent(clazz, createValidationConfiguration(clazz));
         }
         return configuration;
     }
 
     /**
+     * Initializes the annotation handlers and creates the configurations of the preloaded classes and of the classes
+     * found in the preloaded packages.
+     *
      * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
      */
     public void afterPropertiesSet() throws Exception {
         initContext(handlerRegistry);
+        for (Class clazz : preloadedClasses) {
+            loadConfiguration(clazz);
+        }
+        for (String basePackage : preloadedPackages) {
+            for (Class clazz : findClasses(basePackage)) {
+                loadConfiguration(clazz);
+            }
+        }
     }
 
     //=============================================== Setter/Getter ====================================================
@@ -149,6 +178,28 @@ public class AnnotationBeanValidationConfigurationLoader implements BeanValidati
         this.applicationContext = applicationContext;
     }
 
+    /**
+     * Sets the classes whose validation configurations will be created when this loader is initialized rather than
+     * the first time they are validated.
+     *
+     * @param preloadedClasses The classes whose configurations will be created on initialization.
+     */
+    public void setPreloadedClasses(Class[] preloadedClasses) {
+        this.preloadedClasses = preloadedClasses;
+    }
+
+    /**
+     * Sets the packages that will be scanned (including their sub-packages) when this loader is initialized. The
+     * validation configurations of the concrete classes found in these packages are created on initialization. If
+     * {@link #isCheckValidatableAnnotation()} returns <code>true</code>, only the classes annotated with
+     * {@link Validatable} are considered.
+     *
+     * @param preloadedPackages The packages to scan for classes to preload.
+     */
+    public void setPreloadedPackages(String[] preloadedPackages) {
+        this.preloadedPackages = preloadedPackages;
+    }
+
     //=============================================== Helper Methods ===================================================
 
 
@@ -283,6 +334,37 @@ public class AnnotationBeanValidationConfigurationLoader implements BeanValidati
         }
     }
 
+    /**
+     * Finds the concrete classes in the given package and its sub-packages whose configurations should be preloaded.
+     *
+     * @param basePackage The package to scan.
+     * @return The classes found in the given package.
+     */
+    protected List<Class> findClasses(String basePackage) throws ClassNotFoundException {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        if (checkValidatableAnnotation) {
+            scanner.addIncludeFilter(new AnnotationTypeFilter(Validatable.class));
+        } else {
+            scanner.addIncludeFilter(new TypeFilter() {
+                public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+                    return true;
+                }
+            });
+        }
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        if (applicationContext != null) {
+            scanner.setResourceLoader(applicationContext);
+            if (applicationContext.getClassLoader() != null) {
+                classLoader = applicationContext.getClassLoader();
+            }
+        }
+        List<Class> classes = new ArrayList<Class>();
+        for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+            classes.add(ClassUtils.forName(candidate.getBeanClassName(), classLoader));
+        }
+        return classes;
+    }
+
     protected void initContext(Object object) throws Exception {
         if (object instanceof ApplicationContextAware) {
             ((ApplicationContextAware) object).setApplicationContext(applicationContext);
@@ -18,16 +18,20 @@ package org.springmodules.validation.bean.conf.loader.annotation;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 
 import junit.framework.TestCase;
 import org.springframework.validation.BindException;
 import org.springframework.validation.Validator;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springmodules.validation.bean.BeanValidator;
+import org.springmodules.validation.bean.conf.BeanValidationConfiguration;
 import org.springmodules.validation.bean.conf.loader.annotation.handler.jpa.JpaBasicAnnotationHandler;
 import org.springmodules.validation.bean.conf.loader.annotation.handler.jpa.JpaColumnAnnotationHandler;
 import org.springmodules.validation.bean.conf.loader.annotation.handler.jpa.JpaManyToOneAnnotationHandler;
 import org.springmodules.validation.bean.conf.loader.annotation.handler.jpa.JpaOneToOneAnnotationHandler;
+import org.springmodules.validation.bean.conf.loader.annotation.scanned.UnmarkedBean;
+import org.springmodules.validation.bean.conf.loader.annotation.scanned.ValidatableBean;
 import org.springmodules.validation.bean.context.ValidationContextHolder;
 import org.springmodules.validation.bean.context.DefaultValidationContext;
 
@@ -258,7 +262,61 @@ public class AnnotationBeanValidationConfigurationLoaderIntegrationTests extends
 
     }
 
-    
+    public void testPreloadedClasses() throws Exception {
+        final List<Class> createdConfigurations = new ArrayList<Class>();
+        AnnotationBeanValidationConfigurationLoader loader = new AnnotationBeanValidationConfigurationLoader() {
+            protected BeanValidationConfiguration createValidationConfiguration(Class clazz) {
+                createdConfigurations.add(clazz);
+                return super.createValidationConfiguration(clazz);
+            }
+        };
+        loader.setPreloadedClasses(new Class[] { Person.class, Address.class });
+        loader.afterPropertiesSet();
+
+        assertEquals(2, createdConfigurations.size());
+        BeanValidationConfiguration configuration = loader.loadConfiguration(Person.class);
+        assertNotNull(configuration);
+        assertSame(configuration, loader.loadConfiguration(Person.class));
+        assertEquals(2, createdConfigurations.size());
+    }
+
+    public void testPreloadedPackages() throws Exception {
+        final List<Class> createdConfigurations = new ArrayList<Class>();
+        AnnotationBeanValidationConfigurationLoader loader = new AnnotationBeanValidationConfigurationLoader(true) {
+            protected BeanValidationConfiguration createValidationConfiguration(Class clazz) {
+                createdConfigurations.add(clazz);
+                return super.createValidationConfiguration(clazz);
+            }
+        };
+        loader.setPreloadedPackages(new String[] { "org.springmodules.validation.bean.conf.loader.annotation.scanned" });
+        loader.afterPropertiesSet();
+
+        // only the classes marked with @Validatable are registered
+        assertEquals(1, createdConfigurations.size());
+        assertEquals(ValidatableBean.class, createdConfigurations.get(0));
+        BeanValidationConfiguration configuration = loader.loadConfiguration(ValidatableBean.class);
+        assertEquals(1, configuration.getPropertyRules("name").length);
+        assertEquals(1, createdConfigurations.size());
+    }
+
+    public void testPreloadedPackages_WithoutCheckingValidatableAnnotation() throws Exception {
+        final List<Class> createdConfigurations = new ArrayList<Class>();
+        AnnotationBeanValidationConfigurationLoader loader = new AnnotationBeanValidationConfigurationLoader(false) {
+            protected BeanValidationConfiguration createValidationConfiguration(Class clazz) {
+                createdConfigurations.add(clazz);
+                return super.createValidationConfiguration(clazz);
+            }
+        };
+        loader.setPreloadedPackages(new String[] { "org.springmodules.validation.bean.conf.loader.annotation.scanned" });
+        loader.afterPropertiesSet();
+
+        assertEquals(2, createdConfigurations.size());
+        assertTrue(createdConfigurations.contains(ValidatableBean.class));
+        assertTrue(createdConfigurations.contains(UnmarkedBean.class));
+        loader.loadConfiguration(UnmarkedBean.class);
+        assertEquals(2, createdConfigurations.size());
+    }
+
     protected void setContext(String context) {
         ValidationContextHolder.setValidationContext(new DefaultValidationContext(context));
     }
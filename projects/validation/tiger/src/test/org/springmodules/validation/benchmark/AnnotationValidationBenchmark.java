@@ -0,0 +1,224 @@
+/*
+ * Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springmodules.validation.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springmodules.validation.bean.BeanValidator;
+import org.springmodules.validation.bean.conf.loader.annotation.AnnotationBeanValidationConfigurationLoader;
+import org.springmodules.validation.bean.conf.loader.annotation.handler.*;
+
+/**
+ * Extends the {@link ValidationBenchmark} with the {@link BeanValidator} configured by annotations. The annotated
+ * beans mirror the beans of the XML configured benchmark and carry the same rules, so the two configurations can be
+ * compared.
+ * <p/>
+ * This class is not a unit test. It is launched with its main method, which takes the same arguments as the main
+ * method of {@link ValidationBenchmark}:
+ * <pre>
+ * java org.springmodules.validation.benchmark.AnnotationValidationBenchmark 50000 100
+ * </pre>
+ *
+ * @author Uri Boness
+ */
+public class AnnotationValidationBenchmark extends ValidationBenchmark {
+
+    public AnnotationValidationBenchmark(int iterations, int linesPerOrder) {
+        super(iterations, linesPerOrder);
+    }
+
+    public void run() throws Exception {
+        super.run();
+        System.out.println("Bean validator with annotations (" + getIterations() + " validations)");
+        benchmarkAnnotationBeanValidator();
+    }
+
+    private void benchmarkAnnotationBeanValidator() throws Exception {
+        AnnotationBeanValidationConfigurationLoader loader = new AnnotationBeanValidationConfigurationLoader();
+        loader.afterPropertiesSet();
+        BeanValidator validator = new BeanValidator(loader);
+
+        measureValidations("flat bean", validator, createAnnotatedCustomers());
+        measureValidations("nested bean", validator, createAnnotatedOrders(1));
+        measureValidations("collection heavy bean (" + getLinesPerOrder() + " lines)", validator,
+            createAnnotatedOrders(getLinesPerOrder()));
+    }
+
+    private AnnotatedCustomer[] createAnnotatedCustomers() {
+        return new AnnotatedCustomer[] {
+            new AnnotatedCustomer("Uri Boness", "uri@example.com", 30, "+31 20 1234567",
+                new AnnotatedAddress("Main Street", "Amsterdam")),
+            new AnnotatedCustomer("", "not an email", 12, "phone", new AnnotatedAddress(null, "Amsterdam"))
+        };
+    }
+
+    private AnnotatedOrder[] createAnnotatedOrders(int lineCount) {
+        AnnotatedCustomer[] customers = createAnnotatedCustomers();
+        AnnotatedOrder validOrder = new AnnotatedOrder("ORD-1", customers[0]);
+        AnnotatedOrder invalidOrder = new AnnotatedOrder("1", customers[1]);
+        for (int i = 0; i < lineCount; i++) {
+            validOrder.lines.add(new AnnotatedOrderLine("product-" + i, 1 + (i % 10), 9.99));
+            invalidOrder.lines.add((i < lineCount - 1) ?
+                new AnnotatedOrderLine("product-" + i, 1 + (i % 10), 9.99) : new AnnotatedOrderLine(null, 0, 9.99));
+        }
+        return new AnnotatedOrder[] { validOrder, invalidOrder };
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int linesPerOrder = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        new AnnotationValidationBenchmark(iterations, linesPerOrder).run();
+    }
+
+    //============================================== Inner Classes =====================================================
+
+    public static class AnnotatedCustomer {
+
+        @NotBlank
+        @Length(max = 50)
+        private String name;
+
+        @NotNull
+        @Email
+        private String email;
+
+        @Range(min = 18, max = 120)
+        private int age;
+
+        // this property can be null, in which case the pattern won't be checked
+        @RegExp("[0-9 +-]{7,20}")
+        private String phone;
+
+        @CascadeValidation
+        private AnnotatedAddress address;
+
+        public AnnotatedCustomer(String name, String email, int age, String phone, AnnotatedAddress address) {
+            this.name = name;
+            this.email = email;
+            this.age = age;
+            this.phone = phone;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public AnnotatedAddress getAddress() {
+            return address;
+        }
+    }
+
+    public static class AnnotatedAddress {
+
+        @NotNull
+        private String street;
+
+        @NotNull
+        private String city;
+
+        public AnnotatedAddress(String street, String city) {
+            this.street = street;
+            this.city = city;
+        }
+
+        public String getStreet() {
+            return street;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+
+    public static class AnnotatedOrder {
+
+        @NotBlank
+        @RegExp("ORD-[0-9]+")
+        private String number;
+
+        @NotNull
+        @CascadeValidation
+        private AnnotatedCustomer customer;
+
+        @NotEmpty
+        @CascadeValidation
+        private List<AnnotatedOrderLine> lines = new ArrayList<AnnotatedOrderLine>();
+
+        public AnnotatedOrder(String number, AnnotatedCustomer customer) {
+            this.number = number;
+            this.customer = customer;
+        }
+
+        public String getNumber() {
+            return number;
+        }
+
+        public AnnotatedCustomer getCustomer() {
+            return customer;
+        }
+
+        public List<AnnotatedOrderLine> getLines() {
+            return lines;
+        }
+    }
+
+    @Expression(value = "quantity * price <= 10000", errorCode = "line.total.exceeded")
+    public static class AnnotatedOrderLine {
+
+        @NotBlank
+        private String product;
+
+        @Range(min = 1, max = 1000)
+        private int quantity;
+
+        private double price;
+
+        public AnnotatedOrderLine(String product, int quantity, double price) {
+            this.product = product;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public String getProduct() {
+            return product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+    }
+
+}
@@ -28,6 +28,8 @@ import org.springmodules.lucene.index.core.LuceneIndexTemplate;
  * to manage concurrent calls on the index transparently.
  * 
  * @author Thierry Templier
+ * @deprecated use the IndexOperationQueue class of the lucene module,
+ * which correlates every operation with its own Future
  */
 public class ConcurrentLuceneIndexTemplate implements FactoryBean {
 
@@ -32,6 +32,8 @@ import org.springmodules.lucene.index.core.LuceneIndexTemplate;
  * @author Thierry Templier
  * @see org.springmodules.lucene.index.core.LuceneIndexTemplate
  * @see org.springmodules.lucene.index.core.concurrent.LuceneChannel
+ * @deprecated use the IndexOperationQueue class of the lucene module,
+ * which correlates every operation with its own Future
  */
 public class ConcurrentLuceneIndexTemplateListener implements InitializingBean,DisposableBean {
 
@@ -27,6 +27,8 @@ import EDU.oswego.cs.dl.util.concurrent.LinkedQueue;
  * @author Thierry Templier
  * @see org.springmodules.lucene.index.core.concurrent.LuceneChannelRequest
  * @see org.springmodules.lucene.index.core.concurrent.LuceneChannelResponse
+ * @deprecated use the IndexOperationQueue class of the lucene module,
+ * which correlates every operation with its own Future
  */
 public class LuceneChannel {
 